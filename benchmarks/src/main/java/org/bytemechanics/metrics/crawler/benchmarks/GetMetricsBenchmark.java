@@ -0,0 +1,118 @@
+/*
+ * Copyright 2020 Byte Mechanics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bytemechanics.metrics.crawler.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import org.bytemechanics.metrics.crawler.beans.MetricSnapshot;
+import org.bytemechanics.metrics.crawler.beans.MetricsDelta;
+import org.bytemechanics.metrics.crawler.impl.DefaultMetricsServiceImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * DefaultMetricsServiceImpl getMetrics() benchmark with many metrics registered<br>
+ * forEach() visits the same metrics without creating the snapshots, getMetricsSince() records a measure into the given number of modified metrics before retrieve only them and getMetricsParallel() computes the snapshots with a ForkJoinPool of one thread per processor, compare it with getMetrics() to find the number of metrics where parallelism pays off
+ * Usage:<pre>
+ * java -jar target/benchmarks.jar GetMetricsBenchmark -prof gc
+ * </pre>
+ * @author afarre
+ * @since 1.1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GetMetricsBenchmark {
+
+	@Param({"1000","10000","100000"})
+	public int metrics;
+	@Param({"200"})
+	public int modified;
+
+	private DefaultMetricsServiceImpl metricsService;
+	private String[] names;
+	private int next;
+	private long cursor;
+	private ForkJoinPool pool;
+
+	@Setup(Level.Trial)
+	public void setup(){
+		this.metricsService=new DefaultMetricsServiceImpl();
+		this.names=new String[this.metrics];
+		for(int ic1=0;ic1<this.metrics;ic1++){
+			final String name="benchmark.getMetrics."+ic1;
+			this.names[ic1]=name;
+			for(long ic2=0;ic2<DefaultMetricsServiceImpl.DEFAULT_SAMPLING_SIZE;ic2++){
+				this.metricsService.registerMeasure(name,ic2);
+			}
+		}
+		this.next=0;
+		this.cursor=this.metricsService.getMetricsSince(0l).getCursor();
+		this.pool=new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown(){
+		this.pool.shutdown();
+	}
+
+	@Benchmark
+	public List<MetricSnapshot> getMetrics(){
+		return this.metricsService.getMetrics();
+	}
+
+	@Benchmark
+	public List<MetricSnapshot> getMetricsParallel(){
+		return this.metricsService.getMetrics(this.pool);
+	}
+
+	@Benchmark
+	public void forEach(final Blackhole _blackhole){
+		this.metricsService.forEach(reading -> {
+			_blackhole.consume(reading.getName());
+			_blackhole.consume(reading.getTotalHits());
+			_blackhole.consume(reading.getLongAverage());
+			_blackhole.consume(reading.getLongMax());
+		});
+	}
+
+	@Benchmark
+	public MetricsDelta getMetricsSince(){
+		for(int ic1=0;ic1<this.modified;ic1++){
+			this.metricsService.registerMeasure(this.names[this.next],1l);
+			this.next=(this.next+1<this.names.length)? this.next+1 : 0;
+		}
+		final MetricsDelta reply=this.metricsService.getMetricsSince(this.cursor);
+		this.cursor=reply.getCursor();
+		return reply;
+	}
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2020 Byte Mechanics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bytemechanics.metrics.crawler.benchmarks;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.bytemechanics.metrics.crawler.MeasureReducer;
+import org.bytemechanics.metrics.crawler.impl.BufferedMetricsServiceImpl;
+import org.bytemechanics.metrics.crawler.impl.DefaultMetricsServiceImpl;
+import org.bytemechanics.metrics.crawler.internal.MeasureReducers;
+import org.bytemechanics.metrics.crawler.internal.MetricFactories;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * DefaultMetricsServiceImpl registration benchmark with 1, 8 and 64 threads registering into the same small set of metrics<br>
+ * The buffered param compares the direct registration with the per-thread buffered registration of BufferedMetricsServiceImpl.
+ * The increment benchmarks count into counters (that are created with the COUNTER factory and never buffered, whatever the params) to compare them with the registration of the same count as a measure.
+ * Usage:<pre>
+ * java -jar target/benchmarks.jar RegistrationBenchmark -prof gc
+ * </pre>
+ * @author afarre
+ * @since 1.1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RegistrationBenchmark {
+
+	private static final int METRICS=16;
+	private static final MeasureReducer<Long> REDUCER=MeasureReducers.LONG.get(Long.class);
+
+	@Param({"SAMPLED","CONCURRENT","SKETCH"})
+	public MetricFactories factory;
+	@Param({"false","true"})
+	public boolean buffered;
+
+	private DefaultMetricsServiceImpl metricsService;
+	private String[] names;
+	private String[] counters;
+
+	@Setup(Level.Trial)
+	public void setup(){
+		this.metricsService=(this.buffered)? new BufferedMetricsServiceImpl(DefaultMetricsServiceImpl.DEFAULT_SAMPLING_SIZE,this.factory,BufferedMetricsServiceImpl.DEFAULT_BUFFER_SIZE)
+											: new DefaultMetricsServiceImpl(DefaultMetricsServiceImpl.DEFAULT_SAMPLING_SIZE,this.factory);
+		this.names=new String[METRICS];
+		this.counters=new String[METRICS];
+		for(int ic1=0;ic1<METRICS;ic1++){
+			this.names[ic1]="benchmark.registration."+ic1;
+			this.counters[ic1]="benchmark.counter."+ic1;
+		}
+	}
+
+	private void registerMeasure(){
+		final ThreadLocalRandom random=ThreadLocalRandom.current();
+		this.metricsService.registerMeasure("benchmark.registration.{}",LocalDateTime.now(),random.nextLong(1000l),REDUCER,random.nextInt(METRICS));
+	}
+	private void registerPrimitiveMeasure(){
+		final ThreadLocalRandom random=ThreadLocalRandom.current();
+		this.metricsService.registerMeasure(this.names[random.nextInt(METRICS)],random.nextLong(1000l));
+	}
+	private void increment(){
+		this.metricsService.increment(this.counters[ThreadLocalRandom.current().nextInt(METRICS)]);
+	}
+
+	@Benchmark
+	@Threads(1)
+	public void registerMeasure1Thread(){
+		registerMeasure();
+	}
+	@Benchmark
+	@Threads(8)
+	public void registerMeasure8Threads(){
+		registerMeasure();
+	}
+	@Benchmark
+	@Threads(64)
+	public void registerMeasure64Threads(){
+		registerMeasure();
+	}
+	@Benchmark
+	@Threads(1)
+	public void registerPrimitiveMeasure1Thread(){
+		registerPrimitiveMeasure();
+	}
+	@Benchmark
+	@Threads(8)
+	public void registerPrimitiveMeasure8Threads(){
+		registerPrimitiveMeasure();
+	}
+	@Benchmark
+	@Threads(64)
+	public void registerPrimitiveMeasure64Threads(){
+		registerPrimitiveMeasure();
+	}
+	@Benchmark
+	@Threads(1)
+	public void increment1Thread(){
+		increment();
+	}
+	@Benchmark
+	@Threads(8)
+	public void increment8Threads(){
+		increment();
+	}
+	@Benchmark
+	@Threads(64)
+	public void increment64Threads(){
+		increment();
+	}
+}
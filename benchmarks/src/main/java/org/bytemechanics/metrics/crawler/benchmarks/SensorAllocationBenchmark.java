@@ -0,0 +1,84 @@
+/*
+ * Copyright 2020 Byte Mechanics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bytemechanics.metrics.crawler.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.bytemechanics.metrics.crawler.MetricHandle;
+import org.bytemechanics.metrics.crawler.MetricsService;
+import org.bytemechanics.metrics.crawler.impl.DefaultMetricsServiceImpl;
+import org.bytemechanics.metrics.crawler.internal.MetricFactories;
+import org.bytemechanics.metrics.crawler.sensors.AbstractSensor;
+import org.bytemechanics.metrics.crawler.sensors.DurationSensor;
+import org.bytemechanics.metrics.crawler.sensors.NanoDurationSensor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Allocation benchmark of the try-with-resources timers, must be executed with the gc profiler to report the bytes allocated per operation (gc.alloc.rate.norm)<br>
+ * Usage:<pre>
+ * java -jar target/benchmarks.jar SensorAllocationBenchmark -prof gc
+ * </pre>
+ * The pooled timers (NanoDurationSensor and MetricHandle.Timer) are expected to report 0 bytes per operation with any of the benchmarked metric factories
+ * @author afarre
+ * @since 1.1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SensorAllocationBenchmark {
+
+	@Param({"SAMPLED","WINDOWED","CONCURRENT"})
+	public MetricFactories factory;
+
+	private MetricsService metricsService;
+	private MetricHandle handle;
+
+	@Setup(Level.Trial)
+	public void setup(){
+		this.metricsService=new DefaultMetricsServiceImpl(DefaultMetricsServiceImpl.DEFAULT_SAMPLING_SIZE,this.factory);
+		AbstractSensor.registerMetricsServiceSupplier(() -> this.metricsService);
+		this.handle=this.metricsService.handle("benchmark.handle");
+	}
+
+	@Benchmark
+	public void durationSensor(){
+		try(DurationSensor sensor=DurationSensor.get("benchmark.durationSensor")){
+		}
+	}
+	@Benchmark
+	public void nanoDurationSensor(){
+		try(NanoDurationSensor sensor=NanoDurationSensor.get("benchmark.nanoDurationSensor")){
+		}
+	}
+	@Benchmark
+	public void handleTimer(){
+		try(MetricHandle.Timer timer=this.handle.time()){
+		}
+	}
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2020 Byte Mechanics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bytemechanics.metrics.crawler.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.bytemechanics.metrics.crawler.MetricHandle;
+import org.bytemechanics.metrics.crawler.MetricsService;
+import org.bytemechanics.metrics.crawler.impl.DefaultMetricsServiceImpl;
+import org.bytemechanics.metrics.crawler.sensors.AbstractSensor;
+import org.bytemechanics.metrics.crawler.sensors.DurationSensor;
+import org.bytemechanics.metrics.crawler.sensors.LongSensor;
+import org.bytemechanics.metrics.crawler.sensors.NanoDurationSensor;
+import org.bytemechanics.metrics.crawler.sensors.stack.DurationStackSensor;
+import org.bytemechanics.metrics.crawler.sensors.stack.LongStackSensor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Sensors overhead benchmark (single thread), each operation is a complete measure (sensor creation, close and registration)<br>
+ * Usage:<pre>
+ * java -jar target/benchmarks.jar SensorBenchmark -prof gc
+ * </pre>
+ * @author afarre
+ * @since 1.1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SensorBenchmark {
+
+	private MetricsService metricsService;
+	private MetricHandle handle;
+	private long value;
+
+	@Setup(Level.Trial)
+	public void setup(){
+		this.metricsService=new DefaultMetricsServiceImpl();
+		AbstractSensor.registerMetricsServiceSupplier(() -> this.metricsService);
+		this.handle=this.metricsService.handle("benchmark.{}","handle");
+		this.value=0l;
+	}
+
+	@Benchmark
+	public void durationSensor(){
+		try(DurationSensor sensor=DurationSensor.get("benchmark.durationSensor")){
+		}
+	}
+	@Benchmark
+	public void durationSensorWithPlaceholders(){
+		try(DurationSensor sensor=DurationSensor.get("benchmark.{}.{}","durationSensor",1)){
+		}
+	}
+	@Benchmark
+	public void longSensorMeasure(){
+		LongSensor.measure(this.value++,"benchmark.longSensor");
+	}
+	@Benchmark
+	public void longSensorMeasureWithPlaceholders(){
+		LongSensor.measure(this.value++,"benchmark.{}.{}","longSensor",1);
+	}
+	@Benchmark
+	public void durationStackSensor(){
+		try(DurationStackSensor sensor=DurationStackSensor.get("benchmark.durationStackSensor")){
+		}
+	}
+	@Benchmark
+	public void nestedDurationStackSensor(){
+		try(DurationStackSensor sensor=DurationStackSensor.get("benchmark.durationStackSensor")){
+			try(DurationStackSensor nested=DurationStackSensor.get("nested")){
+			}
+		}
+	}
+	@Benchmark
+	public void longStackSensorMeasure(){
+		LongStackSensor.measure(this.value++,"benchmark.longStackSensor");
+	}
+	@Benchmark
+	public void nanoDurationSensor(){
+		try(NanoDurationSensor sensor=NanoDurationSensor.get("benchmark.nanoDurationSensor")){
+		}
+	}
+	@Benchmark
+	public void handleRecord(){
+		this.handle.record(this.value++);
+	}
+	@Benchmark
+	public void handleTimer(){
+		try(MetricHandle.Timer timer=this.handle.time()){
+		}
+	}
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2020 Byte Mechanics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bytemechanics.metrics.crawler.benchmarks;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+import org.bytemechanics.metrics.crawler.AbstractMetric;
+import org.bytemechanics.metrics.crawler.beans.MetricSnapshot;
+import org.bytemechanics.metrics.crawler.internal.ConcurrentMetric;
+import org.bytemechanics.metrics.crawler.internal.LongMetric;
+import org.bytemechanics.metrics.crawler.internal.MeasureReducers;
+import org.bytemechanics.metrics.crawler.internal.Metric;
+import org.bytemechanics.metrics.crawler.internal.SketchMetric;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Metric snapshot benchmark across sampling sizes, the metrics are full (the sampling size measures are registered)<br>
+ * Usage:<pre>
+ * java -jar target/benchmarks.jar SnapshotBenchmark -prof gc
+ * </pre>
+ * @author afarre
+ * @since 1.1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SnapshotBenchmark {
+
+	@Param({"1","128","1024","16384"})
+	public int samplingSize;
+
+	private Metric<Long> metric;
+	private LongMetric longMetric;
+	private ConcurrentMetric<Long> concurrentMetric;
+	private SketchMetric<Long> sketchMetric;
+
+	@Setup(Level.Trial)
+	public void setup(){
+		this.metric=new Metric<>("benchmark.metric",this.samplingSize,MeasureReducers.LONG.get(Long.class));
+		this.longMetric=new LongMetric("benchmark.longMetric",this.samplingSize,MeasureReducers.LONG.get(Long.class));
+		this.concurrentMetric=new ConcurrentMetric<>("benchmark.concurrentMetric",MeasureReducers.LONG.get(Long.class));
+		fill(this.metric);
+		fill(this.longMetric);
+		this.sketchMetric=new SketchMetric<>("benchmark.sketchMetric",MeasureReducers.LONG.get(Long.class));
+		fill(this.concurrentMetric);
+		fill(this.sketchMetric);
+	}
+	private void fill(final AbstractMetric<Long> _metric){
+		final LocalDateTime now=LocalDateTime.now();
+		for(long ic1=0;ic1<this.samplingSize*2l;ic1++){
+			_metric.addMeasure(now.plusNanos(ic1),ic1);
+		}
+	}
+
+	@Benchmark
+	public MetricSnapshot<Long> metricToSnapshot(){
+		return this.metric.toSnapshot();
+	}
+	@Benchmark
+	public MetricSnapshot<Long> longMetricToSnapshot(){
+		return this.longMetric.toSnapshot();
+	}
+	@Benchmark
+	public MetricSnapshot<Long> concurrentMetricToSnapshot(){
+		return this.concurrentMetric.toSnapshot();
+	}
+	@Benchmark
+	public MetricSnapshot<Long> sketchMetricToSnapshot(){
+		return this.sketchMetric.toSnapshot();
+	}
+}
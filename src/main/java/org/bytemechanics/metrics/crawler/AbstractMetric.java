@@ -0,0 +1,265 @@
+/*
+ * Copyright 2020 Byte Mechanics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bytemechanics.metrics.crawler;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Objects;
+import org.bytemechanics.metrics.crawler.beans.MetricReading;
+import org.bytemechanics.metrics.crawler.beans.MetricSnapshot;
+import org.bytemechanics.metrics.crawler.exceptions.IncorrectMeasureType;
+import org.bytemechanics.metrics.crawler.internal.Timestamps;
+import org.bytemechanics.metrics.crawler.internal.commons.string.SimpleFormat;
+
+/**
+ * Abstract base class for all metric implementations, the custom {@link MetricFactory} implementations must create metrics that extend it
+ * @param <TYPE> metric type
+ * @author afarre
+ * @since 1.1.0
+ */
+public abstract class AbstractMetric<TYPE> {
+
+	private static final long USAGE_RESOLUTION=1_000_000l;
+
+	private final String name;
+	private final MeasureReducer<TYPE> reducer;
+	private volatile long lastRecorded;
+	private volatile long lastRead;
+	private volatile long modified;
+
+	/**
+	 * Abstract metric constructor
+	 * @param _name metric name (mandatory)
+	 * @param _reducer reducer for this metric (mandatory)
+	 * @throws NullPointerException if either _name or _reducer are null
+	 */
+	protected AbstractMetric(final String _name,final MeasureReducer<TYPE> _reducer) {
+		if(_name==null)
+			throw new NullPointerException("Name can not be null to create a Metric");
+		this.name = _name;
+		if(_reducer==null)
+			throw new NullPointerException(SimpleFormat.format("Metric {} reducer can not be null to create a Metric",_name));
+		this.reducer=_reducer;
+		this.lastRecorded=System.nanoTime();
+		this.lastRead=this.lastRecorded;
+		this.modified=0l;
+	}
+
+	/**
+	 * Retrieves metric name
+	 * @return metric name
+	 */
+	public String getName() {
+		return name;
+	}
+	/**
+	 * Retrieves the metric reducer
+	 * @return the metric reducer
+	 */
+	public MeasureReducer<TYPE> getReducer() {
+		return reducer;
+	}
+	/**
+	 * Retrieves the last time (as System.nanoTime()) that a measure was registered through the metrics service, or the creation time if none
+	 * @return last record time in nanoseconds
+	 * @see #markRecorded(long) 
+	 * @since 1.1.0
+	 */
+	public long getLastRecorded() {
+		return lastRecorded;
+	}
+	/**
+	 * Retrieves the last time (as System.nanoTime()) that the metric was recorded or read through the metrics service, or the creation time if none
+	 * @return last use time in nanoseconds
+	 * @see #markRead(long) 
+	 * @since 1.1.0
+	 */
+	public long getLastUsed() {
+		final long recorded=this.lastRecorded;
+		final long read=this.lastRead;
+		return (read-recorded>0)? read : recorded;
+	}
+	/**
+	 * Mark the metric as recorded at the given time, used by the metrics services to track the metrics usage. To avoid writing the shared field on every measure the time is only updated if has advanced more than one millisecond
+	 * @param _nanos current System.nanoTime()
+	 * @since 1.1.0
+	 */
+	public void markRecorded(final long _nanos){
+		if(_nanos-this.lastRecorded>USAGE_RESOLUTION){
+			this.lastRecorded=_nanos;
+		}
+	}
+	/**
+	 * Mark the metric as read at the given time, used by the metrics services to track the metrics usage
+	 * @param _nanos current System.nanoTime()
+	 * @since 1.1.0
+	 */
+	public void markRead(final long _nanos){
+		if(_nanos-this.lastRead>USAGE_RESOLUTION){
+			this.lastRead=_nanos;
+		}
+	}
+
+	/**
+	 * Retrieves the modification epoch of the metrics service when this metric was last recorded, or zero if none
+	 * @return last modification epoch
+	 * @see #markModified(long) 
+	 * @since 1.1.0
+	 */
+	public long getModified() {
+		return modified;
+	}
+	/**
+	 * Mark the metric as modified at the given epoch of its metrics service, used to retrieve only the metrics modified since a given epoch
+	 * @param _epoch current modification epoch of the metrics service
+	 * @since 1.1.0
+	 */
+	public void markModified(final long _epoch){
+		this.modified=_epoch;
+	}
+
+	/**
+	 * Retrieves the current number of measures registered since it's creation
+	 * @return the current number of measures registered since it's creation
+	 */
+	public abstract long getHits();
+
+	/**
+	 * Register a new measure for this metric
+	 * @param _timestamp timestamp for this measure (mandatory)
+	 * @param _measure measure to register (mandatory)
+	 * @throws NullPointerException if any of _time or_measure are null
+	 * @throws IncorrectMeasureType if the _measure type is not assignable to the type of the reducer of this metric
+	 */
+	public abstract void addMeasure(final LocalDateTime _timestamp,final TYPE _measure);
+
+	/**
+	 * Register a new primitive long measure for this metric. By default boxes the measure, primitive metrics should override it to avoid boxing
+	 * @param _timestamp timestamp for this measure
+	 * @param _measure measure to register
+	 * @throws IncorrectMeasureType if the metric type is not Long
+	 * @see Timestamps
+	 */
+	@SuppressWarnings("unchecked")
+	public void addLongMeasure(final long _timestamp,final long _measure){
+		final LocalDateTime timestamp=Timestamps.toLocalDateTime(_timestamp);
+		final TYPE measure=(TYPE)(Object)_measure;
+		validateMeasure(timestamp, measure);
+		addMeasure(timestamp, measure);
+	}
+	/**
+	 * Register a new primitive double measure for this metric. By default boxes the measure, primitive metrics should override it to avoid boxing
+	 * @param _timestamp timestamp for this measure
+	 * @param _measure measure to register
+	 * @throws IncorrectMeasureType if the metric type is not Double
+	 * @see Timestamps
+	 */
+	@SuppressWarnings("unchecked")
+	public void addDoubleMeasure(final long _timestamp,final double _measure){
+		final LocalDateTime timestamp=Timestamps.toLocalDateTime(_timestamp);
+		final TYPE measure=(TYPE)(Object)_measure;
+		validateMeasure(timestamp, measure);
+		addMeasure(timestamp, measure);
+	}
+	/**
+	 * Register a new primitive duration measure for this metric. By default converts the measure to Duration, primitive metrics should override it to avoid allocations
+	 * @param _timestamp timestamp for this measure
+	 * @param _nanos duration in nanoseconds to register
+	 * @throws IncorrectMeasureType if the metric type is not Duration
+	 * @see Timestamps
+	 */
+	@SuppressWarnings("unchecked")
+	public void addDurationMeasure(final long _timestamp,final long _nanos){
+		final LocalDateTime timestamp=Timestamps.toLocalDateTime(_timestamp);
+		final TYPE measure=(TYPE)Duration.ofNanos(_nanos);
+		validateMeasure(timestamp, measure);
+		addMeasure(timestamp, measure);
+	}
+
+	/**
+	 * Retrieve a snapshot of the current metric status
+	 * @return MetricSnapshot of the same TYPE
+	 * @see MetricSnapshot
+	 */
+	public abstract MetricSnapshot<TYPE> toSnapshot();
+	/**
+	 * Fill the given reading with the current metric status. By default fills it from toSnapshot(), primitive metrics should override it to avoid creating the snapshot
+	 * @param _reading reading to fill
+	 * @return the given reading filled
+	 * @see MetricReading
+	 * @since 1.1.0
+	 */
+	public MetricReading read(final MetricReading _reading){
+		return _reading.snapshotValues(toSnapshot());
+	}
+
+	/**
+	 * Validates the measure to register
+	 * @param _timestamp timestamp for this measure (mandatory)
+	 * @param _measure measure to register (mandatory)
+	 * @throws NullPointerException if any of _time or_measure are null
+	 * @throws IncorrectMeasureType if the _measure type is not assignable to the type of the reducer of this metric
+	 */
+	public void validateMeasure(final LocalDateTime _timestamp,final TYPE _measure){
+		if(_timestamp==null)
+			throw new NullPointerException(SimpleFormat.format("Can not register null _timestamp measure at metric {}",this.name));
+		if(_measure==null)
+			throw new NullPointerException(SimpleFormat.format("Can not register null _measure at metric {}",this.name));
+		final Class<?> type=this.reducer.getType();
+		if(!type.isAssignableFrom(_measure.getClass()))
+			throw new IncorrectMeasureType(this.name, type, _measure.getClass());
+	}
+
+	/**
+	 * Retrieve the default empty snapshot for this metric (without any measure)
+	 * @return MetricSnapshot of the same TYPE
+	 * @see MetricSnapshot
+	 */
+	@SuppressWarnings("unchecked")
+	protected MetricSnapshot<TYPE> defaultSnapshot(){
+		return MetricSnapshot.<TYPE>builder(this.reducer)
+									.name(this.name)
+								.build();
+	}
+
+	/** @see Object#hashCode() */
+	@Override
+	public int hashCode() {
+		int hash = 7;
+		hash = 67 * hash + Objects.hashCode(this.name);
+		hash = 67 * hash + Objects.hashCode(this.reducer);
+		return hash;
+	}
+
+	/** @see Object#equals(java.lang.Object)  */
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (obj == null) {
+			return false;
+		}
+		if (getClass() != obj.getClass()) {
+			return false;
+		}
+		final AbstractMetric<?> other = (AbstractMetric<?>) obj;
+		if (!Objects.equals(this.name, other.name)) {
+			return false;
+		}
+		return Objects.equals(this.reducer, other.reducer);
+	}
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2020 Byte Mechanics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bytemechanics.metrics.crawler;
+
+import org.bytemechanics.metrics.crawler.internal.LogLinearHistogram;
+
+/**
+ * Measure reducer whose measures can be represented as a primitive long, the metrics created with this kind of reducer keep a log-linear histogram of the measures to provide percentiles.<br>
+ * The primitive operations default to the natural long arithmetic (sum, maximum, minimum and truncated division) over the primitive representation
+ * @author afarre
+ * @param <T> type of measure reducer
+ * @see LogLinearHistogram
+ * @see LongReducer
+ * @see org.bytemechanics.metrics.crawler.beans.MetricSnapshot#getPercentile(double)
+ * @since 1.1.0
+ */
+public interface HistogramReducer<T> extends LongReducer<T> {
+
+	/** @see LongReducer#accumulate(long, long) */
+	@Override
+	public default long accumulate(final long _val1,final long _val2){
+		return _val1+_val2;
+	}
+
+	/** @see LongReducer#max(long, long) */
+	@Override
+	public default long max(final long _val1,final long _val2){
+		return Math.max(_val1,_val2);
+	}
+
+	/** @see LongReducer#min(long, long) */
+	@Override
+	public default long min(final long _val1,final long _val2){
+		return Math.min(_val1,_val2);
+	}
+
+	/** @see LongReducer#average(long, long) */
+	@Override
+	public default long average(final long _val,final long _hits){
+		return _val/_hits;
+	}
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2020 Byte Mechanics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bytemechanics.metrics.crawler;
+
+/**
+ * Measure reducer whose measures can be represented as a primitive long and reduced without boxing nor Optional.<br>
+ * The metrics prefer these primitive operations to the generic ones when the reducer implements this interface, so both must be equivalent through toLong() and fromLong(). As the metrics can apply them in any order (for example in striped cells) accumulate must be associative and commutative with toLong(identity()) as neutral element, and max and min must follow the natural order of the primitive representation.
+ * @author afarre
+ * @param <T> type of measure reducer
+ * @see MeasureReducer
+ * @since 1.1.0
+ */
+public interface LongReducer<T> extends MeasureReducer<T> {
+
+	/**
+	 * Converts the measure to its primitive representation
+	 * @param _measure measure to convert
+	 * @return primitive representation
+	 */
+	public long toLong(final T _measure);
+
+	/**
+	 * Converts the primitive representation to measure
+	 * @param _value primitive representation
+	 * @return measure
+	 */
+	public T fromLong(final long _value);
+
+	/**
+	 * Retrieve the result of _val1 accumulated to _val2
+	 * @param _val1 first value
+	 * @param _val2 second value
+	 * @return the accumulated value
+	 */
+	public long accumulate(final long _val1,final long _val2);
+
+	/**
+	 * Retrieve the maximum value between _val1 and _val2
+	 * @param _val1 first value
+	 * @param _val2 second value
+	 * @return the maximum value
+	 */
+	public long max(final long _val1,final long _val2);
+
+	/**
+	 * Retrieve the minimum value between _val1 and _val2
+	 * @param _val1 first value
+	 * @param _val2 second value
+	 * @return the minimum value
+	 */
+	public long min(final long _val1,final long _val2);
+
+	/**
+	 * Retrieve the division between the _val and the _hits
+	 * @param _val value to divide
+	 * @param _hits dividend
+	 * @return the result of the division
+	 */
+	public long average(final long _val,final long _hits);
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2020 Byte Mechanics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bytemechanics.metrics.crawler;
+
+
+/**
+ * Adapter to create the metric that will store the measures of a certain name
+ * @author afarre
+ * @see AbstractMetric
+ * @since 1.1.0
+ */
+@FunctionalInterface
+public interface MetricFactory {
+
+	/**
+	 * Creates a new metric with the given parameters
+	 * @param <TYPE> type of the metric
+	 * @param _name metric name
+	 * @param _samplingSize max samples to store (if the metric keeps samples)
+	 * @param _reducer reducer for this metric
+	 * @return new metric instance
+	 */
+	public <TYPE> AbstractMetric<TYPE> create(final String _name,final int _samplingSize,final MeasureReducer<TYPE> _reducer);
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2020 Byte Mechanics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bytemechanics.metrics.crawler;
+
+import java.time.LocalDateTime;
+import org.bytemechanics.metrics.crawler.exceptions.IncorrectMeasureType;
+import org.bytemechanics.metrics.crawler.internal.ThreadLocalPool;
+
+/**
+ * Pre-resolved metric handle, the metric name is built only once when the handle is retrieved so the measures can be registered without formatting the name nor looking up the metric every time<br>
+ * Usage:<pre>
+ * {@code private static final MetricHandle QUERIES=metricsService.handle("db.{}.query","orders");
+ *  (...)
+ *  try(MetricHandle.Timer timer=QUERIES.time()){
+ *		(...)
+ *  }
+ * }</pre>
+ * Note: the metric type is decided by the first measure registered, any later measure of other type will raise an IncorrectMeasureType
+ * @see MetricsService#handle(java.lang.String, java.lang.Object...)
+ * @author afarre
+ * @since 1.1.0
+ */
+public interface MetricHandle {
+
+	/**
+	 * Retrieve the metric name of this handle
+	 * @return metric name
+	 */
+	public String getName();
+
+	/**
+	 * Register a new long measure taken now
+	 * @param _measure measure value
+	 * @throws IncorrectMeasureType if the metric already exist with another TYPE
+	 */
+	public void record(final long _measure);
+	/**
+	 * Register a new double measure taken now
+	 * @param _measure measure value
+	 * @throws IncorrectMeasureType if the metric already exist with another TYPE
+	 */
+	public void record(final double _measure);
+	/**
+	 * Register a new duration measure (in nanoseconds) taken now
+	 * @param _nanos measure value in nanoseconds
+	 * @throws IncorrectMeasureType if the metric already exist with another TYPE
+	 */
+	public void recordDuration(final long _nanos);
+	/**
+	 * Register a new measure of any type taken at the given timestamp
+	 * @param <T> measure type
+	 * @param _timestamp measure timestamp
+	 * @param _measure measure value
+	 * @param _reducer measure reducer, used to create the metric if not exist
+	 * @throws IncorrectMeasureType if the metric already exist with another TYPE
+	 * @see MetricsService#registerMeasure(java.lang.String, java.time.LocalDateTime, java.lang.Object, org.bytemechanics.metrics.crawler.MeasureReducer, java.lang.Object...)
+	 */
+	public <T> void record(final LocalDateTime _timestamp,final T _measure,final MeasureReducer<T> _reducer);
+
+	/**
+	 * Start a timer that registers the elapsed nanoseconds when closed, the timers are pooled per thread so they must not be used after close()
+	 * @return started timer
+	 * @see Timer
+	 */
+	public default Timer time(){
+		return Timer.start(this);
+	}
+
+
+	/**
+	 * Timer to measure the time between its start and close() using System.nanoTime()<br>
+	 * The timers are recycled when closed through a per-thread pool, so in steady state no timer is allocated
+	 * @see MetricHandle#time()
+	 */
+	public static final class Timer implements AutoCloseable{
+
+		private static final ThreadLocalPool<Timer> POOL=new ThreadLocalPool<>(16,Timer::new);
+
+		private MetricHandle handle;
+		private long startTime;
+
+		private Timer(){
+			this.handle=null;
+			this.startTime=0l;
+		}
+
+		/**
+		 * Retrieve a pooled timer and starts it for the given handle
+		 * @param _handle handle where the elapsed nanoseconds will be registered (mandatory)
+		 * @return started timer
+		 * @throws NullPointerException if _handle is null
+		 */
+		public static Timer start(final MetricHandle _handle){
+			if(_handle==null)
+				throw new NullPointerException("Can not start timer with null _handle");
+			final Timer reply=POOL.acquire();
+			reply.handle=_handle;
+			reply.startTime=System.nanoTime();
+			return reply;
+		}
+
+		/**
+		 * Calculate the nanoseconds elapsed from the start time to this instant
+		 * @return nanoseconds between start instant and now
+		 */
+		public long getNanos(){
+			return System.nanoTime()-this.startTime;
+		}
+
+		/**
+		 * Register the elapsed nanoseconds into the handle and return the timer to the pool, closing an already closed timer does nothing
+		 * @see MetricHandle#recordDuration(long)
+		 */
+		@Override
+		public void close(){
+			final MetricHandle current=this.handle;
+			if(current!=null){
+				final long nanos=getNanos();
+				this.handle=null;
+				try{
+					current.recordDuration(nanos);
+				}finally{
+					POOL.release(this);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2020 Byte Mechanics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bytemechanics.metrics.crawler;
+
+import org.bytemechanics.metrics.crawler.beans.MetricReading;
+
+/**
+ * Visitor of the metrics values, receives the primitive values of each metric without creating any MetricSnapshot so the exporters can write them directly to its output.
+ * The metrics whose histogram, quantiles or reservoir are only available through the snapshot (and the ones with custom reducers) are handed as readings filled from its snapshot<br>
+ * Usage:<pre>
+ * {@code metricsService.forEach(reading -> buffer.append(reading.getName()).append(' ').append(reading.getDoubleAverage()).append('\n'));
+ * }</pre>
+ * @see MetricsService#forEach(org.bytemechanics.metrics.crawler.MetricVisitor)
+ * @see MetricReading
+ * @author afarre
+ * @since 1.1.0
+ */
+@FunctionalInterface
+public interface MetricVisitor {
+
+	/**
+	 * Visit the values of a metric
+	 * @param _reading values of the metric, the same instance is reused for all the metrics so it must not be stored nor used after return
+	 */
+	public void visit(final MetricReading _reading);
+}
@@ -1,10 +1,19 @@
 package org.bytemechanics.metrics.crawler;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
+import org.bytemechanics.metrics.crawler.beans.MetricReading;
 import org.bytemechanics.metrics.crawler.beans.MetricSnapshot;
+import org.bytemechanics.metrics.crawler.beans.MetricsDelta;
 import org.bytemechanics.metrics.crawler.exceptions.IncorrectMeasureType;
+import org.bytemechanics.metrics.crawler.internal.MeasureReducers;
+import org.bytemechanics.metrics.crawler.internal.NameTemplate;
+import org.bytemechanics.metrics.crawler.internal.ServiceMetricHandle;
 import org.bytemechanics.metrics.crawler.internal.commons.string.SimpleFormat;
 
 /**
@@ -20,11 +29,12 @@ public interface MetricsService {
 	 * @param _placeholders replacement values
 	 * @return the _name with the {} replaced by _placeholders
 	 * @throws NullPointerException if name is null
+	 * @see NameTemplate
 	 */
 	public default String buildMetricName(final String _name,final Object... _placeholders){
-		return Optional.ofNullable(_name)
-					.map(name -> SimpleFormat.format(name, _placeholders))
-					.orElseThrow(() -> new NullPointerException("Can not create null named sensor metric"));
+		if(_name==null)
+			throw new NullPointerException("Can not create null named sensor metric");
+		return NameTemplate.format(_name, _placeholders);
 	}
 	
 	/**
@@ -57,7 +67,117 @@ public interface MetricsService {
 	 * @see LocalDateTime
 	 */
 	public <TYPE> void registerMeasure(final String _name,final LocalDateTime _time,final TYPE _measure,final MeasureReducer<TYPE> _reducer,final Object... _placeholders);
+
+	/**
+	 * Register a new primitive long measure taken now into the metric with the given _name using the long reducer.<br>
+	 * Implementations should override it to avoid boxing the measure
+	 * @param _name metric name (without placeholders)
+	 * @param _measure measure value
+	 * @throws IncorrectMeasureType if the metric already exist with another TYPE
+	 * @see MeasureReducers#LONG
+	 * @since 1.1.0
+	 */
+	public default void registerMeasure(final String _name,final long _measure){
+		registerMeasure(_name, LocalDateTime.now(), _measure, MeasureReducers.LONG.get(Long.class));
+	}
+	/**
+	 * Register a new primitive double measure taken now into the metric with the given _name using the double reducer.<br>
+	 * Implementations should override it to avoid boxing the measure
+	 * @param _name metric name (without placeholders)
+	 * @param _measure measure value
+	 * @throws IncorrectMeasureType if the metric already exist with another TYPE
+	 * @see MeasureReducers#DOUBLE
+	 * @since 1.1.0
+	 */
+	public default void registerMeasure(final String _name,final double _measure){
+		registerMeasure(_name, LocalDateTime.now(), _measure, MeasureReducers.DOUBLE.get(Double.class));
+	}
+	/**
+	 * Register a new duration measure (in nanoseconds) taken now into the metric with the given _name using the duration reducer.<br>
+	 * Implementations should override it to avoid creating the Duration
+	 * @param _name metric name (without placeholders)
+	 * @param _nanos measure value in nanoseconds
+	 * @throws IncorrectMeasureType if the metric already exist with another TYPE
+	 * @see MeasureReducers#DURATION
+	 * @since 1.1.0
+	 */
+	public default void registerDuration(final String _name,final long _nanos){
+		registerMeasure(_name, LocalDateTime.now(), Duration.ofNanos(_nanos), MeasureReducers.DURATION.get(Duration.class));
+	}
+	/**
+	 * Increment by one the counter with the given _name
+	 * @param _name metric name (without placeholders)
+	 * @throws IncorrectMeasureType if the metric already exist with another TYPE
+	 * @see #add(java.lang.String, long) 
+	 * @since 1.1.0
+	 */
+	public default void increment(final String _name){
+		add(_name,1l);
+	}
+	/**
+	 * Add the given _count to the counter with the given _name.<br>
+	 * Implementations should override it to keep the count in a counter without samples, by default registers the count as a primitive long measure
+	 * @param _name metric name (without placeholders)
+	 * @param _count count to add, zero or positive
+	 * @throws IllegalArgumentException if _count is negative
+	 * @throws IncorrectMeasureType if the metric already exist with another TYPE
+	 * @see org.bytemechanics.metrics.crawler.internal.CounterMetric
+	 * @since 1.1.0
+	 */
+	public default void add(final String _name,final long _count){
+		if(_count<0)
+			throw new IllegalArgumentException(SimpleFormat.format("Can not add negative count {} to counter {}",_count,_name));
+		registerMeasure(_name,_count);
+	}
+	/**
+	 * Register a gauge with the given _name whose value is provided by the given _supplier.<br>
+	 * Implementations should override it to hold the supplier weakly and evaluate it only when the metric is read, by default registers the current value once as a primitive long measure
+	 * @param _name metric name (without placeholders)
+	 * @param _supplier supplier of the gauge value (mandatory)
+	 * @return the given _supplier, the caller must keep a reference to it while the gauge must be sampled
+	 * @throws NullPointerException if _supplier is null
+	 * @throws IncorrectMeasureType if the metric already exist with another TYPE
+	 * @see org.bytemechanics.metrics.crawler.internal.GaugeMetric
+	 * @since 1.1.0
+	 */
+	public default LongSupplier gauge(final String _name,final LongSupplier _supplier){
+		if(_supplier==null)
+			throw new NullPointerException(SimpleFormat.format("Can not register gauge {} with null _supplier",_name));
+		registerMeasure(_name,_supplier.getAsLong());
+		return _supplier;
+	}
+	/**
+	 * Register a gauge with the given _name whose value is provided by the given _supplier.<br>
+	 * Implementations should override it to hold the supplier weakly and evaluate it only when the metric is read, by default registers the current value once as a primitive double measure
+	 * @param _name metric name (without placeholders)
+	 * @param _supplier supplier of the gauge value (mandatory)
+	 * @return the given _supplier, the caller must keep a reference to it while the gauge must be sampled
+	 * @throws NullPointerException if _supplier is null
+	 * @throws IncorrectMeasureType if the metric already exist with another TYPE
+	 * @see org.bytemechanics.metrics.crawler.internal.GaugeMetric
+	 * @since 1.1.0
+	 */
+	public default DoubleSupplier gauge(final String _name,final DoubleSupplier _supplier){
+		if(_supplier==null)
+			throw new NullPointerException(SimpleFormat.format("Can not register gauge {} with null _supplier",_name));
+		registerMeasure(_name,_supplier.getAsDouble());
+		return _supplier;
+	}
 	
+	/**
+	 * Retrieve a pre-resolved handle for the metric with the given _name replaced with _placeholders, the name is built only once
+	 * @param _name metric name where to replace the values
+	 * @param _placeholders metric name replacement values
+	 * @return metric handle
+	 * @throws NullPointerException if name is null
+	 * @see MetricsService#buildMetricName(java.lang.String, java.lang.Object...) 
+	 * @see MetricHandle
+	 * @since 1.1.0
+	 */
+	public default MetricHandle handle(final String _name,final Object... _placeholders){
+		return new ServiceMetricHandle(this, buildMetricName(_name, _placeholders));
+	}
+
 	/**
 	 * Return an ordered list by name of the existent snapshot metrics 
 	 * @return List of metrics snapshot
@@ -65,6 +185,57 @@ public interface MetricsService {
 	 */
 	public List<MetricSnapshot> getMetrics();
 
+	/**
+	 * Visit the existent metrics ordered by name handing its values to the given _visitor, to export the metrics without building the list of snapshots.<br>
+	 * Implementations should override it, by default visits the snapshots of getMetrics()
+	 * @param _visitor visitor of each metric values (mandatory)
+	 * @throws NullPointerException if _visitor is null
+	 * @see MetricVisitor
+	 * @see MetricReading
+	 * @since 1.1.0
+	 */
+	public default void forEach(final MetricVisitor _visitor){
+		if(_visitor==null)
+			throw new NullPointerException("Can not visit metrics with null _visitor");
+		final MetricReading reading=new MetricReading();
+		for(MetricSnapshot snapshot:getMetrics()){
+			_visitor.visit(reading.snapshotValues(snapshot));
+		}
+	}
+
+	/**
+	 * Return an ordered list by name of the existent snapshot metrics with the given _path and under it (the path followed by dot (.) and more segments).<br>
+	 * Implementations should override it to avoid filtering all the metrics
+	 * Example: the path "http.orders" retrieves "http.orders" and "http.orders.get" but not "http.ordersCount"
+	 * @param _path metric path where to replace the values, an empty path retrieves all the metrics
+	 * @param _placeholders metric path replacement values
+	 * @return List of metrics snapshot under the given path
+	 * @throws NullPointerException if _path is null
+	 * @see MetricsService#buildMetricName(java.lang.String, java.lang.Object...) 
+	 * @see MetricSnapshot
+	 * @since 1.1.0
+	 */
+	public default List<MetricSnapshot> getMetricsUnder(final String _path,final Object... _placeholders){
+		final String path=buildMetricName(_path, _placeholders);
+		final String prefix=path+'.';
+		return getMetrics().stream()
+							.filter(snapshot -> path.isEmpty()||path.equals(snapshot.getName())||snapshot.getName().startsWith(prefix))
+							.collect(Collectors.toList());
+	}
+
+	/**
+	 * Return the snapshots of the metrics modified since the given _cursor ordered by name and the cursor to use in the next call.<br>
+	 * The first call should use the cursor zero to retrieve all the metrics, then each call with the previous returned cursor retrieves only the metrics recorded since the previous call, this way the cost is proportional to the modified metrics and not to all the metrics.
+	 * Implementations should override it, by default returns all the metrics and the same cursor
+	 * @param _cursor cursor returned by the previous call, zero to retrieve all the metrics
+	 * @return snapshots of the modified metrics and the next cursor
+	 * @see MetricsDelta
+	 * @since 1.1.0
+	 */
+	public default MetricsDelta getMetricsSince(final long _cursor){
+		return new MetricsDelta(_cursor,getMetrics());
+	}
+
 	/**
 	 * Removes all current metrics in the service
 	 */
@@ -0,0 +1,369 @@
+/*
+ * Copyright 2020 Byte Mechanics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bytemechanics.metrics.crawler.beans;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import org.bytemechanics.metrics.crawler.MeasureReducer;
+import org.bytemechanics.metrics.crawler.internal.commons.string.SimpleFormat;
+
+/**
+ * Reusable holder of the primitive values of a metric in a certain moment, filled by the metrics and handed to a MetricVisitor<br>
+ * Unlike MetricSnapshot it is mutable and the same instance is reused for all the metrics visited, so the values must be read during the visit.
+ * The values of the LONG and DURATION (as nanoseconds) metrics are available as long and as double, the values of the DOUBLE metrics only as double.
+ * The counters are COUNTER readings that provide its total as accumulated (as long and as double) and its rate, without maximum, minimum nor last values.
+ * The metrics of other types (or the ones that can not provide its primitive values) are OBJECT readings that only provide the snapshot.<br>
+ * The timestamps are the nanoseconds from 1970-01-01T00:00 of the local date time (as if the local date time was at UTC), so LocalDateTime.ofEpochSecond(Math.floorDiv(timestamp,1_000_000_000l),(int)Math.floorMod(timestamp,1_000_000_000l),ZoneOffset.UTC) converts them back.<br>
+ * Note: if the metric has no measures (getSamplingSize() is zero) all the values are zero
+ * @see org.bytemechanics.metrics.crawler.MetricVisitor
+ * @author afarre
+ * @since 1.1.0
+ */
+public final class MetricReading {
+
+	private static final long NANOS_PER_SECOND=1_000_000_000l;
+
+	/**
+	 * Kind of values of the reading
+	 */
+	public enum Kind{
+		/** Long values */
+		LONG,
+		/** Duration values as nanoseconds */
+		DURATION,
+		/** Double values */
+		DOUBLE,
+		/** Counter total and rate */
+		COUNTER,
+		/** Values only available through the snapshot */
+		OBJECT,
+	}
+
+	private String name;
+	private MeasureReducer reducer;
+	private Kind kind;
+	private long samplingSize;
+	private long totalHits;
+	private long longAccumulated;
+	private long longMax;
+	private long longMin;
+	private long longAverage;
+	private long longLast;
+	private double doubleAccumulated;
+	private double doubleMax;
+	private double doubleMin;
+	private double doubleAverage;
+	private double doubleLast;
+	private long lastOccurrence;
+	private double variance;
+	private double rate;
+	private MetricSnapshot snapshot;
+
+
+	/**
+	 * Fill the reading with the values of a metric of long or duration measures
+	 * @param _name metric name
+	 * @param _reducer metric reducer
+	 * @param _kind LONG or DURATION
+	 * @param _samplingSize number of samples used
+	 * @param _totalHits total number of measures since metric creation
+	 * @param _accumulated accumulation of the samples
+	 * @param _max maximum of the samples
+	 * @param _min minimum of the samples
+	 * @param _last last sample
+	 * @param _lastOccurrence timestamp of the last sample
+	 * @return this reading
+	 */
+	public MetricReading longValues(final String _name,final MeasureReducer _reducer,final Kind _kind,final long _samplingSize,final long _totalHits,final long _accumulated,final long _max,final long _min,final long _last,final long _lastOccurrence){
+		this.name=_name;
+		this.reducer=_reducer;
+		this.kind=_kind;
+		this.samplingSize=_samplingSize;
+		this.totalHits=_totalHits;
+		this.longAccumulated=_accumulated;
+		this.longMax=_max;
+		this.longMin=_min;
+		this.longAverage=(_samplingSize>0)? _accumulated/_samplingSize : 0l;
+		this.longLast=_last;
+		this.doubleAccumulated=_accumulated;
+		this.doubleMax=_max;
+		this.doubleMin=_min;
+		this.doubleAverage=this.longAverage;
+		this.doubleLast=_last;
+		this.lastOccurrence=_lastOccurrence;
+		this.variance=Double.NaN;
+		this.rate=Double.NaN;
+		this.snapshot=null;
+		return this;
+	}
+	/**
+	 * Fill the reading with the values of a metric of double measures
+	 * @param _name metric name
+	 * @param _reducer metric reducer
+	 * @param _samplingSize number of samples used
+	 * @param _totalHits total number of measures since metric creation
+	 * @param _accumulated accumulation of the samples
+	 * @param _max maximum of the samples
+	 * @param _min minimum of the samples
+	 * @param _last last sample
+	 * @param _lastOccurrence timestamp of the last sample
+	 * @return this reading
+	 */
+	public MetricReading doubleValues(final String _name,final MeasureReducer _reducer,final long _samplingSize,final long _totalHits,final double _accumulated,final double _max,final double _min,final double _last,final long _lastOccurrence){
+		this.name=_name;
+		this.reducer=_reducer;
+		this.kind=Kind.DOUBLE;
+		this.samplingSize=_samplingSize;
+		this.totalHits=_totalHits;
+		this.longAccumulated=0l;
+		this.longMax=0l;
+		this.longMin=0l;
+		this.longAverage=0l;
+		this.longLast=0l;
+		this.doubleAccumulated=_accumulated;
+		this.doubleMax=_max;
+		this.doubleMin=_min;
+		this.doubleAverage=(_samplingSize>0)? _accumulated/_samplingSize : 0.0d;
+		this.doubleLast=_last;
+		this.lastOccurrence=_lastOccurrence;
+		this.variance=Double.NaN;
+		this.rate=Double.NaN;
+		this.snapshot=null;
+		return this;
+	}
+	/**
+	 * Fill the reading with the values of a counter
+	 * @param _name metric name
+	 * @param _reducer metric reducer
+	 * @param _totalHits total number of increments since counter creation
+	 * @param _total counter total
+	 * @param _rate moving average rate per second of the counter
+	 * @param _lastOccurrence timestamp of the last increment
+	 * @return this reading
+	 * @since 1.1.0
+	 */
+	public MetricReading counterValues(final String _name,final MeasureReducer _reducer,final long _totalHits,final long _total,final double _rate,final long _lastOccurrence){
+		longValues(_name,_reducer,Kind.COUNTER,_totalHits,_totalHits,_total,0l,0l,0l,_lastOccurrence);
+		this.rate=_rate;
+		return this;
+	}
+	/**
+	 * Fill the reading with the values of the given snapshot (including its variance), the snapshots of Long, Duration and Double metrics are converted to its primitive values
+	 * @param _snapshot metric snapshot (mandatory)
+	 * @return this reading
+	 */
+	public MetricReading snapshotValues(final MetricSnapshot _snapshot){
+		final Class type=_snapshot.getMeasureReducer().getType();
+		final boolean empty=(_snapshot.getSamplingSize()==0)||(_snapshot.getLastOccurrence()==null);
+		if((_snapshot.isCounter())&&(Long.class.equals(type))){
+			counterValues(_snapshot.getName(),_snapshot.getMeasureReducer(),_snapshot.getTotalHits(),(empty)? 0l : (Long)_snapshot.getAccumulatedSamples(),_snapshot.getRate(),(empty)? 0l : timestamp(_snapshot.getLastOccurrence()));
+		}else if(Long.class.equals(type)){
+			if(empty){
+				longValues(_snapshot.getName(),_snapshot.getMeasureReducer(),Kind.LONG,0l,_snapshot.getTotalHits(),0l,0l,0l,0l,0l);
+			}else{
+				longValues(_snapshot.getName(),_snapshot.getMeasureReducer(),Kind.LONG,_snapshot.getSamplingSize(),_snapshot.getTotalHits(),(Long)_snapshot.getAccumulatedSamples(),(Long)_snapshot.getMaxMeasure(),(Long)_snapshot.getMinMeasure(),(Long)_snapshot.getLastMeasure(),timestamp(_snapshot.getLastOccurrence()));
+			}
+		}else if(Duration.class.equals(type)){
+			if(empty){
+				longValues(_snapshot.getName(),_snapshot.getMeasureReducer(),Kind.DURATION,0l,_snapshot.getTotalHits(),0l,0l,0l,0l,0l);
+			}else{
+				longValues(_snapshot.getName(),_snapshot.getMeasureReducer(),Kind.DURATION,_snapshot.getSamplingSize(),_snapshot.getTotalHits(),((Duration)_snapshot.getAccumulatedSamples()).toNanos(),((Duration)_snapshot.getMaxMeasure()).toNanos(),((Duration)_snapshot.getMinMeasure()).toNanos(),((Duration)_snapshot.getLastMeasure()).toNanos(),timestamp(_snapshot.getLastOccurrence()));
+			}
+		}else if(Double.class.equals(type)){
+			if(empty){
+				doubleValues(_snapshot.getName(),_snapshot.getMeasureReducer(),0l,_snapshot.getTotalHits(),0.0d,0.0d,0.0d,0.0d,0l);
+			}else{
+				doubleValues(_snapshot.getName(),_snapshot.getMeasureReducer(),_snapshot.getSamplingSize(),_snapshot.getTotalHits(),(Double)_snapshot.getAccumulatedSamples(),(Double)_snapshot.getMaxMeasure(),(Double)_snapshot.getMinMeasure(),(Double)_snapshot.getLastMeasure(),timestamp(_snapshot.getLastOccurrence()));
+			}
+		}else{
+			longValues(_snapshot.getName(),_snapshot.getMeasureReducer(),Kind.OBJECT,_snapshot.getSamplingSize(),_snapshot.getTotalHits(),0l,0l,0l,0l,(_snapshot.getLastOccurrence()!=null)? timestamp(_snapshot.getLastOccurrence()) : 0l);
+		}
+		this.variance=_snapshot.getVariance();
+		this.snapshot=_snapshot;
+		return this;
+	}
+	/**
+	 * Set the sample variance of the already filled reading
+	 * @param _variance sample variance of the samples in the square of its primitive unit
+	 * @return this reading
+	 * @see MetricSnapshot#getVariance()
+	 */
+	public MetricReading variance(final double _variance){
+		this.variance=_variance;
+		return this;
+	}
+	private static long timestamp(final LocalDateTime _localDateTime){
+		final long seconds=_localDateTime.toEpochSecond(ZoneOffset.UTC);
+		final long nanos=_localDateTime.getNano();
+		return (seconds<0)? Math.addExact(Math.multiplyExact(seconds+1,NANOS_PER_SECOND),nanos-NANOS_PER_SECOND)
+						: Math.addExact(Math.multiplyExact(seconds,NANOS_PER_SECOND),nanos);
+	}
+
+	/**
+	 * Retrieve the metric name
+	 * @return metric name
+	 */
+	public String getName() {
+		return name;
+	}
+	/**
+	 * Retrieve the metric reducer
+	 * @return metric reducer
+	 */
+	public MeasureReducer getReducer() {
+		return reducer;
+	}
+	/**
+	 * Retrieve the kind of values
+	 * @return kind of values
+	 */
+	public Kind getKind() {
+		return kind;
+	}
+	/**
+	 * Retrieve the number of samples used
+	 * @return number of samples used, zero if the metric has no measures
+	 */
+	public long getSamplingSize() {
+		return samplingSize;
+	}
+	/**
+	 * Retrieve the total number of measures since metric creation
+	 * @return total number of measures
+	 */
+	public long getTotalHits() {
+		return totalHits;
+	}
+	/**
+	 * Retrieve the accumulation of the samples of a LONG or DURATION (nanoseconds) metric
+	 * @return accumulation of the samples
+	 */
+	public long getLongAccumulated() {
+		return longAccumulated;
+	}
+	/**
+	 * Retrieve the maximum of the samples of a LONG or DURATION (nanoseconds) metric
+	 * @return maximum of the samples
+	 */
+	public long getLongMax() {
+		return longMax;
+	}
+	/**
+	 * Retrieve the minimum of the samples of a LONG or DURATION (nanoseconds) metric
+	 * @return minimum of the samples
+	 */
+	public long getLongMin() {
+		return longMin;
+	}
+	/**
+	 * Retrieve the average of the samples of a LONG or DURATION (nanoseconds) metric
+	 * @return average of the samples (truncated)
+	 */
+	public long getLongAverage() {
+		return longAverage;
+	}
+	/**
+	 * Retrieve the last sample of a LONG or DURATION (nanoseconds) metric
+	 * @return last sample
+	 */
+	public long getLongLast() {
+		return longLast;
+	}
+	/**
+	 * Retrieve the accumulation of the samples of a LONG, DURATION (nanoseconds) or DOUBLE metric
+	 * @return accumulation of the samples
+	 */
+	public double getDoubleAccumulated() {
+		return doubleAccumulated;
+	}
+	/**
+	 * Retrieve the maximum of the samples of a LONG, DURATION (nanoseconds) or DOUBLE metric
+	 * @return maximum of the samples
+	 */
+	public double getDoubleMax() {
+		return doubleMax;
+	}
+	/**
+	 * Retrieve the minimum of the samples of a LONG, DURATION (nanoseconds) or DOUBLE metric
+	 * @return minimum of the samples
+	 */
+	public double getDoubleMin() {
+		return doubleMin;
+	}
+	/**
+	 * Retrieve the average of the samples of a LONG, DURATION (nanoseconds) or DOUBLE metric
+	 * @return average of the samples (truncated for LONG and DURATION)
+	 */
+	public double getDoubleAverage() {
+		return doubleAverage;
+	}
+	/**
+	 * Retrieve the last sample of a LONG, DURATION (nanoseconds) or DOUBLE metric
+	 * @return last sample
+	 */
+	public double getDoubleLast() {
+		return doubleLast;
+	}
+	/**
+	 * Retrieve the timestamp of the last sample
+	 * @return timestamp of the last sample as nanoseconds from 1970-01-01T00:00 local time
+	 */
+	public long getLastOccurrence() {
+		return lastOccurrence;
+	}
+	/**
+	 * Retrieve the sample variance of the samples of a LONG, DURATION (nanoseconds squared) or DOUBLE metric
+	 * @return sample variance, 0 if there are less than two samples or NaN if the metric does not keep variance
+	 * @see MetricSnapshot#getVariance()
+	 */
+	public double getVariance() {
+		return variance;
+	}
+	/**
+	 * Retrieve the sample standard deviation of the samples of a LONG, DURATION (nanoseconds) or DOUBLE metric
+	 * @return sample standard deviation or NaN if the metric does not keep variance
+	 */
+	public double getStdDeviation() {
+		return Math.sqrt(this.variance);
+	}
+	/**
+	 * Retrieve the moving average rate per second of a COUNTER
+	 * @return rate per second or NaN if the metric is not a counter
+	 * @see MetricSnapshot#getRate()
+	 * @since 1.1.0
+	 */
+	public double getRate() {
+		return rate;
+	}
+	/**
+	 * Retrieve the snapshot of the metric, only for the readings filled from a snapshot (always for the OBJECT kind)
+	 * @return the snapshot of the metric or null if the reading has been filled with primitive values
+	 */
+	public MetricSnapshot getSnapshot() {
+		return snapshot;
+	}
+
+	/** @see Object#toString() */
+	@Override
+	public String toString() {
+		if(this.kind==Kind.COUNTER)
+			return SimpleFormat.format("MetricReading[name={}, kind={}, totalHits={}, accumulated={}, rate={}, lastOccurrence={}]",this.name,this.kind,this.totalHits,this.longAccumulated,this.rate,this.lastOccurrence);
+		return (this.kind==Kind.DOUBLE)?
+				SimpleFormat.format("MetricReading[name={}, kind={}, samplingSize={}, totalHits={}, accumulated={}, max={}, min={}, average={}, last={}, lastOccurrence={}]",this.name,this.kind,this.samplingSize,this.totalHits,this.doubleAccumulated,this.doubleMax,this.doubleMin,this.doubleAverage,this.doubleLast,this.lastOccurrence)
+				: SimpleFormat.format("MetricReading[name={}, kind={}, samplingSize={}, totalHits={}, accumulated={}, max={}, min={}, average={}, last={}, lastOccurrence={}]",this.name,this.kind,this.samplingSize,this.totalHits,this.longAccumulated,this.longMax,this.longMin,this.longAverage,this.longLast,this.lastOccurrence);
+	}
+}
@@ -3,7 +3,13 @@ package org.bytemechanics.metrics.crawler.beans;
 import java.time.LocalDateTime;
 import java.util.Objects;
 import java.util.Optional;
+import org.bytemechanics.metrics.crawler.DoubleReducer;
+import org.bytemechanics.metrics.crawler.HistogramReducer;
+import org.bytemechanics.metrics.crawler.LongReducer;
 import org.bytemechanics.metrics.crawler.MeasureReducer;
+import org.bytemechanics.metrics.crawler.internal.LogLinearHistogram;
+import org.bytemechanics.metrics.crawler.internal.QuantileSketch;
+import org.bytemechanics.metrics.crawler.internal.RunningVariance;
 import org.bytemechanics.metrics.crawler.internal.commons.string.SimpleFormat;
 
 /**
@@ -27,6 +33,10 @@ public class MetricSnapshot<TYPE>{
 	private final TYPE lastMeasure;
 	private final LocalDateTime lastOccurrence;
 	private final LocalDateTime snapshotTimestamp;
+	private final LogLinearHistogram histogram;
+	private final RunningVariance variance;
+	private final QuantileSketch sketch;
+	private final double rate;
 
 	/**
 	 * Constructor of metric snapshot
@@ -42,6 +52,84 @@ public class MetricSnapshot<TYPE>{
 	 * @param _lastOccurrence timestamp of the last taken measure
 	 */
 	protected MetricSnapshot(final MeasureReducer<TYPE> _measureReducer,final String _name,final TYPE _accumulatedSamples,final long _samplingSize,final long _totalHits,final TYPE _maxMeasure,final TYPE _minMeasure,final TYPE _averageMeasure,final TYPE _lastMeasure,final LocalDateTime _lastOccurrence) {
+		this(_measureReducer, _name, _accumulatedSamples, _samplingSize, _totalHits, _maxMeasure, _minMeasure, _averageMeasure, _lastMeasure, _lastOccurrence, null);
+	}
+	/**
+	 * Constructor of metric snapshot with histogram
+	 * @param _measureReducer measure reducer used to create this metric snaphot
+	 * @param _name metric name
+	 * @param _accumulatedSamples accumulation of all samples used to create this metric
+	 * @param _samplingSize sampling size used to generate this metric snapshot
+	 * @param _totalHits total number of measures since metric creation
+	 * @param _maxMeasure maximum measure get of all samples used
+	 * @param _minMeasure minimum measure get of all samples used
+	 * @param _averageMeasure average measure value over all samples used
+	 * @param _lastMeasure last taken measure
+	 * @param _lastOccurrence timestamp of the last taken measure
+	 * @param _histogram histogram of all samples used (only if _measureReducer is an HistogramReducer, null otherwise)
+	 * @since 1.1.0
+	 */
+	protected MetricSnapshot(final MeasureReducer<TYPE> _measureReducer,final String _name,final TYPE _accumulatedSamples,final long _samplingSize,final long _totalHits,final TYPE _maxMeasure,final TYPE _minMeasure,final TYPE _averageMeasure,final TYPE _lastMeasure,final LocalDateTime _lastOccurrence,final LogLinearHistogram _histogram) {
+		this(_measureReducer, _name, _accumulatedSamples, _samplingSize, _totalHits, _maxMeasure, _minMeasure, _averageMeasure, _lastMeasure, _lastOccurrence, _histogram, null);
+	}
+	/**
+	 * Constructor of metric snapshot with histogram and variance
+	 * @param _measureReducer measure reducer used to create this metric snaphot
+	 * @param _name metric name
+	 * @param _accumulatedSamples accumulation of all samples used to create this metric
+	 * @param _samplingSize sampling size used to generate this metric snapshot
+	 * @param _totalHits total number of measures since metric creation
+	 * @param _maxMeasure maximum measure get of all samples used
+	 * @param _minMeasure minimum measure get of all samples used
+	 * @param _averageMeasure average measure value over all samples used
+	 * @param _lastMeasure last taken measure
+	 * @param _lastOccurrence timestamp of the last taken measure
+	 * @param _histogram histogram of all samples used (only if _measureReducer is an HistogramReducer, null otherwise)
+	 * @param _variance running variance of all samples used (only if _measureReducer is a LongReducer or a DoubleReducer, null otherwise)
+	 * @since 1.1.0
+	 */
+	protected MetricSnapshot(final MeasureReducer<TYPE> _measureReducer,final String _name,final TYPE _accumulatedSamples,final long _samplingSize,final long _totalHits,final TYPE _maxMeasure,final TYPE _minMeasure,final TYPE _averageMeasure,final TYPE _lastMeasure,final LocalDateTime _lastOccurrence,final LogLinearHistogram _histogram,final RunningVariance _variance) {
+		this(_measureReducer, _name, _accumulatedSamples, _samplingSize, _totalHits, _maxMeasure, _minMeasure, _averageMeasure, _lastMeasure, _lastOccurrence, _histogram, _variance, null);
+	}
+	/**
+	 * Constructor of metric snapshot with histogram, variance and quantile sketch
+	 * @param _measureReducer measure reducer used to create this metric snaphot
+	 * @param _name metric name
+	 * @param _accumulatedSamples accumulation of all samples used to create this metric
+	 * @param _samplingSize sampling size used to generate this metric snapshot
+	 * @param _totalHits total number of measures since metric creation
+	 * @param _maxMeasure maximum measure get of all samples used
+	 * @param _minMeasure minimum measure get of all samples used
+	 * @param _averageMeasure average measure value over all samples used
+	 * @param _lastMeasure last taken measure
+	 * @param _lastOccurrence timestamp of the last taken measure
+	 * @param _histogram histogram of all samples used (only if _measureReducer is an HistogramReducer, null otherwise)
+	 * @param _variance running variance of all samples used (only if _measureReducer is a LongReducer or a DoubleReducer, null otherwise)
+	 * @param _sketch quantile sketch of all samples used (only if _measureReducer is a LongReducer or a DoubleReducer, null otherwise)
+	 * @since 1.1.0
+	 */
+	protected MetricSnapshot(final MeasureReducer<TYPE> _measureReducer,final String _name,final TYPE _accumulatedSamples,final long _samplingSize,final long _totalHits,final TYPE _maxMeasure,final TYPE _minMeasure,final TYPE _averageMeasure,final TYPE _lastMeasure,final LocalDateTime _lastOccurrence,final LogLinearHistogram _histogram,final RunningVariance _variance,final QuantileSketch _sketch) {
+		this(_measureReducer, _name, _accumulatedSamples, _samplingSize, _totalHits, _maxMeasure, _minMeasure, _averageMeasure, _lastMeasure, _lastOccurrence, _histogram, _variance, _sketch, Double.NaN);
+	}
+	/**
+	 * Constructor of metric snapshot with histogram, variance, quantile sketch and counter rate
+	 * @param _measureReducer measure reducer used to create this metric snaphot
+	 * @param _name metric name
+	 * @param _accumulatedSamples accumulation of all samples used to create this metric
+	 * @param _samplingSize sampling size used to generate this metric snapshot
+	 * @param _totalHits total number of measures since metric creation
+	 * @param _maxMeasure maximum measure get of all samples used
+	 * @param _minMeasure minimum measure get of all samples used
+	 * @param _averageMeasure average measure value over all samples used
+	 * @param _lastMeasure last taken measure
+	 * @param _lastOccurrence timestamp of the last taken measure
+	 * @param _histogram histogram of all samples used (only if _measureReducer is an HistogramReducer, null otherwise)
+	 * @param _variance running variance of all samples used (only if _measureReducer is a LongReducer or a DoubleReducer, null otherwise)
+	 * @param _sketch quantile sketch of all samples used (only if _measureReducer is a LongReducer or a DoubleReducer, null otherwise)
+	 * @param _rate moving average rate per second of the counter (only for counters, NaN otherwise)
+	 * @since 1.1.0
+	 */
+	protected MetricSnapshot(final MeasureReducer<TYPE> _measureReducer,final String _name,final TYPE _accumulatedSamples,final long _samplingSize,final long _totalHits,final TYPE _maxMeasure,final TYPE _minMeasure,final TYPE _averageMeasure,final TYPE _lastMeasure,final LocalDateTime _lastOccurrence,final LogLinearHistogram _histogram,final RunningVariance _variance,final QuantileSketch _sketch,final double _rate) {
 		this.measureReducer=_measureReducer;
 		this.name = _name;
 		this.accumulatedSamples = _accumulatedSamples;
@@ -53,6 +141,10 @@ public class MetricSnapshot<TYPE>{
 		this.lastMeasure = _lastMeasure;
 		this.lastOccurrence = _lastOccurrence;
 		this.snapshotTimestamp=LocalDateTime.now();
+		this.histogram=(_measureReducer instanceof HistogramReducer)? _histogram : null;
+		this.variance=((_measureReducer instanceof LongReducer)||(_measureReducer instanceof DoubleReducer))? _variance : null;
+		this.sketch=((_measureReducer instanceof LongReducer)||(_measureReducer instanceof DoubleReducer))? _sketch : null;
+		this.rate=_rate;
 	}
 	
 
@@ -63,6 +155,14 @@ public class MetricSnapshot<TYPE>{
 	public String getName() {
 		return name;
 	}
+	/**
+	 * Retrieve the measure reducer used to create this metric snapshot
+	 * @return metric snapshot measure reducer
+	 * @since 1.1.0
+	 */
+	public MeasureReducer<TYPE> getMeasureReducer() {
+		return measureReducer;
+	}
 	/**
 	 * Retrieve the metric snapshot accumulated measures
 	 * @return metric snapshot accumulated measures
@@ -161,30 +261,227 @@ public class MetricSnapshot<TYPE>{
 	public LocalDateTime getSnapshotTimestamp() {
 		return snapshotTimestamp;
 	}
+	/**
+	 * Retrieve a copy of the metric snapshot histogram
+	 * @return copy of the metric snapshot histogram or null if the metric does not keep histogram
+	 * @see HistogramReducer
+	 * @since 1.1.0
+	 */
+	public LogLinearHistogram getHistogram() {
+		return (histogram!=null)? histogram.copy() : null;
+	}
+	/**
+	 * Retrieve the metric snapshot measure under which the given percentage of the samples fall, from the histogram or if the metric does not keep histogram from the quantile sketch
+	 * @param _percentile percentile between 0 and 100
+	 * @return metric snapshot percentile measure or null if the metric does not keep histogram nor quantile sketch
+	 * @throws IllegalArgumentException if _percentile is not between 0 and 100
+	 * @see HistogramReducer
+	 * @see #getQuantile(double) 
+	 * @since 1.1.0
+	 */
+	@SuppressWarnings("unchecked")
+	public TYPE getPercentile(final double _percentile) {
+		if(this.histogram!=null)
+			return ((HistogramReducer<TYPE>)this.measureReducer).fromLong(this.histogram.percentile(_percentile));
+		if(this.sketch==null)
+			return null;
+		if(!((_percentile>=0.0d)&&(_percentile<=100.0d)))
+			throw new IllegalArgumentException(SimpleFormat.format("Percentile {} must be between 0 and 100",_percentile));
+		return getQuantile(_percentile/100.0d);
+	}
+	/**
+	 * Retrieve the metric snapshot percentile measure formatted to string
+	 * @param _percentile percentile between 0 and 100
+	 * @return metric snapshot percentile measure formatted to string
+	 * @throws IllegalArgumentException if _percentile is not between 0 and 100
+	 * @since 1.1.0
+	 */
+	public String getFormatedPercentile(final double _percentile) {
+		return this.measureReducer.toString(getPercentile(_percentile));
+	}
+	/**
+	 * Retrieve the metric snapshot median measure (percentile 50)
+	 * @return metric snapshot median measure or null if the metric does not keep histogram nor quantile sketch
+	 * @since 1.1.0
+	 */
+	public TYPE getPercentile50Measure() {
+		return getPercentile(50.0d);
+	}
+	/**
+	 * Retrieve the metric snapshot percentile 90 measure
+	 * @return metric snapshot percentile 90 measure or null if the metric does not keep histogram nor quantile sketch
+	 * @since 1.1.0
+	 */
+	public TYPE getPercentile90Measure() {
+		return getPercentile(90.0d);
+	}
+	/**
+	 * Retrieve the metric snapshot percentile 99 measure
+	 * @return metric snapshot percentile 99 measure or null if the metric does not keep histogram nor quantile sketch
+	 * @since 1.1.0
+	 */
+	public TYPE getPercentile99Measure() {
+		return getPercentile(99.0d);
+	}
+	/**
+	 * Retrieve the metric snapshot percentile 99.9 measure
+	 * @return metric snapshot percentile 99.9 measure or null if the metric does not keep histogram nor quantile sketch
+	 * @since 1.1.0
+	 */
+	public TYPE getPercentile999Measure() {
+		return getPercentile(99.9d);
+	}
+	/**
+	 * Retrieve a copy of the metric snapshot quantile sketch
+	 * @return copy of the metric snapshot quantile sketch or null if the metric does not keep quantile sketch
+	 * @see org.bytemechanics.metrics.crawler.internal.SketchMetric
+	 * @since 1.1.0
+	 */
+	public QuantileSketch getSketch() {
+		return (sketch!=null)? sketch.copy() : null;
+	}
+	/**
+	 * Retrieve the metric snapshot measure at the given quantile of the samples, with the relative error of the quantile sketch
+	 * @param _quantile quantile between 0 and 1
+	 * @return metric snapshot quantile measure or null if the metric does not keep quantile sketch
+	 * @throws IllegalArgumentException if _quantile is not between 0 and 1
+	 * @see QuantileSketch#quantile(double)
+	 * @since 1.1.0
+	 */
+	@SuppressWarnings("unchecked")
+	public TYPE getQuantile(final double _quantile) {
+		if(this.sketch==null)
+			return null;
+		if(this.measureReducer instanceof LongReducer)
+			return ((LongReducer<TYPE>)this.measureReducer).fromLong(Math.round(this.sketch.quantile(_quantile)));
+		return ((DoubleReducer<TYPE>)this.measureReducer).fromDouble(this.sketch.quantile(_quantile));
+	}
+	/**
+	 * Retrieve the metric snapshot quantile measure formatted to string
+	 * @param _quantile quantile between 0 and 1
+	 * @return metric snapshot quantile measure formatted to string
+	 * @throws IllegalArgumentException if _quantile is not between 0 and 1
+	 * @since 1.1.0
+	 */
+	public String getFormatedQuantile(final double _quantile) {
+		return this.measureReducer.toString(getQuantile(_quantile));
+	}
+	/**
+	 * Retrieve the rate per second of the counter (exponentially weighted moving average of its increments), the accumulated samples are the counter total.<br>
+	 * Note: the rate is not compared by equals() nor hashCode() because it depends on the moment in which the snapshot was taken
+	 * @return metric snapshot rate per second or NaN if the metric is not a counter
+	 * @see org.bytemechanics.metrics.crawler.internal.CounterMetric
+	 * @since 1.1.0
+	 */
+	public double getRate() {
+		return rate;
+	}
+	/**
+	 * Check if the snapshot belongs to a counter
+	 * @return true if the snapshot has rate
+	 * @see #getRate() 
+	 * @since 1.1.0
+	 */
+	public boolean isCounter() {
+		return !Double.isNaN(this.rate);
+	}
+	/**
+	 * Retrieve a copy of the metric snapshot running variance.<br>
+	 * Note: the running variance is not compared by equals() nor hashCode() because its floating point result depends on the order in which the samples have been merged
+	 * @return copy of the metric snapshot running variance or null if the metric does not keep variance
+	 * @see LongReducer
+	 * @see DoubleReducer
+	 * @since 1.1.0
+	 */
+	public RunningVariance getRunningVariance() {
+		return (variance!=null)? variance.copy() : null;
+	}
+	/**
+	 * Retrieve the metric snapshot sample variance, expressed in the square of the primitive unit of the measure reducer (for example nanoseconds squared for durations)
+	 * @return metric snapshot sample variance, 0 if there are less than two samples or NaN if the metric does not keep variance
+	 * @see RunningVariance#getVariance()
+	 * @since 1.1.0
+	 */
+	public double getVariance() {
+		return (this.variance!=null)? this.variance.getVariance() : Double.NaN;
+	}
+	/**
+	 * Retrieve the metric snapshot sample standard deviation measure
+	 * @return metric snapshot standard deviation measure or null if the metric does not keep variance
+	 * @see RunningVariance#getStdDeviation()
+	 * @since 1.1.0
+	 */
+	@SuppressWarnings("unchecked")
+	public TYPE getStdDeviation() {
+		if(this.variance==null)
+			return null;
+		if(this.measureReducer instanceof LongReducer)
+			return ((LongReducer<TYPE>)this.measureReducer).fromLong(Math.round(this.variance.getStdDeviation()));
+		return ((DoubleReducer<TYPE>)this.measureReducer).fromDouble(this.variance.getStdDeviation());
+	}
+	/**
+	 * Retrieve the metric snapshot standard deviation measure formatted to string
+	 * @return metric snapshot standard deviation measure formatted to string
+	 * @since 1.1.0
+	 */
+	public String getFormatedStdDeviation() {
+		return this.measureReducer.toString(getStdDeviation());
+	}
 	
 	
 	/**
-	 * Perfom a reduction with the given _metric using the measure reducer
+	 * Perfom a reduction with the given _metric using the measure reducer, the histograms are merged only if both snapshots have histogram and the running variances and quantile sketches only if both snapshots have them (or one of them is empty), the sketches must also have the same relative accuracy.
+	 * If the measure reducer is a LongReducer or a DoubleReducer the values are reduced with its primitive operations.
+	 * If both snapshots are counters the result is a counter with the sum of the totals and rates, the rate of a counter reduced with other metric is kept only if the other snapshot is empty
 	 * @param _metric metric snapshot to reduce with
 	 * @return reduced metric snapshot
 	 * @see MeasureReducer
+	 * @see LongReducer
+	 * @see DoubleReducer
 	 */
 	@SuppressWarnings("unchecked")
 	public MetricSnapshot<TYPE> reduce(final MetricSnapshot<TYPE> _metric) {
 
+		if((isCounter())&&(_metric.isCounter()))
+			return reduceCounter(_metric);
+		final long samples=this.samplingSize+_metric.samplingSize;
+		final TYPE accumulated;
+		final TYPE max;
+		final TYPE min;
+		final TYPE average;
+		if((this.measureReducer instanceof LongReducer)&&(hasValues())&&(_metric.hasValues())){
+			final LongReducer<TYPE> reducer=(LongReducer<TYPE>)this.measureReducer;
+			final long total=reducer.accumulate(reducer.toLong(this.accumulatedSamples),reducer.toLong(_metric.accumulatedSamples));
+			accumulated=reducer.fromLong(total);
+			max=reducer.fromLong(reducer.max(reducer.toLong(this.maxMeasure),reducer.toLong(_metric.maxMeasure)));
+			min=reducer.fromLong(reducer.min(reducer.toLong(this.minMeasure),reducer.toLong(_metric.minMeasure)));
+			average=reducer.fromLong(reducer.average(total,samples));
+		}else if((this.measureReducer instanceof DoubleReducer)&&(hasValues())&&(_metric.hasValues())){
+			final DoubleReducer<TYPE> reducer=(DoubleReducer<TYPE>)this.measureReducer;
+			final double total=reducer.accumulate(reducer.toDouble(this.accumulatedSamples),reducer.toDouble(_metric.accumulatedSamples));
+			accumulated=reducer.fromDouble(total);
+			max=reducer.fromDouble(reducer.max(reducer.toDouble(this.maxMeasure),reducer.toDouble(_metric.maxMeasure)));
+			min=reducer.fromDouble(reducer.min(reducer.toDouble(this.minMeasure),reducer.toDouble(_metric.minMeasure)));
+			average=reducer.fromDouble(reducer.average(total,samples));
+		}else{
+			accumulated=this.measureReducer.accumulate(this.accumulatedSamples, _metric.accumulatedSamples)
+																		.orElseGet(this.measureReducer::identity);
+			max=this.measureReducer.max(this.maxMeasure,_metric.maxMeasure)
+														.orElseGet(this.measureReducer::identity);
+			min=this.measureReducer.min(this.minMeasure,_metric.minMeasure)
+														.orElseGet(this.measureReducer::identity);
+			average=this.measureReducer.accumulate(this.accumulatedSamples, _metric.accumulatedSamples)
+															.flatMap(total -> this.measureReducer.average(total,samples))
+															.orElseGet(this.measureReducer::identity);
+		}
 		return MetricSnapshot.builder(this.measureReducer)
 						.name(this.name)
-						.accumulatedSamples(this.measureReducer.accumulate(this.accumulatedSamples, _metric.accumulatedSamples)
-																		.orElseGet(this.measureReducer::identity))
-						.samplingSize(this.samplingSize+_metric.samplingSize)
+						.accumulatedSamples(accumulated)
+						.samplingSize(samples)
 						.totalHits(this.totalHits+_metric.totalHits)
-						.maxMeasure(this.measureReducer.max(this.maxMeasure,_metric.maxMeasure)
-														.orElseGet(this.measureReducer::identity))
-						.minMeasure(this.measureReducer.min(this.minMeasure,_metric.minMeasure)
-														.orElseGet(this.measureReducer::identity))
-						.averageMeasure(this.measureReducer.accumulate(this.accumulatedSamples, _metric.accumulatedSamples)
-															.flatMap(total -> this.measureReducer.average(total,this.samplingSize+_metric.samplingSize))
-															.orElseGet(this.measureReducer::identity))
+						.maxMeasure(max)
+						.minMeasure(min)
+						.averageMeasure(average)
 						.lastMeasure(Optional.ofNullable(this.lastOccurrence)
 												.filter(localDate -> localDate.isAfter(_metric.getLastOccurrence()))
 												.map(localDate -> this.getLastMeasure())
@@ -192,8 +489,60 @@ public class MetricSnapshot<TYPE>{
 						.lastOccurrence(Optional.ofNullable(this.lastOccurrence)
 												.filter(localDate -> localDate.isAfter(_metric.getLastOccurrence()))
 												.orElseGet(_metric::getLastOccurrence))
+						.histogram(((this.histogram!=null)&&(_metric.histogram!=null))? this.histogram.copy().merge(_metric.histogram) : null)
+						.variance(reduceVariance(_metric))
+						.sketch(reduceSketch(_metric))
+						.rate(reduceRate(_metric))
 					.build();
 	}
+	@SuppressWarnings("unchecked")
+	private MetricSnapshot<TYPE> reduceCounter(final MetricSnapshot<TYPE> _metric){
+		final long samples=this.samplingSize+_metric.samplingSize;
+		final TYPE accumulated=this.measureReducer.accumulate(this.accumulatedSamples, _metric.accumulatedSamples)
+																	.orElseGet(this.measureReducer::identity);
+		return MetricSnapshot.builder(this.measureReducer)
+						.name(this.name)
+						.accumulatedSamples(accumulated)
+						.samplingSize(samples)
+						.totalHits(this.totalHits+_metric.totalHits)
+						.maxMeasure(null)
+						.minMeasure(null)
+						.averageMeasure((samples>0)? this.measureReducer.average(accumulated,samples)
+																	.orElseGet(this.measureReducer::identity)
+													: this.measureReducer.identity())
+						.lastMeasure(null)
+						.lastOccurrence(((this.lastOccurrence!=null)&&((_metric.lastOccurrence==null)||(this.lastOccurrence.isAfter(_metric.lastOccurrence))))? this.lastOccurrence : _metric.lastOccurrence)
+						.rate(this.rate+_metric.rate)
+					.build();
+	}
+	private double reduceRate(final MetricSnapshot<TYPE> _metric){
+		if((isCounter())&&(_metric.samplingSize==0))
+			return this.rate;
+		if((_metric.isCounter())&&(this.samplingSize==0))
+			return _metric.rate;
+		return Double.NaN;
+	}
+	private RunningVariance reduceVariance(final MetricSnapshot<TYPE> _metric){
+		if((this.variance!=null)&&(_metric.variance!=null))
+			return this.variance.copy().merge(_metric.variance);
+		if((this.variance!=null)&&(_metric.samplingSize==0))
+			return this.variance.copy();
+		if((_metric.variance!=null)&&(this.samplingSize==0))
+			return _metric.variance.copy();
+		return null;
+	}
+	private QuantileSketch reduceSketch(final MetricSnapshot<TYPE> _metric){
+		if((this.sketch!=null)&&(_metric.sketch!=null))
+			return (this.sketch.isMergeable(_metric.sketch))? this.sketch.copy().merge(_metric.sketch) : null;
+		if((this.sketch!=null)&&(_metric.samplingSize==0))
+			return this.sketch.copy();
+		if((_metric.sketch!=null)&&(this.samplingSize==0))
+			return _metric.sketch.copy();
+		return null;
+	}
+	private boolean hasValues(){
+		return (this.accumulatedSamples!=null)&&(this.maxMeasure!=null)&&(this.minMeasure!=null);
+	}
 	
 	/** @see Object#hashCode()  */
 	@Override
@@ -209,6 +558,8 @@ public class MetricSnapshot<TYPE>{
 		hash = 89 * hash + Objects.hashCode(this.averageMeasure);
 		hash = 89 * hash + Objects.hashCode(this.lastMeasure);
 		hash = 89 * hash + Objects.hashCode(this.lastOccurrence);
+		hash = 89 * hash + Objects.hashCode(this.histogram);
+		hash = 89 * hash + Objects.hashCode(this.sketch);
 		return hash;
 	}
 
@@ -252,14 +603,23 @@ public class MetricSnapshot<TYPE>{
 		if (!Objects.equals(this.lastMeasure, other.lastMeasure)) {
 			return false;
 		}
-		return Objects.equals(this.lastOccurrence, other.lastOccurrence);
+		if (!Objects.equals(this.lastOccurrence, other.lastOccurrence)) {
+			return false;
+		}
+		if (!Objects.equals(this.histogram, other.histogram)) {
+			return false;
+		}
+		return Objects.equals(this.sketch, other.sketch);
 	}
 
 	/** @see Object#toString() */
 	@Override
 	public String toString() {
-		return SimpleFormat.format("MetricSnapshot[measureReducer={}, name={}, accumulatedSamples={}, samplingSize={}, totalHits={}, maxMeasure={}, minMeasure={}, averageMeasure={}, lastMeasure={}, lastOccurrence={}"
-											, measureReducer , name, accumulatedSamples, samplingSize, totalHits, maxMeasure, minMeasure, averageMeasure, lastMeasure, lastOccurrence);
+		final String percentiles=((this.histogram!=null)||(this.sketch!=null))? SimpleFormat.format(", p50={}, p90={}, p99={}, p999={}", getPercentile50Measure(), getPercentile90Measure(), getPercentile99Measure(), getPercentile999Measure()) : "";
+		final String deviation=(this.variance!=null)? SimpleFormat.format(", variance={}, stdDeviation={}", getVariance(), getStdDeviation()) : "";
+		final String counter=(isCounter())? SimpleFormat.format(", rate={}", this.rate) : "";
+		return SimpleFormat.format("MetricSnapshot[measureReducer={}, name={}, accumulatedSamples={}, samplingSize={}, totalHits={}, maxMeasure={}, minMeasure={}, averageMeasure={}, lastMeasure={}, lastOccurrence={}{}{}{}"
+											, measureReducer , name, accumulatedSamples, samplingSize, totalHits, maxMeasure, minMeasure, averageMeasure, lastMeasure, lastOccurrence, percentiles, deviation, counter);
 	}
 	
 	/**
@@ -278,6 +638,10 @@ public class MetricSnapshot<TYPE>{
 		private TYPE lastMeasure;
 		private TYPE averageMeasure;
 		private LocalDateTime lastOccurrence;
+		private LogLinearHistogram histogram;
+		private RunningVariance variance;
+		private QuantileSketch sketch;
+		private double rate;
 
 		/**
 		 * Creates a metric snapshot builder from the given _measureReducer
@@ -294,6 +658,10 @@ public class MetricSnapshot<TYPE>{
 			this.averageMeasure=this.measureReducer.identity();
 			this.lastMeasure=this.measureReducer.identity();
 			this.lastOccurrence=null;
+			this.histogram=null;
+			this.variance=null;
+			this.sketch=null;
+			this.rate=Double.NaN;
 		}
 		/**
 		 * Creates a metric snapshot clone with this_measureReducer
@@ -311,6 +679,10 @@ public class MetricSnapshot<TYPE>{
 			this.averageMeasure=_metricSnapshot.getAverageMeasure();
 			this.lastMeasure = _metricSnapshot.getLastMeasure();
 			this.lastOccurrence = _metricSnapshot.getLastOccurrence();
+			this.histogram = _metricSnapshot.getHistogram();
+			this.variance = _metricSnapshot.getRunningVariance();
+			this.sketch = _metricSnapshot.getSketch();
+			this.rate = _metricSnapshot.getRate();
 		}
 		
 		
@@ -396,12 +768,53 @@ public class MetricSnapshot<TYPE>{
 			return this;
 		}
 
+		/**
+		 * sets the histogram and return the current builder instance (ignored if the measure reducer is not an HistogramReducer)
+		 * @param _histogram histogram to set
+		 * @return current builder instance
+		 * @since 1.1.0
+		 */
+		public MetricSnapshotBuilder histogram(final LogLinearHistogram _histogram) {
+			this.histogram = _histogram;
+			return this;
+		}
+		/**
+		 * sets the running variance and return the current builder instance (ignored if the measure reducer is not a LongReducer nor a DoubleReducer)
+		 * @param _variance running variance to set
+		 * @return current builder instance
+		 * @since 1.1.0
+		 */
+		public MetricSnapshotBuilder variance(final RunningVariance _variance) {
+			this.variance = _variance;
+			return this;
+		}
+		/**
+		 * sets the quantile sketch and return the current builder instance (ignored if the measure reducer is not a LongReducer nor a DoubleReducer)
+		 * @param _sketch quantile sketch to set
+		 * @return current builder instance
+		 * @since 1.1.0
+		 */
+		public MetricSnapshotBuilder sketch(final QuantileSketch _sketch) {
+			this.sketch = _sketch;
+			return this;
+		}
+		/**
+		 * sets the counter rate and return the current builder instance
+		 * @param _rate moving average rate per second of the counter, NaN if the metric is not a counter
+		 * @return current builder instance
+		 * @since 1.1.0
+		 */
+		public MetricSnapshotBuilder rate(final double _rate) {
+			this.rate = _rate;
+			return this;
+		}
+
 		/**
 		 * Builds the actual metric snaphot represented by this builder
 		 * @return new metric snapshot instance
 		 */
 		public MetricSnapshot build() {
-			return new MetricSnapshot<>(this.measureReducer,name, accumulatedSamples, samplingSize, totalHits, maxMeasure, minMeasure,averageMeasure, lastMeasure, lastOccurrence);
+			return new MetricSnapshot<>(this.measureReducer,name, accumulatedSamples, samplingSize, totalHits, maxMeasure, minMeasure,averageMeasure, lastMeasure, lastOccurrence, histogram, variance, sketch, rate);
 		}
 	}
 
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2020 Byte Mechanics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bytemechanics.metrics.crawler.beans;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import org.bytemechanics.metrics.crawler.internal.commons.string.SimpleFormat;
+
+/**
+ * Snapshots of the metrics modified since a cursor and the cursor to retrieve the next modifications
+ * @see org.bytemechanics.metrics.crawler.MetricsService#getMetricsSince(long)
+ * @author afarre
+ * @since 1.1.0
+ */
+public class MetricsDelta {
+
+	private final long cursor;
+	private final List<MetricSnapshot> metrics;
+
+	/**
+	 * Constructor of metrics delta
+	 * @param _cursor cursor to retrieve the metrics modified after this delta
+	 * @param _metrics snapshots of the modified metrics ordered by name (mandatory)
+	 * @throws NullPointerException if _metrics is null
+	 */
+	public MetricsDelta(final long _cursor,final List<MetricSnapshot> _metrics) {
+		if(_metrics==null)
+			throw new NullPointerException("Can not create metrics delta with null _metrics");
+		this.cursor=_cursor;
+		this.metrics=Collections.unmodifiableList(_metrics);
+	}
+
+	/**
+	 * Retrieve the cursor to retrieve the metrics modified after this delta
+	 * @return next cursor
+	 */
+	public long getCursor() {
+		return cursor;
+	}
+	/**
+	 * Retrieve the snapshots of the modified metrics
+	 * @return unmodifiable list of snapshots ordered by name
+	 */
+	public List<MetricSnapshot> getMetrics() {
+		return metrics;
+	}
+
+	/** @see Object#hashCode()  */
+	@Override
+	public int hashCode() {
+		int hash = 3;
+		hash = 41 * hash + (int) (this.cursor ^ (this.cursor >>> 32));
+		hash = 41 * hash + Objects.hashCode(this.metrics);
+		return hash;
+	}
+
+	/** @see Object#equals(java.lang.Object)  */
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (obj == null) {
+			return false;
+		}
+		if (getClass() != obj.getClass()) {
+			return false;
+		}
+		final MetricsDelta other = (MetricsDelta) obj;
+		if (this.cursor != other.cursor) {
+			return false;
+		}
+		return Objects.equals(this.metrics, other.metrics);
+	}
+
+	/** @see Object#toString() */
+	@Override
+	public String toString() {
+		return SimpleFormat.format("MetricsDelta[cursor={}, metrics={}]", this.cursor, this.metrics);
+	}
+}
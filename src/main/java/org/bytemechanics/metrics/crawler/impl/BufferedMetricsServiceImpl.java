@@ -0,0 +1,219 @@
+/*
+ * Copyright 2020 Byte Mechanics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bytemechanics.metrics.crawler.impl;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import org.bytemechanics.metrics.crawler.AbstractMetric;
+import org.bytemechanics.metrics.crawler.MetricFactory;
+import org.bytemechanics.metrics.crawler.MetricVisitor;
+import org.bytemechanics.metrics.crawler.MetricsService;
+import org.bytemechanics.metrics.crawler.beans.MetricSnapshot;
+import org.bytemechanics.metrics.crawler.exceptions.IncorrectMeasureType;
+import org.bytemechanics.metrics.crawler.internal.MetricFactories;
+import org.bytemechanics.metrics.crawler.internal.Timestamps;
+import org.bytemechanics.metrics.crawler.internal.commons.string.SimpleFormat;
+
+/**
+ * Metrics service that records the measures into a per-thread buffer that is drained into the shared metrics in batches<br>
+ * The buffer of each thread is drained when is full or when the metrics are read (getMetric(), getMetrics(), getMetricsUnder() or flush()), this way the threads only write to shared state once per batch instead of once per measure.
+ * The measure type is validated when registered, but as the metrics are updated later, the statistics of a metric only reflect the measures registered before the last drain.<br>
+ * The measures buffered for metrics that are removed before the drain (evicted by the cardinality guard or cleared) are discarded.<br>
+ * Note: the buffers of the finished threads are drained and released with the next read. Without contention the buffering is an extra cost and DefaultMetricsServiceImpl registers faster
+ * @see RecordingBuffer
+ * @see DefaultMetricsServiceImpl
+ * @author afarre
+ * @since 1.1.0
+ */
+public class BufferedMetricsServiceImpl extends DefaultMetricsServiceImpl {
+
+	/** Default buffer size (if no specified) */
+	public static final int DEFAULT_BUFFER_SIZE=256;
+
+	private final int bufferSize;
+	private final Queue<RecordingBuffer> buffers;
+	private final ThreadLocal<RecordingBuffer> buffer;
+
+
+	/**
+	 * Creates a buffered metrics service with the default sampling size and buffer size
+	 * @see DefaultMetricsServiceImpl#DEFAULT_SAMPLING_SIZE
+	 * @see BufferedMetricsServiceImpl#DEFAULT_BUFFER_SIZE
+	 */
+	public BufferedMetricsServiceImpl(){
+		this(DEFAULT_SAMPLING_SIZE,MetricFactories.SAMPLED,DEFAULT_BUFFER_SIZE);
+	}
+	/**
+	 * Creates a buffered metrics service with the give _samplingSize that creates the metrics with the given _metricFactory and buffers up to _bufferSize measures per thread
+	 * @param _samplingSize sampling size
+	 * @param _metricFactory factory to create the metrics (mandatory)
+	 * @param _bufferSize max measures to buffer per thread before drain them
+	 * @throws NullPointerException if _metricFactory is null
+	 * @throws IllegalArgumentException if _bufferSize is zero or negative
+	 * @see MetricFactories
+	 */
+	public BufferedMetricsServiceImpl(final int _samplingSize,final MetricFactory _metricFactory,final int _bufferSize){
+		this(_samplingSize,_metricFactory,null,_bufferSize);
+	}
+	/**
+	 * Creates a buffered metrics service with the give _samplingSize that creates the metrics with the given _metricFactory, limits the number of metrics with the given _cardinalityGuard and buffers up to _bufferSize measures per thread
+	 * @param _samplingSize sampling size
+	 * @param _metricFactory factory to create the metrics (mandatory)
+	 * @param _cardinalityGuard limit of metrics and eviction policy, null for unlimited metrics
+	 * @param _bufferSize max measures to buffer per thread before drain them
+	 * @throws NullPointerException if _metricFactory is null
+	 * @throws IllegalArgumentException if _bufferSize is zero or negative
+	 * @see MetricFactories
+	 * @see CardinalityGuard
+	 */
+	public BufferedMetricsServiceImpl(final int _samplingSize,final MetricFactory _metricFactory,final CardinalityGuard _cardinalityGuard,final int _bufferSize){
+		super(_samplingSize,_metricFactory,_cardinalityGuard);
+		if(_bufferSize<=0)
+			throw new IllegalArgumentException(SimpleFormat.format("Can not create metrics service with buffer size {}, must be positive",_bufferSize));
+		this.bufferSize=_bufferSize;
+		this.buffers=new ConcurrentLinkedQueue<>();
+		this.buffer=ThreadLocal.withInitial(this::newBuffer);
+	}
+
+	private RecordingBuffer newBuffer(){
+		final RecordingBuffer reply=new RecordingBuffer(Thread.currentThread(),this.bufferSize,this::isRegistered,this::modified);
+		this.buffers.add(reply);
+		return reply;
+	}
+
+	/**
+	 * Retrieve the max measures to buffer per thread
+	 * @return buffer size
+	 */
+	public int getBufferSize(){
+		return this.bufferSize;
+	}
+	/**
+	 * Retrieve the number of buffers currently alive
+	 * @return number of buffers
+	 */
+	int getBuffers(){
+		return this.buffers.size();
+	}
+
+	/** @see DefaultMetricsServiceImpl#addMeasure(org.bytemechanics.metrics.crawler.AbstractMetric, java.time.LocalDateTime, java.lang.Object) */
+	@Override
+	<TYPE> void addMeasure(final AbstractMetric<TYPE> _metric,final LocalDateTime _time,final TYPE _measure){
+		_metric.validateMeasure(_time, _measure);
+		recorded(_metric);
+		this.buffer.get().addObject(_metric,_time,_measure);
+	}
+	/** @see DefaultMetricsServiceImpl#addLongMeasure(org.bytemechanics.metrics.crawler.AbstractMetric, long) */
+	@Override
+	void addLongMeasure(final AbstractMetric _metric,final long _measure){
+		validateType(_metric,Long.class);
+		recorded(_metric);
+		this.buffer.get().addLong(_metric,Timestamps.now(),_measure);
+	}
+	/** @see DefaultMetricsServiceImpl#addDoubleMeasure(org.bytemechanics.metrics.crawler.AbstractMetric, double) */
+	@Override
+	void addDoubleMeasure(final AbstractMetric _metric,final double _measure){
+		validateType(_metric,Double.class);
+		recorded(_metric);
+		this.buffer.get().addDouble(_metric,Timestamps.now(),_measure);
+	}
+	/** @see DefaultMetricsServiceImpl#addDurationMeasure(org.bytemechanics.metrics.crawler.AbstractMetric, long) */
+	@Override
+	void addDurationMeasure(final AbstractMetric _metric,final long _nanos){
+		validateType(_metric,Duration.class);
+		recorded(_metric);
+		this.buffer.get().addDuration(_metric,Timestamps.now(),_nanos);
+	}
+	private static void validateType(final AbstractMetric _metric,final Class<?> _type){
+		final Class<?> type=_metric.getReducer().getType();
+		if(!type.isAssignableFrom(_type))
+			throw new IncorrectMeasureType(_metric.getName(),type,_type);
+	}
+
+	/**
+	 * Drain the buffered measures of all threads into its metrics and release the buffers of the finished threads
+	 */
+	public void flush(){
+		for(RecordingBuffer current:this.buffers){
+			current.drain();
+			if(current.isOrphan()){
+				this.buffers.remove(current);
+			}
+		}
+	}
+
+	/** @see MetricsService#getMetric(java.lang.String, java.lang.Object...)  */
+	@Override
+	public Optional<MetricSnapshot> getMetric(final String _measure,final Object... _placeholders) {
+		flush();
+		return super.getMetric(_measure, _placeholders);
+	}
+
+	/** @see MetricsService#getMetrics()  */
+	@Override
+	public List<MetricSnapshot> getMetrics(){
+		flush();
+		return super.getMetrics();
+	}
+
+	/** @see DefaultMetricsServiceImpl#getMetrics(java.util.concurrent.ForkJoinPool)  */
+	@Override
+	public List<MetricSnapshot> getMetrics(final ForkJoinPool _pool){
+		flush();
+		return super.getMetrics(_pool);
+	}
+
+	/** @see MetricsService#forEach(org.bytemechanics.metrics.crawler.MetricVisitor)  */
+	@Override
+	public void forEach(final MetricVisitor _visitor){
+		flush();
+		super.forEach(_visitor);
+	}
+
+	/** @see MetricsService#getMetricsUnder(java.lang.String, java.lang.Object...)  */
+	@Override
+	public List<MetricSnapshot> getMetricsUnder(final String _path,final Object... _placeholders){
+		flush();
+		return super.getMetricsUnder(_path, _placeholders);
+	}
+
+	/**
+	 * Drain the buffered measures before advance the epoch, so the measures registered before are stamped with the previous epoch
+	 * @see DefaultMetricsServiceImpl#advanceEpoch()
+	 */
+	@Override
+	long advanceEpoch(){
+		flush();
+		return super.advanceEpoch();
+	}
+
+	/** 
+	 * Discard all the metrics and all the buffered measures
+	 * @see MetricsService#clear()  
+	 */
+	@Override
+	public void clear() {
+		for(RecordingBuffer current:this.buffers){
+			current.discard();
+		}
+		super.clear();
+	}
+}
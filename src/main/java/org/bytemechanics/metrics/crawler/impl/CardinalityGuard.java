@@ -0,0 +1,302 @@
+/*
+ * Copyright 2020 Byte Mechanics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bytemechanics.metrics.crawler.impl;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+import org.bytemechanics.metrics.crawler.AbstractMetric;
+import org.bytemechanics.metrics.crawler.MeasureReducer;
+import org.bytemechanics.metrics.crawler.internal.commons.string.SimpleFormat;
+
+/**
+ * Cardinality limit of the metrics of a DefaultMetricsServiceImpl<br>
+ * When a new metric must be created and the service has already reached the limit, the guard sweeps the metrics following its {@link EvictionPolicy}. The evicting policies remove the least recently used or recorded metrics until the 90% of the limit (so the sweep is done once every several creations) or the idle ones, and if there is still no room the measure is registered into the overflow metric of its type (overflowName.Type, for example metrics.overflow.Duration).
+ * The sweep is only done when creating metrics and by one thread at a time (the others do not wait), the record path only marks the metric usage time with a millisecond resolution, so there is no global lock.
+ * The IDLE policy does not sweep again until the first metric can become idle, so while there are no idle metrics the overflowed measures do not walk the metrics.
+ * While one thread is sweeping the LEAST_RECENTLY_USED and LEAST_RECENTLY_RECORDED policies admit the new metrics up to a 10% (at least one) over the limit, beyond it the measures are registered into the overflow metrics.
+ * The evicted metrics and overflowed measures are counted and exposed with getEvictions() and getOverflows() and also as the counters overflowName.evictions and overflowName.overflows of the service.<br>
+ * Note: each service must have its own guard instance, the limit includes the overflow metrics but not the evictions and overflows counters
+ * @see DefaultMetricsServiceImpl#DefaultMetricsServiceImpl(int, org.bytemechanics.metrics.crawler.MetricFactory, org.bytemechanics.metrics.crawler.impl.CardinalityGuard)
+ * @see EvictionPolicy
+ * @author afarre
+ * @since 1.1.0
+ */
+public final class CardinalityGuard {
+
+	/** Default overflow metrics name prefix */
+	public static final String DEFAULT_OVERFLOW_NAME="metrics.overflow";
+	private static final double SWEEP_TARGET=0.9d;
+	private static final double SWEEP_EXCESS=0.1d;
+	/** Number of counters of the guard registered into the service, not included into the limit */
+	static final int COUNTERS=2;
+
+	private final int limit;
+	private final int ceiling;
+	private final EvictionPolicy policy;
+	private final Duration idleTime;
+	private final String overflowName;
+	private final String overflowPrefix;
+	private final LongAdder evictions;
+	private final LongAdder overflows;
+	private final ReentrantLock sweeping;
+	private volatile long nextSweep;
+
+
+	private CardinalityGuard(final int _limit,final EvictionPolicy _policy,final Duration _idleTime,final String _overflowName){
+		if(_limit<=0)
+			throw new IllegalArgumentException(SimpleFormat.format("Cardinality limit {} must be positive",_limit));
+		if(_overflowName==null)
+			throw new NullPointerException("Overflow name can not be null to create a cardinality guard");
+		this.limit=_limit;
+		this.ceiling=_limit+Math.max(1,(int)(_limit*SWEEP_EXCESS));
+		this.policy=_policy;
+		this.idleTime=_idleTime;
+		this.overflowName=_overflowName;
+		this.overflowPrefix=_overflowName+'.';
+		this.evictions=new LongAdder();
+		this.overflows=new LongAdder();
+		this.sweeping=new ReentrantLock();
+		this.nextSweep=System.nanoTime();
+	}
+
+	/**
+	 * Builds a guard that never evicts, the new metrics beyond the limit are registered into the overflow metrics
+	 * @param _limit max number of metrics
+	 * @return cardinality guard
+	 * @throws IllegalArgumentException if _limit is zero or negative
+	 * @see EvictionPolicy#OVERFLOW
+	 */
+	public static CardinalityGuard overflow(final int _limit){
+		return new CardinalityGuard(_limit,EvictionPolicy.OVERFLOW,null,DEFAULT_OVERFLOW_NAME);
+	}
+	/**
+	 * Builds a guard that evicts the least recently used metrics (recorded or read)
+	 * @param _limit max number of metrics
+	 * @return cardinality guard
+	 * @throws IllegalArgumentException if _limit is zero or negative
+	 * @see EvictionPolicy#LEAST_RECENTLY_USED
+	 */
+	public static CardinalityGuard leastRecentlyUsed(final int _limit){
+		return new CardinalityGuard(_limit,EvictionPolicy.LEAST_RECENTLY_USED,null,DEFAULT_OVERFLOW_NAME);
+	}
+	/**
+	 * Builds a guard that evicts the least recently recorded metrics
+	 * @param _limit max number of metrics
+	 * @return cardinality guard
+	 * @throws IllegalArgumentException if _limit is zero or negative
+	 * @see EvictionPolicy#LEAST_RECENTLY_RECORDED
+	 */
+	public static CardinalityGuard leastRecentlyRecorded(final int _limit){
+		return new CardinalityGuard(_limit,EvictionPolicy.LEAST_RECENTLY_RECORDED,null,DEFAULT_OVERFLOW_NAME);
+	}
+	/**
+	 * Builds a guard that evicts the metrics without records for longer than the given idle time
+	 * @param _limit max number of metrics
+	 * @param _idleTime time without records to evict a metric (mandatory)
+	 * @return cardinality guard
+	 * @throws IllegalArgumentException if _limit is zero or negative or _idleTime is negative
+	 * @throws NullPointerException if _idleTime is null
+	 * @see EvictionPolicy#IDLE
+	 */
+	public static CardinalityGuard idle(final int _limit,final Duration _idleTime){
+		if(_idleTime==null)
+			throw new NullPointerException("Idle time can not be null to create a cardinality guard");
+		if(_idleTime.isNegative())
+			throw new IllegalArgumentException(SimpleFormat.format("Idle time {} can not be negative",_idleTime));
+		return new CardinalityGuard(_limit,EvictionPolicy.IDLE,_idleTime,DEFAULT_OVERFLOW_NAME);
+	}
+	/**
+	 * Builds a new guard with the same configuration and the given overflow metrics name prefix
+	 * @param _overflowName overflow metrics name prefix (mandatory)
+	 * @return new cardinality guard
+	 * @throws NullPointerException if _overflowName is null
+	 */
+	public CardinalityGuard withOverflowName(final String _overflowName){
+		return new CardinalityGuard(this.limit,this.policy,this.idleTime,_overflowName);
+	}
+
+	/**
+	 * Retrieve the max number of metrics
+	 * @return max number of metrics
+	 */
+	public int getLimit() {
+		return limit;
+	}
+	/**
+	 * Retrieve the eviction policy
+	 * @return eviction policy
+	 */
+	public EvictionPolicy getPolicy() {
+		return policy;
+	}
+	/**
+	 * Retrieve the idle time to evict a metric
+	 * @return idle time, null if the policy is not IDLE
+	 */
+	public Duration getIdleTime() {
+		return idleTime;
+	}
+	/**
+	 * Retrieve the overflow metrics name prefix
+	 * @return overflow metrics name prefix
+	 */
+	public String getOverflowName() {
+		return overflowName;
+	}
+	/**
+	 * Retrieve the number of metrics evicted
+	 * @return number of metrics evicted
+	 */
+	public long getEvictions() {
+		return this.evictions.sum();
+	}
+	/**
+	 * Retrieve the number of measures registered into the overflow metrics
+	 * @return number of measures overflowed
+	 */
+	public long getOverflows() {
+		return this.overflows.sum();
+	}
+
+	/**
+	 * Retrieve the name of the counter of evicted metrics
+	 * @return overflowName.evictions
+	 */
+	String getEvictionsName(){
+		return this.overflowPrefix+"evictions";
+	}
+	/**
+	 * Retrieve the name of the counter of overflowed measures
+	 * @return overflowName.overflows
+	 */
+	String getOverflowsName(){
+		return this.overflowPrefix+"overflows";
+	}
+
+	/**
+	 * Retrieve if the usage of the metrics must be tracked
+	 * @return true if the usage of the metrics must be tracked
+	 */
+	boolean isTracking(){
+		return this.policy.isTracking();
+	}
+	/**
+	 * Retrieve if a new metric can be created with the given number of current metrics, the policies that always admit do it up to the limit plus a 10% (at least one) to bound the metrics created while other thread is sweeping
+	 * @param _size current number of metrics
+	 * @return true if the new metric can be created
+	 */
+	boolean admits(final int _size){
+		return (_size<this.limit)||((this.policy.isAlwaysAdmits())&&(_size<this.ceiling));
+	}
+	/**
+	 * Retrieve if the given name is an overflow metric name
+	 * @param _name metric name
+	 * @return true if is an overflow metric name
+	 */
+	boolean isOverflow(final String _name){
+		return _name.startsWith(this.overflowPrefix);
+	}
+	/**
+	 * Retrieve the overflow metric name for the given reducer and count the overflow
+	 * @param _reducer reducer of the overflowed measure
+	 * @return overflow metric name
+	 */
+	String overflow(final MeasureReducer _reducer){
+		this.overflows.increment();
+		return this.overflowPrefix+_reducer.getType().getSimpleName();
+	}
+
+	/**
+	 * Evict the metrics following the eviction policy if the limit has been reached and no other thread is already sweeping.
+	 * The IDLE policy skips the sweep until the time when the least recently recorded metric of the previous sweep becomes idle
+	 * @param _metrics current metrics
+	 * @param _size current number of metrics counted for the limit
+	 * @param _nanos current System.nanoTime()
+	 * @param _evictor function to evict a metric, returns true if it was evicted
+	 * @return number of metrics evicted
+	 */
+	int sweep(final Collection<AbstractMetric> _metrics,final int _size,final long _nanos,final Predicate<AbstractMetric> _evictor){
+
+		int reply=0;
+		if((this.policy.isTracking())&&(_nanos-this.nextSweep>=0)&&(this.sweeping.tryLock())){
+			try{
+				final List<AbstractMetric> candidates=new ArrayList<>(_metrics.size());
+				for(AbstractMetric metric:_metrics){
+					if(!isOverflow(metric.getName())){
+						candidates.add(metric);
+					}
+				}
+				if(_size>=this.limit){
+					final List<AbstractMetric> victims=victims(candidates,_size,_nanos);
+					for(AbstractMetric victim:victims){
+						if(_evictor.test(victim)){
+							reply++;
+						}
+					}
+					this.evictions.add(reply);
+				}
+			}finally{
+				this.sweeping.unlock();
+			}
+		}
+		return reply;
+	}
+	private List<AbstractMetric> victims(final List<AbstractMetric> _candidates,final int _size,final long _nanos){
+		final List<AbstractMetric> reply;
+		if(this.policy==EvictionPolicy.IDLE){
+			final long idleNanos=this.idleTime.toNanos();
+			long next=_nanos+idleNanos;
+			reply=new ArrayList<>();
+			for(AbstractMetric candidate:_candidates){
+				final long lastRecorded=candidate.getLastRecorded();
+				if(_nanos-lastRecorded>idleNanos){
+					reply.add(candidate);
+				}else if(lastRecorded+idleNanos-next<0){
+					next=lastRecorded+idleNanos;
+				}
+			}
+			this.nextSweep=next+1;
+		}else{
+			final int target=(int)(this.limit*SWEEP_TARGET);
+			final int excess=Math.min(_candidates.size(),Math.max(_size-target,_size-this.limit+1));
+			final long[] lastUses=new long[_candidates.size()];
+			final Integer[] order=new Integer[_candidates.size()];
+			for(int ic1=0;ic1<lastUses.length;ic1++){
+				lastUses[ic1]=this.policy.lastUse(_candidates.get(ic1))-_nanos;
+				order[ic1]=ic1;
+			}
+			Arrays.sort(order,Comparator.comparingLong(index -> lastUses[index]));
+			reply=new ArrayList<>(excess);
+			for(int ic1=0;ic1<excess;ic1++){
+				reply.add(_candidates.get(order[ic1]));
+			}
+		}
+		return reply;
+	}
+
+	/** @see Object#toString()   */
+	@Override
+	public String toString() {
+		return SimpleFormat.format("CardinalityGuard[limit={}, policy={}, idleTime={}, overflowName={}, evictions={}, overflows={}]", this.limit, this.policy, this.idleTime, this.overflowName, getEvictions(), getOverflows());
+	}
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2020 Byte Mechanics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bytemechanics.metrics.crawler.impl;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import org.bytemechanics.metrics.crawler.AbstractMetric;
+import org.bytemechanics.metrics.crawler.MeasureReducer;
+import org.bytemechanics.metrics.crawler.MetricHandle;
+import org.bytemechanics.metrics.crawler.internal.MeasureReducers;
+import org.bytemechanics.metrics.crawler.internal.commons.string.SimpleFormat;
+
+/**
+ * Metric handle bound directly to the metric of a DefaultMetricsServiceImpl<br>
+ * The metric is resolved with the first measure and reused while the service does not discard its metrics (clear), in that case is resolved again with the next measure.
+ * @see DefaultMetricsServiceImpl#handle(java.lang.String, java.lang.Object...)
+ * @author afarre
+ * @since 1.1.0
+ */
+class DefaultMetricHandle implements MetricHandle {
+
+	private final DefaultMetricsServiceImpl metricsService;
+	private final String name;
+	private volatile Binding binding;
+
+	/**
+	 * Metric handle constructor
+	 * @param _metricsService metrics service that owns the metric (mandatory)
+	 * @param _name metric name already built (mandatory)
+	 */
+	DefaultMetricHandle(final DefaultMetricsServiceImpl _metricsService,final String _name){
+		this.metricsService=_metricsService;
+		this.name=_name;
+		this.binding=null;
+	}
+
+	/** @see MetricHandle#getName() */
+	@Override
+	public String getName() {
+		return this.name;
+	}
+
+	/** @see MetricHandle#record(long) */
+	@Override
+	public void record(final long _measure) {
+		this.metricsService.addLongMeasure(metric(MeasureReducers.LONG.get(Long.class)), _measure);
+	}
+	/** @see MetricHandle#record(double) */
+	@Override
+	public void record(final double _measure) {
+		this.metricsService.addDoubleMeasure(metric(MeasureReducers.DOUBLE.get(Double.class)), _measure);
+	}
+	/** @see MetricHandle#recordDuration(long) */
+	@Override
+	public void recordDuration(final long _nanos) {
+		this.metricsService.addDurationMeasure(metric(MeasureReducers.DURATION.get(Duration.class)), _nanos);
+	}
+	/** @see MetricHandle#record(java.time.LocalDateTime, java.lang.Object, org.bytemechanics.metrics.crawler.MeasureReducer) */
+	@Override
+	@SuppressWarnings("unchecked")
+	public <T> void record(final LocalDateTime _timestamp,final T _measure,final MeasureReducer<T> _reducer) {
+		this.metricsService.addMeasure(metric(_reducer), _timestamp, _measure);
+	}
+
+	private AbstractMetric metric(final MeasureReducer _reducer){
+		Binding current=this.binding;
+		if((current==null)||(current.generation!=this.metricsService.getGeneration())){
+			final long generation=this.metricsService.getGeneration();
+			current=new Binding(this.metricsService.getOrCreate(this.name, _reducer),generation);
+			this.binding=current;
+		}
+		return current.metric;
+	}
+
+	/** @see Object#toString()   */
+	@Override
+	public String toString() {
+		return SimpleFormat.format("DefaultMetricHandle[name={}]", this.name);
+	}
+
+
+	/**
+	 * Resolved metric with the service generation when it was resolved
+	 */
+	private static final class Binding{
+
+		final AbstractMetric metric;
+		final long generation;
+
+		Binding(final AbstractMetric _metric,final long _generation){
+			this.metric=_metric;
+			this.generation=_generation;
+		}
+	}
+}
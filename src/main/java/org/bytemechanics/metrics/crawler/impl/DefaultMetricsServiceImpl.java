@@ -1,15 +1,36 @@
 package org.bytemechanics.metrics.crawler.impl;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+import org.bytemechanics.metrics.crawler.AbstractMetric;
 import org.bytemechanics.metrics.crawler.MeasureReducer;
+import org.bytemechanics.metrics.crawler.MetricFactory;
+import org.bytemechanics.metrics.crawler.MetricHandle;
+import org.bytemechanics.metrics.crawler.MetricVisitor;
 import org.bytemechanics.metrics.crawler.MetricsService;
+import org.bytemechanics.metrics.crawler.beans.MetricReading;
 import org.bytemechanics.metrics.crawler.beans.MetricSnapshot;
-import org.bytemechanics.metrics.crawler.internal.Metric;
+import org.bytemechanics.metrics.crawler.beans.MetricsDelta;
+import org.bytemechanics.metrics.crawler.internal.GaugeMetric;
+import org.bytemechanics.metrics.crawler.internal.MeasureReducers;
+import org.bytemechanics.metrics.crawler.internal.MetricFactories;
+import org.bytemechanics.metrics.crawler.internal.Timestamps;
+import org.bytemechanics.metrics.crawler.internal.commons.string.SimpleFormat;
 
 /**
  * Default Metrics service implementation stores only the latest N samples
@@ -21,9 +42,20 @@ public class DefaultMetricsServiceImpl implements MetricsService {
 
 	/** Default sammpling size (if no specified) */
 	public static final int DEFAULT_SAMPLING_SIZE=128;
+	/** Max number of metrics whose snapshots are computed by a single task when computed in parallel */
+	public static final int PARALLEL_SNAPSHOTS_CHUNK=512;
+	private static final char SEPARATOR='.';
+	private static final char AFTER_SEPARATOR=SEPARATOR+1;
 
 	private final int samplingSize;
-	private final Map<String,Metric> metrics;
+	private final MetricFactory metricFactory;
+	private final MetricFactory gaugeFactory;
+	private final Map<String,AbstractMetric> metrics;
+	private final ConcurrentNavigableMap<String,AbstractMetric> index;
+	private final AtomicLong generation;
+	private final AtomicLong epoch;
+	private final CardinalityGuard cardinalityGuard;
+	private final boolean tracking;
 	
 	
 	/**
@@ -36,10 +68,44 @@ public class DefaultMetricsServiceImpl implements MetricsService {
 	/**
 	 * Creates a default sampling service with the give _samplingSize
 	 * @param _samplingSize sampling size
+	 * @see MetricFactories#SAMPLED
 	 */
 	public DefaultMetricsServiceImpl(final int _samplingSize){
+		this(_samplingSize,MetricFactories.SAMPLED);
+	}
+	/**
+	 * Creates a metrics service with the give _samplingSize that creates the metrics with the given _metricFactory
+	 * @param _samplingSize sampling size
+	 * @param _metricFactory factory to create the metrics (mandatory)
+	 * @throws NullPointerException if _metricFactory is null
+	 * @see MetricFactories
+	 */
+	public DefaultMetricsServiceImpl(final int _samplingSize,final MetricFactory _metricFactory){
+		this(_samplingSize,_metricFactory,null);
+	}
+	/**
+	 * Creates a metrics service with the give _samplingSize that creates the metrics with the given _metricFactory and limits the number of metrics with the given _cardinalityGuard
+	 * @param _samplingSize sampling size
+	 * @param _metricFactory factory to create the metrics (mandatory)
+	 * @param _cardinalityGuard limit of metrics and eviction policy, null for unlimited metrics
+	 * @throws NullPointerException if _metricFactory is null
+	 * @see MetricFactories
+	 * @see CardinalityGuard
+	 * @since 1.1.0
+	 */
+	public DefaultMetricsServiceImpl(final int _samplingSize,final MetricFactory _metricFactory,final CardinalityGuard _cardinalityGuard){
+		if(_metricFactory==null)
+			throw new NullPointerException("Can not create metrics service with null _metricFactory");
 		this.metrics=new ConcurrentHashMap<>(64);
+		this.index=new ConcurrentSkipListMap<>();
 		this.samplingSize=_samplingSize;
+		this.metricFactory=_metricFactory;
+		this.gaugeFactory=MetricFactories.gauge(_metricFactory);
+		this.generation=new AtomicLong();
+		this.epoch=new AtomicLong();
+		this.cardinalityGuard=_cardinalityGuard;
+		this.tracking=(_cardinalityGuard!=null)&&(_cardinalityGuard.isTracking());
+		createGuardCounters();
 	}
 	
 	
@@ -49,6 +115,23 @@ public class DefaultMetricsServiceImpl implements MetricsService {
 		return this.samplingSize;
 	}
 
+	/**
+	 * Retrieve the factory used to create the metrics of this service
+	 * @return the metric factory
+	 */
+	public MetricFactory getMetricFactory(){
+		return this.metricFactory;
+	}
+
+	/**
+	 * Retrieve the cardinality guard of this service
+	 * @return the cardinality guard if this service limits the number of metrics
+	 * @since 1.1.0
+	 */
+	public Optional<CardinalityGuard> getCardinalityGuard(){
+		return Optional.ofNullable(this.cardinalityGuard);
+	}
+
 	/**@see MetricsService#buildMetricName(java.lang.String, java.lang.Object...) */
 	@Override
 	public String buildMetricName(final String _name,final Object... _placeholders) {
@@ -60,31 +143,541 @@ public class DefaultMetricsServiceImpl implements MetricsService {
 	@SuppressWarnings("unchecked")
 	public <TYPE> void registerMeasure(final String _name,final LocalDateTime _time,final TYPE _measure,final MeasureReducer<TYPE> _reducer,final Object... _placeholders){
 		Optional.ofNullable(buildMetricName(_name,_placeholders))
-					.map(effectiveName -> this.metrics.computeIfAbsent(effectiveName,name -> new Metric<>(name, this.samplingSize,_reducer)))
-					.ifPresent(metric -> metric.addMeasure(_time, _measure));
+					.map(effectiveName -> getOrCreate(effectiveName,_reducer))
+					.ifPresent(metric -> addMeasure(metric,_time, _measure));
 	}
 	
+	/** 
+	 * @see MetricsService#registerMeasure(java.lang.String, long) 
+	 * @throws NullPointerException if _name is null
+	 */
+	@Override
+	public void registerMeasure(final String _name,final long _measure){
+		addLongMeasure(getOrCreate(_name,MeasureReducers.LONG.get(Long.class)), _measure);
+	}
+	/** 
+	 * @see MetricsService#registerMeasure(java.lang.String, double) 
+	 * @throws NullPointerException if _name is null
+	 */
+	@Override
+	public void registerMeasure(final String _name,final double _measure){
+		addDoubleMeasure(getOrCreate(_name,MeasureReducers.DOUBLE.get(Double.class)), _measure);
+	}
+	/** 
+	 * @see MetricsService#registerDuration(java.lang.String, long) 
+	 * @throws NullPointerException if _name is null
+	 */
+	@Override
+	public void registerDuration(final String _name,final long _nanos){
+		addDurationMeasure(getOrCreate(_name,MeasureReducers.DURATION.get(Duration.class)), _nanos);
+	}
+
+	/** 
+	 * The counters are created with the COUNTER factory (whatever the factory of the service) and are updated directly also by the services that buffer the measures, because its striped cells are already contention free.
+	 * If the metric already exists as other Long metric the count is registered into it as a measure
+	 * @see MetricsService#add(java.lang.String, long) 
+	 * @see MetricFactories#COUNTER
+	 * @throws NullPointerException if _name is null
+	 */
+	@Override
+	public void add(final String _name,final long _count){
+		if(_count<0)
+			throw new IllegalArgumentException(SimpleFormat.format("Can not add negative count {} to counter {}",_count,_name));
+		final AbstractMetric metric=getOrCreate(_name,MeasureReducers.LONG.get(Long.class),MetricFactories.COUNTER);
+		recorded(metric);
+		metric.addLongMeasure(Timestamps.now(), _count);
+		modified(metric);
+	}
+
+	/**
+	 * The gauge is created with the gauge factory over the factory of the service, so the sampled values are recorded into a metric of the same kind than the others, and its supplier is evaluated only when the metric is read or sampled.
+	 * If the gauge already exists it is bound to the new supplier. If the cardinality guard does not admit the metric the gauge is not registered
+	 * @see MetricsService#gauge(java.lang.String, java.util.function.LongSupplier)
+	 * @see GaugeMetric
+	 * @throws NullPointerException if _name is null
+	 * @throws IllegalArgumentException if the metric already exists and is not a gauge
+	 */
+	@Override
+	public LongSupplier gauge(final String _name,final LongSupplier _supplier){
+		if(_supplier==null)
+			throw new NullPointerException(SimpleFormat.format("Can not register gauge {} with null _supplier",_name));
+		final GaugeMetric gauge=getOrCreateGauge(_name,MeasureReducers.LONG.get(Long.class));
+		if(gauge!=null){
+			gauge.bind(_supplier);
+		}
+		return _supplier;
+	}
+	/**
+	 * The gauge is created with the gauge factory over the factory of the service, so the sampled values are recorded into a metric of the same kind than the others, and its supplier is evaluated only when the metric is read or sampled.
+	 * If the gauge already exists it is bound to the new supplier. If the cardinality guard does not admit the metric the gauge is not registered
+	 * @see MetricsService#gauge(java.lang.String, java.util.function.DoubleSupplier)
+	 * @see GaugeMetric
+	 * @throws NullPointerException if _name is null
+	 * @throws IllegalArgumentException if the metric already exists and is not a gauge
+	 */
+	@Override
+	public DoubleSupplier gauge(final String _name,final DoubleSupplier _supplier){
+		if(_supplier==null)
+			throw new NullPointerException(SimpleFormat.format("Can not register gauge {} with null _supplier",_name));
+		final GaugeMetric gauge=getOrCreateGauge(_name,MeasureReducers.DOUBLE.get(Double.class));
+		if(gauge!=null){
+			gauge.bind(_supplier);
+		}
+		return _supplier;
+	}
+	/**
+	 * Retrieve the gauge with the given name or creates it with the given reducer if not exist
+	 * @param _name metric name (without placeholders)
+	 * @param _reducer reducer to use if the gauge must be created
+	 * @return the existent or new gauge, or null if the cardinality guard returned the overflow metric
+	 * @throws NullPointerException if _name is null
+	 * @throws IllegalArgumentException if the metric already exists and is not a gauge
+	 */
+	private GaugeMetric getOrCreateGauge(final String _name,final MeasureReducer _reducer){
+		final AbstractMetric reply=getOrCreate(_name,_reducer,this.gaugeFactory);
+		if(!_name.equals(reply.getName()))
+			return null;
+		if(!(reply instanceof GaugeMetric))
+			throw new IllegalArgumentException(SimpleFormat.format("Can not register gauge {}, already exist as {}",_name,reply));
+		return (GaugeMetric)reply;
+	}
+
+	/**
+	 * Register the measure into the given metric, by default directly
+	 * @param <TYPE> measure type
+	 * @param _metric metric where register the measure
+	 * @param _time measure timestamp
+	 * @param _measure measure to register
+	 * @see AbstractMetric#addMeasure(java.time.LocalDateTime, java.lang.Object)
+	 */
+	<TYPE> void addMeasure(final AbstractMetric<TYPE> _metric,final LocalDateTime _time,final TYPE _measure){
+		recorded(_metric);
+		_metric.addMeasure(_time, _measure);
+		modified(_metric);
+	}
+	/**
+	 * Register the primitive long measure into the given metric with the current timestamp, by default directly
+	 * @param _metric metric where register the measure
+	 * @param _measure measure to register
+	 * @see AbstractMetric#addLongMeasure(long, long)
+	 */
+	void addLongMeasure(final AbstractMetric _metric,final long _measure){
+		recorded(_metric);
+		_metric.addLongMeasure(Timestamps.now(), _measure);
+		modified(_metric);
+	}
+	/**
+	 * Register the primitive double measure into the given metric with the current timestamp, by default directly
+	 * @param _metric metric where register the measure
+	 * @param _measure measure to register
+	 * @see AbstractMetric#addDoubleMeasure(long, double)
+	 */
+	void addDoubleMeasure(final AbstractMetric _metric,final double _measure){
+		recorded(_metric);
+		_metric.addDoubleMeasure(Timestamps.now(), _measure);
+		modified(_metric);
+	}
+	/**
+	 * Register the primitive duration measure into the given metric with the current timestamp, by default directly
+	 * @param _metric metric where register the measure
+	 * @param _nanos duration in nanoseconds to register
+	 * @see AbstractMetric#addDurationMeasure(long, long)
+	 */
+	void addDurationMeasure(final AbstractMetric _metric,final long _nanos){
+		recorded(_metric);
+		_metric.addDurationMeasure(Timestamps.now(), _nanos);
+		modified(_metric);
+	}
+	
+	/**
+	 * Mark the metric as recorded now if the cardinality guard needs to track the metrics usage
+	 * @param _metric recorded metric
+	 * @see AbstractMetric#markRecorded(long)
+	 */
+	void recorded(final AbstractMetric _metric){
+		if(this.tracking){
+			_metric.markRecorded(System.nanoTime());
+		}
+	}
+
+	/**
+	 * Stamp the metric with the current modification epoch, must be called after register the measure.
+	 * If the epoch advances while stamping the metric is stamped again with the new one, this way a measure registered while other thread advances the epoch and reads the modified metrics is reported again with the next epoch instead of being lost
+	 * @param _metric modified metric
+	 * @see AbstractMetric#markModified(long)
+	 */
+	void modified(final AbstractMetric _metric){
+		long current=this.epoch.get();
+		while(_metric.getModified()!=current){
+			_metric.markModified(current);
+			current=this.epoch.get();
+		}
+	}
+	/**
+	 * Sample the gauges and advance the modification epoch, from now on the metrics recorded are stamped with the returned epoch
+	 * @return new modification epoch
+	 * @see #sampleGauges()
+	 */
+	long advanceEpoch(){
+		sampleGauges();
+		return this.epoch.incrementAndGet();
+	}
+	/**
+	 * Retrieve the metrics modified since the given epoch (included)
+	 * @param _epoch modification epoch, zero retrieves all the metrics
+	 * @return list of metrics modified ordered by name
+	 */
+	List<AbstractMetric> modifiedSince(final long _epoch){
+		final List<AbstractMetric> reply=new ArrayList<>();
+		for(AbstractMetric metric:this.index.values()){
+			if(metric.getModified()>=_epoch){
+				reply.add(metric);
+			}
+		}
+		return reply;
+	}
+
+	/**
+	 * Sample all the gauges with a supplier not collected yet, the gauges whose value has changed since its previous sample are stamped as modified
+	 * @return number of gauges whose value has changed
+	 * @see GaugeMetric#sample()
+	 */
+	int sampleGauges(){
+		int reply=0;
+		for(AbstractMetric metric:this.index.values()){
+			if((metric instanceof GaugeMetric)&&(((GaugeMetric)metric).sample())){
+				recorded(metric);
+				modified(metric);
+				reply++;
+			}
+		}
+		return reply;
+	}
+
+	/**
+	 * Retrieve the metric with the given name or creates it with the given reducer if not exist.
+	 * If the service has a cardinality guard and the limit has been reached the metrics are evicted following the guard policy or the overflow metric is returned instead
+	 * @param _name metric name (without placeholders)
+	 * @param _reducer reducer to use if the metric must be created
+	 * @return the existent or new metric
+	 * @throws NullPointerException if _name is null
+	 * @see CardinalityGuard
+	 */
+	AbstractMetric getOrCreate(final String _name,final MeasureReducer _reducer){
+		return getOrCreate(_name,_reducer,this.metricFactory);
+	}
+	/**
+	 * Retrieve the metric with the given name or creates it with the given reducer and factory if not exist
+	 * @param _name metric name (without placeholders)
+	 * @param _reducer reducer to use if the metric must be created
+	 * @param _factory factory to use if the metric must be created, the overflow metrics are always created with the factory of the service so its kind does not depend on the first overflowed caller
+	 * @return the existent or new metric
+	 * @throws NullPointerException if _name is null
+	 * @see #getOrCreate(java.lang.String, org.bytemechanics.metrics.crawler.MeasureReducer) 
+	 */
+	AbstractMetric getOrCreate(final String _name,final MeasureReducer _reducer,final MetricFactory _factory){
+		if(_name==null)
+			throw new NullPointerException("Can not create null named sensor metric");
+		final AbstractMetric reply=this.metrics.get(_name);
+		if(reply!=null)
+			return reply;
+		if(this.cardinalityGuard==null)
+			return this.metrics.computeIfAbsent(_name,name -> create(name,_reducer,_factory));
+		return guardedCreate(_name,_reducer,_factory);
+	}
+	private AbstractMetric guardedCreate(final String _name,final MeasureReducer _reducer,final MetricFactory _factory){
+		
+		if(guardedSize()>=this.cardinalityGuard.getLimit()){
+			final int evicted=this.cardinalityGuard.sweep(this.metrics.values(),guardedSize(),System.nanoTime(),this::evict);
+			if(evicted>0){
+				this.generation.incrementAndGet();
+				count(this.cardinalityGuard.getEvictionsName(),evicted);
+			}
+		}
+		final AbstractMetric reply=this.metrics.computeIfAbsent(_name,name -> (this.cardinalityGuard.admits(guardedSize()))? create(name,_reducer,_factory) : null);
+		if(reply!=null)
+			return reply;
+		count(this.cardinalityGuard.getOverflowsName(),1l);
+		return this.metrics.computeIfAbsent(this.cardinalityGuard.overflow(_reducer),name -> create(name,_reducer,this.metricFactory));
+	}
+	private int guardedSize(){
+		return this.metrics.size()-CardinalityGuard.COUNTERS;
+	}
+	/**
+	 * Creates the evictions and overflows counters of the cardinality guard (if any), the counters are not created through the guard and are not included into its limit
+	 * @see CardinalityGuard#getEvictionsName()
+	 * @see CardinalityGuard#getOverflowsName()
+	 */
+	private void createGuardCounters(){
+		if(this.cardinalityGuard!=null){
+			final MeasureReducer reducer=MeasureReducers.LONG.get(Long.class);
+			this.metrics.computeIfAbsent(this.cardinalityGuard.getEvictionsName(),name -> create(name,reducer,MetricFactories.COUNTER));
+			this.metrics.computeIfAbsent(this.cardinalityGuard.getOverflowsName(),name -> create(name,reducer,MetricFactories.COUNTER));
+		}
+	}
+	private void count(final String _counter,final long _count){
+		final AbstractMetric counter=this.metrics.get(_counter);
+		if(counter!=null){
+			counter.addLongMeasure(Timestamps.now(),_count);
+			modified(counter);
+		}
+	}
+	@SuppressWarnings("unchecked")
+	private AbstractMetric create(final String _name,final MeasureReducer _reducer,final MetricFactory _factory){
+		final AbstractMetric reply=_factory.create(_name, this.samplingSize,_reducer);
+		this.index.put(_name,reply);
+		return reply;
+	}
+	/**
+	 * Check if the given metric is still the one registered with its name
+	 * @param _metric metric to check
+	 * @return true if the metric has not been removed (evicted or cleared)
+	 */
+	boolean isRegistered(final AbstractMetric _metric){
+		return this.metrics.get(_metric.getName())==_metric;
+	}
+	private boolean evict(final AbstractMetric _metric){
+		final boolean reply=this.metrics.remove(_metric.getName(),_metric);
+		if(reply){
+			this.index.remove(_metric.getName(),_metric);
+		}
+		return reply;
+	}
+	
+	/**
+	 * Creates a publisher that emits every _interval the snapshots of the metrics modified since the previous emission, using its own daemon thread
+	 * @param _interval time between emissions (mandatory)
+	 * @return a new snapshot publisher, must be closed to stop it
+	 * @throws NullPointerException if _interval is null
+	 * @throws IllegalArgumentException if _interval is zero or negative
+	 * @see SnapshotPublisher
+	 * @since 1.1.0
+	 */
+	public SnapshotPublisher publisher(final Duration _interval){
+		return new SnapshotPublisher(this,_interval,null);
+	}
+	/**
+	 * Creates a publisher that emits every _interval the snapshots of the metrics modified since the previous emission, scheduled with the given _scheduler
+	 * @param _interval time between emissions (mandatory)
+	 * @param _scheduler scheduler to run the emissions (mandatory), is not shutdown when the publisher is closed
+	 * @return a new snapshot publisher, must be closed to stop it
+	 * @throws NullPointerException if _interval or _scheduler are null
+	 * @throws IllegalArgumentException if _interval is zero or negative
+	 * @see SnapshotPublisher
+	 * @since 1.1.0
+	 */
+	public SnapshotPublisher publisher(final Duration _interval,final ScheduledExecutorService _scheduler){
+		if(_scheduler==null)
+			throw new NullPointerException("Can not create snapshot publisher with null _scheduler");
+		return new SnapshotPublisher(this,_interval,_scheduler);
+	}
+	
+	/**
+	 * Creates a sampler that samples every _interval the gauges of this service, using its own daemon thread
+	 * @param _interval time between samples (mandatory)
+	 * @return a new gauge sampler, must be closed to stop it
+	 * @throws NullPointerException if _interval is null
+	 * @throws IllegalArgumentException if _interval is zero or negative
+	 * @see GaugeSampler
+	 * @since 1.1.0
+	 */
+	public GaugeSampler sampler(final Duration _interval){
+		return new GaugeSampler(this,_interval,null);
+	}
+	/**
+	 * Creates a sampler that samples every _interval the gauges of this service, scheduled with the given _scheduler
+	 * @param _interval time between samples (mandatory)
+	 * @param _scheduler scheduler to run the samples (mandatory), is not shutdown when the sampler is closed
+	 * @return a new gauge sampler, must be closed to stop it
+	 * @throws NullPointerException if _interval or _scheduler are null
+	 * @throws IllegalArgumentException if _interval is zero or negative
+	 * @see GaugeSampler
+	 * @since 1.1.0
+	 */
+	public GaugeSampler sampler(final Duration _interval,final ScheduledExecutorService _scheduler){
+		if(_scheduler==null)
+			throw new NullPointerException("Can not create gauge sampler with null _scheduler");
+		return new GaugeSampler(this,_interval,_scheduler);
+	}
+	
+	/** @see MetricsService#handle(java.lang.String, java.lang.Object...)  */
+	@Override
+	public MetricHandle handle(final String _name,final Object... _placeholders){
+		return new DefaultMetricHandle(this, buildMetricName(_name, _placeholders));
+	}
+
+	/**
+	 * Retrieve the current generation of metrics, the generation changes every time the current metrics are discarded or evicted
+	 * @return current generation
+	 */
+	long getGeneration(){
+		return this.generation.get();
+	}
+
 	/** @see MetricsService#getMetric(java.lang.String, java.lang.Object...)  */
 	@Override
 	public Optional<MetricSnapshot> getMetric(final String _measure,final Object... _placeholders) {
 		return Optional.ofNullable(buildMetricName(_measure,_placeholders))
 							.map(this.metrics::get)
-							.map(Metric::toSnapshot);
+							.map(this::read)
+							.map(AbstractMetric::toSnapshot);
 	}
 
-	/** @see MetricsService#getMetrics()  */
+	private AbstractMetric read(final AbstractMetric _metric){
+		return read(_metric,(this.tracking)? System.nanoTime() : 0l);
+	}
+	private AbstractMetric read(final AbstractMetric _metric,final long _nanos){
+		if(this.tracking){
+			_metric.markRead(_nanos);
+		}
+		return _metric;
+	}
+
+	/** 
+	 * The metrics are kept also in an index ordered by name (updated only when a metric is created or removed), so the list is built without sorting.
+	 * If the cardinality guard tracks the metrics usage all the metrics are marked as read
+	 * @see MetricsService#getMetrics()
+	 */
 	@Override
 	public List<MetricSnapshot> getMetrics(){
-		return this.metrics.values()
-								.stream()
-									.map(Metric::toSnapshot)
-									.sorted(MetricSnapshot::compareNames)
-									.collect(Collectors.toList());
+		return snapshots(this.index.values());
+	}
+
+	/**
+	 * Return an ordered list by name of the existent snapshot metrics computing the snapshots in parallel with the given _pool.<br>
+	 * The metrics are split in chunks of consecutive metrics (up to PARALLEL_SNAPSHOTS_CHUNK) and each chunk writes its snapshots in its positions of the reply, so the list is in the same order than getMetrics() without sorting nor merging. If there are less metrics than a chunk the snapshots are computed by the current thread.
+	 * Note: the parallelism of the pool bounds the threads used, only pays off with thousands of metrics and more than one processor (see GetMetricsBenchmark)
+	 * @param _pool pool to compute the snapshots (mandatory)
+	 * @return List of metrics snapshot
+	 * @throws NullPointerException if _pool is null
+	 * @see #getMetrics()
+	 * @see #PARALLEL_SNAPSHOTS_CHUNK
+	 * @since 1.1.0
+	 */
+	public List<MetricSnapshot> getMetrics(final ForkJoinPool _pool){
+		if(_pool==null)
+			throw new NullPointerException("Can not compute snapshots with null _pool");
+		final AbstractMetric[] current=this.index.values().toArray(new AbstractMetric[0]);
+		if(this.tracking){
+			final long now=System.nanoTime();
+			for(AbstractMetric metric:current){
+				read(metric,now);
+			}
+		}
+		final MetricSnapshot[] reply=new MetricSnapshot[current.length];
+		final SnapshotsTask task=new SnapshotsTask(current,reply,0,current.length);
+		if(current.length<=PARALLEL_SNAPSHOTS_CHUNK){
+			task.compute();
+		}else{
+			_pool.invoke(task);
+		}
+		return new ArrayList<>(Arrays.asList(reply));
+	}
+
+	/** 
+	 * Walks the index ordered by name filling a single reading with the primitive values of each metric, so the Long, Double and Duration metrics are visited without creating any snapshot.
+	 * The metrics that only provide part of its values through the snapshot (histograms of the HistogramReducer metrics and quantiles of the SketchMetric) and the DecayingMetric (that must select the samples across its stripes anyway) or with custom reducers are visited through its snapshot
+	 * @see MetricsService#forEach(org.bytemechanics.metrics.crawler.MetricVisitor)
+	 * @see AbstractMetric#read(org.bytemechanics.metrics.crawler.beans.MetricReading)
+	 */
+	@Override
+	public void forEach(final MetricVisitor _visitor){
+		if(_visitor==null)
+			throw new NullPointerException("Can not visit metrics with null _visitor");
+		final MetricReading reading=new MetricReading();
+		final long now=(this.tracking)? System.nanoTime() : 0l;
+		for(AbstractMetric metric:this.index.values()){
+			_visitor.visit(read(metric,now).read(reading));
+		}
+	}
+
+	/** 
+	 * The metrics under the path are retrieved from the index ordered by name as the metric of the path and the range of names from "path." (included) to "path/" (excluded), because slash (/) is the character following dot (.)
+	 * @see MetricsService#getMetricsUnder(java.lang.String, java.lang.Object...)
+	 */
+	@Override
+	public List<MetricSnapshot> getMetricsUnder(final String _path,final Object... _placeholders){
+		final String path=buildMetricName(_path,_placeholders);
+		if(path.isEmpty())
+			return getMetrics();
+		final List<MetricSnapshot> reply=new ArrayList<>();
+		final long now=(this.tracking)? System.nanoTime() : 0l;
+		final AbstractMetric metric=this.index.get(path);
+		if(metric!=null){
+			reply.add(read(metric,now).toSnapshot());
+		}
+		for(AbstractMetric child:this.index.subMap(path+SEPARATOR,true,path+AFTER_SEPARATOR,false).values()){
+			reply.add(read(child,now).toSnapshot());
+		}
+		return reply;
 	}
 
-	/** @see MetricsService#clear()  */
+	private List<MetricSnapshot> snapshots(final Collection<AbstractMetric> _metrics){
+		final List<MetricSnapshot> reply=new ArrayList<>(_metrics.size());
+		final long now=(this.tracking)? System.nanoTime() : 0l;
+		for(AbstractMetric metric:_metrics){
+			reply.add(read(metric,now).toSnapshot());
+		}
+		return reply;
+	}
+
+	/** 
+	 * Retrieve the snapshots of the metrics modified since the given cursor, the cursor is the modification epoch of the service that is advanced on each call.
+	 * A metric recorded while the delta is built can be also returned in the next call, but never lost. The metrics removed (by clear() or evicted) are not notified.
+	 * The gauges are sampled before building the delta and only returned when its value has changed
+	 * @see MetricsService#getMetricsSince(long)
+	 */
+	@Override
+	public MetricsDelta getMetricsSince(final long _cursor){
+		final long cursor=advanceEpoch();
+		return new MetricsDelta(cursor,snapshots(modifiedSince(_cursor)));
+	}
+
+	/** 
+	 * The metrics are removed one by one from the registry and then from the index (as the evicted ones), so a metric created while clearing is either kept in both or removed from both.
+	 * The evictions and overflows counters of the cardinality guard are created again from zero, the guard keeps its totals
+	 * @see MetricsService#clear()
+	 */
 	@Override
 	public void clear() {
-		this.metrics.clear();
+		for(AbstractMetric metric:this.metrics.values()){
+			evict(metric);
+		}
+		this.generation.incrementAndGet();
+		createGuardCounters();
+	}
+
+
+	/**
+	 * Task to compute the snapshots of a range of metrics into the same positions of the reply
+	 */
+	private static final class SnapshotsTask extends RecursiveAction{
+
+		private static final long serialVersionUID = -3587128490134127461L;
+
+		private final AbstractMetric[] metrics;
+		private final MetricSnapshot[] snapshots;
+		private final int from;
+		private final int to;
+
+		SnapshotsTask(final AbstractMetric[] _metrics,final MetricSnapshot[] _snapshots,final int _from,final int _to){
+			this.metrics=_metrics;
+			this.snapshots=_snapshots;
+			this.from=_from;
+			this.to=_to;
+		}
+
+		@Override
+		protected void compute() {
+			if(this.to-this.from<=PARALLEL_SNAPSHOTS_CHUNK){
+				for(int ic1=this.from;ic1<this.to;ic1++){
+					this.snapshots[ic1]=this.metrics[ic1].toSnapshot();
+				}
+			}else{
+				final int middle=(this.from+this.to)>>>1;
+				invokeAll(new SnapshotsTask(this.metrics,this.snapshots,this.from,middle)
+						,new SnapshotsTask(this.metrics,this.snapshots,middle,this.to));
+			}
+		}
 	}
 }
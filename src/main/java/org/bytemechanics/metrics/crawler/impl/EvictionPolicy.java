@@ -0,0 +1,73 @@
+/*
+ * Copyright 2020 Byte Mechanics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bytemechanics.metrics.crawler.impl;
+
+import org.bytemechanics.metrics.crawler.AbstractMetric;
+
+/**
+ * Eviction policies of the CardinalityGuard, decides which metrics are discarded when the metrics limit is reached
+ * @see CardinalityGuard
+ * @author afarre
+ * @since 1.1.0
+ */
+public enum EvictionPolicy {
+
+	/** Never evicts, the new metrics beyond the limit are registered into the overflow metrics */
+	OVERFLOW(false,false),
+	/** Evicts the least recently used metrics (recorded or read with getMetric()) */
+	LEAST_RECENTLY_USED(true,true){
+		@Override
+		long lastUse(final AbstractMetric _metric) {
+			return _metric.getLastUsed();
+		}
+	},
+	/** Evicts the least recently recorded metrics */
+	LEAST_RECENTLY_RECORDED(true,true),
+	/** Evicts the metrics without records for longer than the idle time, if there are none the new metrics beyond the limit are registered into the overflow metrics */
+	IDLE(true,false),
+	;
+
+	private final boolean tracking;
+	private final boolean alwaysAdmits;
+
+	EvictionPolicy(final boolean _tracking,final boolean _alwaysAdmits){
+		this.tracking=_tracking;
+		this.alwaysAdmits=_alwaysAdmits;
+	}
+
+	/**
+	 * Retrieve if this policy needs to track the usage of the metrics
+	 * @return true if the metrics usage must be tracked
+	 */
+	boolean isTracking(){
+		return this.tracking;
+	}
+	/**
+	 * Retrieve if this policy always makes room for the new metrics
+	 * @return true if the new metrics are always admitted (after evict others)
+	 */
+	boolean isAlwaysAdmits(){
+		return this.alwaysAdmits;
+	}
+	/**
+	 * Retrieve the last use of the metric considered by this policy
+	 * @param _metric metric
+	 * @return last use time in nanoseconds
+	 */
+	long lastUse(final AbstractMetric _metric){
+		return _metric.getLastRecorded();
+	}
+}
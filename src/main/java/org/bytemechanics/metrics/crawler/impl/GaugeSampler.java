@@ -0,0 +1,122 @@
+/*
+ * Copyright 2020 Byte Mechanics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bytemechanics.metrics.crawler.impl;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.bytemechanics.metrics.crawler.internal.GaugeMetric;
+import org.bytemechanics.metrics.crawler.internal.commons.string.SimpleFormat;
+
+/**
+ * Sampler of the gauges of a service<br>
+ * Every interval the sampler evaluates the supplier of each gauge and records its value into the gauge window, so the window keeps the evolution of the gauges also between reads. Without sampler the gauges are only evaluated when are read.<br>
+ * Note: the gauges whose supplier has been collected are not sampled
+ * @see GaugeMetric
+ * @see DefaultMetricsServiceImpl#sampler(java.time.Duration)
+ * @see DefaultMetricsServiceImpl#sampler(java.time.Duration, java.util.concurrent.ScheduledExecutorService)
+ * @author afarre
+ * @since 1.1.0
+ */
+public final class GaugeSampler implements AutoCloseable {
+
+	private static final Logger logger=Logger.getLogger(GaugeSampler.class.getName());
+
+	private final DefaultMetricsServiceImpl service;
+	private final Duration interval;
+	private final ScheduledExecutorService scheduler;
+	private final boolean ownScheduler;
+	private final ScheduledFuture<?> task;
+	private volatile boolean closed;
+
+
+	/**
+	 * Creates and starts a gauge sampler
+	 * @param _service metrics service to sample (mandatory)
+	 * @param _interval time between samples (mandatory)
+	 * @param _scheduler scheduler to run the samples, if null a single daemon thread scheduler is created and shutdown when closed
+	 * @throws NullPointerException if _interval is null
+	 * @throws IllegalArgumentException if _interval is zero or negative
+	 */
+	GaugeSampler(final DefaultMetricsServiceImpl _service,final Duration _interval,final ScheduledExecutorService _scheduler){
+		if(_interval==null)
+			throw new NullPointerException("Can not create gauge sampler with null _interval");
+		if((_interval.isZero())||(_interval.isNegative()))
+			throw new IllegalArgumentException(SimpleFormat.format("Can not create gauge sampler with interval {}, must be positive",_interval));
+		this.service=_service;
+		this.interval=_interval;
+		this.ownScheduler=(_scheduler==null);
+		this.scheduler=(this.ownScheduler)? Executors.newSingleThreadScheduledExecutor(GaugeSampler::newThread) : _scheduler;
+		this.closed=false;
+		this.task=this.scheduler.scheduleWithFixedDelay(this::tick,_interval.toNanos(),_interval.toNanos(),TimeUnit.NANOSECONDS);
+	}
+	private static Thread newThread(final Runnable _runnable){
+		final Thread reply=new Thread(_runnable,"metrics-gauge-sampler");
+		reply.setDaemon(true);
+		return reply;
+	}
+
+	/**
+	 * Retrieve the time between samples
+	 * @return time between samples
+	 */
+	public Duration getInterval() {
+		return interval;
+	}
+	/**
+	 * Retrieve if the sampler has been closed
+	 * @return true if is closed
+	 */
+	public boolean isClosed() {
+		return closed;
+	}
+
+	/**
+	 * Sample all the gauges of the service
+	 */
+	void tick(){
+		if(!this.closed){
+			try{
+				this.service.sampleGauges();
+			}catch(Exception e){
+				logger.log(Level.WARNING,e,() -> SimpleFormat.format("gauge::sampler::sample::failed::{}",e.getMessage()));
+			}
+		}
+	}
+
+	/**
+	 * Stops the samples, if the scheduler was created by the sampler it is shutdown
+	 * @see AutoCloseable#close()
+	 */
+	@Override
+	public void close() {
+		this.closed=true;
+		this.task.cancel(false);
+		if(this.ownScheduler){
+			this.scheduler.shutdown();
+		}
+	}
+
+	/** @see Object#toString()   */
+	@Override
+	public String toString() {
+		return SimpleFormat.format("GaugeSampler[interval={}, closed={}]", this.interval, this.closed);
+	}
+}
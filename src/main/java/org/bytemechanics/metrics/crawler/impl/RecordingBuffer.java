@@ -0,0 +1,255 @@
+/*
+ * Copyright 2020 Byte Mechanics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bytemechanics.metrics.crawler.impl;
+
+import java.lang.ref.WeakReference;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.bytemechanics.metrics.crawler.AbstractMetric;
+import org.bytemechanics.metrics.crawler.internal.commons.string.SimpleFormat;
+
+/**
+ * Per-thread buffer of pending measures of a BufferedMetricsServiceImpl<br>
+ * The buffer is a single writer ring: only its owner thread appends measures (without any lock, publishing each one with an ordered write of the tail) and the drains, done either by the owner when is full or by any thread that reads the metrics, are serialized by a drain lock and release the slots advancing the head.
+ * The primitive measures are stored in parallel primitive arrays and the boxed ones with its timestamp, when drained the measures are grouped by metric in a single pass (keeping its order) and each group is registered holding the metric monitor, so the synchronized metrics acquire it only once per drain instead of once per measure.
+ * The measures of the metrics no longer registered in the service (evicted or cleared) are discarded when drained.
+ * @see BufferedMetricsServiceImpl
+ * @author afarre
+ * @since 1.1.0
+ */
+final class RecordingBuffer {
+
+	private static final byte LONG=0;
+	private static final byte DOUBLE=1;
+	private static final byte DURATION=2;
+	private static final byte OBJECT=3;
+
+	private final WeakReference<Thread> owner;
+	private final int capacity;
+	private final AbstractMetric[] metrics;
+	private final byte[] kinds;
+	private final long[] timestamps;
+	private final long[] values;
+	private final Object[] measures;
+	private final LocalDateTime[] times;
+	private final Predicate<AbstractMetric> registered;
+	private final Consumer<AbstractMetric> drained;
+	private final AtomicLong tail;
+	private volatile long head;
+	private final Object drainLock;
+	private final AbstractMetric[] table;
+	private final int[] tableGroups;
+	private final int[] firsts;
+	private final int[] lasts;
+	private final int[] next;
+
+	/**
+	 * Recording buffer constructor
+	 * @param _owner thread that writes into this buffer
+	 * @param _capacity max measures to store before drain
+	 * @param _registered predicate to check if a metric is still registered, the measures of the metrics not registered are discarded
+	 * @param _drained callback to call for each metric after register its pending measures
+	 */
+	RecordingBuffer(final Thread _owner,final int _capacity,final Predicate<AbstractMetric> _registered,final Consumer<AbstractMetric> _drained){
+		this.owner=new WeakReference<>(_owner);
+		this.capacity=_capacity;
+		this.registered=_registered;
+		this.drained=_drained;
+		this.metrics=new AbstractMetric[_capacity];
+		this.kinds=new byte[_capacity];
+		this.timestamps=new long[_capacity];
+		this.values=new long[_capacity];
+		this.measures=new Object[_capacity];
+		this.times=new LocalDateTime[_capacity];
+		this.tail=new AtomicLong();
+		this.head=0l;
+		this.drainLock=new Object();
+		this.table=new AbstractMetric[Integer.highestOneBit(_capacity)<<2];
+		this.tableGroups=new int[this.table.length];
+		this.firsts=new int[_capacity];
+		this.lasts=new int[_capacity];
+		this.next=new int[_capacity];
+	}
+
+	/**
+	 * Retrieve if the thread that owns the buffer has finished
+	 * @return true if the owner thread is no longer alive
+	 */
+	boolean isOrphan(){
+		final Thread thread=this.owner.get();
+		return (thread==null)||(!thread.isAlive());
+	}
+	/**
+	 * Retrieve the number of pending measures
+	 * @return number of pending measures
+	 */
+	int size(){
+		final long start=this.head;
+		return (int)(this.tail.get()-start);
+	}
+
+	/**
+	 * Append a primitive long measure, drains the buffer if is full. Must be called only by the owner thread
+	 * @param _metric metric where the measure must be registered
+	 * @param _timestamp measure timestamp
+	 * @param _measure measure
+	 */
+	void addLong(final AbstractMetric _metric,final long _timestamp,final long _measure){
+		append(_metric,LONG,_timestamp,_measure,null,null);
+	}
+	/**
+	 * Append a primitive double measure, drains the buffer if is full. Must be called only by the owner thread
+	 * @param _metric metric where the measure must be registered
+	 * @param _timestamp measure timestamp
+	 * @param _measure measure
+	 */
+	void addDouble(final AbstractMetric _metric,final long _timestamp,final double _measure){
+		append(_metric,DOUBLE,_timestamp,Double.doubleToRawLongBits(_measure),null,null);
+	}
+	/**
+	 * Append a primitive duration measure, drains the buffer if is full. Must be called only by the owner thread
+	 * @param _metric metric where the measure must be registered
+	 * @param _timestamp measure timestamp
+	 * @param _nanos duration in nanoseconds
+	 */
+	void addDuration(final AbstractMetric _metric,final long _timestamp,final long _nanos){
+		append(_metric,DURATION,_timestamp,_nanos,null,null);
+	}
+	/**
+	 * Append a boxed measure, drains the buffer if is full. Must be called only by the owner thread
+	 * @param _metric metric where the measure must be registered
+	 * @param _time measure timestamp
+	 * @param _measure measure
+	 */
+	void addObject(final AbstractMetric _metric,final LocalDateTime _time,final Object _measure){
+		append(_metric,OBJECT,0l,0l,_time,_measure);
+	}
+	private void append(final AbstractMetric _metric,final byte _kind,final long _timestamp,final long _value,final LocalDateTime _time,final Object _measure){
+		final long position=this.tail.get();
+		final int slot=(int)(position%this.capacity);
+		this.metrics[slot]=_metric;
+		this.kinds[slot]=_kind;
+		this.timestamps[slot]=_timestamp;
+		this.values[slot]=_value;
+		this.times[slot]=_time;
+		this.measures[slot]=_measure;
+		this.tail.lazySet(position+1);
+		if(position+1-this.head>=this.capacity){
+			drain();
+		}
+	}
+
+	/**
+	 * Register all the pending measures into its metrics, discarding the ones of the metrics no longer registered
+	 */
+	void drain(){
+		synchronized(this.drainLock){
+			final long start=this.head;
+			final long end=this.tail.get();
+			final int count=group(start,end);
+			for(int ic1=0;ic1<count;ic1++){
+				final AbstractMetric metric=this.metrics[this.firsts[ic1]];
+				if(this.registered.test(metric)){
+					synchronized(metric){
+						for(int slot=this.firsts[ic1];slot>=0;slot=this.next[slot]){
+							register(metric,slot);
+						}
+					}
+					this.drained.accept(metric);
+				}
+			}
+			release(start,end);
+		}
+	}
+	/**
+	 * Group the pending measures by metric in a single pass, linking the slots of each metric in order through next[] with an identity open addressing table
+	 * @return number of groups, the first slot of each group is in firsts[]
+	 */
+	private int group(final long _start,final long _end){
+		final int mask=this.table.length-1;
+		int reply=0;
+		for(long position=_start;position<_end;position++){
+			final int slot=(int)(position%this.capacity);
+			final AbstractMetric metric=this.metrics[slot];
+			this.next[slot]=-1;
+			int bucket=System.identityHashCode(metric)&mask;
+			while((this.table[bucket]!=null)&&(this.table[bucket]!=metric)){
+				bucket=(bucket+1)&mask;
+			}
+			if(this.table[bucket]==null){
+				this.table[bucket]=metric;
+				this.tableGroups[bucket]=reply;
+				this.firsts[reply]=slot;
+				this.lasts[reply]=slot;
+				reply++;
+			}else{
+				final int group=this.tableGroups[bucket];
+				this.next[this.lasts[group]]=slot;
+				this.lasts[group]=slot;
+			}
+		}
+		for(int ic1=0;ic1<reply;ic1++){
+			int bucket=System.identityHashCode(this.metrics[this.firsts[ic1]])&mask;
+			while(this.table[bucket]!=null){
+				this.table[bucket]=null;
+				bucket=(bucket+1)&mask;
+			}
+		}
+		return reply;
+	}
+	/**
+	 * Discard all the pending measures without register them
+	 */
+	void discard(){
+		synchronized(this.drainLock){
+			release(this.head,this.tail.get());
+		}
+	}
+	private void release(final long _start,final long _end){
+		for(long position=_start;position<_end;position++){
+			final int slot=(int)(position%this.capacity);
+			this.metrics[slot]=null;
+			this.measures[slot]=null;
+			this.times[slot]=null;
+		}
+		this.head=_end;
+	}
+
+	@SuppressWarnings("unchecked")
+	private void register(final AbstractMetric _metric,final int _slot){
+		try{
+			switch(this.kinds[_slot]){
+				case LONG:
+					_metric.addLongMeasure(this.timestamps[_slot],this.values[_slot]);
+					break;
+				case DOUBLE:
+					_metric.addDoubleMeasure(this.timestamps[_slot],Double.longBitsToDouble(this.values[_slot]));
+					break;
+				case DURATION:
+					_metric.addDurationMeasure(this.timestamps[_slot],this.values[_slot]);
+					break;
+				default:
+					_metric.addMeasure(this.times[_slot],this.measures[_slot]);
+			}
+		}catch(Exception e){
+			Logger.getLogger(RecordingBuffer.class.getName()).log(Level.WARNING,e,() -> SimpleFormat.format("measure::{}::buffered::registry::failed::{}",_metric.getName(),e.getMessage()));
+		}
+	}
+}
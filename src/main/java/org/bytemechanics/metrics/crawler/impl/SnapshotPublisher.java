@@ -0,0 +1,385 @@
+/*
+ * Copyright 2020 Byte Mechanics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bytemechanics.metrics.crawler.impl;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import org.bytemechanics.metrics.crawler.AbstractMetric;
+import org.bytemechanics.metrics.crawler.beans.MetricSnapshot;
+import org.bytemechanics.metrics.crawler.internal.commons.string.SimpleFormat;
+
+/**
+ * Publisher of the snapshots of the metrics modified since the previous emission<br>
+ * Every interval the publisher advances the modification epoch of the service and emits to each subscriber with pending demand a batch (sorted by name) with the snapshots of the metrics recorded since the last batch delivered to it, the batches without metrics are not emitted.
+ * The demand is counted in batches, a subscriber without demand or still consuming its previous batch does not receive anything and when is ready again receives in a single batch all the metrics modified meanwhile, so a slow subscriber never accumulates pending work and the cost of each emission is proportional to the modified metrics and not to the registry size.
+ * The first batch of each subscriber contains all the metrics and the gauges are included only when its value has changed.<br>
+ * Subscriber and Subscription follow the java.util.concurrent.Flow contract (with the same methods) so they can be adapted directly in java 9 or later. The batches are built by the scheduler thread but the signals are delivered outside the publisher lock, serialized per subscriber, through the common ForkJoinPool (or a new thread per delivery if the common pool has no parallelism), so a slow subscriber only delays itself. Only onSubscribe() is called directly from the subscribe() caller.<br>
+ * Note: a metric recorded while the batch is being built can be emitted twice and the metrics removed (by clear() or evicted) are not notified
+ * @see DefaultMetricsServiceImpl#publisher(java.time.Duration)
+ * @see DefaultMetricsServiceImpl#publisher(java.time.Duration, java.util.concurrent.ScheduledExecutorService)
+ * @author afarre
+ * @since 1.1.0
+ */
+public final class SnapshotPublisher implements AutoCloseable {
+
+	private static final Logger logger=Logger.getLogger(SnapshotPublisher.class.getName());
+
+	/**
+	 * Receiver of the batches of modified metrics snapshots, equivalent to java.util.concurrent.Flow.Subscriber&lt;List&lt;MetricSnapshot&gt;&gt;
+	 */
+	public interface Subscriber {
+
+		/**
+		 * Called before any other signal with the subscription to request batches
+		 * @param _subscription subscription
+		 */
+		public void onSubscribe(final Subscription _subscription);
+		/**
+		 * Called with the next batch of snapshots of the modified metrics, only when there is demand
+		 * @param _snapshots unmodifiable list of snapshots sorted by name
+		 */
+		public void onNext(final List<MetricSnapshot> _snapshots);
+		/**
+		 * Called when the subscription fails, no further signals are emitted
+		 * @param _error error
+		 */
+		public void onError(final Throwable _error);
+		/**
+		 * Called when the publisher is closed, no further signals are emitted
+		 */
+		public void onComplete();
+	}
+
+	/**
+	 * Link between the publisher and a subscriber, equivalent to java.util.concurrent.Flow.Subscription
+	 */
+	public interface Subscription {
+
+		/**
+		 * Adds _n batches to the demand of the subscriber
+		 * @param _n number of batches, if is zero or negative the subscription fails with an IllegalArgumentException
+		 */
+		public void request(final long _n);
+		/**
+		 * Stop receiving batches
+		 */
+		public void cancel();
+	}
+
+
+	private final DefaultMetricsServiceImpl service;
+	private final Duration interval;
+	private final ScheduledExecutorService scheduler;
+	private final boolean ownScheduler;
+	private final Executor executor;
+	private final Queue<DeltaSubscription> subscriptions;
+	private final ScheduledFuture<?> task;
+	private final Object lock;
+	private volatile boolean closed;
+
+
+	/**
+	 * Creates and starts a snapshot publisher
+	 * @param _service metrics service to publish (mandatory)
+	 * @param _interval time between emissions (mandatory)
+	 * @param _scheduler scheduler to run the emissions, if null a single daemon thread scheduler is created and shutdown when closed
+	 * @throws NullPointerException if _interval is null
+	 * @throws IllegalArgumentException if _interval is zero or negative
+	 */
+	SnapshotPublisher(final DefaultMetricsServiceImpl _service,final Duration _interval,final ScheduledExecutorService _scheduler){
+		this(_service,_interval,_scheduler,deliveryExecutor());
+	}
+	/**
+	 * Creates and starts a snapshot publisher that delivers the signals to the subscribers with the given executor
+	 * @param _service metrics service to publish (mandatory)
+	 * @param _interval time between emissions (mandatory)
+	 * @param _scheduler scheduler to run the emissions, if null a single daemon thread scheduler is created and shutdown when closed
+	 * @param _executor executor to deliver the signals to the subscribers (mandatory)
+	 * @throws NullPointerException if _interval is null
+	 * @throws IllegalArgumentException if _interval is zero or negative
+	 */
+	SnapshotPublisher(final DefaultMetricsServiceImpl _service,final Duration _interval,final ScheduledExecutorService _scheduler,final Executor _executor){
+		if(_interval==null)
+			throw new NullPointerException("Can not create snapshot publisher with null _interval");
+		if((_interval.isZero())||(_interval.isNegative()))
+			throw new IllegalArgumentException(SimpleFormat.format("Can not create snapshot publisher with interval {}, must be positive",_interval));
+		this.service=_service;
+		this.interval=_interval;
+		this.ownScheduler=(_scheduler==null);
+		this.scheduler=(this.ownScheduler)? Executors.newSingleThreadScheduledExecutor(SnapshotPublisher::newThread) : _scheduler;
+		this.executor=_executor;
+		this.subscriptions=new ConcurrentLinkedQueue<>();
+		this.lock=new Object();
+		this.closed=false;
+		this.task=this.scheduler.scheduleWithFixedDelay(this::tick,_interval.toNanos(),_interval.toNanos(),TimeUnit.NANOSECONDS);
+	}
+	private static Thread newThread(final Runnable _runnable){
+		final Thread reply=new Thread(_runnable,"metrics-snapshot-publisher");
+		reply.setDaemon(true);
+		return reply;
+	}
+	private static Executor deliveryExecutor(){
+		return (ForkJoinPool.getCommonPoolParallelism()>1)? ForkJoinPool.commonPool() : SnapshotPublisher::deliverInNewThread;
+	}
+	private static void deliverInNewThread(final Runnable _runnable){
+		final Thread thread=new Thread(_runnable,"metrics-snapshot-delivery");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Retrieve the time between emissions
+	 * @return time between emissions
+	 */
+	public Duration getInterval() {
+		return interval;
+	}
+	/**
+	 * Retrieve if the publisher has been closed
+	 * @return true if is closed
+	 */
+	public boolean isClosed() {
+		return closed;
+	}
+
+	/**
+	 * Subscribe the given subscriber, its first batch will contain all the metrics. If the publisher is already closed the subscriber is completed immediately
+	 * @param _subscriber subscriber (mandatory)
+	 * @throws NullPointerException if _subscriber is null
+	 */
+	public void subscribe(final Subscriber _subscriber){
+		if(_subscriber==null)
+			throw new NullPointerException("Can not subscribe null _subscriber");
+		final DeltaSubscription subscription=new DeltaSubscription(_subscriber,this.executor);
+		try{
+			_subscriber.onSubscribe(subscription);
+		}catch(Exception e){
+			logger.log(Level.WARNING,e,() -> SimpleFormat.format("snapshot::publisher::subscriber::{}::onSubscribe::failed::{}",_subscriber,e.getMessage()));
+			subscription.cancel();
+		}
+		synchronized(this.lock){
+			if(this.closed){
+				subscription.complete();
+			}else{
+				this.subscriptions.add(subscription);
+			}
+		}
+		subscription.dispatch();
+	}
+
+	/**
+	 * Builds the batches of the modified metrics for the subscribers ready to receive them under the publisher lock and delivers them outside it
+	 */
+	void tick(){
+		final List<DeltaSubscription> signalled=new ArrayList<>();
+		synchronized(this.lock){
+			if(!this.closed){
+				try{
+					final long epoch=this.service.advanceEpoch();
+					final Map<Long,List<MetricSnapshot>> batches=new HashMap<>();
+					for(DeltaSubscription subscription:this.subscriptions){
+						if(subscription.isCancelled()){
+							this.subscriptions.remove(subscription);
+						}else if(subscription.fail()){
+							this.subscriptions.remove(subscription);
+							signalled.add(subscription);
+						}else if((subscription.isReady())&&(subscription.next(batches.computeIfAbsent(subscription.cursor,this::snapshotsSince),epoch))){
+							signalled.add(subscription);
+						}
+					}
+				}catch(Exception e){
+					logger.log(Level.WARNING,e,() -> SimpleFormat.format("snapshot::publisher::emission::failed::{}",e.getMessage()));
+				}
+			}
+		}
+		for(DeltaSubscription subscription:signalled){
+			subscription.dispatch();
+		}
+	}
+	private List<MetricSnapshot> snapshotsSince(final long _epoch){
+		return Collections.unmodifiableList(this.service.modifiedSince(_epoch)
+															.stream()
+																.map(AbstractMetric::toSnapshot)
+																.collect(Collectors.toList()));
+	}
+
+	/**
+	 * Stops the emissions and completes all the subscribers
+	 * @see AutoCloseable#close()
+	 */
+	@Override
+	public void close() {
+		this.task.cancel(false);
+		if(this.ownScheduler){
+			this.scheduler.shutdown();
+		}
+		final List<DeltaSubscription> completed=new ArrayList<>();
+		synchronized(this.lock){
+			if(!this.closed){
+				this.closed=true;
+				for(DeltaSubscription subscription:this.subscriptions){
+					subscription.complete();
+					completed.add(subscription);
+				}
+				this.subscriptions.clear();
+			}
+		}
+		for(DeltaSubscription subscription:completed){
+			subscription.dispatch();
+		}
+	}
+
+	/** @see Object#toString()   */
+	@Override
+	public String toString() {
+		return SimpleFormat.format("SnapshotPublisher[interval={}, subscribers={}, closed={}]", this.interval, this.subscriptions.size(), this.closed);
+	}
+
+
+	/**
+	 * Subscription that remembers the epoch of the last batch built and the pending demand, its signals are queued and delivered in order by a single task of the executor at a time
+	 */
+	private static final class DeltaSubscription implements Subscription{
+
+		private final Subscriber subscriber;
+		private final Executor executor;
+		private final AtomicLong demand;
+		private final AtomicInteger inFlight;
+		private final AtomicBoolean terminated;
+		private final AtomicBoolean draining;
+		private final Queue<Runnable> signals;
+		private volatile boolean cancelled;
+		private volatile Throwable error;
+		private long cursor;
+
+		DeltaSubscription(final Subscriber _subscriber,final Executor _executor){
+			this.subscriber=_subscriber;
+			this.executor=_executor;
+			this.demand=new AtomicLong();
+			this.inFlight=new AtomicInteger();
+			this.terminated=new AtomicBoolean(false);
+			this.draining=new AtomicBoolean(false);
+			this.signals=new ConcurrentLinkedQueue<>();
+			this.cancelled=false;
+			this.error=null;
+			this.cursor=0l;
+		}
+
+		@Override
+		public void request(final long _n){
+			if(_n<=0){
+				this.error=new IllegalArgumentException(SimpleFormat.format("Requested {} batches, must be positive",_n));
+			}else{
+				this.demand.accumulateAndGet(_n,(current,requested) -> (current+requested<0)? Long.MAX_VALUE : current+requested);
+			}
+		}
+		@Override
+		public void cancel(){
+			this.cancelled=true;
+		}
+
+		boolean isCancelled(){
+			return (this.cancelled)||(this.terminated.get());
+		}
+		boolean isReady(){
+			return (this.demand.get()>0)&&(this.inFlight.get()==0);
+		}
+		boolean fail(){
+			final Throwable failure=this.error;
+			if((failure!=null)&&(this.terminated.compareAndSet(false,true))){
+				this.signals.add(() -> {
+					try{
+						this.subscriber.onError(failure);
+					}catch(Exception e){
+						logger.log(Level.WARNING,e,() -> SimpleFormat.format("snapshot::publisher::subscriber::{}::onError::failed::{}",this.subscriber,e.getMessage()));
+					}
+				});
+			}
+			return (failure!=null);
+		}
+		boolean next(final List<MetricSnapshot> _snapshots,final long _epoch){
+			this.cursor=_epoch;
+			if(_snapshots.isEmpty())
+				return false;
+			this.demand.decrementAndGet();
+			this.inFlight.incrementAndGet();
+			this.signals.add(() -> {
+				try{
+					if(!this.cancelled){
+						this.subscriber.onNext(_snapshots);
+					}
+				}catch(Exception e){
+					logger.log(Level.WARNING,e,() -> SimpleFormat.format("snapshot::publisher::subscriber::{}::onNext::failed::{}",this.subscriber,e.getMessage()));
+					this.cancelled=true;
+				}finally{
+					this.inFlight.decrementAndGet();
+				}
+			});
+			return true;
+		}
+		void complete(){
+			if((!this.cancelled)&&(this.terminated.compareAndSet(false,true))){
+				this.signals.add(() -> {
+					try{
+						this.subscriber.onComplete();
+					}catch(Exception e){
+						logger.log(Level.WARNING,e,() -> SimpleFormat.format("snapshot::publisher::subscriber::{}::onComplete::failed::{}",this.subscriber,e.getMessage()));
+					}
+				});
+			}
+		}
+
+		void dispatch(){
+			if((!this.signals.isEmpty())&&(this.draining.compareAndSet(false,true))){
+				try{
+					this.executor.execute(this::drain);
+				}catch(RejectedExecutionException e){
+					this.draining.set(false);
+					logger.log(Level.WARNING,e,() -> SimpleFormat.format("snapshot::publisher::subscriber::{}::delivery::rejected::{}",this.subscriber,e.getMessage()));
+				}
+			}
+		}
+		private void drain(){
+			do{
+				Runnable signal=this.signals.poll();
+				while(signal!=null){
+					signal.run();
+					signal=this.signals.poll();
+				}
+				this.draining.set(false);
+			}while((!this.signals.isEmpty())&&(this.draining.compareAndSet(false,true)));
+		}
+	}
+}
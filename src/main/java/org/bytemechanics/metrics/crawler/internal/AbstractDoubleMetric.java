@@ -0,0 +1,297 @@
+/*
+ * Copyright 2020 Byte Mechanics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bytemechanics.metrics.crawler.internal;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import org.bytemechanics.metrics.crawler.AbstractMetric;
+import org.bytemechanics.metrics.crawler.DoubleReducer;
+import org.bytemechanics.metrics.crawler.MeasureReducer;
+import org.bytemechanics.metrics.crawler.beans.MetricReading;
+import org.bytemechanics.metrics.crawler.beans.MetricSnapshot;
+import org.bytemechanics.metrics.crawler.exceptions.IncorrectSamplingSize;
+import org.bytemechanics.metrics.crawler.internal.commons.string.SimpleFormat;
+
+/**
+ * Base for the sampled metrics whose measures can be represented as a primitive double.<br>
+ * Stores only the latest N samples in parallel primitive ring buffers (values and timestamps) so no object is created per measure.
+ * All the aggregates (including the accumulated value, to avoid the rounding drift of subtracting the evicted measures) follow the same two-stacks sliding window aggregation than {@link Metric}.
+ * The variance of the window is kept as {@link RunningVariance} aggregates of the same two segments (so it is never corrected by subtracting the evicted measures) and merged when the snapshot is requested.
+ * @param <TYPE> metric type
+ * @see Timestamps
+ * @author afarre
+ * @since 1.1.0
+ */
+public abstract class AbstractDoubleMetric<TYPE> extends AbstractMetric<TYPE> {
+
+	private final double[] values;
+	private final long[] timestamps;
+	private final double[] frontAccumulated;
+	private final double[] frontMax;
+	private final double[] frontMin;
+	private final int[] frontLast;
+	private final double[] frontMean;
+	private final double[] frontDeviations;
+	private int head;
+	private int size;
+	private int frontSize;
+	private double backAccumulated;
+	private double backMax;
+	private double backMin;
+	private int backLast;
+	private long hits;
+	private final DoubleReducer<TYPE> primitive;
+	private final RunningVariance backVariance;
+	private final RunningVariance variance;
+
+
+	/**
+	 * Primitive double metric constructor
+	 * @param _name metric name (mandatory)
+	 * @param _samplingSize max samples to store
+	 * @param _reducer reducer for this metric
+	 * @throws NullPointerException if either _name or _reducer are null
+	 * @throws IncorrectSamplingSize if _samplingSize is zero or negative
+	 */
+	@SuppressWarnings("unchecked")
+	protected AbstractDoubleMetric(final String _name,final int _samplingSize,final MeasureReducer<TYPE> _reducer) {
+		super(_name,_reducer);
+		if(_samplingSize<=0)
+			throw new IncorrectSamplingSize(_name, _samplingSize);
+		this.values = new double[_samplingSize];
+		this.timestamps = new long[_samplingSize];
+		this.frontAccumulated = new double[_samplingSize];
+		this.frontMax = new double[_samplingSize];
+		this.frontMin = new double[_samplingSize];
+		this.frontLast = new int[_samplingSize];
+		this.frontMean = new double[_samplingSize];
+		this.frontDeviations = new double[_samplingSize];
+		this.head = 0;
+		this.size = 0;
+		this.frontSize = 0;
+		this.backLast = -1;
+		this.hits = 0l;
+		this.primitive = (_reducer instanceof DoubleReducer)? (DoubleReducer<TYPE>)_reducer : null;
+		this.backVariance = new RunningVariance();
+		this.variance = new RunningVariance();
+	}
+
+	/**
+	 * Converts the measure to its primitive representation
+	 * @param _measure measure to convert
+	 * @return primitive representation
+	 */
+	protected abstract double toDouble(final TYPE _measure);
+	/**
+	 * Converts the primitive representation to measure
+	 * @param _value primitive representation
+	 * @return measure
+	 */
+	protected abstract TYPE toMeasure(final double _value);
+
+	/**
+	 * Retrieves the current list of measures from the oldest to the newest
+	 * @return measure metric list
+	 */
+	public synchronized List<Measure<TYPE>> getMeasures() {
+		final List<Measure<TYPE>> reply=new ArrayList<>(this.size);
+		for(int ic1=0;ic1<this.size;ic1++){
+			final int slot=slot(ic1);
+			reply.add(new Measure<>(Timestamps.toLocalDateTime(this.timestamps[slot]),toMeasure(this.values[slot]),getReducer()));
+		}
+		return reply;
+	}
+	/** @see AbstractMetric#getHits() */
+	@Override
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	/**
+	 * @see AbstractMetric#addMeasure(java.time.LocalDateTime, java.lang.Object)
+	 * @throws ArithmeticException if _timestamp is out of the range supported by Timestamps
+	 * @see Timestamps
+	 */
+	@Override
+	public void addMeasure(final LocalDateTime _timestamp,final TYPE _measure){
+		validateMeasure(_timestamp, _measure);
+		record(Timestamps.toTimestamp(_timestamp),toDouble(_measure));
+	}
+
+	/**
+	 * Register a new primitive measure
+	 * @param _timestamp timestamp for this measure
+	 * @param _measure primitive measure
+	 * @see Timestamps
+	 */
+	protected synchronized void record(final long _timestamp,final double _measure){
+		this.hits++;
+		if(this.size==this.values.length){
+			evict();
+		}
+		final int slot=slot(this.size);
+		this.values[slot]=_measure;
+		this.timestamps[slot]=_timestamp;
+		this.size++;
+		this.backVariance.record(_measure);
+		if(this.backLast<0){
+			this.backAccumulated=_measure;
+			this.backMax=_measure;
+			this.backMin=_measure;
+			this.backLast=slot;
+		}else{
+			this.backAccumulated+=_measure;
+			this.backMax=Math.max(this.backMax,_measure);
+			this.backMin=Math.min(this.backMin,_measure);
+			this.backLast=last(this.backLast,slot);
+		}
+	}
+
+	/** @see AbstractMetric#toSnapshot() */
+	@Override
+	@SuppressWarnings("unchecked")
+	public synchronized MetricSnapshot<TYPE> toSnapshot(){
+
+		if(this.size==0)
+			return defaultSnapshot();
+
+		final double accumulated;
+		final double max;
+		final double min;
+		final int last;
+		if(this.frontSize==0){
+			accumulated=this.backAccumulated;
+			max=this.backMax;
+			min=this.backMin;
+			last=this.backLast;
+		}else if(this.backLast<0){
+			accumulated=this.frontAccumulated[this.head];
+			max=this.frontMax[this.head];
+			min=this.frontMin[this.head];
+			last=this.frontLast[this.head];
+		}else{
+			accumulated=this.frontAccumulated[this.head]+this.backAccumulated;
+			max=Math.max(this.frontMax[this.head],this.backMax);
+			min=Math.min(this.frontMin[this.head],this.backMin);
+			last=last(this.frontLast[this.head],this.backLast);
+		}
+		final TYPE accumulatedMeasure=toMeasure(accumulated);
+		return MetricSnapshot.<TYPE>builder(getReducer())
+									.name(getName())
+									.samplingSize(this.size)
+									.totalHits(this.hits)
+									.accumulatedSamples(accumulatedMeasure)
+									.maxMeasure(toMeasure(max))
+									.minMeasure(toMeasure(min))
+									.averageMeasure((this.primitive!=null)? toMeasure(this.primitive.average(accumulated,this.size))
+																			: getReducer().average(accumulatedMeasure,this.size)
+																						.orElseGet(getReducer()::identity))
+									.lastMeasure(toMeasure(this.values[last]))
+									.lastOccurrence(Timestamps.toLocalDateTime(this.timestamps[last]))
+									.variance(windowVariance().copy())
+								.build();
+	}
+
+	/**
+	 * Fill the given reading with the primitive values of the window without creating any object
+	 * @see AbstractMetric#read(org.bytemechanics.metrics.crawler.beans.MetricReading)
+	 */
+	@Override
+	public synchronized MetricReading read(final MetricReading _reading){
+
+		if(this.size==0)
+			return _reading.doubleValues(getName(),getReducer(),0l,this.hits,0.0d,0.0d,0.0d,0.0d,0l);
+
+		final double accumulated;
+		final double max;
+		final double min;
+		final int last;
+		if(this.frontSize==0){
+			accumulated=this.backAccumulated;
+			max=this.backMax;
+			min=this.backMin;
+			last=this.backLast;
+		}else if(this.backLast<0){
+			accumulated=this.frontAccumulated[this.head];
+			max=this.frontMax[this.head];
+			min=this.frontMin[this.head];
+			last=this.frontLast[this.head];
+		}else{
+			accumulated=this.frontAccumulated[this.head]+this.backAccumulated;
+			max=Math.max(this.frontMax[this.head],this.backMax);
+			min=Math.min(this.frontMin[this.head],this.backMin);
+			last=last(this.frontLast[this.head],this.backLast);
+		}
+		return _reading.doubleValues(getName(),getReducer(),this.size,this.hits,accumulated,max,min,this.values[last],this.timestamps[last])
+							.variance(windowVariance().getVariance());
+	}
+
+	private int slot(final int _position){
+		final int reply=this.head+_position;
+		return (reply<this.values.length)? reply : reply-this.values.length;
+	}
+	private void evict(){
+		if(this.frontSize==0){
+			flip();
+		}
+		this.head=slot(1);
+		this.size--;
+		this.frontSize--;
+	}
+	private void flip(){
+		int next=-1;
+		this.backVariance.reset();
+		for(int ic1=this.size-1;ic1>=0;ic1--){
+			final int slot=slot(ic1);
+			final double value=this.values[slot];
+			this.backVariance.record(value);
+			this.frontMean[slot]=this.backVariance.getMean();
+			this.frontDeviations[slot]=this.backVariance.getSquaredDeviations();
+			if(next<0){
+				this.frontAccumulated[slot]=value;
+				this.frontMax[slot]=value;
+				this.frontMin[slot]=value;
+				this.frontLast[slot]=slot;
+			}else{
+				this.frontAccumulated[slot]=value+this.frontAccumulated[next];
+				this.frontMax[slot]=Math.max(value,this.frontMax[next]);
+				this.frontMin[slot]=Math.min(value,this.frontMin[next]);
+				this.frontLast[slot]=last(slot,this.frontLast[next]);
+			}
+			next=slot;
+		}
+		this.frontSize=this.size;
+		this.backLast=-1;
+		this.backVariance.reset();
+	}
+	private RunningVariance windowVariance(){
+		this.variance.reset().merge(this.backVariance);
+		if(this.frontSize>0){
+			this.variance.merge(this.frontSize,this.frontMean[this.head],this.frontDeviations[this.head]);
+		}
+		return this.variance;
+	}
+	private int last(final int _olderSlot,final int _newerSlot){
+		return (this.timestamps[_olderSlot]>this.timestamps[_newerSlot])? _olderSlot : _newerSlot;
+	}
+
+	/** @see Object#toString()   */
+	@Override
+	public String toString() {
+		return SimpleFormat.format("{}[name={}, hits={}, measures={}, reducer={}]", getClass().getSimpleName(), getName(), getHits(), getMeasures(), getReducer());
+	}
+}
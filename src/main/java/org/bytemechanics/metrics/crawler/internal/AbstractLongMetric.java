@@ -0,0 +1,290 @@
+/*
+ * Copyright 2020 Byte Mechanics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bytemechanics.metrics.crawler.internal;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import org.bytemechanics.metrics.crawler.AbstractMetric;
+import org.bytemechanics.metrics.crawler.HistogramReducer;
+import org.bytemechanics.metrics.crawler.LongReducer;
+import org.bytemechanics.metrics.crawler.MeasureReducer;
+import org.bytemechanics.metrics.crawler.beans.MetricReading;
+import org.bytemechanics.metrics.crawler.beans.MetricSnapshot;
+import org.bytemechanics.metrics.crawler.exceptions.IncorrectSamplingSize;
+import org.bytemechanics.metrics.crawler.internal.commons.string.SimpleFormat;
+
+/**
+ * Base for the sampled metrics whose measures can be represented as a primitive long.<br>
+ * Stores only the latest N samples in parallel primitive ring buffers (values and timestamps) so no object is created per measure.
+ * The accumulated value is kept as a running sum and maximum, minimum and last measures follow the same two-stacks sliding window aggregation than {@link Metric}.
+ * If the reducer is an {@link HistogramReducer} the samples are also kept in a {@link LogLinearHistogram} to provide percentiles of the window.
+ * The variance of the window is kept as {@link RunningVariance} aggregates of the same two segments (so it is never corrected by subtracting the evicted measures) and merged when the snapshot is requested.
+ * @param <TYPE> metric type
+ * @see Timestamps
+ * @author afarre
+ * @since 1.1.0
+ */
+public abstract class AbstractLongMetric<TYPE> extends AbstractMetric<TYPE> {
+
+	private final long[] values;
+	private final long[] timestamps;
+	private final long[] frontMax;
+	private final long[] frontMin;
+	private final int[] frontLast;
+	private final double[] frontMean;
+	private final double[] frontDeviations;
+	private int head;
+	private int size;
+	private int frontSize;
+	private long accumulated;
+	private long backMax;
+	private long backMin;
+	private int backLast;
+	private long windowMax;
+	private long windowMin;
+	private int windowLast;
+	private long hits;
+	private final LogLinearHistogram histogram;
+	private final RunningVariance backVariance;
+	private final RunningVariance variance;
+	private final LongReducer<TYPE> primitive;
+
+
+	/**
+	 * Primitive long metric constructor
+	 * @param _name metric name (mandatory)
+	 * @param _samplingSize max samples to store
+	 * @param _reducer reducer for this metric
+	 * @throws NullPointerException if either _name or _reducer are null
+	 * @throws IncorrectSamplingSize if _samplingSize is zero or negative
+	 */
+	@SuppressWarnings("unchecked")
+	protected AbstractLongMetric(final String _name,final int _samplingSize,final MeasureReducer<TYPE> _reducer) {
+		super(_name,_reducer);
+		if(_samplingSize<=0)
+			throw new IncorrectSamplingSize(_name, _samplingSize);
+		this.values = new long[_samplingSize];
+		this.timestamps = new long[_samplingSize];
+		this.frontMax = new long[_samplingSize];
+		this.frontMin = new long[_samplingSize];
+		this.frontLast = new int[_samplingSize];
+		this.frontMean = new double[_samplingSize];
+		this.frontDeviations = new double[_samplingSize];
+		this.head = 0;
+		this.size = 0;
+		this.frontSize = 0;
+		this.accumulated = 0l;
+		this.backLast = -1;
+		this.hits = 0l;
+		this.histogram = (_reducer instanceof HistogramReducer)? new LogLinearHistogram() : null;
+		this.backVariance = new RunningVariance();
+		this.variance = new RunningVariance();
+		this.primitive = (_reducer instanceof LongReducer)? (LongReducer<TYPE>)_reducer : null;
+	}
+
+	/**
+	 * Converts the measure to its primitive representation
+	 * @param _measure measure to convert
+	 * @return primitive representation
+	 */
+	protected abstract long toLong(final TYPE _measure);
+	/**
+	 * Converts the primitive representation to measure
+	 * @param _value primitive representation
+	 * @return measure
+	 */
+	protected abstract TYPE toMeasure(final long _value);
+
+	/**
+	 * Retrieves the current list of measures from the oldest to the newest
+	 * @return measure metric list
+	 */
+	public synchronized List<Measure<TYPE>> getMeasures() {
+		final List<Measure<TYPE>> reply=new ArrayList<>(this.size);
+		for(int ic1=0;ic1<this.size;ic1++){
+			final int slot=slot(ic1);
+			reply.add(new Measure<>(Timestamps.toLocalDateTime(this.timestamps[slot]),toMeasure(this.values[slot]),getReducer()));
+		}
+		return reply;
+	}
+	/** @see AbstractMetric#getHits() */
+	@Override
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	/**
+	 * @see AbstractMetric#addMeasure(java.time.LocalDateTime, java.lang.Object)
+	 * @throws ArithmeticException if _timestamp is out of the range supported by Timestamps
+	 * @see Timestamps
+	 */
+	@Override
+	public void addMeasure(final LocalDateTime _timestamp,final TYPE _measure){
+		validateMeasure(_timestamp, _measure);
+		record(Timestamps.toTimestamp(_timestamp),toLong(_measure));
+	}
+
+	/**
+	 * Register a new primitive measure
+	 * @param _timestamp timestamp for this measure
+	 * @param _value primitive measure
+	 * @see Timestamps
+	 */
+	protected synchronized void record(final long _timestamp,final long _value){
+		this.hits++;
+		if(this.size==this.values.length){
+			evict();
+		}
+		final int slot=slot(this.size);
+		this.values[slot]=_value;
+		this.timestamps[slot]=_timestamp;
+		this.size++;
+		this.accumulated+=_value;
+		this.backVariance.record(_value);
+		if(this.histogram!=null){
+			this.histogram.record(_value);
+		}
+		if(this.backLast<0){
+			this.backMax=_value;
+			this.backMin=_value;
+			this.backLast=slot;
+		}else{
+			this.backMax=Math.max(this.backMax,_value);
+			this.backMin=Math.min(this.backMin,_value);
+			this.backLast=last(this.backLast,slot);
+		}
+	}
+
+	/** @see AbstractMetric#toSnapshot() */
+	@Override
+	@SuppressWarnings("unchecked")
+	public synchronized MetricSnapshot<TYPE> toSnapshot(){
+
+		if(this.size==0)
+			return defaultSnapshot();
+
+		mergeWindow();
+		final TYPE accumulatedMeasure=toMeasure(this.accumulated);
+		return MetricSnapshot.<TYPE>builder(getReducer())
+									.name(getName())
+									.samplingSize(this.size)
+									.totalHits(this.hits)
+									.accumulatedSamples(accumulatedMeasure)
+									.maxMeasure(toMeasure(this.windowMax))
+									.minMeasure(toMeasure(this.windowMin))
+									.averageMeasure((this.primitive!=null)? toMeasure(this.primitive.average(this.accumulated,this.size))
+																			: getReducer().average(accumulatedMeasure,this.size)
+																						.orElseGet(getReducer()::identity))
+									.lastMeasure(toMeasure(this.values[this.windowLast]))
+									.lastOccurrence(Timestamps.toLocalDateTime(this.timestamps[this.windowLast]))
+									.histogram((this.histogram!=null)? this.histogram.copy() : null)
+									.variance(windowVariance().copy())
+								.build();
+	}
+
+	/**
+	 * Fill the given reading with the primitive values of the window without creating any object, except if the reducer is an HistogramReducer that falls back to the snapshot to provide the histogram
+	 * @see AbstractMetric#read(org.bytemechanics.metrics.crawler.beans.MetricReading)
+	 */
+	@Override
+	public synchronized MetricReading read(final MetricReading _reading){
+
+		if(this.histogram!=null)
+			return super.read(_reading);
+
+		final MetricReading.Kind kind=(Duration.class.equals(getReducer().getType()))? MetricReading.Kind.DURATION : MetricReading.Kind.LONG;
+		if(this.size==0)
+			return _reading.longValues(getName(),getReducer(),kind,0l,this.hits,0l,0l,0l,0l,0l);
+
+		mergeWindow();
+		return _reading.longValues(getName(),getReducer(),kind,this.size,this.hits,this.accumulated,this.windowMax,this.windowMin,this.values[this.windowLast],this.timestamps[this.windowLast])
+							.variance(windowVariance().getVariance());
+	}
+
+	private int slot(final int _position){
+		final int reply=this.head+_position;
+		return (reply<this.values.length)? reply : reply-this.values.length;
+	}
+	private void evict(){
+		if(this.frontSize==0){
+			flip();
+		}
+		this.accumulated-=this.values[this.head];
+		if(this.histogram!=null){
+			this.histogram.remove(this.values[this.head]);
+		}
+		this.head=slot(1);
+		this.size--;
+		this.frontSize--;
+	}
+	private void flip(){
+		int next=-1;
+		this.backVariance.reset();
+		for(int ic1=this.size-1;ic1>=0;ic1--){
+			final int slot=slot(ic1);
+			final long value=this.values[slot];
+			this.backVariance.record(value);
+			this.frontMean[slot]=this.backVariance.getMean();
+			this.frontDeviations[slot]=this.backVariance.getSquaredDeviations();
+			if(next<0){
+				this.frontMax[slot]=value;
+				this.frontMin[slot]=value;
+				this.frontLast[slot]=slot;
+			}else{
+				this.frontMax[slot]=Math.max(value,this.frontMax[next]);
+				this.frontMin[slot]=Math.min(value,this.frontMin[next]);
+				this.frontLast[slot]=last(slot,this.frontLast[next]);
+			}
+			next=slot;
+		}
+		this.frontSize=this.size;
+		this.backLast=-1;
+		this.backVariance.reset();
+	}
+	private void mergeWindow(){
+		if(this.frontSize==0){
+			this.windowMax=this.backMax;
+			this.windowMin=this.backMin;
+			this.windowLast=this.backLast;
+		}else if(this.backLast<0){
+			this.windowMax=this.frontMax[this.head];
+			this.windowMin=this.frontMin[this.head];
+			this.windowLast=this.frontLast[this.head];
+		}else{
+			this.windowMax=Math.max(this.frontMax[this.head],this.backMax);
+			this.windowMin=Math.min(this.frontMin[this.head],this.backMin);
+			this.windowLast=last(this.frontLast[this.head],this.backLast);
+		}
+	}
+	private RunningVariance windowVariance(){
+		this.variance.reset().merge(this.backVariance);
+		if(this.frontSize>0){
+			this.variance.merge(this.frontSize,this.frontMean[this.head],this.frontDeviations[this.head]);
+		}
+		return this.variance;
+	}
+	private int last(final int _olderSlot,final int _newerSlot){
+		return (this.timestamps[_olderSlot]>this.timestamps[_newerSlot])? _olderSlot : _newerSlot;
+	}
+
+	/** @see Object#toString()   */
+	@Override
+	public String toString() {
+		return SimpleFormat.format("{}[name={}, hits={}, measures={}, reducer={}]", getClass().getSimpleName(), getName(), getHits(), getMeasures(), getReducer());
+	}
+}
@@ -0,0 +1,598 @@
+/*
+ * Copyright 2020 Byte Mechanics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bytemechanics.metrics.crawler.internal;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.DoubleAccumulator;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import org.bytemechanics.metrics.crawler.AbstractMetric;
+import org.bytemechanics.metrics.crawler.DoubleReducer;
+import org.bytemechanics.metrics.crawler.HistogramReducer;
+import org.bytemechanics.metrics.crawler.LongReducer;
+import org.bytemechanics.metrics.crawler.MeasureReducer;
+import org.bytemechanics.metrics.crawler.beans.MetricReading;
+import org.bytemechanics.metrics.crawler.beans.MetricSnapshot;
+import org.bytemechanics.metrics.crawler.internal.commons.string.SimpleFormat;
+
+/**
+ * Thread safe metric that never locks a shared lock when registering measures.<br>
+ * Hits, accumulated, maximum and minimum measures are kept in striped cells (LongAdder style) that are merged only when a snapshot is requested.
+ * For the {@link LongReducer} and {@link DoubleReducer} reducers (as the ones provided by {@link MeasureReducers} and any {@link HistogramReducer}) the cells are primitive and accumulated with the primitive operations of the reducer, any other reducer is accumulated with compare and swap.
+ * The primitive cells also keep the variance as the sum and the sum of squares of the deviations from the first measure in striped adders (shifted data algorithm), so the variance is lock-free too and is computed when a snapshot is requested.
+ * The metrics with {@link HistogramReducer} also count the measures in atomic log-linear histogram buckets to provide percentiles.
+ * The primitive measures of the {@link MeasureReducers} long, duration and double reducers are accumulated directly into the cells, without boxing them nor converting its timestamp.
+ * The last measure of the primitive cells is kept as timestamp and value bits in a primitive slot per stripe and the newest one is picked when a snapshot is requested, so registering a measure never allocates memory nor writes a shared cache line.<br>
+ * Note: this metric does not keep samples, so the statistics are computed over all the measures registered since its creation and the snapshots are weakly consistent.
+ * As the accumulated value is never reset, the accumulated value of the {@link MeasureReducers} long and duration reducers saturates at Long.MAX_VALUE (or Long.MIN_VALUE) instead of overflowing, from then on the accumulated value stays at the limit and the average is a lower bound.
+ * For durations this limit is about 292 years of accumulated nanoseconds, 107 days when registering one million measures of one millisecond per second.
+ * @param <TYPE> metric type
+ * @see LongAdder
+ * @see LongAccumulator
+ * @see DoubleAccumulator
+ * @author afarre
+ * @since 1.1.0
+ */
+public class ConcurrentMetric<TYPE> extends AbstractMetric<TYPE> {
+
+	/** Number of stripes (power of two) of the structures striped by thread */
+	static final int STRIPES=Integer.highestOneBit(Runtime.getRuntime().availableProcessors()*2-1)<<1;
+
+	private final LongAdder hits;
+	private final Cells<TYPE> cells;
+	private final LastCells lastCells;
+	private final AtomicReference<Last<TYPE>> last;
+	private final AtomicLongArray histogram;
+	private final boolean primitiveLong;
+	private final boolean primitiveDuration;
+	private final boolean primitiveDouble;
+
+	/**
+	 * Concurrent metric constructor
+	 * @param _name metric name (mandatory)
+	 * @param _reducer reducer for this metric (mandatory)
+	 * @throws NullPointerException if either _name or _reducer are null
+	 */
+	@SuppressWarnings("unchecked")
+	public ConcurrentMetric(final String _name,final MeasureReducer<TYPE> _reducer) {
+		super(_name,_reducer);
+		this.hits=new LongAdder();
+		this.histogram=(_reducer instanceof HistogramReducer)? new AtomicLongArray(LogLinearHistogram.BUCKETS) : null;
+		this.primitiveLong=(_reducer==MeasureReducers.LONG.get(Long.class))||(_reducer==MeasureReducers.HISTOGRAM_LONG.get(Long.class));
+		this.primitiveDuration=(_reducer==MeasureReducers.DURATION.get(Duration.class))||(_reducer==MeasureReducers.HISTOGRAM_DURATION.get(Duration.class));
+		this.primitiveDouble=(_reducer==MeasureReducers.DOUBLE.get(Double.class));
+		if(_reducer instanceof LongReducer){
+			this.cells=new LongCells<>((LongReducer<TYPE>)_reducer,(this.primitiveLong)||(this.primitiveDuration));
+		}else if(_reducer instanceof DoubleReducer){
+			this.cells=new DoubleCells<>((DoubleReducer<TYPE>)_reducer);
+		}else{
+			this.cells=new ReducerCells<>(_reducer);
+		}
+		this.lastCells=(this.cells instanceof ReducerCells)? null : new LastCells();
+		this.last=new AtomicReference<>();
+	}
+
+	/** @see AbstractMetric#getHits() */
+	@Override
+	public long getHits() {
+		return this.hits.sum();
+	}
+
+	/** @see AbstractMetric#addMeasure(java.time.LocalDateTime, java.lang.Object) */
+	@Override
+	@SuppressWarnings("unchecked")
+	public void addMeasure(final LocalDateTime _timestamp,final TYPE _measure){
+		validateMeasure(_timestamp, _measure);
+		final double value=this.cells.accumulate(_measure);
+		this.hits.increment();
+		if(this.histogram!=null){
+			this.histogram.incrementAndGet(LogLinearHistogram.bucket(((HistogramReducer<TYPE>)getReducer()).toLong(_measure)));
+		}
+		if((this.lastCells!=null)&&(Timestamps.isRepresentable(_timestamp))){
+			this.lastCells.record(Timestamps.toTimestamp(_timestamp),this.cells.bits(_measure));
+		}else{
+			last(new Last<>(_timestamp,_measure));
+		}
+		if(!Double.isNaN(value)){
+			recorded(value);
+		}
+	}
+	/** @see AbstractMetric#addLongMeasure(long, long) */
+	@Override
+	public void addLongMeasure(final long _timestamp,final long _measure) {
+		if(this.primitiveLong){
+			recordLong(_timestamp,_measure);
+		}else{
+			super.addLongMeasure(_timestamp, _measure);
+		}
+	}
+	/** @see AbstractMetric#addDurationMeasure(long, long) */
+	@Override
+	public void addDurationMeasure(final long _timestamp,final long _nanos) {
+		if(this.primitiveDuration){
+			recordLong(_timestamp,_nanos);
+		}else{
+			super.addDurationMeasure(_timestamp, _nanos);
+		}
+	}
+	/** @see AbstractMetric#addDoubleMeasure(long, double) */
+	@Override
+	public void addDoubleMeasure(final long _timestamp,final double _measure) {
+		if(this.primitiveDouble){
+			((DoubleCells<TYPE>)this.cells).accumulateDouble(_measure);
+			this.hits.increment();
+			this.lastCells.record(_timestamp,Double.doubleToRawLongBits(_measure));
+			recorded(_measure);
+		}else{
+			super.addDoubleMeasure(_timestamp, _measure);
+		}
+	}
+	private void recordLong(final long _timestamp,final long _value){
+		((LongCells<TYPE>)this.cells).accumulateLong(_value);
+		this.hits.increment();
+		if(this.histogram!=null){
+			this.histogram.incrementAndGet(LogLinearHistogram.bucket(_value));
+		}
+		this.lastCells.record(_timestamp,_value);
+		recorded(_value);
+	}
+	/**
+	 * Called after registering each measure of a LongReducer or DoubleReducer metric with its primitive value, by default does nothing
+	 * @param _value primitive value of the registered measure
+	 */
+	protected void recorded(final double _value){
+	}
+	private void last(final Last<TYPE> _measure){
+		Last<TYPE> current;
+		do{
+			current=this.last.get();
+		}while(((current==null)||(!current.dateTime.isAfter(_measure.dateTime)))
+				&&(!this.last.compareAndSet(current, _measure)));
+	}
+
+	/** @see AbstractMetric#toSnapshot() */
+	@Override
+	@SuppressWarnings("unchecked")
+	public MetricSnapshot<TYPE> toSnapshot(){
+
+		final long samples=this.hits.sum();
+		final int newest=(this.lastCells!=null)? this.lastCells.newest() : -1;
+		final Last<TYPE> last=this.last.get();
+		if((samples==0)||((newest<0)&&(last==null)))
+			return defaultSnapshot();
+		TYPE lastMeasure=null;
+		LocalDateTime lastOccurrence=null;
+		if(newest>=0){
+			lastMeasure=this.cells.value(this.lastCells.bits(newest));
+			lastOccurrence=Timestamps.toLocalDateTime(this.lastCells.timestamp(newest));
+		}
+		if((last!=null)&&((lastOccurrence==null)||(last.dateTime.isAfter(lastOccurrence)))){
+			lastMeasure=last.value;
+			lastOccurrence=last.dateTime;
+		}
+		final TYPE accumulated=this.cells.accumulated();
+		return MetricSnapshot.<TYPE>builder(getReducer())
+									.name(getName())
+									.samplingSize(samples)
+									.totalHits(samples)
+									.accumulatedSamples(accumulated)
+									.maxMeasure(this.cells.max())
+									.minMeasure(this.cells.min())
+									.averageMeasure(this.cells.average(accumulated,samples))
+									.lastMeasure(lastMeasure)
+									.lastOccurrence(lastOccurrence)
+									.histogram(histogram())
+									.variance(this.cells.variance())
+								.build();
+	}
+
+	/**
+	 * Fill the given reading with the primitive values of the cells without creating any snapshot when the reducer is the long, duration or double reducer of {@link MeasureReducers}.
+	 * The HistogramReducer metrics fall back to the snapshot to provide the histogram, the custom reducers because its values are not primitive and the metrics with measures out of the timestamps range because its last occurrence is not primitive
+	 * @see AbstractMetric#read(org.bytemechanics.metrics.crawler.beans.MetricReading)
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public MetricReading read(final MetricReading _reading){
+		if((this.histogram!=null)||(this.last.get()!=null))
+			return super.read(_reading);
+		if(this.primitiveDouble)
+			return ((DoubleCells<TYPE>)this.cells).read(_reading,getName(),this.hits.sum(),this.lastCells);
+		if((this.primitiveLong)||(this.primitiveDuration))
+			return ((LongCells<TYPE>)this.cells).read(_reading,getName(),(this.primitiveDuration)? MetricReading.Kind.DURATION : MetricReading.Kind.LONG,this.hits.sum(),this.lastCells);
+		return super.read(_reading);
+	}
+
+	private LogLinearHistogram histogram(){
+		if(this.histogram==null)
+			return null;
+		int length=this.histogram.length();
+		while((length>0)&&(this.histogram.get(length-1)==0)){
+			length--;
+		}
+		final long[] counts=new long[length];
+		for(int ic1=0;ic1<length;ic1++){
+			counts[ic1]=this.histogram.get(ic1);
+		}
+		return new LogLinearHistogram(counts);
+	}
+
+	/**
+	 * Retrieve the stripe of the current thread
+	 * @return stripe index between 0 and STRIPES-1
+	 */
+	static int stripe(){
+		return (int)Thread.currentThread().getId()&(STRIPES-1);
+	}
+
+	/** @see Object#toString()   */
+	@Override
+	public String toString() {
+		return SimpleFormat.format("ConcurrentMetric[name={}, hits={}, reducer={}]", getName(), this.hits.sum(), getReducer());
+	}
+
+
+	/**
+	 * Striped cells to accumulate the measures
+	 * @param <T> type of the measures
+	 */
+	private static interface Cells<T>{
+		double accumulate(T _measure);
+		T accumulated();
+		T max();
+		T min();
+		T average(T _accumulated,long _samples);
+		RunningVariance variance();
+		T value(long _bits);
+		long bits(T _measure);
+	}
+
+	/**
+	 * Last measure of the generic cells or of the measures which timestamp is out of the primitive timestamps range
+	 * @param <T> type of the measures
+	 */
+	private static final class Last<T>{
+
+		final LocalDateTime dateTime;
+		final T value;
+
+		Last(final LocalDateTime _dateTime,final T _value){
+			this.dateTime=_dateTime;
+			this.value=_value;
+		}
+	}
+
+	/**
+	 * Striped last measure of the primitive cells, each stripe keeps the timestamp and the value bits of its newest measure in its own cache line.
+	 * The first slot of each stripe is a sequence that is odd while a writer updates the stripe, zero if the stripe has no measures and even otherwise.
+	 * A writer that finds its stripe busy moves to the next one instead of waiting, and the readers pick the stripe with the newest timestamp.<br>
+	 * Note: the timestamp and the value bits are read without waiting for the writers, so as the rest of the snapshot they are weakly consistent
+	 */
+	static final class LastCells{
+
+		/** Number of longs of each stripe (64 bytes) to keep each stripe in its own cache line */
+		private static final int PADDING=8;
+
+		private final AtomicLongArray slots;
+
+		LastCells(){
+			this.slots=new AtomicLongArray(STRIPES*PADDING);
+		}
+
+		void record(final long _timestamp,final long _bits){
+			int stripe=stripe();
+			while(true){
+				final int slot=stripe*PADDING;
+				final long sequence=this.slots.get(slot);
+				if(((sequence&1l)==0l)&&(this.slots.compareAndSet(slot,sequence,sequence+1l))){
+					if((sequence==0l)||(this.slots.get(slot+1)<=_timestamp)){
+						this.slots.lazySet(slot+1,_timestamp);
+						this.slots.lazySet(slot+2,_bits);
+					}
+					this.slots.lazySet(slot,sequence+2l);
+					return;
+				}
+				stripe=(stripe+1)&(STRIPES-1);
+			}
+		}
+		/**
+		 * Retrieve the stripe with the newest measure
+		 * @return the stripe with the newest measure or -1 if there are no measures
+		 */
+		int newest(){
+			int reply=-1;
+			long newest=Long.MIN_VALUE;
+			for(int ic1=0;ic1<STRIPES;ic1++){
+				final int slot=ic1*PADDING;
+				if(this.slots.get(slot)>=2l){
+					final long timestamp=this.slots.get(slot+1);
+					if((reply<0)||(timestamp>newest)){
+						reply=ic1;
+						newest=timestamp;
+					}
+				}
+			}
+			return reply;
+		}
+		long timestamp(final int _stripe){
+			return this.slots.get(_stripe*PADDING+1);
+		}
+		long bits(final int _stripe){
+			return this.slots.get(_stripe*PADDING+2);
+		}
+	}
+
+	/**
+	 * Lock-free running variance, keeps the count, the sum and the sum of squares of the deviations from the first measure (shift) in striped adders.
+	 * Shifting the measures by a value close to the mean avoids the catastrophic cancellation of the naive sum of squares
+	 */
+	private static final class VarianceCells{
+
+		private static final long NO_SHIFT=0x7ff0dead0000beefl;
+
+		private final AtomicLong shift;
+		private final LongAdder count;
+		private final DoubleAdder sum;
+		private final DoubleAdder squares;
+
+		VarianceCells(){
+			this.shift=new AtomicLong(NO_SHIFT);
+			this.count=new LongAdder();
+			this.sum=new DoubleAdder();
+			this.squares=new DoubleAdder();
+		}
+
+		void record(final double _value){
+			long bits=this.shift.get();
+			if(bits==NO_SHIFT){
+				this.shift.compareAndSet(NO_SHIFT,Double.doubleToLongBits(_value));
+				bits=this.shift.get();
+			}
+			final double deviation=_value-Double.longBitsToDouble(bits);
+			this.sum.add(deviation);
+			this.squares.add(deviation*deviation);
+			this.count.increment();
+		}
+		RunningVariance merge(){
+			final long samples=this.count.sum();
+			if(samples==0)
+				return new RunningVariance();
+			final double deviations=this.sum.sum();
+			final double squaredDeviations=this.squares.sum()-deviations*deviations/samples;
+			return new RunningVariance(samples,Double.longBitsToDouble(this.shift.get())+deviations/samples,Math.max(0.0d,squaredDeviations));
+		}
+		double sampleVariance(){
+			final long samples=this.count.sum();
+			if(samples<2)
+				return 0.0d;
+			final double deviations=this.sum.sum();
+			return Math.max(0.0d,this.squares.sum()-deviations*deviations/samples)/(samples-1);
+		}
+	}
+
+	/**
+	 * Primitive long striped cells, measures are converted to long before accumulate them with the reducer primitive operations.
+	 * The cells of the sum reducers accumulate with a saturated sum, so the since-creation accumulated value never overflows
+	 * @param <T> type of the measures
+	 */
+	private static final class LongCells<T> implements Cells<T>{
+
+		private final LongReducer<T> reducer;
+		private final LongAccumulator accumulated;
+		private final LongAccumulator max;
+		private final LongAccumulator min;
+		private final VarianceCells variance;
+
+		LongCells(final LongReducer<T> _reducer,final boolean _saturated){
+			this.reducer=_reducer;
+			this.accumulated=new LongAccumulator((_saturated)? LongCells::saturatedSum : _reducer::accumulate,_reducer.toLong(_reducer.identity()));
+			this.max=new LongAccumulator(_reducer::max,Long.MIN_VALUE);
+			this.min=new LongAccumulator(_reducer::min,Long.MAX_VALUE);
+			this.variance=new VarianceCells();
+		}
+
+		/**
+		 * Sum of both values saturated at Long.MAX_VALUE and Long.MIN_VALUE
+		 * @param _val1 first value
+		 * @param _val2 second value
+		 * @return the sum or the limit exceeded by the sum
+		 */
+		static long saturatedSum(final long _val1,final long _val2){
+			final long reply=_val1+_val2;
+			if(((_val1^reply)&(_val2^reply))<0)
+				return (_val1<0)? Long.MIN_VALUE : Long.MAX_VALUE;
+			return reply;
+		}
+
+		@Override
+		public double accumulate(final T _measure) {
+			final long value=this.reducer.toLong(_measure);
+			accumulateLong(value);
+			return value;
+		}
+		void accumulateLong(final long _value) {
+			this.accumulated.accumulate(_value);
+			this.max.accumulate(_value);
+			this.min.accumulate(_value);
+			this.variance.record(_value);
+		}
+		@Override
+		public T accumulated() {
+			return this.reducer.fromLong(this.accumulated.get());
+		}
+		@Override
+		public T max() {
+			return this.reducer.fromLong(this.max.get());
+		}
+		@Override
+		public T min() {
+			return this.reducer.fromLong(this.min.get());
+		}
+		@Override
+		public T average(final T _accumulated,final long _samples) {
+			return this.reducer.fromLong(this.reducer.average(this.reducer.toLong(_accumulated),_samples));
+		}
+		@Override
+		public RunningVariance variance() {
+			return this.variance.merge();
+		}
+		@Override
+		public T value(final long _bits) {
+			return this.reducer.fromLong(_bits);
+		}
+		@Override
+		public long bits(final T _measure) {
+			return this.reducer.toLong(_measure);
+		}
+		MetricReading read(final MetricReading _reading,final String _name,final MetricReading.Kind _kind,final long _samples,final LastCells _last){
+			final int newest=_last.newest();
+			if((_samples==0)||(newest<0))
+				return _reading.longValues(_name,this.reducer,_kind,0l,_samples,0l,0l,0l,0l,0l);
+			return _reading.longValues(_name,this.reducer,_kind,_samples,_samples,this.accumulated.get(),this.max.get(),this.min.get(),_last.bits(newest),_last.timestamp(newest))
+								.variance(this.variance.sampleVariance());
+		}
+	}
+
+	/**
+	 * Primitive double striped cells, measures are converted to double before accumulate them with the reducer primitive operations
+	 * @param <T> type of the measures
+	 */
+	private static final class DoubleCells<T> implements Cells<T>{
+
+		private final DoubleReducer<T> reducer;
+		private final DoubleAccumulator accumulated;
+		private final DoubleAccumulator max;
+		private final DoubleAccumulator min;
+		private final VarianceCells variance;
+
+		DoubleCells(final DoubleReducer<T> _reducer){
+			this.reducer=_reducer;
+			this.accumulated=new DoubleAccumulator(_reducer::accumulate,_reducer.toDouble(_reducer.identity()));
+			this.max=new DoubleAccumulator(_reducer::max,Double.NEGATIVE_INFINITY);
+			this.min=new DoubleAccumulator(_reducer::min,Double.POSITIVE_INFINITY);
+			this.variance=new VarianceCells();
+		}
+
+		@Override
+		public double accumulate(final T _measure) {
+			final double value=this.reducer.toDouble(_measure);
+			accumulateDouble(value);
+			return value;
+		}
+		void accumulateDouble(final double _value) {
+			this.accumulated.accumulate(_value);
+			this.max.accumulate(_value);
+			this.min.accumulate(_value);
+			this.variance.record(_value);
+		}
+		@Override
+		public T accumulated() {
+			return this.reducer.fromDouble(this.accumulated.get());
+		}
+		@Override
+		public T max() {
+			return this.reducer.fromDouble(this.max.get());
+		}
+		@Override
+		public T min() {
+			return this.reducer.fromDouble(this.min.get());
+		}
+		@Override
+		public T average(final T _accumulated,final long _samples) {
+			return this.reducer.fromDouble(this.reducer.average(this.reducer.toDouble(_accumulated),_samples));
+		}
+		@Override
+		public RunningVariance variance() {
+			return this.variance.merge();
+		}
+		@Override
+		public T value(final long _bits) {
+			return this.reducer.fromDouble(Double.longBitsToDouble(_bits));
+		}
+		@Override
+		public long bits(final T _measure) {
+			return Double.doubleToRawLongBits(this.reducer.toDouble(_measure));
+		}
+		MetricReading read(final MetricReading _reading,final String _name,final long _samples,final LastCells _last){
+			final int newest=_last.newest();
+			if((_samples==0)||(newest<0))
+				return _reading.doubleValues(_name,this.reducer,0l,_samples,0.0d,0.0d,0.0d,0.0d,0l);
+			return _reading.doubleValues(_name,this.reducer,_samples,_samples,this.accumulated.get(),this.max.get(),this.min.get(),Double.longBitsToDouble(_last.bits(newest)),_last.timestamp(newest))
+								.variance(this.variance.sampleVariance());
+		}
+	}
+
+	/**
+	 * Generic cells for custom reducers, not striped but lock-free using compare and swap
+	 * @param <T> type of the measures
+	 */
+	private static final class ReducerCells<T> implements Cells<T>{
+
+		private final MeasureReducer<T> reducer;
+		private final AtomicReference<T> accumulated;
+		private final AtomicReference<T> max;
+		private final AtomicReference<T> min;
+
+		ReducerCells(final MeasureReducer<T> _reducer){
+			this.reducer=_reducer;
+			this.accumulated=new AtomicReference<>();
+			this.max=new AtomicReference<>();
+			this.min=new AtomicReference<>();
+		}
+
+		@Override
+		public double accumulate(final T _measure) {
+			this.accumulated.accumulateAndGet(_measure,(current,measure) -> this.reducer.accumulate(current, measure).orElseGet(this.reducer::identity));
+			this.max.accumulateAndGet(_measure,(current,measure) -> this.reducer.max(current, measure).orElseGet(this.reducer::identity));
+			this.min.accumulateAndGet(_measure,(current,measure) -> this.reducer.min(current, measure).orElseGet(this.reducer::identity));
+			return Double.NaN;
+		}
+		@Override
+		public T accumulated() {
+			return this.accumulated.get();
+		}
+		@Override
+		public T max() {
+			return this.max.get();
+		}
+		@Override
+		public T min() {
+			return this.min.get();
+		}
+		@Override
+		public T average(final T _accumulated,final long _samples) {
+			return this.reducer.average(_accumulated,_samples)
+										.orElseGet(this.reducer::identity);
+		}
+		@Override
+		public RunningVariance variance() {
+			return null;
+		}
+		@Override
+		public T value(final long _bits) {
+			throw new UnsupportedOperationException("Generic cells have no primitive values");
+		}
+		@Override
+		public long bits(final T _measure) {
+			throw new UnsupportedOperationException("Generic cells have no primitive values");
+		}
+	}
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright 2020 Byte Mechanics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bytemechanics.metrics.crawler.internal;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import org.bytemechanics.metrics.crawler.AbstractMetric;
+import org.bytemechanics.metrics.crawler.LongReducer;
+import org.bytemechanics.metrics.crawler.MeasureReducer;
+import org.bytemechanics.metrics.crawler.beans.MetricReading;
+import org.bytemechanics.metrics.crawler.beans.MetricSnapshot;
+import org.bytemechanics.metrics.crawler.internal.commons.string.SimpleFormat;
+
+/**
+ * Monotonic counter of the measures of a {@link LongReducer} (usually {@link MeasureReducers#LONG}) that keeps only its total, the number of increments and the last increment timestamp in striped cells (LongAdder style), without storing any sample.<br>
+ * The snapshot reports the total as accumulated samples and the rate per second, the average is the mean increment and as there are no samples the maximum, minimum and last measures are null.
+ * The rate is an exponentially weighted moving average with a time constant of {@value #RATE_WINDOW_SECONDS} seconds, updated with the increments between reads: the first read reports the mean rate since the counter creation and the following ones weight the recent increments, decaying towards zero when the counter stops growing.
+ * The counters can only grow, so the negative measures are rejected.<br>
+ * Note: the snapshots are weakly consistent, as the cells are merged when the snapshot is requested
+ * @param <TYPE> metric type
+ * @see LongAdder
+ * @see MetricFactories#COUNTER
+ * @see MetricSnapshot#getRate()
+ * @author afarre
+ * @since 1.1.0
+ */
+public class CounterMetric<TYPE> extends AbstractMetric<TYPE> {
+
+	/** Time constant of the rate moving average in seconds */
+	public static final long RATE_WINDOW_SECONDS=60;
+
+	private static final double NANOS_PER_SECOND=TimeUnit.SECONDS.toNanos(1);
+	private static final double RATE_WINDOW_NANOS=TimeUnit.SECONDS.toNanos(RATE_WINDOW_SECONDS);
+
+	private final LongReducer<TYPE> primitive;
+	private final boolean longs;
+	private final LongAdder total;
+	private final LongAdder hits;
+	private final LongAccumulator lastOccurrence;
+	private final LongSupplier clock;
+	private final Object rateLock;
+	private long rateTotal;
+	private long rateUpdated;
+	private double rate;
+	private boolean rateStarted;
+
+
+	/**
+	 * Counter metric constructor
+	 * @param _name metric name (mandatory)
+	 * @param _reducer reducer for this metric (mandatory)
+	 * @throws NullPointerException if either _name or _reducer are null
+	 * @throws IllegalArgumentException if the reducer is not a LongReducer
+	 * @see MeasureReducers#LONG
+	 */
+	public CounterMetric(final String _name,final MeasureReducer<TYPE> _reducer) {
+		this(_name,_reducer,System::nanoTime);
+	}
+	/**
+	 * Counter metric constructor with the given monotonic clock, only for testing purposes
+	 * @param _name metric name (mandatory)
+	 * @param _reducer reducer for this metric (mandatory)
+	 * @param _clock monotonic clock in nanoseconds
+	 * @throws NullPointerException if either _name or _reducer are null
+	 * @throws IllegalArgumentException if the reducer is not a LongReducer
+	 */
+	@SuppressWarnings("unchecked")
+	CounterMetric(final String _name,final MeasureReducer<TYPE> _reducer,final LongSupplier _clock) {
+		super(_name,_reducer);
+		if(!(_reducer instanceof LongReducer))
+			throw new IllegalArgumentException(SimpleFormat.format("Metric {} reducer {} must be a LongReducer to create a counter",_name,_reducer));
+		this.primitive=(LongReducer<TYPE>)_reducer;
+		this.longs=Long.class.equals(_reducer.getType());
+		this.total=new LongAdder();
+		this.hits=new LongAdder();
+		this.lastOccurrence=new LongAccumulator(Math::max,Long.MIN_VALUE);
+		this.clock=_clock;
+		this.rateLock=new Object();
+		this.rateTotal=0l;
+		this.rateUpdated=_clock.getAsLong();
+		this.rate=0.0d;
+		this.rateStarted=false;
+	}
+
+	/** @see AbstractMetric#getHits() */
+	@Override
+	public long getHits() {
+		return this.hits.sum();
+	}
+	/**
+	 * Retrieve the current counter total
+	 * @return sum of all the measures registered since its creation
+	 */
+	public long getTotal() {
+		return this.total.sum();
+	}
+
+	/**
+	 * @see AbstractMetric#addMeasure(java.time.LocalDateTime, java.lang.Object)
+	 * @throws IllegalArgumentException if _measure is negative
+	 * @throws ArithmeticException if _timestamp is out of the range supported by Timestamps
+	 */
+	@Override
+	public void addMeasure(final LocalDateTime _timestamp,final TYPE _measure){
+		validateMeasure(_timestamp, _measure);
+		record(Timestamps.toTimestamp(_timestamp),this.primitive.toLong(_measure));
+	}
+	/**
+	 * @see AbstractMetric#addLongMeasure(long, long)
+	 * @throws IllegalArgumentException if _measure is negative
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public void addLongMeasure(final long _timestamp,final long _measure) {
+		if(!this.longs){
+			validateMeasure(Timestamps.toLocalDateTime(_timestamp),(TYPE)(Object)_measure);
+		}
+		record(_timestamp,_measure);
+	}
+
+	/**
+	 * Register a new primitive measure
+	 * @param _timestamp timestamp for this measure
+	 * @param _measure primitive measure
+	 * @throws IllegalArgumentException if _measure is negative
+	 */
+	private void record(final long _timestamp,final long _measure) {
+		if(_measure<0)
+			throw new IllegalArgumentException(SimpleFormat.format("Can not add negative measure {} to counter {}",_measure,getName()));
+		this.total.add(_measure);
+		this.hits.increment();
+		this.lastOccurrence.accumulate(_timestamp);
+	}
+
+	/**
+	 * Update the rate moving average with the increments since the previous read and retrieve it. The recording path never takes this lock
+	 * @param _total counter total
+	 * @return rate per second
+	 */
+	private double rate(final long _total){
+		synchronized(this.rateLock){
+			final long now=this.clock.getAsLong();
+			final long elapsed=now-this.rateUpdated;
+			if(elapsed>0){
+				final double current=(_total-this.rateTotal)*NANOS_PER_SECOND/elapsed;
+				if(this.rateStarted){
+					this.rate+=(1.0d-Math.exp(-elapsed/RATE_WINDOW_NANOS))*(current-this.rate);
+				}else{
+					this.rate=current;
+					this.rateStarted=true;
+				}
+				this.rateTotal=_total;
+				this.rateUpdated=now;
+			}
+			return this.rate;
+		}
+	}
+
+	/** @see AbstractMetric#toSnapshot() */
+	@Override
+	@SuppressWarnings("unchecked")
+	public MetricSnapshot<TYPE> toSnapshot(){
+
+		final long samples=this.hits.sum();
+		final long accumulated=this.total.sum();
+		final long last=this.lastOccurrence.get();
+		return MetricSnapshot.<TYPE>builder(getReducer())
+									.name(getName())
+									.samplingSize(samples)
+									.totalHits(samples)
+									.accumulatedSamples(this.primitive.fromLong(accumulated))
+									.maxMeasure(null)
+									.minMeasure(null)
+									.averageMeasure((samples>0)? this.primitive.fromLong(this.primitive.average(accumulated,samples)) : getReducer().identity())
+									.lastMeasure(null)
+									.lastOccurrence((samples>0)? Timestamps.toLocalDateTime(last) : null)
+									.rate(rate(accumulated))
+								.build();
+	}
+
+	/**
+	 * Fill the given reading with the counter values without creating any object
+	 * @see AbstractMetric#read(org.bytemechanics.metrics.crawler.beans.MetricReading)
+	 */
+	@Override
+	public MetricReading read(final MetricReading _reading){
+		final long samples=this.hits.sum();
+		final long accumulated=this.total.sum();
+		return _reading.counterValues(getName(),getReducer(),samples,accumulated,rate(accumulated),(samples>0)? this.lastOccurrence.get() : 0l);
+	}
+
+	/** @see Object#toString()   */
+	@Override
+	public String toString() {
+		return SimpleFormat.format("CounterMetric[name={}, hits={}, total={}, reducer={}]", getName(), this.hits.sum(), this.total.sum(), getReducer());
+	}
+}
@@ -0,0 +1,407 @@
+/*
+ * Copyright 2020 Byte Mechanics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bytemechanics.metrics.crawler.internal;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
+import org.bytemechanics.metrics.crawler.AbstractMetric;
+import org.bytemechanics.metrics.crawler.DoubleReducer;
+import org.bytemechanics.metrics.crawler.HistogramReducer;
+import org.bytemechanics.metrics.crawler.LongReducer;
+import org.bytemechanics.metrics.crawler.MeasureReducer;
+import org.bytemechanics.metrics.crawler.beans.MetricSnapshot;
+import org.bytemechanics.metrics.crawler.beans.MetricSnapshot.MetricSnapshotBuilder;
+import org.bytemechanics.metrics.crawler.exceptions.IncorrectSamplingSize;
+import org.bytemechanics.metrics.crawler.internal.commons.string.SimpleFormat;
+
+/**
+ * Metric that keeps a forward decaying priority reservoir of N samples instead of the last N ones.<br>
+ * Each measure gets the priority w/u, where w=exp(alpha*(timestamp-landmark)) is its forward decayed weight (alpha=ln(2)/halfLife) and u a uniform random number in (0,1], and the reservoir keeps the N measures with the highest priorities.
+ * This way the probability of a measure to be in the reservoir halves every half-life, so a burst of fast measures does not erase the older outliers, while the statistics still represent mainly the recent period.<br>
+ * The reservoir is striped: each thread registers in one of the stripes (each one with its own lock and its own N samples min-heap) and the snapshot takes the N highest priorities across all the stripes, that are the same N that a single reservoir would have kept.
+ * When the weights are going to overflow the landmark is moved forward and all the priorities rescaled.<br>
+ * The samples are reduced with the primitive operations of the {@link LongReducer} and {@link DoubleReducer} reducers (computing also its {@link RunningVariance} in the same pass, as the reservoir samples change with every measure), any other reducer is reduced with its generic operations.<br>
+ * Note: the accumulated and average measures are computed over the samples in the reservoir, and for {@link HistogramReducer} reducers the histogram is built from these samples. The readings are filled from the snapshot, because the samples must be selected across the stripes anyway
+ * @param <TYPE> metric type
+ * @author afarre
+ * @since 1.1.0
+ */
+public class DecayingMetric<TYPE> extends AbstractMetric<TYPE> {
+
+	/** Default half-life of the measures */
+	public static final Duration DEFAULT_HALF_LIFE=Duration.ofMinutes(1);
+	/** Default number of stripes */
+	public static final int DEFAULT_STRIPES=Math.min(16,Integer.highestOneBit(Runtime.getRuntime().availableProcessors()));
+	private static final double RESCALE_EXPONENT=64.0d;
+
+	private final int samplingSize;
+	private final Duration halfLife;
+	private final double alpha;
+	private final Stripe<TYPE>[] stripes;
+	private volatile long landmark;
+	private volatile boolean started;
+
+
+	/**
+	 * Decaying metric constructor
+	 * @param _name metric name (mandatory)
+	 * @param _samplingSize max samples to store
+	 * @param _halfLife time needed to halve the probability of a measure to be in the reservoir (mandatory)
+	 * @param _reducer reducer for this metric (mandatory)
+	 * @throws NullPointerException if either _name, _halfLife or _reducer are null
+	 * @throws IncorrectSamplingSize if _samplingSize is zero or negative
+	 * @throws IllegalArgumentException if _halfLife is zero or negative
+	 */
+	public DecayingMetric(final String _name,final int _samplingSize,final Duration _halfLife,final MeasureReducer<TYPE> _reducer) {
+		this(_name,_samplingSize,_halfLife,_reducer,DEFAULT_STRIPES);
+	}
+	/**
+	 * Decaying metric constructor with the given number of stripes
+	 * @param _name metric name (mandatory)
+	 * @param _samplingSize max samples to store
+	 * @param _halfLife time needed to halve the probability of a measure to be in the reservoir (mandatory)
+	 * @param _reducer reducer for this metric (mandatory)
+	 * @param _stripes number of stripes (power of two)
+	 */
+	@SuppressWarnings("unchecked")
+	DecayingMetric(final String _name,final int _samplingSize,final Duration _halfLife,final MeasureReducer<TYPE> _reducer,final int _stripes) {
+		super(_name,_reducer);
+		if(_samplingSize<=0)
+			throw new IncorrectSamplingSize(_name, _samplingSize);
+		if(_halfLife==null)
+			throw new NullPointerException(SimpleFormat.format("Metric {} half-life can not be null to create a DecayingMetric",_name));
+		if((_halfLife.isNegative())||(_halfLife.isZero()))
+			throw new IllegalArgumentException(SimpleFormat.format("Metric {} half-life {} must be positive",_name,_halfLife));
+		this.samplingSize=_samplingSize;
+		this.halfLife=_halfLife;
+		this.alpha=Math.log(2.0d)/_halfLife.toNanos();
+		this.stripes=new Stripe[_stripes];
+		for(int ic1=0;ic1<_stripes;ic1++){
+			this.stripes[ic1]=new Stripe<>(_samplingSize);
+		}
+		this.landmark=0l;
+		this.started=false;
+	}
+
+	/**
+	 * Retrieves the measures half-life
+	 * @return measures half-life
+	 */
+	public Duration getHalfLife() {
+		return halfLife;
+	}
+	/**
+	 * Retrieves the reservoir size
+	 * @return reservoir size
+	 */
+	public int getSamplingSize() {
+		return samplingSize;
+	}
+	/** @see AbstractMetric#getHits() */
+	@Override
+	public long getHits() {
+		long reply=0l;
+		for(Stripe<TYPE> stripe:this.stripes){
+			stripe.lock.lock();
+			try{
+				reply+=stripe.hits;
+			}finally{
+				stripe.lock.unlock();
+			}
+		}
+		return reply;
+	}
+
+	/**
+	 * @see AbstractMetric#addMeasure(java.time.LocalDateTime, java.lang.Object)
+	 * @throws ArithmeticException if _timestamp is out of the range supported by Timestamps
+	 * @see Timestamps
+	 */
+	@Override
+	public void addMeasure(final LocalDateTime _timestamp,final TYPE _measure){
+		validateMeasure(_timestamp, _measure);
+		final long timestamp=Timestamps.toTimestamp(_timestamp);
+		if((!this.started)||(this.alpha*(timestamp-this.landmark)>RESCALE_EXPONENT)){
+			rescale(timestamp);
+		}
+		final double random=1.0d-ThreadLocalRandom.current().nextDouble();
+		final Stripe<TYPE> stripe=this.stripes[(int)Thread.currentThread().getId()&(this.stripes.length-1)];
+		stripe.lock.lock();
+		try{
+			stripe.offer(Math.exp(this.alpha*(timestamp-this.landmark))/random,_measure,timestamp);
+		}finally{
+			stripe.lock.unlock();
+		}
+	}
+
+	/**
+	 * Moves the landmark to the given timestamp (only if needed) and rescales all the priorities, locks all the stripes
+	 * @param _timestamp new landmark
+	 */
+	private synchronized void rescale(final long _timestamp){
+		if(!this.started){
+			this.landmark=_timestamp;
+			this.started=true;
+			return;
+		}
+		final long current=this.landmark;
+		if(this.alpha*(_timestamp-current)<=RESCALE_EXPONENT)
+			return;
+		for(Stripe<TYPE> stripe:this.stripes){
+			stripe.lock.lock();
+		}
+		try{
+			final double factor=Math.exp(-this.alpha*(_timestamp-current));
+			for(Stripe<TYPE> stripe:this.stripes){
+				stripe.rescale(factor);
+			}
+			this.landmark=_timestamp;
+		}finally{
+			for(Stripe<TYPE> stripe:this.stripes){
+				stripe.lock.unlock();
+			}
+		}
+	}
+
+	/** @see AbstractMetric#toSnapshot() */
+	@Override
+	@SuppressWarnings("unchecked")
+	public MetricSnapshot<TYPE> toSnapshot(){
+
+		final int capacity=this.samplingSize*this.stripes.length;
+		final double[] priorities=new double[capacity];
+		final TYPE[] values=(TYPE[])new Object[capacity];
+		int size=0;
+		long hits=0l;
+		TYPE last=null;
+		long lastTimestamp=Long.MIN_VALUE;
+		for(Stripe<TYPE> stripe:this.stripes){
+			stripe.lock.lock();
+			try{
+				System.arraycopy(stripe.priorities,0,priorities,size,stripe.size);
+				System.arraycopy(stripe.values,0,values,size,stripe.size);
+				size+=stripe.size;
+				hits+=stripe.hits;
+				if((stripe.last!=null)&&((last==null)||(stripe.lastTimestamp>lastTimestamp))){
+					last=stripe.last;
+					lastTimestamp=stripe.lastTimestamp;
+				}
+			}finally{
+				stripe.lock.unlock();
+			}
+		}
+		if(size==0)
+			return defaultSnapshot();
+
+		final MeasureReducer<TYPE> reducer=getReducer();
+		final LogLinearHistogram histogram=(reducer instanceof HistogramReducer)? new LogLinearHistogram() : null;
+		final int samples=Math.min(size,this.samplingSize);
+		final double threshold=(size>this.samplingSize)? threshold(priorities,size) : Double.NEGATIVE_INFINITY;
+		final MetricSnapshotBuilder<TYPE> builder;
+		if(reducer instanceof LongReducer){
+			builder=reduceLong((LongReducer<TYPE>)reducer,values,priorities,size,samples,threshold,histogram);
+		}else if(reducer instanceof DoubleReducer){
+			builder=reduceDouble((DoubleReducer<TYPE>)reducer,values,priorities,size,samples,threshold);
+		}else{
+			builder=reduce(reducer,values,priorities,size,samples,threshold);
+		}
+		return builder
+					.name(getName())
+					.totalHits(hits)
+					.lastMeasure(last)
+									.lastOccurrence(Timestamps.toLocalDateTime(lastTimestamp))
+									.histogram(histogram)
+								.build();
+	}
+	@SuppressWarnings("unchecked")
+	private static <T> MetricSnapshotBuilder<T> reduceLong(final LongReducer<T> _reducer,final T[] _values,final double[] _priorities,final int _size,final int _samples,final double _threshold,final LogLinearHistogram _histogram){
+		long accumulated=0l;
+		long max=0l;
+		long min=0l;
+		final RunningVariance variance=new RunningVariance();
+		int taken=0;
+		for(int ic1=0;(ic1<_size)&&(taken<_samples);ic1++){
+			if(_priorities[ic1]>=_threshold){
+				final long value=_reducer.toLong(_values[ic1]);
+				variance.record(value);
+				if(taken==0){
+					accumulated=value;
+					max=value;
+					min=value;
+				}else{
+					accumulated=_reducer.accumulate(accumulated,value);
+					max=_reducer.max(max,value);
+					min=_reducer.min(min,value);
+				}
+				if(_histogram!=null){
+					_histogram.record(value);
+				}
+				taken++;
+			}
+		}
+		return MetricSnapshot.<T>builder(_reducer)
+									.samplingSize(taken)
+									.accumulatedSamples(_reducer.fromLong(accumulated))
+									.maxMeasure(_reducer.fromLong(max))
+									.minMeasure(_reducer.fromLong(min))
+									.averageMeasure(_reducer.fromLong(_reducer.average(accumulated,taken)))
+									.variance(variance);
+	}
+	@SuppressWarnings("unchecked")
+	private static <T> MetricSnapshotBuilder<T> reduceDouble(final DoubleReducer<T> _reducer,final T[] _values,final double[] _priorities,final int _size,final int _samples,final double _threshold){
+		double accumulated=0.0d;
+		double max=0.0d;
+		double min=0.0d;
+		final RunningVariance variance=new RunningVariance();
+		int taken=0;
+		for(int ic1=0;(ic1<_size)&&(taken<_samples);ic1++){
+			if(_priorities[ic1]>=_threshold){
+				final double value=_reducer.toDouble(_values[ic1]);
+				variance.record(value);
+				if(taken==0){
+					accumulated=value;
+					max=value;
+					min=value;
+				}else{
+					accumulated=_reducer.accumulate(accumulated,value);
+					max=_reducer.max(max,value);
+					min=_reducer.min(min,value);
+				}
+				taken++;
+			}
+		}
+		return MetricSnapshot.<T>builder(_reducer)
+									.samplingSize(taken)
+									.accumulatedSamples(_reducer.fromDouble(accumulated))
+									.maxMeasure(_reducer.fromDouble(max))
+									.minMeasure(_reducer.fromDouble(min))
+									.averageMeasure(_reducer.fromDouble(_reducer.average(accumulated,taken)))
+									.variance(variance);
+	}
+	@SuppressWarnings("unchecked")
+	private static <T> MetricSnapshotBuilder<T> reduce(final MeasureReducer<T> _reducer,final T[] _values,final double[] _priorities,final int _size,final int _samples,final double _threshold){
+		T accumulated=null;
+		T max=null;
+		T min=null;
+		int taken=0;
+		for(int ic1=0;(ic1<_size)&&(taken<_samples);ic1++){
+			if(_priorities[ic1]>=_threshold){
+				final T value=_values[ic1];
+				accumulated=_reducer.accumulate(accumulated,value).orElse(null);
+				max=_reducer.max(max,value).orElse(null);
+				min=_reducer.min(min,value).orElse(null);
+				taken++;
+			}
+		}
+		return MetricSnapshot.<T>builder(_reducer)
+									.samplingSize(taken)
+									.accumulatedSamples(accumulated)
+									.maxMeasure(max)
+									.minMeasure(min)
+									.averageMeasure(_reducer.average(accumulated,taken)
+																.orElseGet(_reducer::identity));
+	}
+	private double threshold(final double[] _priorities,final int _size){
+		final double[] sorted=Arrays.copyOf(_priorities,_size);
+		Arrays.sort(sorted);
+		return sorted[_size-this.samplingSize];
+	}
+
+	/** @see Object#toString()   */
+	@Override
+	public String toString() {
+		return SimpleFormat.format("DecayingMetric[name={}, hits={}, samplingSize={}, halfLife={}, reducer={}]", getName(), getHits(), this.samplingSize, this.halfLife, getReducer());
+	}
+
+
+	/**
+	 * Reservoir stripe, min-heap of the samples with the highest priorities
+	 * @param <T> type of the measures
+	 */
+	private static final class Stripe<T>{
+
+		private final ReentrantLock lock;
+		private final double[] priorities;
+		private final T[] values;
+		private int size;
+		private long hits;
+		private T last;
+		private long lastTimestamp;
+
+		@SuppressWarnings("unchecked")
+		Stripe(final int _samplingSize){
+			this.lock=new ReentrantLock();
+			this.priorities=new double[_samplingSize];
+			this.values=(T[])new Object[_samplingSize];
+			this.size=0;
+			this.hits=0l;
+			this.last=null;
+			this.lastTimestamp=Long.MIN_VALUE;
+		}
+
+		void offer(final double _priority,final T _measure,final long _timestamp){
+			this.hits++;
+			if((this.last==null)||(_timestamp>=this.lastTimestamp)){
+				this.last=_measure;
+				this.lastTimestamp=_timestamp;
+			}
+			if(this.size<this.priorities.length){
+				siftUp(this.size++,_priority,_measure);
+			}else if(_priority>this.priorities[0]){
+				siftDown(0,_priority,_measure);
+			}
+		}
+		void rescale(final double _factor){
+			for(int ic1=0;ic1<this.size;ic1++){
+				this.priorities[ic1]*=_factor;
+			}
+		}
+		private void siftUp(final int _position,final double _priority,final T _measure){
+			int position=_position;
+			while(position>0){
+				final int parent=(position-1)>>>1;
+				if(this.priorities[parent]<=_priority)
+					break;
+				this.priorities[position]=this.priorities[parent];
+				this.values[position]=this.values[parent];
+				position=parent;
+			}
+			this.priorities[position]=_priority;
+			this.values[position]=_measure;
+		}
+		private void siftDown(final int _position,final double _priority,final T _measure){
+			int position=_position;
+			final int half=this.size>>>1;
+			while(position<half){
+				int child=(position<<1)+1;
+				final int right=child+1;
+				if((right<this.size)&&(this.priorities[right]<this.priorities[child])){
+					child=right;
+				}
+				if(_priority<=this.priorities[child])
+					break;
+				this.priorities[position]=this.priorities[child];
+				this.values[position]=this.values[child];
+				position=child;
+			}
+			this.priorities[position]=_priority;
+			this.values[position]=_measure;
+		}
+	}
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2020 Byte Mechanics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bytemechanics.metrics.crawler.internal;
+
+import org.bytemechanics.metrics.crawler.AbstractMetric;
+import org.bytemechanics.metrics.crawler.MeasureReducer;
+import org.bytemechanics.metrics.crawler.exceptions.IncorrectSamplingSize;
+
+/**
+ * Sampled metric specialized for Double measures, stores the latest N samples as primitive doubles
+ * @see AbstractDoubleMetric
+ * @see MeasureReducers#DOUBLE
+ * @author afarre
+ * @since 1.1.0
+ */
+public class DoubleMetric extends AbstractDoubleMetric<Double> {
+
+	/**
+	 * Double metric constructor
+	 * @param _name metric name (mandatory)
+	 * @param _samplingSize max samples to store
+	 * @param _reducer reducer for this metric
+	 * @throws NullPointerException if either _name or _reducer are null
+	 * @throws IncorrectSamplingSize if _samplingSize is zero or negative
+	 */
+	public DoubleMetric(final String _name,final int _samplingSize,final MeasureReducer<Double> _reducer) {
+		super(_name,_samplingSize,_reducer);
+	}
+
+	/** @see AbstractDoubleMetric#toDouble(java.lang.Object) */
+	@Override
+	protected double toDouble(final Double _measure) {
+		return _measure;
+	}
+	/** @see AbstractDoubleMetric#toMeasure(double) */
+	@Override
+	protected Double toMeasure(final double _value) {
+		return _value;
+	}
+
+	/** @see AbstractMetric#addDoubleMeasure(long, double) */
+	@Override
+	public void addDoubleMeasure(final long _timestamp,final double _measure) {
+		record(_timestamp,_measure);
+	}
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2020 Byte Mechanics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bytemechanics.metrics.crawler.internal;
+
+import java.lang.ref.WeakReference;
+import java.time.LocalDateTime;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.bytemechanics.metrics.crawler.AbstractMetric;
+import org.bytemechanics.metrics.crawler.beans.MetricReading;
+import org.bytemechanics.metrics.crawler.beans.MetricSnapshot;
+import org.bytemechanics.metrics.crawler.exceptions.IncorrectMeasureType;
+import org.bytemechanics.metrics.crawler.internal.commons.string.SimpleFormat;
+
+/**
+ * Callback gauge that evaluates a LongSupplier or DoubleSupplier only when its snapshot is read (or when is sampled explicitly) and records the value into a window metric, so the snapshot reports the statistics of the sampled values and the last measure is the current one.
+ * Nothing is evaluated while nobody reads the gauge.<br>
+ * The supplier is held weakly so the gauge never keeps alive the object that it observes, once collected the gauge stops sampling and keeps its last values.
+ * The measures registered explicitly into the gauge are also recorded into the window.<br>
+ * Note: the caller must keep a strong reference to the supplier (for example in a field of the observed object) while the gauge must be sampled
+ * @param <TYPE> metric type, Long or Double
+ * @see MetricFactories#gauge(org.bytemechanics.metrics.crawler.MetricFactory)
+ * @author afarre
+ * @since 1.1.0
+ */
+public class GaugeMetric<TYPE> extends AbstractMetric<TYPE> {
+
+	private static final Logger logger=Logger.getLogger(GaugeMetric.class.getName());
+
+	private final AbstractMetric<TYPE> window;
+	private volatile WeakReference<?> supplier;
+	private volatile long lastSampled;
+	private volatile boolean sampled;
+
+
+	/**
+	 * Gauge metric constructor without supplier
+	 * @param _window metric where the sampled values are recorded (mandatory)
+	 * @throws NullPointerException if _window is null
+	 */
+	public GaugeMetric(final AbstractMetric<TYPE> _window) {
+		super(name(_window),_window.getReducer());
+		this.window=_window;
+		this.supplier=new WeakReference<>(null);
+		this.lastSampled=0l;
+		this.sampled=false;
+	}
+	private static String name(final AbstractMetric<?> _window){
+		if(_window==null)
+			throw new NullPointerException("Window can not be null to create a gauge metric");
+		return _window.getName();
+	}
+
+	/**
+	 * Retrieve the metric where the sampled values are recorded
+	 * @return window metric
+	 */
+	public AbstractMetric<TYPE> getWindow() {
+		return window;
+	}
+
+	/**
+	 * Bind the gauge to the given supplier, replacing the previous one
+	 * @param _supplier supplier of the gauge value (mandatory), held weakly
+	 * @throws NullPointerException if _supplier is null
+	 * @throws IncorrectMeasureType if the gauge type is not Long
+	 */
+	public void bind(final LongSupplier _supplier){
+		if(_supplier==null)
+			throw new NullPointerException(SimpleFormat.format("Can not bind gauge {} to null _supplier",getName()));
+		if(!Long.class.equals(getReducer().getType()))
+			throw new IncorrectMeasureType(getName(), getReducer().getType(), Long.class);
+		this.supplier=new WeakReference<>(_supplier);
+	}
+	/**
+	 * Bind the gauge to the given supplier, replacing the previous one
+	 * @param _supplier supplier of the gauge value (mandatory), held weakly
+	 * @throws NullPointerException if _supplier is null
+	 * @throws IncorrectMeasureType if the gauge type is not Double
+	 */
+	public void bind(final DoubleSupplier _supplier){
+		if(_supplier==null)
+			throw new NullPointerException(SimpleFormat.format("Can not bind gauge {} to null _supplier",getName()));
+		if(!Double.class.equals(getReducer().getType()))
+			throw new IncorrectMeasureType(getName(), getReducer().getType(), Double.class);
+		this.supplier=new WeakReference<>(_supplier);
+	}
+
+	/**
+	 * Check if the gauge supplier is still reachable
+	 * @return true if the gauge has a supplier not collected yet
+	 */
+	public boolean isAlive(){
+		return this.supplier.get()!=null;
+	}
+
+	/**
+	 * Evaluate the supplier and record its value into the window with the current timestamp, if the supplier has been collected or fails nothing is recorded
+	 * @return true if the sampled value is different from the previous sampled one (the first sample is always different)
+	 */
+	public boolean sample(){
+		final Object current=this.supplier.get();
+		if(current==null)
+			return false;
+		final long value;
+		try{
+			if(current instanceof LongSupplier){
+				final long measure=((LongSupplier)current).getAsLong();
+				this.window.addLongMeasure(Timestamps.now(),measure);
+				value=measure;
+			}else{
+				final double measure=((DoubleSupplier)current).getAsDouble();
+				this.window.addDoubleMeasure(Timestamps.now(),measure);
+				value=Double.doubleToLongBits(measure);
+			}
+		}catch(RuntimeException e){
+			logger.log(Level.WARNING,e,() -> SimpleFormat.format("gauge::{}::sample::failed::{}",getName(),e.getMessage()));
+			return false;
+		}
+		final boolean reply=(!this.sampled)||(this.lastSampled!=value);
+		this.lastSampled=value;
+		this.sampled=true;
+		return reply;
+	}
+
+	/** @see AbstractMetric#getHits() */
+	@Override
+	public long getHits() {
+		return this.window.getHits();
+	}
+
+	/** @see AbstractMetric#addMeasure(java.time.LocalDateTime, java.lang.Object) */
+	@Override
+	public void addMeasure(final LocalDateTime _timestamp,final TYPE _measure){
+		this.window.addMeasure(_timestamp,_measure);
+	}
+	/** @see AbstractMetric#addLongMeasure(long, long) */
+	@Override
+	public void addLongMeasure(final long _timestamp,final long _measure) {
+		this.window.addLongMeasure(_timestamp,_measure);
+	}
+	/** @see AbstractMetric#addDoubleMeasure(long, double) */
+	@Override
+	public void addDoubleMeasure(final long _timestamp,final double _measure) {
+		this.window.addDoubleMeasure(_timestamp,_measure);
+	}
+	/** @see AbstractMetric#addDurationMeasure(long, long) */
+	@Override
+	public void addDurationMeasure(final long _timestamp,final long _nanos) {
+		this.window.addDurationMeasure(_timestamp,_nanos);
+	}
+
+	/**
+	 * Sample the gauge and retrieve the window snapshot
+	 * @see AbstractMetric#toSnapshot()
+	 */
+	@Override
+	public MetricSnapshot<TYPE> toSnapshot(){
+		sample();
+		return this.window.toSnapshot();
+	}
+	/**
+	 * Sample the gauge and fill the given reading with the window values
+	 * @see AbstractMetric#read(org.bytemechanics.metrics.crawler.beans.MetricReading)
+	 */
+	@Override
+	public MetricReading read(final MetricReading _reading){
+		sample();
+		return this.window.read(_reading);
+	}
+
+	/** @see Object#toString()   */
+	@Override
+	public String toString() {
+		return SimpleFormat.format("GaugeMetric[name={}, alive={}, window={}]", getName(), isAlive(), this.window);
+	}
+}
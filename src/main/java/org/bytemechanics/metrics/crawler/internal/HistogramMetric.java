@@ -0,0 +1,80 @@
+/*
+ * Copyright 2020 Byte Mechanics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bytemechanics.metrics.crawler.internal;
+
+import java.time.Duration;
+import org.bytemechanics.metrics.crawler.AbstractMetric;
+import org.bytemechanics.metrics.crawler.HistogramReducer;
+import org.bytemechanics.metrics.crawler.exceptions.IncorrectSamplingSize;
+
+/**
+ * Sampled metric for {@link HistogramReducer} reducers, stores the latest N samples as primitive longs and keeps a log-linear histogram of them to provide percentiles<br>
+ * Note: the histogram requires {@value LogLinearHistogram#BUCKETS} longs per metric
+ * @param <TYPE> metric type
+ * @see AbstractLongMetric
+ * @see LogLinearHistogram
+ * @see MeasureReducers#HISTOGRAM_DURATION
+ * @see MeasureReducers#HISTOGRAM_LONG
+ * @author afarre
+ * @since 1.1.0
+ */
+public class HistogramMetric<TYPE> extends AbstractLongMetric<TYPE> {
+
+	private final HistogramReducer<TYPE> histogramReducer;
+
+	/**
+	 * Histogram metric constructor
+	 * @param _name metric name (mandatory)
+	 * @param _samplingSize max samples to store
+	 * @param _reducer reducer for this metric
+	 * @throws NullPointerException if either _name or _reducer are null
+	 * @throws IncorrectSamplingSize if _samplingSize is zero or negative
+	 */
+	public HistogramMetric(final String _name,final int _samplingSize,final HistogramReducer<TYPE> _reducer) {
+		super(_name,_samplingSize,_reducer);
+		this.histogramReducer=_reducer;
+	}
+
+	/** @see AbstractLongMetric#toLong(java.lang.Object) */
+	@Override
+	protected long toLong(final TYPE _measure) {
+		return this.histogramReducer.toLong(_measure);
+	}
+	/** @see AbstractLongMetric#toMeasure(long) */
+	@Override
+	protected TYPE toMeasure(final long _value) {
+		return this.histogramReducer.fromLong(_value);
+	}
+
+	/** @see AbstractMetric#addLongMeasure(long, long) */
+	@Override
+	public void addLongMeasure(final long _timestamp,final long _measure) {
+		if(this.histogramReducer==MeasureReducers.HISTOGRAM_LONG.get(Long.class)){
+			record(_timestamp,_measure);
+		}else{
+			super.addLongMeasure(_timestamp,_measure);
+		}
+	}
+	/** @see AbstractMetric#addDurationMeasure(long, long) */
+	@Override
+	public void addDurationMeasure(final long _timestamp,final long _nanos) {
+		if(this.histogramReducer==MeasureReducers.HISTOGRAM_DURATION.get(Duration.class)){
+			record(_timestamp,_nanos);
+		}else{
+			super.addDurationMeasure(_timestamp,_nanos);
+		}
+	}
+}
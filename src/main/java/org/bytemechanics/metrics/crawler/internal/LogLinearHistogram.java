@@ -0,0 +1,204 @@
+/*
+ * Copyright 2020 Byte Mechanics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bytemechanics.metrics.crawler.internal;
+
+import java.util.Arrays;
+import org.bytemechanics.metrics.crawler.internal.commons.string.SimpleFormat;
+
+/**
+ * HDR style log-linear histogram over primitive long values with fixed memory.<br>
+ * Values are grouped by its power of two and each power of two is split in {@value #SUB_BUCKETS} linear sub-buckets, so the relative error of any value (and percentile) is lower than 1/{@value #SUB_BUCKETS} (about 3%) while the values under {@value #SUB_BUCKETS} are exact.
+ * Recording and removing values is O(1) and does not allocate, and two histograms can be merged.<br>
+ * Note: negative values are accounted as zero. This class is not thread safe, the owner must synchronize the access
+ * @author afarre
+ * @since 1.1.0
+ */
+public final class LogLinearHistogram {
+
+	private static final int PRECISION=5;
+	/** Linear sub-buckets per power of two */
+	public static final int SUB_BUCKETS=1<<PRECISION;
+	/** Number of buckets needed to represent any positive long */
+	public static final int BUCKETS=(64-PRECISION)*SUB_BUCKETS;
+
+	private long[] counts;
+	private long count;
+
+
+	/**
+	 * Empty histogram constructor
+	 */
+	public LogLinearHistogram(){
+		this(new long[BUCKETS]);
+	}
+	/**
+	 * Histogram constructor from the given bucket counts
+	 * @param _counts bucket counts (the array is not copied)
+	 */
+	LogLinearHistogram(final long[] _counts){
+		this.counts=_counts;
+		this.count=0l;
+		for(long bucketCount:_counts){
+			this.count+=bucketCount;
+		}
+	}
+
+	/**
+	 * Retrieve the bucket index of the given value
+	 * @param _value value
+	 * @return bucket index between 0 and BUCKETS-1
+	 */
+	public static int bucket(final long _value){
+		if(_value<SUB_BUCKETS)
+			return (_value<0)? 0 : (int)_value;
+		final int shift=63-Long.numberOfLeadingZeros(_value)-PRECISION;
+		return ((shift+1)<<PRECISION)+(int)((_value>>>shift)-SUB_BUCKETS);
+	}
+	/**
+	 * Retrieve the representative value (the middle value) of the given bucket
+	 * @param _bucket bucket index
+	 * @return representative value of the bucket
+	 */
+	public static long value(final int _bucket){
+		if(_bucket<SUB_BUCKETS)
+			return _bucket;
+		final int shift=(_bucket>>>PRECISION)-1;
+		final long lower=((long)(SUB_BUCKETS+(_bucket&(SUB_BUCKETS-1))))<<shift;
+		return lower+(((1l<<shift)-1l)>>>1);
+	}
+
+	/**
+	 * Register a value
+	 * @param _value value to register
+	 */
+	public void record(final long _value){
+		this.counts[bucket(_value)]++;
+		this.count++;
+	}
+	/**
+	 * Unregister a previously registered value
+	 * @param _value value to unregister
+	 */
+	public void remove(final long _value){
+		this.counts[bucket(_value)]--;
+		this.count--;
+	}
+	/**
+	 * Adds all the values registered at the given histogram to this one
+	 * @param _histogram histogram to merge
+	 * @return this histogram
+	 */
+	public LogLinearHistogram merge(final LogLinearHistogram _histogram){
+		if(_histogram.counts.length>this.counts.length){
+			this.counts=Arrays.copyOf(this.counts,_histogram.counts.length);
+		}
+		for(int ic1=0;ic1<_histogram.counts.length;ic1++){
+			this.counts[ic1]+=_histogram.counts[ic1];
+		}
+		this.count+=_histogram.count;
+		return this;
+	}
+	/**
+	 * Copy this histogram, the copy only keeps the buckets until the highest one with values so it can be smaller than the original
+	 * @return independent copy of this histogram
+	 */
+	public LogLinearHistogram copy(){
+		int length=this.counts.length;
+		while((length>0)&&(this.counts[length-1]==0)){
+			length--;
+		}
+		return new LogLinearHistogram(Arrays.copyOf(this.counts,length));
+	}
+
+	/**
+	 * Retrieve the number of registered values
+	 * @return number of registered values
+	 */
+	public long getCount(){
+		return this.count;
+	}
+	/**
+	 * Retrieve the value under which the given percentage of the registered values fall
+	 * @param _percentile percentile between 0 and 100
+	 * @return representative value of the bucket that contains the percentile or 0 if there are no values
+	 * @throws IllegalArgumentException if _percentile is not between 0 and 100
+	 */
+	public long percentile(final double _percentile){
+		if(!((_percentile>=0.0d)&&(_percentile<=100.0d)))
+			throw new IllegalArgumentException(SimpleFormat.format("Percentile {} must be between 0 and 100",_percentile));
+		if(this.count<=0)
+			return 0l;
+		final long rank=Math.max(1l,(long)Math.ceil(this.count*_percentile/100.0d));
+		long accumulated=0l;
+		int last=0;
+		for(int ic1=0;ic1<this.counts.length;ic1++){
+			if(this.counts[ic1]>0){
+				accumulated+=this.counts[ic1];
+				last=ic1;
+				if(accumulated>=rank)
+					break;
+			}
+		}
+		return value(last);
+	}
+
+	/** @see Object#hashCode() */
+	@Override
+	public int hashCode() {
+		int hash = 5;
+		hash = 53 * hash + (int) (this.count ^ (this.count >>> 32));
+		for(int ic1=0;ic1<this.counts.length;ic1++){
+			if(this.counts[ic1]!=0){
+				hash = 53 * hash + ic1;
+				hash = 53 * hash + (int) (this.counts[ic1] ^ (this.counts[ic1] >>> 32));
+			}
+		}
+		return hash;
+	}
+
+	/** @see Object#equals(java.lang.Object) */
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (obj == null) {
+			return false;
+		}
+		if (getClass() != obj.getClass()) {
+			return false;
+		}
+		final LogLinearHistogram other = (LogLinearHistogram) obj;
+		if (this.count != other.count) {
+			return false;
+		}
+		final int length=Math.max(this.counts.length,other.counts.length);
+		for(int ic1=0;ic1<length;ic1++){
+			final long left=(ic1<this.counts.length)? this.counts[ic1] : 0l;
+			final long right=(ic1<other.counts.length)? other.counts[ic1] : 0l;
+			if(left!=right){
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/** @see Object#toString() */
+	@Override
+	public String toString() {
+		return SimpleFormat.format("LogLinearHistogram[count={}, p50={}, p90={}, p99={}, p999={}]", this.count, percentile(50.0d), percentile(90.0d), percentile(99.0d), percentile(99.9d));
+	}
+}
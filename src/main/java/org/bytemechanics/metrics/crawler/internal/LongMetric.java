@@ -0,0 +1,59 @@
+/*
+ * Copyright 2020 Byte Mechanics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bytemechanics.metrics.crawler.internal;
+
+import org.bytemechanics.metrics.crawler.AbstractMetric;
+import org.bytemechanics.metrics.crawler.MeasureReducer;
+import org.bytemechanics.metrics.crawler.exceptions.IncorrectSamplingSize;
+
+/**
+ * Sampled metric specialized for Long measures, stores the latest N samples as primitive longs
+ * @see AbstractLongMetric
+ * @see MeasureReducers#LONG
+ * @author afarre
+ * @since 1.1.0
+ */
+public class LongMetric extends AbstractLongMetric<Long> {
+
+	/**
+	 * Long metric constructor
+	 * @param _name metric name (mandatory)
+	 * @param _samplingSize max samples to store
+	 * @param _reducer reducer for this metric
+	 * @throws NullPointerException if either _name or _reducer are null
+	 * @throws IncorrectSamplingSize if _samplingSize is zero or negative
+	 */
+	public LongMetric(final String _name,final int _samplingSize,final MeasureReducer<Long> _reducer) {
+		super(_name,_samplingSize,_reducer);
+	}
+
+	/** @see AbstractLongMetric#toLong(java.lang.Object) */
+	@Override
+	protected long toLong(final Long _measure) {
+		return _measure;
+	}
+	/** @see AbstractLongMetric#toMeasure(long) */
+	@Override
+	protected Long toMeasure(final long _value) {
+		return _value;
+	}
+
+	/** @see AbstractMetric#addLongMeasure(long, long) */
+	@Override
+	public void addLongMeasure(final long _timestamp,final long _measure) {
+		record(_timestamp,_measure);
+	}
+}
@@ -19,6 +19,8 @@ import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.Objects;
 import java.util.Optional;
+import org.bytemechanics.metrics.crawler.DoubleReducer;
+import org.bytemechanics.metrics.crawler.LongReducer;
 import org.bytemechanics.metrics.crawler.MeasureReducer;
 import org.bytemechanics.metrics.crawler.beans.MetricSnapshot;
 import org.bytemechanics.metrics.crawler.internal.commons.string.SimpleFormat;
@@ -71,7 +73,7 @@ public class Measure<TYPE> {
 	}
 
 	/**
-	 * Convert the current measure in a metricSnapshot
+	 * Convert the current measure in a metricSnapshot, with a single sample running variance if the reducer is a LongReducer or a DoubleReducer
 	 * @return MetricSnapshot of the same TYPE
 	 * @see MetricSnapshot
 	 */
@@ -85,8 +87,17 @@ public class Measure<TYPE> {
 								.averageMeasure(this.value)
 								.lastMeasure(this.value)
 								.lastOccurrence(this.timestamp)
+								.variance(variance())
 							.build();
 	}
+	@SuppressWarnings("unchecked")
+	private RunningVariance variance(){
+		if(this.reducer instanceof LongReducer)
+			return new RunningVariance().record(((LongReducer<TYPE>)this.reducer).toLong(this.value));
+		if(this.reducer instanceof DoubleReducer)
+			return new RunningVariance().record(((DoubleReducer<TYPE>)this.reducer).toDouble(this.value));
+		return null;
+	}
 
 	/** @see Object#hashCode() */
 	@Override
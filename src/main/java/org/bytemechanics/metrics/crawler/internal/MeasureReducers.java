@@ -20,10 +20,14 @@ import java.time.Duration;
 import java.util.Optional;
 import java.util.function.BiFunction;
 import java.util.function.Supplier;
+import org.bytemechanics.metrics.crawler.DoubleReducer;
+import org.bytemechanics.metrics.crawler.HistogramReducer;
+import org.bytemechanics.metrics.crawler.LongReducer;
 import org.bytemechanics.metrics.crawler.MeasureReducer;
 
 /**
- * An enumeration of the available included Measure reducers
+ * An enumeration of the available included Measure reducers<br>
+ * Since 1.1.0 DURATION, LONG and the histogram reducers are also LongReducer (durations as nanoseconds) and DOUBLE is a DoubleReducer, so the metrics reduce them without boxing nor Optional
  * @author afarre
  * @since 1.0.0
  */
@@ -33,7 +37,7 @@ public enum MeasureReducers {
 	 * Duration measure reducer
 	 * @see Duration
 	 */
-	DURATION(new MeasureReducer<Duration>(){
+	DURATION(new LongReducer<Duration>(){
 				@Override
 				public Class getType() {
 					return Duration.class;
@@ -60,6 +64,30 @@ public enum MeasureReducers {
 										.map(val -> val.dividedBy(_hits));
 				}
 				@Override
+				public final long toLong(final Duration _measure) {
+					return _measure.toNanos();
+				}
+				@Override
+				public final Duration fromLong(final long _value) {
+					return Duration.ofNanos(_value);
+				}
+				@Override
+				public final long accumulate(final long _val1,final long _val2) {
+					return _val1+_val2;
+				}
+				@Override
+				public final long max(final long _val1,final long _val2) {
+					return Math.max(_val1,_val2);
+				}
+				@Override
+				public final long min(final long _val1,final long _val2) {
+					return Math.min(_val1,_val2);
+				}
+				@Override
+				public final long average(final long _val,final long _hits) {
+					return _val/_hits;
+				}
+				@Override
 				public final String toString(final Duration _val) {
 					if(_val==null)
 						return "null";
@@ -77,7 +105,7 @@ public enum MeasureReducers {
 	 * Long measure reducer
 	 * @see Long
 	 */
-	LONG(new MeasureReducer<Long>(){
+	LONG(new LongReducer<Long>(){
 				@Override
 				public Class getType() {
 					return Long.class;
@@ -104,6 +132,30 @@ public enum MeasureReducers {
 										.map(val -> val/_hits);
 				}
 				@Override
+				public final long toLong(final Long _measure) {
+					return _measure;
+				}
+				@Override
+				public final Long fromLong(final long _value) {
+					return _value;
+				}
+				@Override
+				public final long accumulate(final long _val1,final long _val2) {
+					return _val1+_val2;
+				}
+				@Override
+				public final long max(final long _val1,final long _val2) {
+					return Math.max(_val1,_val2);
+				}
+				@Override
+				public final long min(final long _val1,final long _val2) {
+					return Math.min(_val1,_val2);
+				}
+				@Override
+				public final long average(final long _val,final long _hits) {
+					return _val/_hits;
+				}
+				@Override
 				public final String toString(final Long _val) {
 					if(_val==null)
 						return "null";
@@ -118,7 +170,7 @@ public enum MeasureReducers {
 	 * Double measure reducer
 	 * @see Double
 	 */
-	DOUBLE(new MeasureReducer<Double>(){
+	DOUBLE(new DoubleReducer<Double>(){
 				@Override
 				public Class getType() {
 					return Double.class;
@@ -145,6 +197,30 @@ public enum MeasureReducers {
 										.map(val -> val/_hits);
 				}
 				@Override
+				public final double toDouble(final Double _measure) {
+					return _measure;
+				}
+				@Override
+				public final Double fromDouble(final double _value) {
+					return _value;
+				}
+				@Override
+				public final double accumulate(final double _val1,final double _val2) {
+					return _val1+_val2;
+				}
+				@Override
+				public final double max(final double _val1,final double _val2) {
+					return Math.max(_val1,_val2);
+				}
+				@Override
+				public final double min(final double _val1,final double _val2) {
+					return Math.min(_val1,_val2);
+				}
+				@Override
+				public final double average(final double _val,final long _hits) {
+					return _val/_hits;
+				}
+				@Override
 				public final String toString(final Double _val) {
 					if(_val==null)
 						return "null";
@@ -155,6 +231,102 @@ public enum MeasureReducers {
 					return "MeasureReducers.Double";
 				}				
 			}),
+	/**
+	 * Duration measure reducer that keeps a histogram of the measures in order to provide percentiles
+	 * @see Duration
+	 * @see HistogramReducer
+	 * @since 1.1.0
+	 */
+	HISTOGRAM_DURATION(new HistogramReducer<Duration>(){
+				@Override
+				public Class getType() {
+					return Duration.class;
+				}
+				@Override
+				public final Duration identity() {
+					return Duration.ZERO;
+				}
+				@Override
+				public final Optional<Duration> accumulate(final Duration _val1,final Duration _val2) {
+					return DURATION.get(Duration.class).accumulate(_val1, _val2);
+				}
+				@Override
+				public final Optional<Duration> max(final Duration _val1,final Duration _val2) {
+					return DURATION.get(Duration.class).max(_val1, _val2);
+				}
+				@Override
+				public final Optional<Duration> min(final Duration _val1,final Duration _val2) {
+					return DURATION.get(Duration.class).min(_val1, _val2);
+				}
+				@Override
+				public final Optional<Duration> average(final Duration _val,final long _hits){
+					return DURATION.get(Duration.class).average(_val, _hits);
+				}
+				@Override
+				public final String toString(final Duration _val) {
+					return DURATION.get(Duration.class).toString(_val);
+				}
+				@Override
+				public final long toLong(final Duration _measure) {
+					return _measure.toNanos();
+				}
+				@Override
+				public final Duration fromLong(final long _value) {
+					return Duration.ofNanos(_value);
+				}
+				@Override
+				public String toString() {
+					return "MeasureReducers.HistogramDuration";
+				}				
+			}),
+	/**
+	 * Long measure reducer that keeps a histogram of the measures in order to provide percentiles
+	 * @see Long
+	 * @see HistogramReducer
+	 * @since 1.1.0
+	 */
+	HISTOGRAM_LONG(new HistogramReducer<Long>(){
+				@Override
+				public Class getType() {
+					return Long.class;
+				}
+				@Override
+				public final Long identity() {
+					return 0l;
+				}
+				@Override
+				public final Optional<Long> accumulate(final Long _val1,final Long _val2) {
+					return LONG.get(Long.class).accumulate(_val1, _val2);
+				}
+				@Override
+				public final Optional<Long> max(final Long _val1,final  Long _val2) {
+					return LONG.get(Long.class).max(_val1, _val2);
+				}
+				@Override
+				public final Optional<Long> min(final Long _val1,final  Long _val2) {
+					return LONG.get(Long.class).min(_val1, _val2);
+				}
+				@Override
+				public final Optional<Long> average(final Long _val,final long _hits){
+					return LONG.get(Long.class).average(_val, _hits);
+				}
+				@Override
+				public final String toString(final Long _val) {
+					return LONG.get(Long.class).toString(_val);
+				}
+				@Override
+				public final long toLong(final Long _measure) {
+					return _measure;
+				}
+				@Override
+				public final Long fromLong(final long _value) {
+					return _value;
+				}
+				@Override
+				public String toString() {
+					return "MeasureReducers.HistogramLong";
+				}				
+			}),
 	;
 	
 	private final MeasureReducer reducer;
@@ -16,29 +16,51 @@
 package org.bytemechanics.metrics.crawler.internal;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Objects;
-import java.util.Queue;
-import java.util.stream.Collectors;
+import java.util.function.ToDoubleFunction;
+import org.bytemechanics.metrics.crawler.AbstractMetric;
+import org.bytemechanics.metrics.crawler.DoubleReducer;
+import org.bytemechanics.metrics.crawler.LongReducer;
 import org.bytemechanics.metrics.crawler.MeasureReducer;
 import org.bytemechanics.metrics.crawler.beans.MetricSnapshot;
-import org.bytemechanics.metrics.crawler.exceptions.IncorrectMeasureType;
 import org.bytemechanics.metrics.crawler.exceptions.IncorrectSamplingSize;
-import org.bytemechanics.metrics.crawler.internal.commons.collections.FastDropLastQueue;
 import org.bytemechanics.metrics.crawler.internal.commons.string.SimpleFormat;
 
 /**
- * Metric representation bean
+ * Metric representation bean, stores only the latest N samples<br>
+ * The window aggregates are maintained incrementally when measures are added and evicted so the snapshot is computed in constant time regardless of the sampling size.
+ * The samples are kept in a ring buffer split in two segments (the classic two-stacks sliding window aggregation):
+ * <ul>
+ *	<li>front: the oldest samples, each one with the aggregation of itself and all the newer samples of the segment</li>
+ *	<li>back: the newest samples, with a single running aggregation</li>
+ * </ul>
+ * When the front segment gets empty all the samples are moved to the front recomputing their aggregations, that only happens once every N evictions, so the cost per measure is constant (amortized).
+ * If the reducer is a {@link LongReducer} or a {@link DoubleReducer} the variance of the window is maintained with the same segments as {@link RunningVariance} aggregates merged when the snapshot is requested.
  * @param <TYPE> metric type
  * @author afarre
  * @since 1.0.0
  */
-public class Metric<TYPE> {
+public class Metric<TYPE> extends AbstractMetric<TYPE> {
 	
-	private final String name;
-	private final Queue<Measure<TYPE>> measures;
+	private final Measure<TYPE>[] measures;
+	private final TYPE[] frontAccumulated;
+	private final TYPE[] frontMax;
+	private final TYPE[] frontMin;
+	private final int[] frontLast;
+	private final double[] frontMean;
+	private final double[] frontDeviations;
+	private int head;
+	private int size;
+	private int frontSize;
+	private TYPE backAccumulated;
+	private TYPE backMax;
+	private TYPE backMin;
+	private int backLast;
 	private long hits;
-	private final MeasureReducer<TYPE> reducer;
+	private final ToDoubleFunction<TYPE> primitive;
+	private final RunningVariance backVariance;
+	private final RunningVariance variance;
 
 	
 	/**
@@ -48,141 +70,197 @@ public class Metric<TYPE> {
 	 * @param _reducer reducer for this metric
 	 * @throws NullPointerException if either _name or _reducer are null
 	 */
+	@SuppressWarnings("unchecked")
 	public Metric(final String _name,final int _samplingSize,final MeasureReducer<TYPE> _reducer) {
-		if(_name==null)
-			throw new NullPointerException("Name can not be null to create a Metric");
-		this.name = _name;
-		if(_reducer==null)
-			throw new NullPointerException(SimpleFormat.format("Metric {} reducer can not be null to create a Metric",_name));
-		this.reducer=_reducer;
+		super(_name,_reducer);
 		if(_samplingSize<=0)
 			throw new IncorrectSamplingSize(_name, _samplingSize);
-		this.measures = new FastDropLastQueue<>(_samplingSize);
+		this.measures = new Measure[_samplingSize];
+		this.frontAccumulated = (TYPE[])new Object[_samplingSize];
+		this.frontMax = (TYPE[])new Object[_samplingSize];
+		this.frontMin = (TYPE[])new Object[_samplingSize];
+		this.frontLast = new int[_samplingSize];
+		this.head = 0;
+		this.size = 0;
+		this.frontSize = 0;
+		this.backLast = -1;
 		this.hits = 0l;
+		if(_reducer instanceof LongReducer){
+			this.primitive = ((LongReducer<TYPE>)_reducer)::toLong;
+		}else if(_reducer instanceof DoubleReducer){
+			this.primitive = ((DoubleReducer<TYPE>)_reducer)::toDouble;
+		}else{
+			this.primitive = null;
+		}
+		this.frontMean = (this.primitive!=null)? new double[_samplingSize] : null;
+		this.frontDeviations = (this.primitive!=null)? new double[_samplingSize] : null;
+		this.backVariance = new RunningVariance();
+		this.variance = new RunningVariance();
 	}
 
 	/**
-	 * Retrieves metric name
-	 * @return metric name
-	 */
-	public String getName() {
-		return name;
-	}
-	/**
-	 * Retrieves the current list of measures. Note this metrics not necessary should come ordered
+	 * Retrieves the current list of measures from the oldest to the newest
 	 * @return measure metric list
 	 */
-	public List<Measure<TYPE>> getMeasures() {
-		return measures.stream().collect(Collectors.toList());
+	public synchronized List<Measure<TYPE>> getMeasures() {
+		final List<Measure<TYPE>> reply=new ArrayList<>(this.size);
+		for(int ic1=0;ic1<this.size;ic1++){
+			reply.add(this.measures[slot(ic1)]);
+		}
+		return reply;
 	}
-	/**
-	 * Retrieves the current number of measures registered since it's creation
-	 * @return the current number of measures registered since it's creation
-	 */
-	public long getHits() {
+	/** @see AbstractMetric#getHits() */
+	@Override
+	public synchronized long getHits() {
 		return hits;
 	}
-	/**
-	 * Retrieves the metric reducer
-	 * @return the metric reducer
-	 */
-	public MeasureReducer<TYPE> getReducer() {
-		return reducer;
-	}
 
 	
-	/**
-	 * Register a new measure for this metric
-	 * @param _timestamp timestamp for this measure (mandatory)
-	 * @param _measure measure to register (mandatory)
-	 * @throws NullPointerException if any of _time or_measure are null
-	 * @throws IncorrectMeasureType if the _measure type is not assignable to the type of the reducer of this metric
-	 */
-	@SuppressWarnings("unchecked")
+	/** @see AbstractMetric#addMeasure(java.time.LocalDateTime, java.lang.Object) */
+	@Override
 	public void addMeasure(final LocalDateTime _timestamp,final TYPE _measure){
-		if(_timestamp==null)
-			throw new NullPointerException(SimpleFormat.format("Can not register null _timestamp measure at metric {}",this.name));
-		if(_measure==null)
-			throw new NullPointerException(SimpleFormat.format("Can not register null _measure at metric {}",this.name));
-		if(!this.reducer.getType().isAssignableFrom(_measure.getClass()))
-			throw new IncorrectMeasureType(this.name, this.reducer.getType(), _measure.getClass());
-		this.hits++;
-		this.measures.offer(new Measure<>(_timestamp, _measure,this.reducer));
+		validateMeasure(_timestamp, _measure);
+		final Measure<TYPE> measure=new Measure<>(_timestamp, _measure,getReducer());
+		synchronized(this){
+			this.hits++;
+			if(this.size==this.measures.length){
+				evict();
+			}
+			final int slot=slot(this.size);
+			this.measures[slot]=measure;
+			this.size++;
+			if(this.primitive!=null){
+				this.backVariance.record(this.primitive.applyAsDouble(_measure));
+			}
+			if(this.backLast<0){
+				this.backAccumulated=_measure;
+				this.backMax=_measure;
+				this.backMin=_measure;
+				this.backLast=slot;
+			}else{
+				this.backAccumulated=accumulate(this.backAccumulated,_measure);
+				this.backMax=max(this.backMax,_measure);
+				this.backMin=min(this.backMin,_measure);
+				this.backLast=last(this.backLast,slot);
+			}
+		}
 	}
 	
-	/**
-	 * Retrieve a snapshot of the current metric status
-	 * @return MetricSnapshot of the same TYPE
-	 * @see MetricSnapshot
-	 */
-	public MetricSnapshot<TYPE> toSnapshot(){
-		return this.measures.stream()
-						.limit(this.measures.size())
-						.filter(Metric::notNull)
-						.map(Measure::toMetricSnapshot)
-						.reduce(MetricSnapshot::reduce)
-							.map(this::completeSnapshot)
-							.orElseGet(this::defaultSnapshot);
-	}
-	/**
-	 * Retrieve a new snapshot cloned from the given snapshot with the current hits as total hits
-	 * @param _metricSnapshot metric snapshot to clone
-	 * @return MetricSnapshot of the same TYPE cloned from the given snapshot with the current hits as total hits
-	 * @see MetricSnapshot
-	 */
+	/** @see AbstractMetric#toSnapshot() */
+	@Override
 	@SuppressWarnings("unchecked")
-	protected MetricSnapshot<TYPE> completeSnapshot(final MetricSnapshot _metricSnapshot){
-		return MetricSnapshot.<TYPE>builder(this.reducer,_metricSnapshot)
-									.name(this.name)
+	public synchronized MetricSnapshot<TYPE> toSnapshot(){
+		
+		if(this.size==0)
+			return defaultSnapshot();
+		
+		final TYPE accumulated;
+		final TYPE max;
+		final TYPE min;
+		final int last;
+		if(this.frontSize==0){
+			accumulated=this.backAccumulated;
+			max=this.backMax;
+			min=this.backMin;
+			last=this.backLast;
+		}else if(this.backLast<0){
+			accumulated=this.frontAccumulated[this.head];
+			max=this.frontMax[this.head];
+			min=this.frontMin[this.head];
+			last=this.frontLast[this.head];
+		}else{
+			accumulated=accumulate(this.frontAccumulated[this.head],this.backAccumulated);
+			max=max(this.frontMax[this.head],this.backMax);
+			min=min(this.frontMin[this.head],this.backMin);
+			last=last(this.frontLast[this.head],this.backLast);
+		}
+		final Measure<TYPE> lastMeasure=this.measures[last];
+		return MetricSnapshot.<TYPE>builder(getReducer())
+									.name(getName())
+									.samplingSize(this.size)
 									.totalHits(this.hits)
+									.accumulatedSamples(accumulated)
+									.maxMeasure(max)
+									.minMeasure(min)
+									.averageMeasure(getReducer().average(accumulated,this.size)
+																.orElseGet(getReducer()::identity))
+									.lastMeasure(lastMeasure.getValue())
+									.lastOccurrence(lastMeasure.getTimestamp())
+									.variance((this.primitive!=null)? windowVariance().copy() : null)
 								.build();
 	}
-	/**
-	 * Retrieve the default empty snapshot for this metric (without any measure)
-	 * @return MetricSnapshot of the same TYPE
-	 * @see MetricSnapshot
-	 */
-	@SuppressWarnings("unchecked")
-	protected MetricSnapshot<TYPE> defaultSnapshot(){
-		return MetricSnapshot.<TYPE>builder(this.reducer)
-									.name(this.name)
-								.build();
-	}
-	private static boolean notNull(final Measure _measure){
-		return _measure!=null;
-	}
-	
-	/** @see Object#hashCode() */
-	@Override
-	public int hashCode() {
-		int hash = 7;
-		hash = 67 * hash + Objects.hashCode(this.name);
-		hash = 67 * hash + Objects.hashCode(this.reducer);
-		return hash;
-	}
 
-	/** @see Object#equals(java.lang.Object)  */
-	@Override
-	public boolean equals(Object obj) {
-		if (this == obj) {
-			return true;
-		}
-		if (obj == null) {
-			return false;
+	private int slot(final int _position){
+		final int reply=this.head+_position;
+		return (reply<this.measures.length)? reply : reply-this.measures.length;
+	}
+	private void evict(){
+		if(this.frontSize==0){
+			flip();
 		}
-		if (getClass() != obj.getClass()) {
-			return false;
+		this.measures[this.head]=null;
+		this.frontAccumulated[this.head]=null;
+		this.frontMax[this.head]=null;
+		this.frontMin[this.head]=null;
+		this.head=slot(1);
+		this.size--;
+		this.frontSize--;
+	}
+	@SuppressWarnings("unchecked")
+	private void flip(){
+		int next=-1;
+		this.backVariance.reset();
+		for(int ic1=this.size-1;ic1>=0;ic1--){
+			final int slot=slot(ic1);
+			final TYPE value=(TYPE)this.measures[slot].getValue();
+			if(this.primitive!=null){
+				this.backVariance.record(this.primitive.applyAsDouble(value));
+				this.frontMean[slot]=this.backVariance.getMean();
+				this.frontDeviations[slot]=this.backVariance.getSquaredDeviations();
+			}
+			if(next<0){
+				this.frontAccumulated[slot]=value;
+				this.frontMax[slot]=value;
+				this.frontMin[slot]=value;
+				this.frontLast[slot]=slot;
+			}else{
+				this.frontAccumulated[slot]=accumulate(value,this.frontAccumulated[next]);
+				this.frontMax[slot]=max(value,this.frontMax[next]);
+				this.frontMin[slot]=min(value,this.frontMin[next]);
+				this.frontLast[slot]=last(slot,this.frontLast[next]);
+			}
+			next=slot;
 		}
-		final Metric<?> other = (Metric<?>) obj;
-		if (!Objects.equals(this.name, other.name)) {
-			return false;
+		this.frontSize=this.size;
+		this.backAccumulated=null;
+		this.backMax=null;
+		this.backMin=null;
+		this.backLast=-1;
+		this.backVariance.reset();
+	}
+	private RunningVariance windowVariance(){
+		this.variance.reset().merge(this.backVariance);
+		if(this.frontSize>0){
+			this.variance.merge(this.frontSize,this.frontMean[this.head],this.frontDeviations[this.head]);
 		}
-		return Objects.equals(this.reducer, other.reducer);
+		return this.variance;
+	}
+	private TYPE accumulate(final TYPE _older,final TYPE _newer){
+		return getReducer().accumulate(_older,_newer).orElseGet(getReducer()::identity);
+	}
+	private TYPE max(final TYPE _older,final TYPE _newer){
+		return getReducer().max(_older,_newer).orElseGet(getReducer()::identity);
+	}
+	private TYPE min(final TYPE _older,final TYPE _newer){
+		return getReducer().min(_older,_newer).orElseGet(getReducer()::identity);
+	}
+	private int last(final int _olderSlot,final int _newerSlot){
+		return (this.measures[_olderSlot].getTimestamp().isAfter(this.measures[_newerSlot].getTimestamp()))? _olderSlot : _newerSlot;
 	}
 	
 	/** @see Object#toString()   */
 	@Override
 	public String toString() {
-		return SimpleFormat.format("Metric[name={}, hits={}, measures={}, reducer={}]", this.name, this.hits, this.measures, this.reducer);
+		return SimpleFormat.format("Metric[name={}, hits={}, measures={}, reducer={}]", getName(), getHits(), getMeasures(), getReducer());
 	}
 }
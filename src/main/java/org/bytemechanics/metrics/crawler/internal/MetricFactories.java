@@ -0,0 +1,216 @@
+/*
+ * Copyright 2020 Byte Mechanics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bytemechanics.metrics.crawler.internal;
+
+import java.time.Duration;
+import org.bytemechanics.metrics.crawler.AbstractMetric;
+import org.bytemechanics.metrics.crawler.DoubleReducer;
+import org.bytemechanics.metrics.crawler.HistogramReducer;
+import org.bytemechanics.metrics.crawler.LongReducer;
+import org.bytemechanics.metrics.crawler.MeasureReducer;
+import org.bytemechanics.metrics.crawler.MetricFactory;
+import org.bytemechanics.metrics.crawler.internal.commons.string.SimpleFormat;
+
+/**
+ * An enumeration of the available included metric factories
+ * @author afarre
+ * @since 1.1.0
+ */
+public enum MetricFactories implements MetricFactory{
+
+	/**
+	 * Sampled metric factory, stores only the latest N samples. The metrics with the reducers provided by {@link MeasureReducers} and with any {@link HistogramReducer} store its samples in primitive arrays
+	 * @see Metric
+	 * @see HistogramMetric
+	 * @see LongMetric
+	 * @see DoubleMetric
+	 * @see DurationMetric
+	 */
+	SAMPLED{
+		@Override
+		@SuppressWarnings("unchecked")
+		public <TYPE> AbstractMetric<TYPE> create(final String _name,final int _samplingSize,final MeasureReducer<TYPE> _reducer) {
+			if(_reducer instanceof HistogramReducer)
+				return new HistogramMetric<>(_name,_samplingSize,(HistogramReducer<TYPE>)_reducer);
+			if(_reducer==MeasureReducers.LONG.get(Long.class))
+				return (AbstractMetric<TYPE>)new LongMetric(_name,_samplingSize,(MeasureReducer<Long>)_reducer);
+			if(_reducer==MeasureReducers.DURATION.get(Duration.class))
+				return (AbstractMetric<TYPE>)new DurationMetric(_name,_samplingSize,(MeasureReducer<Duration>)_reducer);
+			if(_reducer==MeasureReducers.DOUBLE.get(Double.class))
+				return (AbstractMetric<TYPE>)new DoubleMetric(_name,_samplingSize,(MeasureReducer<Double>)_reducer);
+			return new Metric<>(_name,_samplingSize,_reducer);
+		}
+	},
+	/**
+	 * Concurrent metric factory, lock-free metrics without samples (metrics with {@link HistogramReducer} keep the histogram of all the measures since its creation)
+	 * @see ConcurrentMetric
+	 */
+	CONCURRENT{
+		@Override
+		public <TYPE> AbstractMetric<TYPE> create(final String _name,final int _samplingSize,final MeasureReducer<TYPE> _reducer) {
+			return new ConcurrentMetric<>(_name,_reducer);
+		}
+	},
+	/**
+	 * Quantile sketch metric factory, concurrent metrics that also keep a relative error quantile sketch (1% accuracy) of all the measures since its creation to provide any quantile. The metrics whose reducer is not a {@link LongReducer} nor a {@link DoubleReducer} are created as CONCURRENT
+	 * @see SketchMetric
+	 * @see #sketch(double, int)
+	 */
+	SKETCH{
+		@Override
+		public <TYPE> AbstractMetric<TYPE> create(final String _name,final int _samplingSize,final MeasureReducer<TYPE> _reducer) {
+			if(SketchMetric.isSketchable(_reducer))
+				return new SketchMetric<>(_name,_reducer);
+			return new ConcurrentMetric<>(_name,_reducer);
+		}
+	},
+	/**
+	 * Counter metric factory, monotonic counters that keep only its total in striped cells without samples. The metrics whose reducer is not the {@link MeasureReducers#LONG} reducer are created as CONCURRENT
+	 * @see CounterMetric
+	 * @see org.bytemechanics.metrics.crawler.MetricsService#add(java.lang.String, long)
+	 */
+	COUNTER{
+		@Override
+		public <TYPE> AbstractMetric<TYPE> create(final String _name,final int _samplingSize,final MeasureReducer<TYPE> _reducer) {
+			if(_reducer==MeasureReducers.LONG.get(Long.class))
+				return new CounterMetric<>(_name,_reducer);
+			return new ConcurrentMetric<>(_name,_reducer);
+		}
+	},
+	/**
+	 * Time windowed metric factory, the statistics are computed over the last 60 seconds in buckets of 1 second (the sampling size is ignored). As the windowed metrics can not provide percentiles, the metrics with {@link HistogramReducer} are created as SAMPLED
+	 * @see WindowedMetric
+	 * @see #windowed(java.time.Duration, int)
+	 */
+	WINDOWED{
+		@Override
+		public <TYPE> AbstractMetric<TYPE> create(final String _name,final int _samplingSize,final MeasureReducer<TYPE> _reducer) {
+			if(_reducer instanceof HistogramReducer)
+				return SAMPLED.create(_name,_samplingSize,_reducer);
+			return new WindowedMetric<>(_name,WindowedMetric.DEFAULT_WINDOW,WindowedMetric.DEFAULT_BUCKETS,_reducer);
+		}
+	},
+	/**
+	 * Decaying metric factory, keeps a forward decaying reservoir of N samples with a half-life of 1 minute
+	 * @see DecayingMetric
+	 * @see #decaying(java.time.Duration)
+	 */
+	DECAYING{
+		@Override
+		public <TYPE> AbstractMetric<TYPE> create(final String _name,final int _samplingSize,final MeasureReducer<TYPE> _reducer) {
+			return new DecayingMetric<>(_name,_samplingSize,DecayingMetric.DEFAULT_HALF_LIFE,_reducer);
+		}
+	},
+	;
+
+	/**
+	 * Builds a time windowed metric factory with the given window, the sampling size is ignored and the metrics with {@link HistogramReducer} are created as SAMPLED<br>
+	 * Example: windowed(Duration.ofMinutes(5),60) computes the statistics over the last 5 minutes in buckets of 5 seconds
+	 * @param _window window duration (mandatory)
+	 * @param _buckets number of buckets in which the window is split
+	 * @return metric factory of time windowed metrics
+	 * @throws NullPointerException if _window is null
+	 * @see WindowedMetric
+	 */
+	public static MetricFactory windowed(final Duration _window,final int _buckets){
+		if(_window==null)
+			throw new NullPointerException("Window can not be null to create a windowed metric factory");
+		return new MetricFactory(){
+			@Override
+			public <TYPE> AbstractMetric<TYPE> create(final String _name,final int _samplingSize,final MeasureReducer<TYPE> _reducer) {
+				if(_reducer instanceof HistogramReducer)
+					return SAMPLED.create(_name,_samplingSize,_reducer);
+				return new WindowedMetric<>(_name,_window,_buckets,_reducer);
+			}
+			@Override
+			public String toString() {
+				return SimpleFormat.format("MetricFactories.windowed[window={}, buckets={}]",_window,_buckets);
+			}
+		};
+	}
+	/**
+	 * Builds a quantile sketch metric factory with the given accuracy, the sampling size is ignored and the metrics whose reducer is not a {@link LongReducer} nor a {@link DoubleReducer} are created as CONCURRENT<br>
+	 * Example: sketch(0.005d,1024) returns the quantiles with an error lower than 0.5% keeping at most 1024 buckets per sign and stripe
+	 * @param _relativeAccuracy relative accuracy of the quantiles, between 0 and 1 (exclusive)
+	 * @param _maxBuckets maximum number of buckets per sign of each stripe
+	 * @return metric factory of quantile sketch metrics
+	 * @throws IllegalArgumentException if _relativeAccuracy is not between 0 and 1 or _maxBuckets is zero or negative
+	 * @see SketchMetric
+	 * @see QuantileSketch
+	 */
+	public static MetricFactory sketch(final double _relativeAccuracy,final int _maxBuckets){
+		if(!((_relativeAccuracy>0.0d)&&(_relativeAccuracy<1.0d)))
+			throw new IllegalArgumentException(SimpleFormat.format("Relative accuracy {} must be between 0 and 1 to create a sketch metric factory",_relativeAccuracy));
+		if(_maxBuckets<=0)
+			throw new IllegalArgumentException(SimpleFormat.format("Maximum buckets {} must be positive to create a sketch metric factory",_maxBuckets));
+		return new MetricFactory(){
+			@Override
+			public <TYPE> AbstractMetric<TYPE> create(final String _name,final int _samplingSize,final MeasureReducer<TYPE> _reducer) {
+				if(SketchMetric.isSketchable(_reducer))
+					return new SketchMetric<>(_name,_relativeAccuracy,_maxBuckets,_reducer);
+				return new ConcurrentMetric<>(_name,_reducer);
+			}
+			@Override
+			public String toString() {
+				return SimpleFormat.format("MetricFactories.sketch[relativeAccuracy={}, maxBuckets={}]",_relativeAccuracy,_maxBuckets);
+			}
+		};
+	}
+	/**
+	 * Builds a gauge metric factory that records the sampled values into the metrics created by the given _window factory<br>
+	 * Example: gauge(MetricFactories.SAMPLED) keeps the latest sampled values of each gauge
+	 * @param _window factory of the metrics where the gauges record its values (mandatory)
+	 * @return metric factory of gauge metrics without supplier
+	 * @throws NullPointerException if _window is null
+	 * @see GaugeMetric
+	 */
+	public static MetricFactory gauge(final MetricFactory _window){
+		if(_window==null)
+			throw new NullPointerException("Window factory can not be null to create a gauge metric factory");
+		return new MetricFactory(){
+			@Override
+			public <TYPE> AbstractMetric<TYPE> create(final String _name,final int _samplingSize,final MeasureReducer<TYPE> _reducer) {
+				return new GaugeMetric<>(_window.create(_name,_samplingSize,_reducer));
+			}
+			@Override
+			public String toString() {
+				return SimpleFormat.format("MetricFactories.gauge[window={}]",_window);
+			}
+		};
+	}
+	/**
+	 * Builds a decaying metric factory with the given half-life<br>
+	 * Example: decaying(Duration.ofMinutes(5)) keeps a reservoir where the probability of a measure to remain halves every 5 minutes
+	 * @param _halfLife measures half-life (mandatory)
+	 * @return metric factory of decaying metrics
+	 * @throws NullPointerException if _halfLife is null
+	 * @see DecayingMetric
+	 */
+	public static MetricFactory decaying(final Duration _halfLife){
+		if(_halfLife==null)
+			throw new NullPointerException("Half-life can not be null to create a decaying metric factory");
+		return new MetricFactory(){
+			@Override
+			public <TYPE> AbstractMetric<TYPE> create(final String _name,final int _samplingSize,final MeasureReducer<TYPE> _reducer) {
+				return new DecayingMetric<>(_name,_samplingSize,_halfLife,_reducer);
+			}
+			@Override
+			public String toString() {
+				return SimpleFormat.format("MetricFactories.decaying[halfLife={}]",_halfLife);
+			}
+		};
+	}
+}
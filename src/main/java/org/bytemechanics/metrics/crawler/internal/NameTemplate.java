@@ -0,0 +1,234 @@
+/*
+ * Copyright 2020 Byte Mechanics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bytemechanics.metrics.crawler.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.bytemechanics.metrics.crawler.internal.commons.string.SimpleFormat;
+
+/**
+ * Compiled metric name template, the pattern is split once in the literals between the "{}" placeholders and replaced with the same result as {@link SimpleFormat#format(java.lang.String, java.lang.Object...)}<br>
+ * The compiled templates are cached by pattern (up to {@value #MAX_TEMPLATES} patterns, evicting the least recently used one) and each template keeps the last names built in a direct mapped cache of {@value #MAX_NAMES} entries indexed by the placeholders hash, so the frequent placeholder values return the previously built name without allocating a new String.
+ * Only the names built with immutable placeholders (String, primitive wrappers, enums or null) are cached, as the others could change its representation between calls.<br>
+ * The patterns without placeholders are literal names, are returned as they are and never cached, so they do not take the place of the real templates.<br>
+ * Note: both caches are size capped, so high cardinality placeholders only replace the cached entries and high cardinality patterns only replace the least recently used templates
+ * @see SimpleFormat
+ * @author afarre
+ * @since 1.1.0
+ */
+public final class NameTemplate {
+
+	/** Max number of cached templates */
+	public static final int MAX_TEMPLATES=1024;
+	/** Number of cached names per template */
+	public static final int MAX_NAMES=64;
+
+	private static final String PLACEHOLDER="{}";
+	private static final Map<String,NameTemplate> TEMPLATES=new ConcurrentHashMap<>(64);
+	private static final AtomicLong CLOCK=new AtomicLong();
+
+	private final String pattern;
+	private final String[] literals;
+	private final int placeholders;
+	private final Entry[] names;
+	private volatile long used;
+
+
+	private NameTemplate(final String _pattern){
+		final List<String> segments=new ArrayList<>();
+		int start=0;
+		int end;
+		while((end=_pattern.indexOf(PLACEHOLDER,start))>=0){
+			segments.add(_pattern.substring(start,end));
+			start=end+PLACEHOLDER.length();
+		}
+		segments.add(_pattern.substring(start));
+		this.pattern=_pattern;
+		this.literals=segments.toArray(new String[segments.size()]);
+		this.placeholders=this.literals.length-1;
+		this.names=(this.placeholders>0)? new Entry[MAX_NAMES] : null;
+	}
+
+	/**
+	 * Retrieve the compiled template of the given pattern, compiling it only if is not cached. The patterns without placeholders are compiled but never cached
+	 * @param _pattern pattern with "{}" placeholders (mandatory)
+	 * @return compiled template
+	 * @throws NullPointerException if _pattern is null
+	 */
+	public static NameTemplate compile(final String _pattern){
+		if(_pattern==null)
+			throw new NullPointerException("Can not compile null name template");
+		if(!_pattern.contains(PLACEHOLDER))
+			return new NameTemplate(_pattern);
+		NameTemplate reply=TEMPLATES.get(_pattern);
+		if(reply==null){
+			reply=new NameTemplate(_pattern);
+			reply.used=CLOCK.incrementAndGet();
+			if(TEMPLATES.size()>=MAX_TEMPLATES){
+				evictLeastRecentlyUsed();
+			}
+			final NameTemplate existent=TEMPLATES.putIfAbsent(_pattern,reply);
+			if(existent!=null){
+				reply=existent;
+				reply.touch();
+			}
+		}else{
+			reply.touch();
+		}
+		return reply;
+	}
+	private void touch(){
+		final long now=CLOCK.get();
+		if(this.used!=now){
+			this.used=now;
+		}
+	}
+	private static void evictLeastRecentlyUsed(){
+		NameTemplate oldest=null;
+		for(NameTemplate template:TEMPLATES.values()){
+			if((oldest==null)||(template.used<oldest.used)){
+				oldest=template;
+			}
+		}
+		if(oldest!=null){
+			TEMPLATES.remove(oldest.pattern,oldest);
+		}
+	}
+	/**
+	 * Replace the "{}" placeholders of the given pattern with the given values using the compiled template
+	 * @param _pattern pattern with "{}" placeholders (mandatory)
+	 * @param _args values to replace in order, the placeholders without value are replaced by "null"
+	 * @return the pattern with the placeholders replaced, or the pattern itself if has no placeholders
+	 * @throws NullPointerException if _pattern is null
+	 */
+	public static String format(final String _pattern,final Object... _args){
+		if(_pattern==null)
+			throw new NullPointerException("Can not compile null name template");
+		if(!_pattern.contains(PLACEHOLDER))
+			return _pattern;
+		return compile(_pattern).apply(_args);
+	}
+
+	/**
+	 * Retrieve the pattern of this template
+	 * @return template pattern
+	 */
+	public String getPattern() {
+		return pattern;
+	}
+	/**
+	 * Retrieve the number of placeholders of this template
+	 * @return number of placeholders
+	 */
+	public int getPlaceholders() {
+		return placeholders;
+	}
+
+	/**
+	 * Replace the placeholders of this template with the given values
+	 * @param _args values to replace in order, the placeholders without value are replaced by "null"
+	 * @return the pattern with the placeholders replaced
+	 */
+	public String apply(final Object... _args){
+
+		if(this.placeholders==0)
+			return this.pattern;
+
+		boolean cacheable=true;
+		int hash=1;
+		for(int ic1=0;(ic1<this.placeholders)&&(cacheable);ic1++){
+			final Object arg=arg(_args,ic1);
+			cacheable=immutable(arg);
+			hash=31*hash+Objects.hashCode(arg);
+		}
+		final int slot=(hash^(hash>>>16))&(MAX_NAMES-1);
+		if(cacheable){
+			final Entry entry=this.names[slot];
+			if((entry!=null)&&(entry.matches(hash,_args))){
+				return entry.name;
+			}
+		}
+		final String reply=build(_args);
+		if(cacheable){
+			this.names[slot]=new Entry(hash,copy(_args),reply);
+		}
+		return reply;
+	}
+	private String build(final Object[] _args){
+		final StringBuilder builder=new StringBuilder(this.pattern.length()+16*this.placeholders);
+		builder.append(this.literals[0]);
+		for(int ic1=0;ic1<this.placeholders;ic1++){
+			builder.append(String.valueOf(arg(_args,ic1)))
+					.append(this.literals[ic1+1]);
+		}
+		return builder.toString();
+	}
+	private Object[] copy(final Object[] _args){
+		final Object[] reply=new Object[this.placeholders];
+		for(int ic1=0;ic1<this.placeholders;ic1++){
+			reply[ic1]=arg(_args,ic1);
+		}
+		return reply;
+	}
+	private static Object arg(final Object[] _args,final int _position){
+		return ((_args!=null)&&(_position<_args.length))? _args[_position] : null;
+	}
+	private static boolean immutable(final Object _arg){
+		if(_arg==null)
+			return true;
+		final Class<?> type=_arg.getClass();
+		return (type==String.class)||(type==Integer.class)||(type==Long.class)||(type==Short.class)||(type==Byte.class)
+				||(type==Character.class)||(type==Boolean.class)||(type==Double.class)||(type==Float.class)||(_arg instanceof Enum);
+	}
+
+	/** @see Object#toString()   */
+	@Override
+	public String toString() {
+		return SimpleFormat.format("NameTemplate[pattern={}, placeholders={}]", this.pattern, this.placeholders);
+	}
+
+
+	/**
+	 * Cached name with the placeholders used to build it
+	 */
+	private static final class Entry{
+
+		final int hash;
+		final Object[] args;
+		final String name;
+
+		Entry(final int _hash,final Object[] _args,final String _name){
+			this.hash=_hash;
+			this.args=_args;
+			this.name=_name;
+		}
+
+		boolean matches(final int _hash,final Object[] _args){
+			if(this.hash!=_hash)
+				return false;
+			for(int ic1=0;ic1<this.args.length;ic1++){
+				final Object arg=arg(_args,ic1);
+				if((arg!=this.args[ic1])&&((arg==null)||(!arg.equals(this.args[ic1]))||(arg.getClass()!=this.args[ic1].getClass())))
+					return false;
+			}
+			return true;
+		}
+	}
+}
@@ -0,0 +1,430 @@
+/*
+ * Copyright 2020 Byte Mechanics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bytemechanics.metrics.crawler.internal;
+
+import java.util.Arrays;
+import org.bytemechanics.metrics.crawler.internal.commons.string.SimpleFormat;
+
+/**
+ * Relative error quantile sketch (DDSketch) over primitive double values.<br>
+ * Each value is counted in the logarithmic bucket ceil(log<sub>&gamma;</sub>(|value|)) with &gamma;=(1+&alpha;)/(1-&alpha;), so any quantile is returned with a relative error lower than the relative accuracy &alpha; whatever the range of the values.
+ * The positive and negative values are counted in separate dense primitive stores that grow on demand until the maximum number of buckets, once reached the lowest buckets are collapsed (losing accuracy only for the smallest absolute values), so the memory is bounded and recording a value is O(1) amortized without allocations.
+ * Two sketches with the same relative accuracy can be merged adding its bucket counts, so the sketches of stripes, threads or nodes can be combined without the original values.<br>
+ * Note: this class is not thread safe, the owner must synchronize the access
+ * @see <a href="https://arxiv.org/abs/1908.10693">DDSketch: A Fast and Fully-Mergeable Quantile Sketch with Relative-Error Guarantees</a>
+ * @author afarre
+ * @since 1.1.0
+ */
+public final class QuantileSketch {
+
+	/** Default relative accuracy (1%) */
+	public static final double DEFAULT_RELATIVE_ACCURACY=0.01d;
+	/** Default maximum number of buckets per sign, with the default accuracy covers more than 17 orders of magnitude */
+	public static final int DEFAULT_MAX_BUCKETS=2048;
+
+	private final double relativeAccuracy;
+	private final int maxBuckets;
+	private final double gamma;
+	private final double multiplier;
+	private final Store positives;
+	private final Store negatives;
+	private long zeros;
+	private long count;
+	private double min;
+	private double max;
+
+
+	/**
+	 * Empty sketch constructor with the default relative accuracy and maximum buckets
+	 */
+	public QuantileSketch(){
+		this(DEFAULT_RELATIVE_ACCURACY,DEFAULT_MAX_BUCKETS);
+	}
+	/**
+	 * Empty sketch constructor
+	 * @param _relativeAccuracy relative accuracy of the quantiles, between 0 and 1 (exclusive)
+	 * @param _maxBuckets maximum number of buckets per sign
+	 * @throws IllegalArgumentException if _relativeAccuracy is not between 0 and 1 or _maxBuckets is zero or negative
+	 */
+	public QuantileSketch(final double _relativeAccuracy,final int _maxBuckets){
+		if(!((_relativeAccuracy>0.0d)&&(_relativeAccuracy<1.0d)))
+			throw new IllegalArgumentException(SimpleFormat.format("Relative accuracy {} must be between 0 and 1",_relativeAccuracy));
+		if(_maxBuckets<=0)
+			throw new IllegalArgumentException(SimpleFormat.format("Maximum buckets {} must be positive",_maxBuckets));
+		this.relativeAccuracy=_relativeAccuracy;
+		this.maxBuckets=_maxBuckets;
+		this.gamma=(1.0d+_relativeAccuracy)/(1.0d-_relativeAccuracy);
+		this.multiplier=1.0d/Math.log(this.gamma);
+		this.positives=new Store(_maxBuckets);
+		this.negatives=new Store(_maxBuckets);
+		this.zeros=0l;
+		this.count=0l;
+		this.min=Double.POSITIVE_INFINITY;
+		this.max=Double.NEGATIVE_INFINITY;
+	}
+
+	/**
+	 * Retrieve the bucket index of the given absolute value
+	 * @param _value positive value
+	 * @return bucket index
+	 */
+	int bucket(final double _value){
+		return (int)Math.ceil(Math.log(_value)*this.multiplier);
+	}
+	/**
+	 * Retrieve the representative value of the given bucket, the one with the same relative distance to both bucket limits
+	 * @param _bucket bucket index
+	 * @return representative positive value of the bucket
+	 */
+	double value(final int _bucket){
+		return 2.0d*Math.pow(this.gamma,_bucket)/(this.gamma+1.0d);
+	}
+
+	/**
+	 * Register a value
+	 * @param _value value to register (NaN values are ignored)
+	 * @return this sketch
+	 */
+	public QuantileSketch record(final double _value){
+		if(_value>=Double.MIN_NORMAL){
+			this.positives.add(bucket(_value),1l);
+		}else if(_value<=-Double.MIN_NORMAL){
+			this.negatives.add(bucket(-_value),1l);
+		}else if(_value==_value){
+			this.zeros++;
+		}else{
+			return this;
+		}
+		this.count++;
+		this.min=Math.min(this.min,_value);
+		this.max=Math.max(this.max,_value);
+		return this;
+	}
+	/**
+	 * Adds all the values registered at the given sketch to this one
+	 * @param _sketch sketch to merge (with the same relative accuracy)
+	 * @return this sketch
+	 * @throws IllegalArgumentException if the relative accuracy of the sketches is different
+	 */
+	public QuantileSketch merge(final QuantileSketch _sketch){
+		if(!isMergeable(_sketch))
+			throw new IllegalArgumentException(SimpleFormat.format("Can not merge sketch with relative accuracy {} into sketch with relative accuracy {}",_sketch.relativeAccuracy,this.relativeAccuracy));
+		if(_sketch.count>0){
+			this.positives.merge(_sketch.positives);
+			this.negatives.merge(_sketch.negatives);
+			this.zeros+=_sketch.zeros;
+			this.count+=_sketch.count;
+			this.min=Math.min(this.min,_sketch.min);
+			this.max=Math.max(this.max,_sketch.max);
+		}
+		return this;
+	}
+	/**
+	 * Check if the given sketch can be merged into this one
+	 * @param _sketch sketch to check
+	 * @return true if both sketches have the same relative accuracy
+	 */
+	public boolean isMergeable(final QuantileSketch _sketch){
+		return Double.doubleToLongBits(this.relativeAccuracy)==Double.doubleToLongBits(_sketch.relativeAccuracy);
+	}
+	/**
+	 * Removes all the registered values, the buckets already allocated are kept
+	 * @return this sketch
+	 */
+	public QuantileSketch reset(){
+		this.positives.reset();
+		this.negatives.reset();
+		this.zeros=0l;
+		this.count=0l;
+		this.min=Double.POSITIVE_INFINITY;
+		this.max=Double.NEGATIVE_INFINITY;
+		return this;
+	}
+	/**
+	 * Copy this sketch
+	 * @return independent copy of this sketch
+	 */
+	public QuantileSketch copy(){
+		return new QuantileSketch(this.relativeAccuracy,this.maxBuckets).merge(this);
+	}
+
+	/**
+	 * Retrieve the relative accuracy of the quantiles
+	 * @return relative accuracy
+	 */
+	public double getRelativeAccuracy(){
+		return this.relativeAccuracy;
+	}
+	/**
+	 * Retrieve the maximum number of buckets per sign
+	 * @return maximum number of buckets
+	 */
+	public int getMaxBuckets(){
+		return this.maxBuckets;
+	}
+	/**
+	 * Retrieve the number of registered values
+	 * @return number of registered values
+	 */
+	public long getCount(){
+		return this.count;
+	}
+	/**
+	 * Retrieve the number of non empty buckets
+	 * @return number of non empty buckets
+	 */
+	public int getBuckets(){
+		return this.positives.buckets()+this.negatives.buckets()+((this.zeros>0)? 1 : 0);
+	}
+	/**
+	 * Retrieve the value at the given quantile
+	 * @param _quantile quantile between 0 and 1
+	 * @return value at the quantile (with a relative error lower than the relative accuracy, the quantiles 0 and 1 return the exact minimum and maximum) or 0 if there are no values
+	 * @throws IllegalArgumentException if _quantile is not between 0 and 1
+	 */
+	public double quantile(final double _quantile){
+		if(!((_quantile>=0.0d)&&(_quantile<=1.0d)))
+			throw new IllegalArgumentException(SimpleFormat.format("Quantile {} must be between 0 and 1",_quantile));
+		if(this.count<=0)
+			return 0.0d;
+		if(_quantile==0.0d)
+			return this.min;
+		if(_quantile==1.0d)
+			return this.max;
+		final double rank=_quantile*(this.count-1);
+		final double reply;
+		long accumulated=this.negatives.total;
+		if(rank<accumulated){
+			reply=-value(this.negatives.descending(rank));
+		}else if(rank<(accumulated+=this.zeros)){
+			reply=0.0d;
+		}else{
+			reply=value(this.positives.ascending(rank-accumulated));
+		}
+		return Math.max(this.min,Math.min(this.max,reply));
+	}
+
+	/** @see Object#hashCode() */
+	@Override
+	public int hashCode() {
+		int hash = 7;
+		hash = 71 * hash + (int) (Double.doubleToLongBits(this.relativeAccuracy) ^ (Double.doubleToLongBits(this.relativeAccuracy) >>> 32));
+		hash = 71 * hash + (int) (this.count ^ (this.count >>> 32));
+		hash = 71 * hash + (int) (this.zeros ^ (this.zeros >>> 32));
+		hash = 71 * hash + this.positives.hashCode();
+		hash = 71 * hash + this.negatives.hashCode();
+		return hash;
+	}
+
+	/** @see Object#equals(java.lang.Object) */
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (obj == null) {
+			return false;
+		}
+		if (getClass() != obj.getClass()) {
+			return false;
+		}
+		final QuantileSketch other = (QuantileSketch) obj;
+		if (!isMergeable(other)) {
+			return false;
+		}
+		if (this.count != other.count) {
+			return false;
+		}
+		if (this.zeros != other.zeros) {
+			return false;
+		}
+		if (Double.doubleToLongBits(this.min) != Double.doubleToLongBits(other.min)) {
+			return false;
+		}
+		if (Double.doubleToLongBits(this.max) != Double.doubleToLongBits(other.max)) {
+			return false;
+		}
+		if (!this.positives.equals(other.positives)) {
+			return false;
+		}
+		return this.negatives.equals(other.negatives);
+	}
+
+	/** @see Object#toString() */
+	@Override
+	public String toString() {
+		return SimpleFormat.format("QuantileSketch[relativeAccuracy={}, count={}, buckets={}, p50={}, p90={}, p99={}, p999={}]", this.relativeAccuracy, this.count, getBuckets(), quantile(0.5d), quantile(0.9d), quantile(0.99d), quantile(0.999d));
+	}
+
+
+	/**
+	 * Dense store of bucket counts, the array covers a range of contiguous bucket indexes that grows doubling its size until the maximum buckets, then the lowest buckets are collapsed
+	 */
+	private static final class Store{
+
+		private static final int INITIAL_BUCKETS=32;
+		private static final long[] EMPTY=new long[0];
+
+		private final int maxBuckets;
+		private long[] counts;
+		private int offset;
+		private int minIndex;
+		private int maxIndex;
+		private long total;
+
+		Store(final int _maxBuckets){
+			this.maxBuckets=_maxBuckets;
+			this.counts=EMPTY;
+			this.offset=0;
+			this.minIndex=0;
+			this.maxIndex=-1;
+			this.total=0l;
+		}
+
+		void add(final int _index,final long _count){
+			int index=_index;
+			if(this.maxIndex<this.minIndex){
+				if(this.counts.length==0){
+					this.counts=new long[Math.min(INITIAL_BUCKETS,this.maxBuckets)];
+				}
+				this.offset=index-(this.counts.length>>>1);
+				this.minIndex=index;
+				this.maxIndex=index;
+			}else if((index<this.minIndex)||(index>this.maxIndex)){
+				index=extend(index);
+			}
+			this.counts[index-this.offset]+=_count;
+			this.total+=_count;
+		}
+		private int extend(final int _index){
+			int newMin=Math.min(_index,this.minIndex);
+			final int newMax=Math.max(_index,this.maxIndex);
+			final int lowest=newMax-this.maxBuckets+1;
+			long collapsed=0l;
+			if(lowest>newMin){
+				for(int ic1=this.minIndex;(ic1<lowest)&&(ic1<=this.maxIndex);ic1++){
+					collapsed+=this.counts[ic1-this.offset];
+					this.counts[ic1-this.offset]=0l;
+				}
+				newMin=lowest;
+			}
+			if((newMin<this.offset)||(newMax>=this.offset+this.counts.length)){
+				final int span=newMax-newMin+1;
+				final int length=(span<=this.counts.length)? this.counts.length : Math.min(Math.max(span,this.counts.length<<1),this.maxBuckets);
+				final int newOffset=newMin-((length-span)>>>1);
+				final long[] next=new long[length];
+				final int from=Math.max(this.minIndex,newMin);
+				if(from<=this.maxIndex){
+					System.arraycopy(this.counts,from-this.offset,next,from-newOffset,this.maxIndex-from+1);
+				}
+				this.counts=next;
+				this.offset=newOffset;
+			}
+			this.counts[newMin-this.offset]+=collapsed;
+			this.minIndex=newMin;
+			this.maxIndex=newMax;
+			return Math.max(_index,newMin);
+		}
+		void merge(final Store _store){
+			if(_store.total>0l){
+				add(_store.maxIndex,0l);
+				add(_store.minIndex,0l);
+				for(int ic1=_store.minIndex;ic1<=_store.maxIndex;ic1++){
+					final long bucketCount=_store.counts[ic1-_store.offset];
+					if(bucketCount>0l){
+						add(ic1,bucketCount);
+					}
+				}
+			}
+		}
+		void reset(){
+			Arrays.fill(this.counts,0l);
+			this.minIndex=0;
+			this.maxIndex=-1;
+			this.total=0l;
+		}
+		int buckets(){
+			int reply=0;
+			for(int ic1=this.minIndex;ic1<=this.maxIndex;ic1++){
+				if(this.counts[ic1-this.offset]>0l){
+					reply++;
+				}
+			}
+			return reply;
+		}
+		int ascending(final double _rank){
+			long accumulated=0l;
+			for(int ic1=this.minIndex;ic1<=this.maxIndex;ic1++){
+				accumulated+=this.counts[ic1-this.offset];
+				if(accumulated>_rank)
+					return ic1;
+			}
+			return this.maxIndex;
+		}
+		int descending(final double _rank){
+			long accumulated=0l;
+			for(int ic1=this.maxIndex;ic1>=this.minIndex;ic1--){
+				accumulated+=this.counts[ic1-this.offset];
+				if(accumulated>_rank)
+					return ic1;
+			}
+			return this.minIndex;
+		}
+
+		@Override
+		public int hashCode() {
+			int hash = 3;
+			for(int ic1=this.minIndex;ic1<=this.maxIndex;ic1++){
+				final long bucketCount=this.counts[ic1-this.offset];
+				if(bucketCount!=0l){
+					hash = 31 * hash + ic1;
+					hash = 31 * hash + (int) (bucketCount ^ (bucketCount >>> 32));
+				}
+			}
+			return hash;
+		}
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (obj == null) {
+				return false;
+			}
+			if (getClass() != obj.getClass()) {
+				return false;
+			}
+			final Store other = (Store) obj;
+			if (this.total != other.total) {
+				return false;
+			}
+			if (this.total == 0l) {
+				return true;
+			}
+			final int from=Math.min(this.minIndex,other.minIndex);
+			final int to=Math.max(this.maxIndex,other.maxIndex);
+			for(int ic1=from;ic1<=to;ic1++){
+				if(count(ic1)!=other.count(ic1)){
+					return false;
+				}
+			}
+			return true;
+		}
+		private long count(final int _index){
+			return ((_index<this.minIndex)||(_index>this.maxIndex))? 0l : this.counts[_index-this.offset];
+		}
+	}
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2020 Byte Mechanics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bytemechanics.metrics.crawler.internal;
+
+import org.bytemechanics.metrics.crawler.internal.commons.string.SimpleFormat;
+
+/**
+ * Welford online mean and variance over primitive double values.<br>
+ * Keeps only the number of values, its mean and the sum of the squared deviations from the mean, updated in O(1) and without allocations when a value is recorded.
+ * Two running variances can be merged (Chan et al. parallel algorithm) so the partial results of stripes, buckets or window segments can be combined without the original values.<br>
+ * Note: this class is not thread safe, the owner must synchronize the access
+ * @author afarre
+ * @since 1.1.0
+ */
+public final class RunningVariance {
+
+	private long count;
+	private double mean;
+	private double squaredDeviations;
+
+
+	/**
+	 * Empty running variance constructor
+	 */
+	public RunningVariance(){
+		this(0l,0.0d,0.0d);
+	}
+	/**
+	 * Running variance constructor from its aggregates
+	 * @param _count number of values
+	 * @param _mean mean of the values
+	 * @param _squaredDeviations sum of the squared deviations from the mean
+	 */
+	public RunningVariance(final long _count,final double _mean,final double _squaredDeviations){
+		this.count=_count;
+		this.mean=_mean;
+		this.squaredDeviations=_squaredDeviations;
+	}
+
+	/**
+	 * Register a value
+	 * @param _value value to register
+	 * @return this running variance
+	 */
+	public RunningVariance record(final double _value){
+		this.count++;
+		final double delta=_value-this.mean;
+		this.mean+=delta/this.count;
+		this.squaredDeviations+=delta*(_value-this.mean);
+		return this;
+	}
+	/**
+	 * Adds the values aggregated at the given aggregates to this one
+	 * @param _count number of values to merge
+	 * @param _mean mean of the values to merge
+	 * @param _squaredDeviations sum of the squared deviations from the mean of the values to merge
+	 * @return this running variance
+	 */
+	public RunningVariance merge(final long _count,final double _mean,final double _squaredDeviations){
+		if(_count>0){
+			if(this.count==0){
+				this.count=_count;
+				this.mean=_mean;
+				this.squaredDeviations=_squaredDeviations;
+			}else{
+				final long total=this.count+_count;
+				final double delta=_mean-this.mean;
+				this.mean+=delta*_count/total;
+				this.squaredDeviations+=_squaredDeviations+delta*delta*((double)this.count*_count/total);
+				this.count=total;
+			}
+		}
+		return this;
+	}
+	/**
+	 * Adds all the values registered at the given running variance to this one
+	 * @param _variance running variance to merge
+	 * @return this running variance
+	 */
+	public RunningVariance merge(final RunningVariance _variance){
+		return merge(_variance.count,_variance.mean,_variance.squaredDeviations);
+	}
+	/**
+	 * Removes all the registered values
+	 * @return this running variance
+	 */
+	public RunningVariance reset(){
+		this.count=0l;
+		this.mean=0.0d;
+		this.squaredDeviations=0.0d;
+		return this;
+	}
+	/**
+	 * Copy this running variance
+	 * @return independent copy of this running variance
+	 */
+	public RunningVariance copy(){
+		return new RunningVariance(this.count,this.mean,this.squaredDeviations);
+	}
+
+	/**
+	 * Retrieve the number of registered values
+	 * @return number of registered values
+	 */
+	public long getCount(){
+		return this.count;
+	}
+	/**
+	 * Retrieve the mean of the registered values
+	 * @return mean of the registered values or 0 if there are no values
+	 */
+	public double getMean(){
+		return this.mean;
+	}
+	/**
+	 * Retrieve the sum of the squared deviations from the mean of the registered values
+	 * @return sum of the squared deviations
+	 */
+	public double getSquaredDeviations(){
+		return this.squaredDeviations;
+	}
+	/**
+	 * Retrieve the sample variance (with Bessel's correction) of the registered values
+	 * @return sample variance or 0 if there are less than two values
+	 */
+	public double getVariance(){
+		return (this.count>1)? this.squaredDeviations/(this.count-1) : 0.0d;
+	}
+	/**
+	 * Retrieve the sample standard deviation of the registered values
+	 * @return square root of the sample variance
+	 */
+	public double getStdDeviation(){
+		return Math.sqrt(getVariance());
+	}
+
+	/** @see Object#hashCode() */
+	@Override
+	public int hashCode() {
+		int hash = 3;
+		hash = 59 * hash + (int) (this.count ^ (this.count >>> 32));
+		hash = 59 * hash + (int) (Double.doubleToLongBits(this.mean) ^ (Double.doubleToLongBits(this.mean) >>> 32));
+		hash = 59 * hash + (int) (Double.doubleToLongBits(this.squaredDeviations) ^ (Double.doubleToLongBits(this.squaredDeviations) >>> 32));
+		return hash;
+	}
+
+	/** @see Object#equals(java.lang.Object) */
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (obj == null) {
+			return false;
+		}
+		if (getClass() != obj.getClass()) {
+			return false;
+		}
+		final RunningVariance other = (RunningVariance) obj;
+		if (this.count != other.count) {
+			return false;
+		}
+		if (Double.doubleToLongBits(this.mean) != Double.doubleToLongBits(other.mean)) {
+			return false;
+		}
+		return Double.doubleToLongBits(this.squaredDeviations) == Double.doubleToLongBits(other.squaredDeviations);
+	}
+
+	/** @see Object#toString() */
+	@Override
+	public String toString() {
+		return SimpleFormat.format("RunningVariance[count={}, mean={}, variance={}, stdDeviation={}]", this.count, this.mean, getVariance(), getStdDeviation());
+	}
+}
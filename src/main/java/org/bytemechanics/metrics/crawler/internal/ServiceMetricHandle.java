@@ -0,0 +1,82 @@
+/*
+ * Copyright 2020 Byte Mechanics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bytemechanics.metrics.crawler.internal;
+
+import java.time.LocalDateTime;
+import org.bytemechanics.metrics.crawler.MeasureReducer;
+import org.bytemechanics.metrics.crawler.MetricHandle;
+import org.bytemechanics.metrics.crawler.MetricsService;
+import org.bytemechanics.metrics.crawler.internal.commons.string.SimpleFormat;
+
+/**
+ * Metric handle that delegates into the primitive register methods of the metrics service with the already built name
+ * @see MetricsService#handle(java.lang.String, java.lang.Object...)
+ * @author afarre
+ * @since 1.1.0
+ */
+public class ServiceMetricHandle implements MetricHandle {
+
+	private final MetricsService metricsService;
+	private final String name;
+
+	/**
+	 * Metric handle constructor
+	 * @param _metricsService metrics service where the measures will be registered (mandatory)
+	 * @param _name metric name already built (mandatory)
+	 * @throws NullPointerException if _metricsService or _name are null
+	 */
+	public ServiceMetricHandle(final MetricsService _metricsService,final String _name){
+		if(_metricsService==null)
+			throw new NullPointerException("Can not create metric handle with null _metricsService");
+		if(_name==null)
+			throw new NullPointerException("Can not create null named metric handle");
+		this.metricsService=_metricsService;
+		this.name=_name;
+	}
+
+	/** @see MetricHandle#getName() */
+	@Override
+	public String getName() {
+		return this.name;
+	}
+
+	/** @see MetricHandle#record(long) */
+	@Override
+	public void record(final long _measure) {
+		this.metricsService.registerMeasure(this.name, _measure);
+	}
+	/** @see MetricHandle#record(double) */
+	@Override
+	public void record(final double _measure) {
+		this.metricsService.registerMeasure(this.name, _measure);
+	}
+	/** @see MetricHandle#recordDuration(long) */
+	@Override
+	public void recordDuration(final long _nanos) {
+		this.metricsService.registerDuration(this.name, _nanos);
+	}
+	/** @see MetricHandle#record(java.time.LocalDateTime, java.lang.Object, org.bytemechanics.metrics.crawler.MeasureReducer) */
+	@Override
+	public <T> void record(final LocalDateTime _timestamp,final T _measure,final MeasureReducer<T> _reducer) {
+		this.metricsService.registerMeasure(this.name,_timestamp,_measure,_reducer);
+	}
+
+	/** @see Object#toString()   */
+	@Override
+	public String toString() {
+		return SimpleFormat.format("ServiceMetricHandle[name={}]", this.name);
+	}
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2020 Byte Mechanics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bytemechanics.metrics.crawler.internal;
+
+import java.util.concurrent.locks.ReentrantLock;
+import org.bytemechanics.metrics.crawler.DoubleReducer;
+import org.bytemechanics.metrics.crawler.LongReducer;
+import org.bytemechanics.metrics.crawler.MeasureReducer;
+import org.bytemechanics.metrics.crawler.beans.MetricReading;
+import org.bytemechanics.metrics.crawler.beans.MetricSnapshot;
+import org.bytemechanics.metrics.crawler.internal.commons.string.SimpleFormat;
+
+/**
+ * Concurrent metric that also keeps a relative error {@link QuantileSketch} of all the measures to provide any quantile.<br>
+ * The measures are converted to primitive double with the {@link LongReducer} or {@link DoubleReducer} reducer and recorded in a sketch striped by thread, each one guarded by its own lock. When the stripe of the thread is locked the measure is recorded in the next free stripe (as LongAdder moves to another cell when contended), so the threads do not queue behind a preempted one. The stripes are merged only when a snapshot is requested.
+ * The sketch memory is bounded by its maximum buckets whatever the range of the measures, so for measures with wide dynamic range it is more suitable than the {@link LogLinearHistogram} kept for the {@link org.bytemechanics.metrics.crawler.HistogramReducer} reducers.<br>
+ * Note: as {@link ConcurrentMetric} this metric does not keep samples, so the quantiles are computed over all the measures registered since its creation
+ * @param <TYPE> metric type
+ * @see QuantileSketch
+ * @see MetricFactories#SKETCH
+ * @see MetricSnapshot#getQuantile(double)
+ * @author afarre
+ * @since 1.1.0
+ */
+public class SketchMetric<TYPE> extends ConcurrentMetric<TYPE> {
+
+	private final QuantileSketch[] stripes;
+	private final ReentrantLock[] locks;
+
+
+	/**
+	 * Sketch metric constructor with the default relative accuracy and maximum buckets
+	 * @param _name metric name (mandatory)
+	 * @param _reducer reducer for this metric (mandatory)
+	 * @throws NullPointerException if either _name or _reducer are null
+	 * @throws IllegalArgumentException if the reducer is not a LongReducer nor a DoubleReducer
+	 */
+	public SketchMetric(final String _name,final MeasureReducer<TYPE> _reducer) {
+		this(_name,QuantileSketch.DEFAULT_RELATIVE_ACCURACY,QuantileSketch.DEFAULT_MAX_BUCKETS,_reducer);
+	}
+	/**
+	 * Sketch metric constructor
+	 * @param _name metric name (mandatory)
+	 * @param _relativeAccuracy relative accuracy of the quantiles, between 0 and 1 (exclusive)
+	 * @param _maxBuckets maximum number of buckets per sign of each stripe
+	 * @param _reducer reducer for this metric (mandatory)
+	 * @throws NullPointerException if either _name or _reducer are null
+	 * @throws IllegalArgumentException if the reducer is not a LongReducer nor a DoubleReducer, _relativeAccuracy is not between 0 and 1 or _maxBuckets is zero or negative
+	 */
+	public SketchMetric(final String _name,final double _relativeAccuracy,final int _maxBuckets,final MeasureReducer<TYPE> _reducer) {
+		super(_name,_reducer);
+		if(!isSketchable(_reducer))
+			throw new IllegalArgumentException(SimpleFormat.format("Metric {} reducer {} must be a LongReducer or a DoubleReducer to keep a quantile sketch",_name,_reducer));
+		this.stripes=new QuantileSketch[STRIPES];
+		this.locks=new ReentrantLock[STRIPES];
+		for(int ic1=0;ic1<STRIPES;ic1++){
+			this.stripes[ic1]=new QuantileSketch(_relativeAccuracy,_maxBuckets);
+			this.locks[ic1]=new ReentrantLock();
+		}
+	}
+
+	/**
+	 * Check if a sketch metric can be created with the given reducer
+	 * @param _reducer reducer to check
+	 * @return true if the reducer is a LongReducer or a DoubleReducer
+	 */
+	public static boolean isSketchable(final MeasureReducer<?> _reducer){
+		return (_reducer instanceof LongReducer)||(_reducer instanceof DoubleReducer);
+	}
+
+	/**
+	 * Record the value of the measure into the sketch stripe of the current thread, or into any other free stripe if is locked
+	 * @see ConcurrentMetric#recorded(double)
+	 */
+	@Override
+	protected void recorded(final double _value){
+		final int home=stripe();
+		for(int ic1=0;ic1<STRIPES;ic1++){
+			final int current=(home+ic1)&(STRIPES-1);
+			if(this.locks[current].tryLock()){
+				try{
+					this.stripes[current].record(_value);
+				}finally{
+					this.locks[current].unlock();
+				}
+				return;
+			}
+		}
+		this.locks[home].lock();
+		try{
+			this.stripes[home].record(_value);
+		}finally{
+			this.locks[home].unlock();
+		}
+	}
+
+	/**
+	 * Merge the sketches of all the stripes
+	 * @return new sketch with all the measures
+	 */
+	public QuantileSketch sketch(){
+		final QuantileSketch reply=new QuantileSketch(this.stripes[0].getRelativeAccuracy(),this.stripes[0].getMaxBuckets());
+		for(int ic1=0;ic1<STRIPES;ic1++){
+			this.locks[ic1].lock();
+			try{
+				reply.merge(this.stripes[ic1]);
+			}finally{
+				this.locks[ic1].unlock();
+			}
+		}
+		return reply;
+	}
+
+	/**
+	 * Retrieve the concurrent metric snapshot with the sketch merged from all the stripes, without measures returns the default snapshot
+	 * @see ConcurrentMetric#toSnapshot()
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public MetricSnapshot<TYPE> toSnapshot(){
+		final MetricSnapshot<TYPE> reply=super.toSnapshot();
+		if(reply.getSamplingSize()==0)
+			return reply;
+		return MetricSnapshot.<TYPE>builder(getReducer(),reply)
+									.sketch(sketch())
+								.build();
+	}
+	/**
+	 * Fill the given reading from the snapshot, because the quantiles of the sketch are only provided by the snapshot
+	 * @see ConcurrentMetric#read(org.bytemechanics.metrics.crawler.beans.MetricReading)
+	 */
+	@Override
+	public MetricReading read(final MetricReading _reading){
+		return _reading.snapshotValues(toSnapshot());
+	}
+
+	/** @see Object#toString()   */
+	@Override
+	public String toString() {
+		return SimpleFormat.format("SketchMetric[name={}, hits={}, relativeAccuracy={}, reducer={}]", getName(), getHits(), this.stripes[0].getRelativeAccuracy(), getReducer());
+	}
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2020 Byte Mechanics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bytemechanics.metrics.crawler.internal;
+
+import java.util.function.Supplier;
+
+/**
+ * Per-thread pool of reusable instances with stack semantics, so nested acquisitions in the same thread always receive distinct instances<br>
+ * Acquire and release never allocate once the pool of the thread is warm (the thread already released as many instances as it uses at the same time).
+ * Note: the released instances are kept by the thread that releases them, that may not be the same that acquired them.
+ * @param <T> type of the pooled instances
+ * @author afarre
+ * @since 1.1.0
+ */
+public final class ThreadLocalPool<T> {
+
+	private final ThreadLocal<Stack<T>> pool;
+	private final Supplier<T> factory;
+
+	/**
+	 * Pool constructor
+	 * @param _capacity max instances to keep per thread
+	 * @param _factory supplier to create a new instance when the pool of the thread is empty (mandatory)
+	 * @throws NullPointerException if _factory is null
+	 * @throws IllegalArgumentException if _capacity is zero or negative
+	 */
+	public ThreadLocalPool(final int _capacity,final Supplier<T> _factory){
+		if(_factory==null)
+			throw new NullPointerException("Can not create pool with null _factory");
+		if(_capacity<=0)
+			throw new IllegalArgumentException("Can not create pool with zero or negative _capacity");
+		this.factory=_factory;
+		this.pool=ThreadLocal.withInitial(() -> new Stack<>(_capacity));
+	}
+
+	/**
+	 * Retrieve a pooled instance from the current thread pool or a new one if empty
+	 * @return an instance not in use
+	 */
+	public T acquire(){
+		final T reply=this.pool.get().pop();
+		return (reply!=null)? reply : this.factory.get();
+	}
+	/**
+	 * Return the instance to the current thread pool, if the pool is full the instance is discarded
+	 * @param _instance instance no longer in use
+	 */
+	public void release(final T _instance){
+		this.pool.get().push(_instance);
+	}
+	/**
+	 * Retrieve the number of instances currently pooled in the current thread
+	 * @return number of instances pooled in the current thread
+	 */
+	public int size(){
+		return this.pool.get().size;
+	}
+
+
+	/**
+	 * Fixed capacity stack of instances
+	 * @param <T> type of the pooled instances
+	 */
+	private static final class Stack<T>{
+
+		private final Object[] instances;
+		private int size;
+
+		Stack(final int _capacity){
+			this.instances=new Object[_capacity];
+			this.size=0;
+		}
+
+		@SuppressWarnings("unchecked")
+		T pop(){
+			if(this.size==0)
+				return null;
+			this.size--;
+			final T reply=(T)this.instances[this.size];
+			this.instances[this.size]=null;
+			return reply;
+		}
+		void push(final T _instance){
+			if(this.size<this.instances.length){
+				this.instances[this.size]=_instance;
+				this.size++;
+			}
+		}
+	}
+}
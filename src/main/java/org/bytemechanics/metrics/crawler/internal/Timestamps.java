@@ -0,0 +1,116 @@
+/*
+ * Copyright 2020 Byte Mechanics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bytemechanics.metrics.crawler.internal;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+
+/**
+ * Utility to manage primitive timestamps.<br>
+ * The timestamps are represented as the nanoseconds from 1970-01-01T00:00 of the local date time (the same as if the local date time was at UTC), this way the conversion from and to LocalDateTime is exact and does not depend on the time zone.<br>
+ * Note: the representable range goes from year 1677 to year 2262
+ * @author afarre
+ * @since 1.1.0
+ */
+public final class Timestamps {
+
+	private static final long NANOS_PER_SECOND=1_000_000_000l;
+	private static final long NANOS_PER_MILLI=1_000_000l;
+
+	private static volatile Offset offset=new Offset(Long.MAX_VALUE,Long.MIN_VALUE,0l);
+
+	private Timestamps(){}
+
+	/**
+	 * Retrieve the current local date time as primitive timestamp without allocating any object (except when the time zone offset changes)
+	 * @return current local date time timestamp
+	 */
+	public static long now(){
+
+		final long millis=System.currentTimeMillis();
+		Offset current=Timestamps.offset;
+		if((millis<current.from)||(millis>=current.until)){
+			current=Offset.of(ZoneId.systemDefault().getRules(),millis);
+			Timestamps.offset=current;
+		}
+		return millis*NANOS_PER_MILLI+current.offsetNanos;
+	}
+
+	/**
+	 * Convert the given local date time to a primitive timestamp
+	 * @param _localDateTime local date time to convert (mandatory)
+	 * @return primitive timestamp
+	 * @throws NullPointerException if _localDateTime is null
+	 * @throws ArithmeticException if _localDateTime is out of the representable range
+	 */
+	public static long toTimestamp(final LocalDateTime _localDateTime){
+		final long seconds=_localDateTime.toEpochSecond(ZoneOffset.UTC);
+		final long nanos=_localDateTime.getNano();
+		return (seconds<0)? Math.addExact(Math.multiplyExact(seconds+1,NANOS_PER_SECOND),nanos-NANOS_PER_SECOND)
+						: Math.addExact(Math.multiplyExact(seconds,NANOS_PER_SECOND),nanos);
+	}
+
+	/**
+	 * Check if the given local date time can be converted to a primitive timestamp, the years 1677 and 2262 (partially representable) are considered out of range
+	 * @param _localDateTime local date time to check (mandatory)
+	 * @return true if the local date time can be converted with toTimestamp(LocalDateTime)
+	 * @throws NullPointerException if _localDateTime is null
+	 */
+	public static boolean isRepresentable(final LocalDateTime _localDateTime){
+		final int year=_localDateTime.getYear();
+		return (year>1677)&&(year<2262);
+	}
+
+	/**
+	 * Convert the given primitive timestamp to local date time
+	 * @param _timestamp timestamp to convert
+	 * @return local date time
+	 */
+	public static LocalDateTime toLocalDateTime(final long _timestamp){
+		return LocalDateTime.ofEpochSecond(Math.floorDiv(_timestamp,NANOS_PER_SECOND),(int)Math.floorMod(_timestamp,NANOS_PER_SECOND),ZoneOffset.UTC);
+	}
+
+
+	/**
+	 * Time zone offset valid between two instants
+	 */
+	private static final class Offset{
+
+		final long from;
+		final long until;
+		final long offsetNanos;
+
+		Offset(final long _from,final long _until,final long _offsetNanos){
+			this.from=_from;
+			this.until=_until;
+			this.offsetNanos=_offsetNanos;
+		}
+
+		static Offset of(final ZoneRules _rules,final long _millis){
+
+			final Instant instant=Instant.ofEpochMilli(_millis);
+			final ZoneOffsetTransition previous=_rules.previousTransition(instant);
+			final ZoneOffsetTransition next=_rules.nextTransition(instant);
+			return new Offset((previous!=null)? previous.toEpochSecond()*1000l : Long.MIN_VALUE
+								,(next!=null)? next.toEpochSecond()*1000l : Long.MAX_VALUE
+								,_rules.getOffset(instant).getTotalSeconds()*NANOS_PER_SECOND);
+		}
+	}
+}
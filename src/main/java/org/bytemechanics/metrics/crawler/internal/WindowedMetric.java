@@ -0,0 +1,558 @@
+/*
+ * Copyright 2020 Byte Mechanics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bytemechanics.metrics.crawler.internal;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.function.LongSupplier;
+import org.bytemechanics.metrics.crawler.AbstractMetric;
+import org.bytemechanics.metrics.crawler.DoubleReducer;
+import org.bytemechanics.metrics.crawler.HistogramReducer;
+import org.bytemechanics.metrics.crawler.LongReducer;
+import org.bytemechanics.metrics.crawler.MeasureReducer;
+import org.bytemechanics.metrics.crawler.beans.MetricReading;
+import org.bytemechanics.metrics.crawler.beans.MetricSnapshot;
+import org.bytemechanics.metrics.crawler.beans.MetricSnapshot.MetricSnapshotBuilder;
+import org.bytemechanics.metrics.crawler.exceptions.IncorrectSamplingSize;
+import org.bytemechanics.metrics.crawler.internal.commons.string.SimpleFormat;
+
+/**
+ * Time windowed metric, the statistics are computed over the measures of the last window of time (for example the last 60 seconds) instead of the last N measures.<br>
+ * The window is split in a ring of buckets of the same duration (for example 60 buckets of 1 second) and each bucket keeps only its pre-aggregated hits, accumulated, maximum, minimum and last measure (and for the primitive buckets the Welford mean and squared deviations, merged as {@link RunningVariance} to provide the variance of the window).
+ * The measures are assigned to the bucket of the moment when they are registered, measured with a monotonic clock (System.nanoTime()) so the window is not affected by the wall clock adjustments nor by the daylight saving time changes of the measure timestamps, that are only kept to report the last occurrence.
+ * The buckets are rotated lazily: a bucket of an elapsed period is reset when a new measure falls into its slot and ignored by the snapshots, so the memory is bounded and independent of the traffic.
+ * For the {@link LongReducer} and {@link DoubleReducer} reducers (as the ones provided by {@link MeasureReducers}) the buckets are primitive arrays aggregated and merged with the primitive operations of the reducer, any other reducer keeps the aggregates as objects.<br>
+ * Note: the last measure is the last one registered whatever its timestamp, and percentiles are not provided so the {@link HistogramReducer} reducers are rejected
+ * @see MetricFactories#WINDOWED
+ * @param <TYPE> metric type
+ * @author afarre
+ * @since 1.1.0
+ */
+public class WindowedMetric<TYPE> extends AbstractMetric<TYPE> {
+
+	/** Default window duration */
+	public static final Duration DEFAULT_WINDOW=Duration.ofSeconds(60);
+	/** Default number of buckets of the window */
+	public static final int DEFAULT_BUCKETS=60;
+
+	private final Duration window;
+	private final long bucketNanos;
+	private final long[] epochs;
+	private final long[] bucketHits;
+	private final long[] lastTimestamps;
+	private final Buckets<TYPE> buckets;
+	private final LongSupplier clock;
+	private final boolean primitiveLong;
+	private final boolean primitiveDuration;
+	private final boolean primitiveDouble;
+	private long head;
+	private long hits;
+
+
+	/**
+	 * Windowed metric constructor
+	 * @param _name metric name (mandatory)
+	 * @param _window window duration (mandatory)
+	 * @param _buckets number of buckets in which the window is split
+	 * @param _reducer reducer for this metric (mandatory)
+	 * @throws NullPointerException if either _name, _window or _reducer are null
+	 * @throws IncorrectSamplingSize if _buckets is zero or negative
+	 * @throws IllegalArgumentException if _window is shorter than one nanosecond per bucket or _reducer is an HistogramReducer
+	 */
+	public WindowedMetric(final String _name,final Duration _window,final int _buckets,final MeasureReducer<TYPE> _reducer) {
+		this(_name,_window,_buckets,_reducer,System::nanoTime);
+	}
+	/**
+	 * Windowed metric constructor with custom clock
+	 * @param _name metric name (mandatory)
+	 * @param _window window duration (mandatory)
+	 * @param _buckets number of buckets in which the window is split
+	 * @param _reducer reducer for this metric (mandatory)
+	 * @param _clock monotonic clock in nanoseconds used to assign the measures to the buckets and to discard the elapsed buckets when the snapshot is requested
+	 */
+	@SuppressWarnings("unchecked")
+	WindowedMetric(final String _name,final Duration _window,final int _buckets,final MeasureReducer<TYPE> _reducer,final LongSupplier _clock) {
+		super(_name,_reducer);
+		if(_window==null)
+			throw new NullPointerException(SimpleFormat.format("Metric {} window can not be null to create a WindowedMetric",_name));
+		if(_buckets<=0)
+			throw new IncorrectSamplingSize(_name, _buckets);
+		this.window=_window;
+		this.bucketNanos=_window.toNanos()/_buckets;
+		if(this.bucketNanos<=0)
+			throw new IllegalArgumentException(SimpleFormat.format("Metric {} window {} is too short for {} buckets",_name,_window,_buckets));
+		if(_reducer instanceof HistogramReducer)
+			throw new IllegalArgumentException(SimpleFormat.format("Metric {} reducer {} is an HistogramReducer, a windowed metric can not provide its percentiles",_name,_reducer));
+		this.epochs=new long[_buckets];
+		this.bucketHits=new long[_buckets];
+		this.lastTimestamps=new long[_buckets];
+		this.clock=_clock;
+		this.head=Long.MIN_VALUE;
+		this.hits=0l;
+		this.primitiveLong=(_reducer==MeasureReducers.LONG.get(Long.class));
+		this.primitiveDuration=(_reducer==MeasureReducers.DURATION.get(Duration.class));
+		this.primitiveDouble=(_reducer==MeasureReducers.DOUBLE.get(Double.class));
+		if(_reducer instanceof LongReducer){
+			this.buckets=new LongBuckets<>(_buckets,(LongReducer<TYPE>)_reducer);
+		}else if(_reducer instanceof DoubleReducer){
+			this.buckets=new DoubleBuckets<>(_buckets,(DoubleReducer<TYPE>)_reducer);
+		}else{
+			this.buckets=new ReducerBuckets<>(_buckets,_reducer);
+		}
+	}
+
+	/**
+	 * Retrieves the window duration
+	 * @return window duration
+	 */
+	public Duration getWindow() {
+		return window;
+	}
+	/**
+	 * Retrieves the number of buckets of the window
+	 * @return number of buckets
+	 */
+	public int getBuckets() {
+		return this.epochs.length;
+	}
+	/** @see AbstractMetric#getHits() */
+	@Override
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	/**
+	 * @see AbstractMetric#addMeasure(java.time.LocalDateTime, java.lang.Object)
+	 * @throws ArithmeticException if _timestamp is out of the range supported by Timestamps
+	 * @see Timestamps
+	 */
+	@Override
+	public void addMeasure(final LocalDateTime _timestamp,final TYPE _measure){
+		validateMeasure(_timestamp, _measure);
+		final long timestamp=Timestamps.toTimestamp(_timestamp);
+		synchronized(this){
+			final int slot=prepare(timestamp);
+			if(slot>=0){
+				this.buckets.add(slot,this.bucketHits[slot],_measure);
+			}
+		}
+	}
+	/** @see AbstractMetric#addLongMeasure(long, long) */
+	@Override
+	public void addLongMeasure(final long _timestamp,final long _measure){
+		if(this.primitiveLong){
+			recordLong(_timestamp,_measure);
+		}else{
+			super.addLongMeasure(_timestamp, _measure);
+		}
+	}
+	/** @see AbstractMetric#addDurationMeasure(long, long) */
+	@Override
+	public void addDurationMeasure(final long _timestamp,final long _nanos){
+		if(this.primitiveDuration){
+			recordLong(_timestamp,_nanos);
+		}else{
+			super.addDurationMeasure(_timestamp, _nanos);
+		}
+	}
+	/** @see AbstractMetric#addDoubleMeasure(long, double) */
+	@Override
+	public synchronized void addDoubleMeasure(final long _timestamp,final double _measure){
+		if(this.primitiveDouble){
+			final int slot=prepare(_timestamp);
+			if(slot>=0){
+				((DoubleBuckets<TYPE>)this.buckets).addDouble(slot,this.bucketHits[slot],_measure);
+			}
+		}else{
+			super.addDoubleMeasure(_timestamp, _measure);
+		}
+	}
+	private synchronized void recordLong(final long _timestamp,final long _measure){
+		final int slot=prepare(_timestamp);
+		if(slot>=0){
+			((LongBuckets<TYPE>)this.buckets).addLong(slot,this.bucketHits[slot],_measure);
+		}
+	}
+
+	/**
+	 * Counts the hit and prepares the bucket of the current clock period, resetting it if it belongs to an elapsed period
+	 * @param _timestamp measure timestamp, kept as last occurrence of the bucket
+	 * @return bucket slot or -1 if the clock has gone back further than the window
+	 */
+	private int prepare(final long _timestamp){
+		this.hits++;
+		final long epoch=Math.floorDiv(this.clock.getAsLong(),this.bucketNanos);
+		if((this.head!=Long.MIN_VALUE)&&(epoch<=this.head-this.epochs.length))
+			return -1;
+		if(epoch>this.head){
+			this.head=epoch;
+		}
+		final int slot=(int)Math.floorMod(epoch,(long)this.epochs.length);
+		if((this.epochs[slot]!=epoch)||(this.bucketHits[slot]==0)){
+			this.epochs[slot]=epoch;
+			this.bucketHits[slot]=0l;
+		}
+		this.bucketHits[slot]++;
+		this.lastTimestamps[slot]=_timestamp;
+		return slot;
+	}
+
+	/** @see AbstractMetric#toSnapshot() */
+	@Override
+	@SuppressWarnings("unchecked")
+	public synchronized MetricSnapshot<TYPE> toSnapshot(){
+
+		final long oldest=oldest();
+		final long samples=samples(oldest);
+		if(samples==0)
+			return MetricSnapshot.<TYPE>builder(getReducer())
+										.name(getName())
+										.totalHits(this.hits)
+									.build();
+		final int last=last(oldest);
+		this.buckets.merge(this.epochs,oldest,this.bucketHits);
+		return this.buckets.reduce(samples,MetricSnapshot.<TYPE>builder(getReducer()))
+									.name(getName())
+									.samplingSize(samples)
+									.totalHits(this.hits)
+									.lastMeasure(this.buckets.last(last))
+									.lastOccurrence(Timestamps.toLocalDateTime(this.lastTimestamps[last]))
+								.build();
+	}
+
+	/**
+	 * Fill the given reading merging the primitive buckets of the window without creating any snapshot when the reducer is the long, duration or double reducer of {@link MeasureReducers}, any other reducer falls back to the snapshot because its values are not primitive
+	 * @see AbstractMetric#read(org.bytemechanics.metrics.crawler.beans.MetricReading)
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public synchronized MetricReading read(final MetricReading _reading){
+
+		if((!this.primitiveLong)&&(!this.primitiveDuration)&&(!this.primitiveDouble))
+			return super.read(_reading);
+		final long oldest=oldest();
+		final long samples=samples(oldest);
+		final int last=last(oldest);
+		if(samples>0){
+			this.buckets.merge(this.epochs,oldest,this.bucketHits);
+		}
+		if(this.primitiveDouble)
+			return ((DoubleBuckets<TYPE>)this.buckets).read(_reading,getName(),samples,this.hits,last,(last<0)? 0l : this.lastTimestamps[last]);
+		return ((LongBuckets<TYPE>)this.buckets).read(_reading,getName(),(this.primitiveDuration)? MetricReading.Kind.DURATION : MetricReading.Kind.LONG,samples,this.hits,last,(last<0)? 0l : this.lastTimestamps[last]);
+	}
+
+	/**
+	 * Retrieve the newest elapsed epoch, the buckets of this epoch or older are out of the window
+	 * @return newest epoch out of the window
+	 */
+	private long oldest(){
+		return Math.max(this.head,Math.floorDiv(this.clock.getAsLong(),this.bucketNanos))-this.epochs.length;
+	}
+	/**
+	 * Count the measures of the buckets within the window
+	 * @param _oldest newest epoch out of the window
+	 * @return measures within the window
+	 */
+	private long samples(final long _oldest){
+		long reply=0l;
+		for(int slot=0;slot<this.epochs.length;slot++){
+			if((this.bucketHits[slot]>0)&&(this.epochs[slot]>_oldest)){
+				reply+=this.bucketHits[slot];
+			}
+		}
+		return reply;
+	}
+	/**
+	 * Retrieve the bucket with the newest epoch within the window
+	 * @param _oldest newest epoch out of the window
+	 * @return slot of the newest bucket or -1 if all the buckets are empty or out of the window
+	 */
+	private int last(final long _oldest){
+		int reply=-1;
+		for(int slot=0;slot<this.epochs.length;slot++){
+			if((this.bucketHits[slot]>0)&&(this.epochs[slot]>_oldest)&&((reply<0)||(this.epochs[slot]>this.epochs[reply]))){
+				reply=slot;
+			}
+		}
+		return reply;
+	}
+
+	/** @see Object#toString()   */
+	@Override
+	public String toString() {
+		return SimpleFormat.format("WindowedMetric[name={}, hits={}, window={}, buckets={}, reducer={}]", getName(), getHits(), this.window, this.epochs.length, getReducer());
+	}
+
+
+	/**
+	 * Pre-aggregated values of each bucket.
+	 * The buckets within the window are merged into the merged values of the buckets, that are kept until the next merge and used by both the snapshot and the reading
+	 * @param <T> type of the measures
+	 */
+	private static interface Buckets<T>{
+		void add(int _slot,long _hits,T _measure);
+		T last(int _slot);
+		void merge(long[] _epochs,long _oldest,long[] _hits);
+		MetricSnapshotBuilder<T> reduce(long _samples,MetricSnapshotBuilder<T> _builder);
+	}
+
+	/**
+	 * Primitive long buckets, measures are converted to long before aggregate them with the reducer primitive operations
+	 * @param <T> type of the measures
+	 */
+	private static final class LongBuckets<T> implements Buckets<T>{
+
+		private final LongReducer<T> reducer;
+		private final long[] accumulated;
+		private final long[] max;
+		private final long[] min;
+		private final long[] last;
+		private final double[] mean;
+		private final double[] deviations;
+		private long mergedAccumulated;
+		private long mergedMax;
+		private long mergedMin;
+		private final RunningVariance mergedVariance;
+
+		LongBuckets(final int _buckets,final LongReducer<T> _reducer){
+			this.reducer=_reducer;
+			this.accumulated=new long[_buckets];
+			this.max=new long[_buckets];
+			this.min=new long[_buckets];
+			this.last=new long[_buckets];
+			this.mean=new double[_buckets];
+			this.deviations=new double[_buckets];
+			this.mergedVariance=new RunningVariance();
+		}
+
+		void addLong(final int _slot,final long _hits,final long _measure){
+			if(_hits==1){
+				this.accumulated[_slot]=_measure;
+				this.max[_slot]=_measure;
+				this.min[_slot]=_measure;
+				this.mean[_slot]=_measure;
+				this.deviations[_slot]=0.0d;
+			}else{
+				final double delta=_measure-this.mean[_slot];
+				this.mean[_slot]+=delta/_hits;
+				this.deviations[_slot]+=delta*(_measure-this.mean[_slot]);
+				this.accumulated[_slot]=this.reducer.accumulate(this.accumulated[_slot],_measure);
+				this.max[_slot]=this.reducer.max(this.max[_slot],_measure);
+				this.min[_slot]=this.reducer.min(this.min[_slot],_measure);
+			}
+			this.last[_slot]=_measure;
+		}
+		@Override
+		public void add(final int _slot,final long _hits,final T _measure) {
+			addLong(_slot,_hits,this.reducer.toLong(_measure));
+		}
+		@Override
+		public T last(final int _slot) {
+			return this.reducer.fromLong(this.last[_slot]);
+		}
+		@Override
+		public void merge(final long[] _epochs,final long _oldest,final long[] _hits) {
+			boolean first=true;
+			this.mergedVariance.reset();
+			for(int slot=0;slot<_epochs.length;slot++){
+				if((_hits[slot]>0)&&(_epochs[slot]>_oldest)){
+					if(first){
+						this.mergedAccumulated=this.accumulated[slot];
+						this.mergedMax=this.max[slot];
+						this.mergedMin=this.min[slot];
+						first=false;
+					}else{
+						this.mergedAccumulated=this.reducer.accumulate(this.mergedAccumulated,this.accumulated[slot]);
+						this.mergedMax=this.reducer.max(this.mergedMax,this.max[slot]);
+						this.mergedMin=this.reducer.min(this.mergedMin,this.min[slot]);
+					}
+					this.mergedVariance.merge(_hits[slot],this.mean[slot],this.deviations[slot]);
+				}
+			}
+		}
+		@Override
+		@SuppressWarnings("unchecked")
+		public MetricSnapshotBuilder<T> reduce(final long _samples,final MetricSnapshotBuilder<T> _builder) {
+			return _builder.accumulatedSamples(this.reducer.fromLong(this.mergedAccumulated))
+							.maxMeasure(this.reducer.fromLong(this.mergedMax))
+							.minMeasure(this.reducer.fromLong(this.mergedMin))
+							.averageMeasure(this.reducer.fromLong(this.reducer.average(this.mergedAccumulated,_samples)))
+							.variance(this.mergedVariance.copy());
+		}
+		MetricReading read(final MetricReading _reading,final String _name,final MetricReading.Kind _kind,final long _samples,final long _totalHits,final int _last,final long _lastOccurrence){
+			if(_samples==0)
+				return _reading.longValues(_name,this.reducer,_kind,0l,_totalHits,0l,0l,0l,0l,0l);
+			return _reading.longValues(_name,this.reducer,_kind,_samples,_totalHits,this.mergedAccumulated,this.mergedMax,this.mergedMin,this.last[_last],_lastOccurrence)
+								.variance(this.mergedVariance.getVariance());
+		}
+	}
+
+	/**
+	 * Primitive double buckets, measures are converted to double before aggregate them with the reducer primitive operations
+	 * @param <T> type of the measures
+	 */
+	private static final class DoubleBuckets<T> implements Buckets<T>{
+
+		private final DoubleReducer<T> reducer;
+		private final double[] accumulated;
+		private final double[] max;
+		private final double[] min;
+		private final double[] last;
+		private final double[] mean;
+		private final double[] deviations;
+		private double mergedAccumulated;
+		private double mergedMax;
+		private double mergedMin;
+		private final RunningVariance mergedVariance;
+
+		DoubleBuckets(final int _buckets,final DoubleReducer<T> _reducer){
+			this.reducer=_reducer;
+			this.accumulated=new double[_buckets];
+			this.max=new double[_buckets];
+			this.min=new double[_buckets];
+			this.last=new double[_buckets];
+			this.mean=new double[_buckets];
+			this.deviations=new double[_buckets];
+			this.mergedVariance=new RunningVariance();
+		}
+
+		void addDouble(final int _slot,final long _hits,final double _measure){
+			if(_hits==1){
+				this.accumulated[_slot]=_measure;
+				this.max[_slot]=_measure;
+				this.min[_slot]=_measure;
+				this.mean[_slot]=_measure;
+				this.deviations[_slot]=0.0d;
+			}else{
+				final double delta=_measure-this.mean[_slot];
+				this.mean[_slot]+=delta/_hits;
+				this.deviations[_slot]+=delta*(_measure-this.mean[_slot]);
+				this.accumulated[_slot]=this.reducer.accumulate(this.accumulated[_slot],_measure);
+				this.max[_slot]=this.reducer.max(this.max[_slot],_measure);
+				this.min[_slot]=this.reducer.min(this.min[_slot],_measure);
+			}
+			this.last[_slot]=_measure;
+		}
+		@Override
+		public void add(final int _slot,final long _hits,final T _measure) {
+			addDouble(_slot,_hits,this.reducer.toDouble(_measure));
+		}
+		@Override
+		public T last(final int _slot) {
+			return this.reducer.fromDouble(this.last[_slot]);
+		}
+		@Override
+		public void merge(final long[] _epochs,final long _oldest,final long[] _hits) {
+			boolean first=true;
+			this.mergedVariance.reset();
+			for(int slot=0;slot<_epochs.length;slot++){
+				if((_hits[slot]>0)&&(_epochs[slot]>_oldest)){
+					if(first){
+						this.mergedAccumulated=this.accumulated[slot];
+						this.mergedMax=this.max[slot];
+						this.mergedMin=this.min[slot];
+						first=false;
+					}else{
+						this.mergedAccumulated=this.reducer.accumulate(this.mergedAccumulated,this.accumulated[slot]);
+						this.mergedMax=this.reducer.max(this.mergedMax,this.max[slot]);
+						this.mergedMin=this.reducer.min(this.mergedMin,this.min[slot]);
+					}
+					this.mergedVariance.merge(_hits[slot],this.mean[slot],this.deviations[slot]);
+				}
+			}
+		}
+		@Override
+		@SuppressWarnings("unchecked")
+		public MetricSnapshotBuilder<T> reduce(final long _samples,final MetricSnapshotBuilder<T> _builder) {
+			return _builder.accumulatedSamples(this.reducer.fromDouble(this.mergedAccumulated))
+							.maxMeasure(this.reducer.fromDouble(this.mergedMax))
+							.minMeasure(this.reducer.fromDouble(this.mergedMin))
+							.averageMeasure(this.reducer.fromDouble(this.reducer.average(this.mergedAccumulated,_samples)))
+							.variance(this.mergedVariance.copy());
+		}
+		MetricReading read(final MetricReading _reading,final String _name,final long _samples,final long _totalHits,final int _last,final long _lastOccurrence){
+			if(_samples==0)
+				return _reading.doubleValues(_name,this.reducer,0l,_totalHits,0.0d,0.0d,0.0d,0.0d,0l);
+			return _reading.doubleValues(_name,this.reducer,_samples,_totalHits,this.mergedAccumulated,this.mergedMax,this.mergedMin,this.last[_last],_lastOccurrence)
+								.variance(this.mergedVariance.getVariance());
+		}
+	}
+
+	/**
+	 * Generic buckets for custom reducers
+	 * @param <T> type of the measures
+	 */
+	private static final class ReducerBuckets<T> implements Buckets<T>{
+
+		private final MeasureReducer<T> reducer;
+		private final T[] accumulated;
+		private final T[] max;
+		private final T[] min;
+		private final T[] last;
+		private T mergedAccumulated;
+		private T mergedMax;
+		private T mergedMin;
+
+		@SuppressWarnings("unchecked")
+		ReducerBuckets(final int _buckets,final MeasureReducer<T> _reducer){
+			this.reducer=_reducer;
+			this.accumulated=(T[])new Object[_buckets];
+			this.max=(T[])new Object[_buckets];
+			this.min=(T[])new Object[_buckets];
+			this.last=(T[])new Object[_buckets];
+		}
+
+		@Override
+		public void add(final int _slot,final long _hits,final T _measure) {
+			if(_hits==1){
+				this.accumulated[_slot]=_measure;
+				this.max[_slot]=_measure;
+				this.min[_slot]=_measure;
+			}else{
+				this.accumulated[_slot]=this.reducer.accumulate(this.accumulated[_slot],_measure).orElseGet(this.reducer::identity);
+				this.max[_slot]=this.reducer.max(this.max[_slot],_measure).orElseGet(this.reducer::identity);
+				this.min[_slot]=this.reducer.min(this.min[_slot],_measure).orElseGet(this.reducer::identity);
+			}
+			this.last[_slot]=_measure;
+		}
+		@Override
+		public T last(final int _slot) {
+			return this.last[_slot];
+		}
+		@Override
+		public void merge(final long[] _epochs,final long _oldest,final long[] _hits) {
+			this.mergedAccumulated=null;
+			this.mergedMax=null;
+			this.mergedMin=null;
+			for(int slot=0;slot<_epochs.length;slot++){
+				if((_hits[slot]>0)&&(_epochs[slot]>_oldest)){
+					this.mergedAccumulated=this.reducer.accumulate(this.mergedAccumulated,this.accumulated[slot]).orElse(null);
+					this.mergedMax=this.reducer.max(this.mergedMax,this.max[slot]).orElse(null);
+					this.mergedMin=this.reducer.min(this.mergedMin,this.min[slot]).orElse(null);
+				}
+			}
+		}
+		@Override
+		@SuppressWarnings("unchecked")
+		public MetricSnapshotBuilder<T> reduce(final long _samples,final MetricSnapshotBuilder<T> _builder) {
+			return _builder.accumulatedSamples(this.mergedAccumulated)
+							.maxMeasure(this.mergedMax)
+							.minMeasure(this.mergedMin)
+							.averageMeasure(this.reducer.average(this.mergedAccumulated,_samples)
+															.orElseGet(this.reducer::identity));
+		}
+	}
+}
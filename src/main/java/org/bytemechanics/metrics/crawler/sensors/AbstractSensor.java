@@ -123,12 +123,22 @@ public abstract class AbstractSensor<TYPE> implements AutoCloseable{
 	protected final void registerMeasure(final TYPE _measure){
 
 		try{
-			this.metricService.registerMeasure(this.name,this.timestamp, _measure,this.reducer);
+			record(_measure);
 		}catch(Exception e){
 			Logger.getLogger(AbstractSensor.class.getName()).log(Level.WARNING,e,() -> SimpleFormat.format("measure::{}::value::{}::resgistry::failed::{}",this.name ,_measure,e.getMessage()));
 		}
 	}
 	
+	/**
+	 * Register the measure into the current MetricsService by the sensor name, the sensors that already know the metric of its name can override it to register the measure directly
+	 * @param _measure measure to register
+	 * @see MetricsService#registerMeasure(java.lang.String, java.time.LocalDateTime, java.lang.Object, org.bytemechanics.metrics.crawler.MeasureReducer, java.lang.Object...)
+	 * @since 1.1.0
+	 */
+	protected void record(final TYPE _measure){
+		this.metricService.registerMeasure(this.name,this.timestamp, _measure,this.reducer);
+	}
+	
 	/**
 	 * Close the sensor and register the current measure if present into the current  MetricsService
 	 * @see MetricsService
@@ -18,6 +18,7 @@ package org.bytemechanics.metrics.crawler.sensors;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.Optional;
+import org.bytemechanics.metrics.crawler.MeasureReducer;
 import org.bytemechanics.metrics.crawler.internal.MeasureReducers;
 
 /**
@@ -27,6 +28,7 @@ import org.bytemechanics.metrics.crawler.internal.MeasureReducers;
  *		(...)
  *  }
  * }</pre>
+ * To get also the percentiles of the measures use {@link #histogram(java.lang.String, java.lang.Object...)} instead of get
  * @see AbstractSensor
  * @see Duration
  * @author afarre
@@ -47,7 +49,21 @@ public class DurationSensor extends AbstractSensor<Duration>{
 	 * @param _args arguments to replace to the measure name
 	 */
 	protected DurationSensor(final String _name,final Object... _args){
-		super(MeasureReducers.DURATION.get(Duration.class),Optional.empty(), _name, _args);
+		this(MeasureReducers.DURATION.get(Duration.class), _name, _args);
+	}
+	/**
+	 * Builds a duration sensor with the given reducer and the name build from the given name and arguments and with the given measure<br>
+	 * Example:<pre>
+	 *	_name: "{}_name_{}"
+	 *	_args: ["prefix","suffix"]
+	 *	final name: prefix_name_suffix</pre>
+	 * @param _reducer reducer for this sensor
+	 * @param _name name of the measure
+	 * @param _args arguments to replace to the measure name
+	 * @since 1.1.0
+	 */
+	protected DurationSensor(final MeasureReducer<Duration> _reducer,final String _name,final Object... _args){
+		super(_reducer,Optional.empty(), _name, _args);
 		this.startTime=Instant.now();
 	}
 
@@ -74,5 +90,21 @@ public class DurationSensor extends AbstractSensor<Duration>{
 	public static DurationSensor get(final String _name,final Object... _args){
 		return new DurationSensor(_name,_args);
 	}
+	/**
+	 * Builds a duration sensor with the name build from the given name and arguments whose metric keeps an histogram to provide percentiles<br>
+	 * Example:<pre>
+	 *	_name: "{}_name_{}"
+	 *	_args: ["prefix","suffix"]
+	 *	final name: prefix_name_suffix</pre>
+	 * Note: the histogram is only kept if the metric is created by this sensor, if the metric already exists with other reducer it is reused
+	 * @param _name name of the measure
+	 * @param _args arguments to replace to the measure name
+	 * @return duration sensor with the replaced name
+	 * @see MeasureReducers#HISTOGRAM_DURATION
+	 * @since 1.1.0
+	 */
+	public static DurationSensor histogram(final String _name,final Object... _args){
+		return new DurationSensor(MeasureReducers.HISTOGRAM_DURATION.get(Duration.class),_name,_args);
+	}
 }
 
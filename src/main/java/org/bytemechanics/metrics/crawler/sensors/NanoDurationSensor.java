@@ -0,0 +1,173 @@
+/*
+ * Copyright 2020 Byte Mechanics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bytemechanics.metrics.crawler.sensors;
+
+import java.time.Duration;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.bytemechanics.metrics.crawler.MetricsService;
+import org.bytemechanics.metrics.crawler.internal.ThreadLocalPool;
+import org.bytemechanics.metrics.crawler.internal.commons.string.SimpleFormat;
+
+/**
+ * Duration sensor measures time between sensor creation and close() with System.nanoTime()<br>
+ * Unlike {@link DurationSensor} it does not capture any Instant nor LocalDateTime, the elapsed nanoseconds are registered as primitive long with {@link MetricsService#registerDuration(java.lang.String, long)} and the Duration is only created when the snapshot is requested.
+ * Usage:<pre>
+ * {@code try(NanoDurationSensor sensor=NanoDurationSensor.get("myMeasure")){
+ *		(...)
+ *  }
+ * }</pre>
+ * The sensors are recycled when closed through a per-thread pool, so in steady state no sensor is allocated, as consequence a sensor must not be used after close().<br>
+ * Note: the measure timestamp is the moment when the sensor is closed and not when it is created
+ * @see DurationSensor
+ * @see ThreadLocalPool
+ * @see MetricsService#registerDuration(java.lang.String, long)
+ * @author afarre
+ * @since 1.1.0
+ */
+public final class NanoDurationSensor implements AutoCloseable{
+
+	private static final ThreadLocalPool<NanoDurationSensor> POOL=new ThreadLocalPool<>(16,NanoDurationSensor::new);
+	private static final Object[] NO_PLACEHOLDERS=new Object[0];
+
+	private String name;
+	private MetricsService metricService;
+	private long startTime;
+	private boolean skip;
+
+	private NanoDurationSensor(){
+		this.metricService=null;
+		this.name=null;
+		this.skip=false;
+		this.startTime=0l;
+	}
+
+	/**
+	 * Starts the sensor with the given name for the given metric service
+	 * @param _service metrics service where the measure will be registered (mandatory)
+	 * @param _name name of the measure (mandatory)
+	 * @return this sensor started
+	 */
+	private NanoDurationSensor start(final MetricsService _service,final String _name){
+		this.metricService=_service;
+		this.name=_name;
+		this.skip=false;
+		this.startTime=System.nanoTime();
+		return this;
+	}
+
+	/**
+	 * Retrieve sensor metric name
+	 * @return sensor metric name
+	 */
+	public String getName() {
+		return name;
+	}
+	/**
+	 * Retrieve current sensor metric metricService
+	 * @return current sensor metric metricService
+	 * @see MetricsService
+	 */
+	public MetricsService getMetricService() {
+		return metricService;
+	}
+	/**
+	 * Flag this sensor to ignore any taken measure (not register in metric)
+	 */
+	public void skip() {
+		this.skip=true;
+	}
+	/**
+	 * Retrieve current sensor skip flag status
+	 * @return current sensor skip flag status
+	 */
+	public boolean isSkip() {
+		return skip;
+	}
+
+	/**
+	 * Calculate the nanoseconds elapsed from the creation time to this instant
+	 * @return nanoseconds between creation instance and now
+	 */
+	public long getNanos() {
+		return System.nanoTime()-this.startTime;
+	}
+	/**
+	 * Calculate the durantion from the creation time to this instant
+	 * @return duration time between creation instance and now
+	 */
+	public Duration getMeasure() {
+		return Duration.ofNanos(getNanos());
+	}
+
+	/**
+	 * Close the sensor, register the elapsed nanoseconds into the current MetricsService and return the sensor to the pool. Closing an already closed sensor does nothing
+	 * @see MetricsService#registerDuration(java.lang.String, long)
+	 * @see AutoCloseable
+	 */
+	@Override
+	public void close() {
+		final MetricsService service=this.metricService;
+		if(service!=null){
+			final long nanos=getNanos();
+			final String currentName=this.name;
+			this.metricService=null;
+			if(!this.skip){
+				try{
+					service.registerDuration(currentName,nanos);
+				}catch(Exception e){
+					Logger.getLogger(NanoDurationSensor.class.getName()).log(Level.WARNING,e,() -> SimpleFormat.format("measure::{}::value::{}::resgistry::failed::{}",currentName ,nanos,e.getMessage()));
+				}
+			}
+			POOL.release(this);
+		}
+	}
+
+	/**
+	 * Builds a nano duration sensor with the given name, the name is built as any other sensor name so any placeholder is replaced by null
+	 * @param _name name of the measure
+	 * @return nano duration sensor with the given name
+	 * @throws NullPointerException if metricsServiceSupplier returns null instance or _name is null
+	 */
+	public static NanoDurationSensor get(final String _name){
+		final MetricsService service=currentMetricsService();
+		final String name=service.buildMetricName(_name,NO_PLACEHOLDERS);
+		return POOL.acquire().start(service,name);
+	}
+	/**
+	 * Builds a nano duration sensor with the name build from the given name and arguments<br>
+	 * Example:<pre>
+	 *	_name: "{}_name_{}"
+	 *	_args: ["prefix","suffix"]
+	 *	final name: prefix_name_suffix</pre>
+	 * @param _name name of the measure
+	 * @param _args arguments to replace to the measure name
+	 * @return nano duration sensor with the replaced name
+	 * @throws NullPointerException if metricsServiceSupplier returns null instance or _name is null
+	 */
+	public static NanoDurationSensor get(final String _name,final Object... _args){
+		final MetricsService service=currentMetricsService();
+		final String name=service.buildMetricName(_name, _args);
+		return POOL.acquire().start(service,name);
+	}
+
+	private static MetricsService currentMetricsService(){
+		final MetricsService reply=AbstractSensor.metricsServiceSupplier.get();
+		if(reply==null)
+			throw new NullPointerException("The current metricServiceSupplier has returned a null metric service");
+		return reply;
+	}
+}
@@ -17,21 +17,45 @@ package org.bytemechanics.metrics.crawler.sensors.stack;
 
 import java.util.Optional;
 import org.bytemechanics.metrics.crawler.MeasureReducer;
+import org.bytemechanics.metrics.crawler.MetricHandle;
 import org.bytemechanics.metrics.crawler.MetricsService;
 import org.bytemechanics.metrics.crawler.sensors.AbstractSensor;
 
 /**
  * Manual abstract base class for sensors extends AbstractStackSensor adding capacity to stack metric names automatically
  * This means that the final sensor name will be the accumulation of the previous open sensors in the same thread separated by dot (.)
+ * The open sensors are tracked in the {@link SensorStack} of the current thread, to propagate them to other threads use the SensorStack attach() or wrap helpers.<br>
+ * Note: since 1.1.0 the child threads no longer inherit the stack of the thread that creates them, the tasks that must continue the stack must be wrapped with the SensorStack wrap helpers
  * @param <TYPE> sensor type
  * @see AbstractSensor
+ * @see SensorStack
  * @author afarre
  */
 public abstract class AbstractStackSensor<TYPE> extends AbstractSensor<TYPE> {
 
-	protected static final InheritableThreadLocal<String> CURRENT_NAME=new InheritableThreadLocal<>();
+	/**
+	 * Name of the current sensors stack of this thread, view over {@link SensorStack}: get() returns the name of the current frame (null without open sensors), set() makes current the frame of the given name (null or empty discards the stack) and remove() discards the stack
+	 * @deprecated use {@link SensorStack#current()} and {@link SensorStack#attach(org.bytemechanics.metrics.crawler.sensors.stack.SensorStack.Frame)} instead. Unlike previous versions the value is not inherited by the child threads, use the SensorStack wrap helpers instead
+	 */
+	@Deprecated
+	protected static final InheritableThreadLocal<String> CURRENT_NAME=new InheritableThreadLocal<String>(){
+		@Override
+		public String get() {
+			final SensorStack.Frame current=SensorStack.current();
+			return (current.getDepth()==0)? null : current.getName();
+		}
+		@Override
+		public void set(final String _name) {
+			SensorStack.restore(SensorStack.frame(_name));
+		}
+		@Override
+		public void remove() {
+			SensorStack.reset();
+		}
+	};
 
-	private final String segment;
+	private final SensorStack.Frame previous;
+	private final SensorStack.Frame frame;
 	
 	/** 
 	 * Abstract sensor constructor with the given parameters the sensor name will be the accumulation of the previous open sensors in the same thread separated by dot (.)
@@ -41,28 +65,37 @@ public abstract class AbstractStackSensor<TYPE> extends AbstractSensor<TYPE> {
 	 * @param _args placeholders for metric name (optional)
 	 * @throws NullPointerException if metricsServiceSupplier returns null instance or _name is null
 	 * @see AbstractSensor#AbstractSensor(org.bytemechanics.metrics.crawler.MeasureReducer, java.util.Optional, java.lang.String, java.lang.Object...) 
+	 * @see SensorStack
 	 */
 	protected AbstractStackSensor(final MeasureReducer<TYPE> _reducer,final Optional<MetricsService> _service,final String _name,final Object... _args){
 		super(_reducer,_service, _name, _args);
-		this.segment=this.name;
-		this.name=Optional.ofNullable(AbstractStackSensor.CURRENT_NAME.get())
-							.filter(parentMeasure -> !parentMeasure.isEmpty())
-							.map(parentMeasure -> String.join(".", parentMeasure,this.segment))
-							.orElse(this.segment);			
-		AbstractStackSensor.CURRENT_NAME.set(this.name);
+		this.previous=SensorStack.current();
+		this.frame=SensorStack.push(this.previous,this.name);
+		this.name=this.frame.getName();
+	}
+
+	/**
+	 * Register the measure through the metric handle cached in the frame of this sensor, or by name if the frame has no handle for the current MetricsService
+	 * @see AbstractSensor#record(java.lang.Object)
+	 * @see SensorStack.Frame
+	 */
+	@Override
+	protected void record(final TYPE _measure) {
+		final MetricHandle handle=this.frame.handle(this.metricService);
+		if(handle!=null){
+			handle.record(this.timestamp,_measure,this.reducer);
+		}else{
+			super.record(_measure);
+		}
 	}
 
 	/**
-	 * Close the sensor and remove the name from the sensors stack
+	 * Close the sensor and restore the sensors stack as it was when this sensor was opened
 	 * @see AbstractSensor#close() 
 	 */
 	@Override
 	public void close() {
 		super.close();
-		AbstractStackSensor.CURRENT_NAME.set(Optional.ofNullable(AbstractStackSensor.CURRENT_NAME.get())
-															.filter(current -> current.length()>(segment.length()+1))
-															.filter(current -> current.indexOf(segment)>-1)
-															.map(current ->  current.substring(0,current.indexOf(segment)-1))
-															.orElse(""));
+		SensorStack.restore(this.previous);
 	}
 }
@@ -0,0 +1,335 @@
+/*
+ * Copyright 2020 Byte Mechanics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bytemechanics.metrics.crawler.sensors.stack;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import org.bytemechanics.metrics.crawler.MetricHandle;
+import org.bytemechanics.metrics.crawler.MetricsService;
+import org.bytemechanics.metrics.crawler.impl.DefaultMetricsServiceImpl;
+import org.bytemechanics.metrics.crawler.internal.commons.string.SimpleFormat;
+
+/**
+ * Stack of the open stack sensors of the current thread<br>
+ * Each open stack sensor is a {@link Frame}, a node of a shared tree of interned segments where each frame knows its parent and its full name, computed only once when the frame is interned. This way opening a sensor is a lookup of the segment in the children of the current frame and closing it restores the frame that was current when it was opened, without building nor cutting any string.
+ * Each frame also caches the handle of its metric, so the next sensors of an interned frame register its measures directly into the metric without looking it up by name.
+ * The frames are immutable (except this cache), so the current frame can be captured and attached to another thread safely. The stack is not inherited by the new threads, instead it must be propagated explicitly with attach() or the wrap helpers (wrapRunnable(), wrapCallable(), wrapSupplier() and wrapFunction()):<pre>
+ * {@code CompletableFuture.supplyAsync(SensorStack.wrapSupplier(() -> {
+ *		try(DurationStackSensor sensor=DurationStackSensor.get("query")){
+ *			(...)
+ *		}
+ *  }),executor);
+ * }</pre>
+ * Note: every frame can intern up to {@value #MAX_CHILDREN} distinct children and the whole tree up to {@value #MAX_FRAMES} frames, the frames beyond these limits are built each time and not retained. The interned frames can be discarded with clear()
+ * @see AbstractStackSensor
+ * @author afarre
+ * @since 1.1.0
+ */
+public final class SensorStack {
+
+	/** Max interned children per frame */
+	public static final int MAX_CHILDREN=1024;
+	/** Max interned frames of the whole tree */
+	public static final int MAX_FRAMES=65536;
+
+	private static final Frame ROOT=new Frame(null,"","",0);
+	private static final ThreadLocal<Frame> CURRENT=new ThreadLocal<>();
+	private static final AtomicInteger INTERNED=new AtomicInteger();
+
+	private SensorStack(){}
+
+	/**
+	 * Retrieve the current frame of this thread
+	 * @return current frame, the root frame (with empty name) if there are no open stack sensors
+	 */
+	public static Frame current(){
+		final Frame reply=CURRENT.get();
+		return (reply!=null)? reply : ROOT;
+	}
+	/**
+	 * Discard the stack of this thread
+	 */
+	public static void reset(){
+		CURRENT.remove();
+	}
+	/**
+	 * Discard all the interned frames, the frames already captured or current in any thread remain valid but the next sensors will intern new ones
+	 */
+	public static void clear(){
+		ROOT.children.clear();
+		INTERNED.set(0);
+	}
+	/**
+	 * Retrieve the number of interned frames
+	 * @return number of interned frames, without the root frame
+	 */
+	public static int interned(){
+		return INTERNED.get();
+	}
+
+	/**
+	 * Push the given segment over the given frame and make it the current one
+	 * @param _parent frame where push the segment
+	 * @param _segment segment to push
+	 * @return the new current frame
+	 */
+	static Frame push(final Frame _parent,final String _segment){
+		final Frame reply=_parent.child(_segment);
+		CURRENT.set(reply);
+		return reply;
+	}
+	/**
+	 * Retrieve the frame of the given full name, pushing each dot (.) separated segment from the root frame
+	 * @param _name full name, null or empty for the root frame
+	 * @return frame of the given name
+	 */
+	static Frame frame(final String _name){
+		Frame reply=ROOT;
+		if((_name!=null)&&(!_name.isEmpty())){
+			for(String segment:_name.split("\\.")){
+				reply=reply.child(segment);
+			}
+		}
+		return reply;
+	}
+	/**
+	 * Make current the given frame
+	 * @param _frame frame to restore
+	 */
+	static void restore(final Frame _frame){
+		if(_frame==ROOT){
+			CURRENT.remove();
+		}else{
+			CURRENT.set(_frame);
+		}
+	}
+
+	/**
+	 * Attach the given frame as the current one of this thread until the returned scope is closed
+	 * @param _frame frame to attach (mandatory)
+	 * @return scope that restores the previous frame when closed
+	 * @throws NullPointerException if _frame is null
+	 */
+	public static Scope attach(final Frame _frame){
+		if(_frame==null)
+			throw new NullPointerException("Can not attach null sensor stack frame");
+		final Frame previous=current();
+		restore(_frame);
+		return () -> restore(previous);
+	}
+
+	/**
+	 * Wrap the given runnable to execute it with the current frame of this thread
+	 * @param _runnable runnable to wrap (mandatory)
+	 * @return runnable that attaches the captured frame during the execution
+	 * @throws NullPointerException if _runnable is null
+	 */
+	public static Runnable wrapRunnable(final Runnable _runnable){
+		if(_runnable==null)
+			throw new NullPointerException("Can not wrap null runnable");
+		final Frame frame=current();
+		return () -> {
+			final Scope scope=attach(frame);
+			try{
+				_runnable.run();
+			}finally{
+				scope.close();
+			}
+		};
+	}
+	/**
+	 * Wrap the given callable to execute it with the current frame of this thread
+	 * @param <T> result type
+	 * @param _callable callable to wrap (mandatory)
+	 * @return callable that attaches the captured frame during the execution
+	 * @throws NullPointerException if _callable is null
+	 */
+	public static <T> Callable<T> wrapCallable(final Callable<T> _callable){
+		if(_callable==null)
+			throw new NullPointerException("Can not wrap null callable");
+		final Frame frame=current();
+		return () -> {
+			final Scope scope=attach(frame);
+			try{
+				return _callable.call();
+			}finally{
+				scope.close();
+			}
+		};
+	}
+	/**
+	 * Wrap the given supplier to execute it with the current frame of this thread
+	 * @param <T> result type
+	 * @param _supplier supplier to wrap (mandatory)
+	 * @return supplier that attaches the captured frame during the execution
+	 * @throws NullPointerException if _supplier is null
+	 */
+	public static <T> Supplier<T> wrapSupplier(final Supplier<T> _supplier){
+		if(_supplier==null)
+			throw new NullPointerException("Can not wrap null supplier");
+		final Frame frame=current();
+		return () -> {
+			final Scope scope=attach(frame);
+			try{
+				return _supplier.get();
+			}finally{
+				scope.close();
+			}
+		};
+	}
+	/**
+	 * Wrap the given function to execute it with the current frame of this thread
+	 * @param <T> argument type
+	 * @param <R> result type
+	 * @param _function function to wrap (mandatory)
+	 * @return function that attaches the captured frame during the execution
+	 * @throws NullPointerException if _function is null
+	 */
+	public static <T,R> Function<T,R> wrapFunction(final Function<T,R> _function){
+		if(_function==null)
+			throw new NullPointerException("Can not wrap null function");
+		final Frame frame=current();
+		return argument -> {
+			final Scope scope=attach(frame);
+			try{
+				return _function.apply(argument);
+			}finally{
+				scope.close();
+			}
+		};
+	}
+
+
+	/**
+	 * Attached frame scope, restores the previous frame when closed
+	 */
+	@FunctionalInterface
+	public static interface Scope extends AutoCloseable{
+		/** @see AutoCloseable#close() */
+		@Override
+		void close();
+	}
+
+	/**
+	 * Immutable stack frame, one open sensor segment over its parent frame, with the cached handle of the metric of its name
+	 */
+	public static final class Frame{
+
+		private final Frame parent;
+		private final String segment;
+		private final String name;
+		private final int depth;
+		private final Map<String,Frame> children;
+		private volatile Binding binding;
+
+		private Frame(final Frame _parent,final String _segment,final String _name,final int _depth){
+			this.parent=_parent;
+			this.segment=_segment;
+			this.name=_name;
+			this.depth=_depth;
+			this.children=new ConcurrentHashMap<>(4);
+			this.binding=null;
+		}
+
+		/**
+		 * Retrieve the parent frame
+		 * @return parent frame or null if is the root frame
+		 */
+		public Frame getParent() {
+			return parent;
+		}
+		/**
+		 * Retrieve the segment of this frame
+		 * @return segment of this frame
+		 */
+		public String getSegment() {
+			return segment;
+		}
+		/**
+		 * Retrieve the full name of this frame, the segments from the root separated by dot (.)
+		 * @return full name
+		 */
+		public String getName() {
+			return name;
+		}
+		/**
+		 * Retrieve the number of segments of this frame
+		 * @return number of segments, 0 for the root frame
+		 */
+		public int getDepth() {
+			return depth;
+		}
+
+		/**
+		 * Retrieve the handle of the metric of this frame in the given service, resolved with the first measure and reused while the sensors use the same service.
+		 * Only the DefaultMetricsServiceImpl handles are cached, because they are bound directly to the metric and resolved again when the service discards or evicts its metrics
+		 * @param _service metrics service of the sensor
+		 * @return the handle of the metric of this frame or null if the service handles are not cached
+		 */
+		MetricHandle handle(final MetricsService _service){
+			if(!(_service instanceof DefaultMetricsServiceImpl))
+				return null;
+			Binding current=this.binding;
+			if((current==null)||(current.service!=_service)){
+				final MetricHandle handle=_service.handle(this.name);
+				current=new Binding(_service,(this.name.equals(handle.getName()))? handle : null);
+				this.binding=current;
+			}
+			return current.handle;
+		}
+
+		Frame child(final String _segment){
+			Frame reply=this.children.get(_segment);
+			if(reply==null){
+				final Frame built=new Frame(this,_segment,(this.name.isEmpty())? _segment : String.join(".",this.name,_segment),this.depth+1);
+				if((this.children.size()<MAX_CHILDREN)&&(INTERNED.get()<MAX_FRAMES)){
+					reply=this.children.putIfAbsent(_segment,built);
+					if(reply==null){
+						INTERNED.incrementAndGet();
+					}
+				}
+				if(reply==null){
+					reply=built;
+				}
+			}
+			return reply;
+		}
+
+		/** @see Object#toString()   */
+		@Override
+		public String toString() {
+			return SimpleFormat.format("SensorStack.Frame[name={}, depth={}]", this.name, this.depth);
+		}
+	}
+
+	/**
+	 * Metric handle of a frame with the service that resolved it
+	 */
+	private static final class Binding{
+
+		final MetricsService service;
+		final MetricHandle handle;
+
+		Binding(final MetricsService _service,final MetricHandle _handle){
+			this.service=_service;
+			this.handle=_handle;
+		}
+	}
+}
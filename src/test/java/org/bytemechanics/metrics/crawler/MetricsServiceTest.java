@@ -18,10 +18,18 @@ package org.bytemechanics.metrics.crawler;
 import java.io.IOException;
 import java.io.InputStream;
 import java.lang.reflect.Method;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
 import java.util.logging.LogManager;
 import java.util.logging.Logger;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import mockit.Tested;
+import org.bytemechanics.metrics.crawler.beans.MetricSnapshot;
+import org.bytemechanics.metrics.crawler.beans.MetricsDelta;
 import org.bytemechanics.metrics.crawler.impl.DefaultMetricsServiceImpl;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeAll;
@@ -86,4 +94,114 @@ public class MetricsServiceTest {
 		Assertions.assertEquals(_result
 								,metricsService.buildMetricName(_name, _args));
 	}
+
+	@Test
+	@DisplayName("The default getMetricsUnder() must filter the metrics with the given path and under it")
+	public void defaultGetMetricsUnder(){
+
+		final DefaultMetricsServiceImpl delegate=new DefaultMetricsServiceImpl(4);
+		final MetricsService service=new MetricsService() {
+			@Override
+			public int getSamplingSize() {
+				return delegate.getSamplingSize();
+			}
+			@Override
+			public Optional<MetricSnapshot> getMetric(final String _name,final Object... _placeholders) {
+				return delegate.getMetric(_name, _placeholders);
+			}
+			@Override
+			public <TYPE> void registerMeasure(final String _name,final LocalDateTime _time,final TYPE _measure,final MeasureReducer<TYPE> _reducer,final Object... _placeholders) {
+				delegate.registerMeasure(_name, _time, _measure, _reducer, _placeholders);
+			}
+			@Override
+			public List<MetricSnapshot> getMetrics() {
+				return delegate.getMetrics();
+			}
+			@Override
+			public void clear() {
+				delegate.clear();
+			}
+		};
+		service.registerMeasure("http.orders.get",1l);
+		service.registerMeasure("http.orders",1l);
+		service.registerMeasure("http.ordersCount",1l);
+		service.registerMeasure("db",1l);
+
+		Assertions.assertEquals(Arrays.asList("http.orders","http.orders.get")
+								,service.getMetricsUnder("http.{}","orders").stream().map(MetricSnapshot::getName).collect(Collectors.toList()));
+		Assertions.assertEquals(4,service.getMetricsUnder("").size());
+		Assertions.assertEquals(delegate.getMetricsUnder("http"),service.getMetricsUnder("http"));
+		Assertions.assertThrows(NullPointerException.class,() -> service.getMetricsUnder(null));
+	}
+
+	@Test
+	@DisplayName("The default getMetricsSince() must return all the metrics and the same cursor")
+	public void defaultGetMetricsSince(){
+
+		final DefaultMetricsServiceImpl delegate=new DefaultMetricsServiceImpl(4);
+		final MetricsService service=new MetricsService() {
+			@Override
+			public int getSamplingSize() {
+				return delegate.getSamplingSize();
+			}
+			@Override
+			public Optional<MetricSnapshot> getMetric(final String _name,final Object... _placeholders) {
+				return delegate.getMetric(_name, _placeholders);
+			}
+			@Override
+			public <TYPE> void registerMeasure(final String _name,final LocalDateTime _time,final TYPE _measure,final MeasureReducer<TYPE> _reducer,final Object... _placeholders) {
+				delegate.registerMeasure(_name, _time, _measure, _reducer, _placeholders);
+			}
+			@Override
+			public List<MetricSnapshot> getMetrics() {
+				return delegate.getMetrics();
+			}
+			@Override
+			public void clear() {
+				delegate.clear();
+			}
+		};
+		service.registerMeasure("b",1l);
+		service.registerMeasure("a",1l);
+
+		Assertions.assertEquals(new MetricsDelta(0l,delegate.getMetrics()),service.getMetricsSince(0l));
+		Assertions.assertEquals(new MetricsDelta(7l,delegate.getMetrics()),service.getMetricsSince(7l));
+	}
+
+	@Test
+	@DisplayName("The default forEach() must visit the snapshots of all the metrics")
+	public void defaultForEach(){
+
+		final DefaultMetricsServiceImpl delegate=new DefaultMetricsServiceImpl(4);
+		final MetricsService service=new MetricsService() {
+			@Override
+			public int getSamplingSize() {
+				return delegate.getSamplingSize();
+			}
+			@Override
+			public Optional<MetricSnapshot> getMetric(final String _name,final Object... _placeholders) {
+				return delegate.getMetric(_name, _placeholders);
+			}
+			@Override
+			public <TYPE> void registerMeasure(final String _name,final LocalDateTime _time,final TYPE _measure,final MeasureReducer<TYPE> _reducer,final Object... _placeholders) {
+				delegate.registerMeasure(_name, _time, _measure, _reducer, _placeholders);
+			}
+			@Override
+			public List<MetricSnapshot> getMetrics() {
+				return delegate.getMetrics();
+			}
+			@Override
+			public void clear() {
+				delegate.clear();
+			}
+		};
+		service.registerMeasure("b",1l);
+		service.registerMeasure("a",2.0d);
+		final List<MetricSnapshot> snapshots=new ArrayList<>();
+
+		service.forEach(reading -> snapshots.add(reading.getSnapshot()));
+
+		Assertions.assertEquals(delegate.getMetrics(),snapshots);
+		Assertions.assertThrows(NullPointerException.class,() -> service.forEach(null));
+	}
 }
@@ -0,0 +1,256 @@
+/*
+ * Copyright 2020 Byte Mechanics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bytemechanics.metrics.crawler.beans;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.logging.LogManager;
+import java.util.logging.Logger;
+import org.bytemechanics.metrics.crawler.MeasureReducer;
+import org.bytemechanics.metrics.crawler.internal.MeasureReducers;
+import org.bytemechanics.metrics.crawler.internal.RunningVariance;
+import org.bytemechanics.metrics.crawler.internal.Timestamps;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInfo;
+
+/**
+ * @author afarre
+ */
+public class MetricReadingTest {
+
+	@BeforeAll
+	public static void setup() throws IOException{
+		System.out.println(">>>>> MetricReadingTest >>>> setup");
+		try(InputStream inputStream = MetricReadingTest.class.getResourceAsStream("/logging.properties")){
+			LogManager.getLogManager().readConfiguration(inputStream);
+		}catch (final IOException e){
+			Logger.getAnonymousLogger().severe("Could not load default logging.properties file");
+			Logger.getAnonymousLogger().severe(e.getMessage());
+		}
+	}
+
+	@BeforeEach
+    void beforeEachTest(final TestInfo testInfo) {
+        System.out.println(">>>>> "+this.getClass().getSimpleName()+" >>>> "+testInfo.getTestMethod().map(Method::getName).orElse("Unkown")+""+testInfo.getTags().toString()+" >>>> "+testInfo.getDisplayName());
+    }
+
+
+	@Test
+	@DisplayName("MetricReading filled with long values should return the values as long and double and the truncated average")
+	public void longValues(){
+
+		final MeasureReducer<Long> reducer=MeasureReducers.LONG.get(Long.class);
+		final MetricReading instance=new MetricReading().longValues("a",reducer,MetricReading.Kind.LONG,4l,10l,14l,5l,2l,3l,123l);
+
+		Assertions.assertEquals("a",instance.getName());
+		Assertions.assertSame(reducer,instance.getReducer());
+		Assertions.assertEquals(MetricReading.Kind.LONG,instance.getKind());
+		Assertions.assertEquals(4l,instance.getSamplingSize());
+		Assertions.assertEquals(10l,instance.getTotalHits());
+		Assertions.assertEquals(14l,instance.getLongAccumulated());
+		Assertions.assertEquals(5l,instance.getLongMax());
+		Assertions.assertEquals(2l,instance.getLongMin());
+		Assertions.assertEquals(3l,instance.getLongAverage());
+		Assertions.assertEquals(3l,instance.getLongLast());
+		Assertions.assertEquals(14.0d,instance.getDoubleAccumulated());
+		Assertions.assertEquals(5.0d,instance.getDoubleMax());
+		Assertions.assertEquals(2.0d,instance.getDoubleMin());
+		Assertions.assertEquals(3.0d,instance.getDoubleAverage());
+		Assertions.assertEquals(3.0d,instance.getDoubleLast());
+		Assertions.assertEquals(123l,instance.getLastOccurrence());
+		Assertions.assertNull(instance.getSnapshot());
+		Assertions.assertEquals("MetricReading[name=a, kind=LONG, samplingSize=4, totalHits=10, accumulated=14, max=5, min=2, average=3, last=3, lastOccurrence=123]",instance.toString());
+	}
+
+	@Test
+	@DisplayName("MetricReading filled with double values should return the values only as double and reset the long values")
+	public void doubleValues(){
+
+		final MeasureReducer<Double> reducer=MeasureReducers.DOUBLE.get(Double.class);
+		final MetricReading instance=new MetricReading()
+												.longValues("a",MeasureReducers.LONG.get(Long.class),MetricReading.Kind.LONG,4l,10l,14l,5l,2l,3l,123l)
+												.doubleValues("b",reducer,2l,3l,3.0d,2.5d,0.5d,0.5d,456l);
+
+		Assertions.assertEquals("b",instance.getName());
+		Assertions.assertSame(reducer,instance.getReducer());
+		Assertions.assertEquals(MetricReading.Kind.DOUBLE,instance.getKind());
+		Assertions.assertEquals(2l,instance.getSamplingSize());
+		Assertions.assertEquals(3l,instance.getTotalHits());
+		Assertions.assertEquals(0l,instance.getLongAccumulated());
+		Assertions.assertEquals(0l,instance.getLongAverage());
+		Assertions.assertEquals(3.0d,instance.getDoubleAccumulated());
+		Assertions.assertEquals(2.5d,instance.getDoubleMax());
+		Assertions.assertEquals(0.5d,instance.getDoubleMin());
+		Assertions.assertEquals(1.5d,instance.getDoubleAverage());
+		Assertions.assertEquals(0.5d,instance.getDoubleLast());
+		Assertions.assertEquals(456l,instance.getLastOccurrence());
+		Assertions.assertNull(instance.getSnapshot());
+		Assertions.assertEquals("MetricReading[name=b, kind=DOUBLE, samplingSize=2, totalHits=3, accumulated=3.0, max=2.5, min=0.5, average=1.5, last=0.5, lastOccurrence=456]",instance.toString());
+	}
+
+	@Test
+	@DisplayName("MetricReading filled from a snapshot should convert the Long, Double and Duration values to primitives")
+	@SuppressWarnings("unchecked")
+	public void snapshotValues(){
+
+		final LocalDateTime time=LocalDateTime.of(2020,2,2,2,2);
+		final MetricSnapshot<Duration> durations=MetricSnapshot.builder(MeasureReducers.DURATION.get(Duration.class))
+																.name("d")
+																.samplingSize(2)
+																.totalHits(5)
+																.accumulatedSamples(Duration.ofNanos(9))
+																.maxMeasure(Duration.ofNanos(7))
+																.minMeasure(Duration.ofNanos(2))
+																.averageMeasure(Duration.ofNanos(4))
+																.lastMeasure(Duration.ofNanos(2))
+																.lastOccurrence(time)
+															.build();
+		final MetricReading instance=new MetricReading().snapshotValues(durations);
+		Assertions.assertEquals("MetricReading[name=d, kind=DURATION, samplingSize=2, totalHits=5, accumulated=9, max=7, min=2, average=4, last=2, lastOccurrence="+Timestamps.toTimestamp(time)+"]",instance.toString());
+		Assertions.assertSame(durations,instance.getSnapshot());
+
+		final MetricSnapshot<Double> doubles=MetricSnapshot.builder(MeasureReducers.DOUBLE.get(Double.class))
+																.name("e")
+																.samplingSize(2)
+																.totalHits(2)
+																.accumulatedSamples(3.0d)
+																.maxMeasure(2.0d)
+																.minMeasure(1.0d)
+																.averageMeasure(1.5d)
+																.lastMeasure(1.0d)
+																.lastOccurrence(time)
+															.build();
+		Assertions.assertEquals("MetricReading[name=e, kind=DOUBLE, samplingSize=2, totalHits=2, accumulated=3.0, max=2.0, min=1.0, average=1.5, last=1.0, lastOccurrence="+Timestamps.toTimestamp(time)+"]",instance.snapshotValues(doubles).toString());
+		Assertions.assertSame(doubles,instance.getSnapshot());
+
+		final MetricSnapshot<Long> empty=MetricSnapshot.builder(MeasureReducers.LONG.get(Long.class))
+																.name("f")
+															.build();
+		Assertions.assertEquals("MetricReading[name=f, kind=LONG, samplingSize=0, totalHits=0, accumulated=0, max=0, min=0, average=0, last=0, lastOccurrence=0]",instance.snapshotValues(empty).toString());
+	}
+
+	@Test
+	@DisplayName("MetricReading filled from a snapshot of a non primitive type should be an OBJECT reading with the snapshot")
+	@SuppressWarnings("unchecked")
+	public void snapshotValuesObject(){
+
+		final LocalDateTime time=LocalDateTime.of(2020,2,2,2,2);
+		final MeasureReducer<String> reducer=new MeasureReducer<String>(){
+															@Override public Class getType(){ return String.class; }
+															@Override public String identity(){ return ""; }
+															@Override public Optional<String> accumulate(final String _val1,final String _val2){ return Optional.of(_val1+_val2); }
+															@Override public Optional<String> max(final String _val1,final String _val2){ return Optional.of((_val1.compareTo(_val2)>0)? _val1 : _val2); }
+															@Override public Optional<String> min(final String _val1,final String _val2){ return Optional.of((_val1.compareTo(_val2)<0)? _val1 : _val2); }
+															@Override public Optional<String> average(final String _val,final long _hits){ return Optional.of(_val); }
+															@Override public String toString(final String _val){ return _val; }
+														};
+		final MetricSnapshot<String> snapshot=MetricSnapshot.builder(reducer)
+																.name("g")
+																.samplingSize(2)
+																.totalHits(3)
+																.accumulatedSamples("ab")
+																.maxMeasure("b")
+																.minMeasure("a")
+																.averageMeasure("ab")
+																.lastMeasure("b")
+																.lastOccurrence(time)
+															.build();
+		final MetricReading instance=new MetricReading().snapshotValues(snapshot);
+
+		Assertions.assertEquals("g",instance.getName());
+		Assertions.assertSame(reducer,instance.getReducer());
+		Assertions.assertEquals(MetricReading.Kind.OBJECT,instance.getKind());
+		Assertions.assertEquals(2l,instance.getSamplingSize());
+		Assertions.assertEquals(3l,instance.getTotalHits());
+		Assertions.assertEquals(0l,instance.getLongAccumulated());
+		Assertions.assertEquals(0.0d,instance.getDoubleAccumulated());
+		Assertions.assertEquals(Timestamps.toTimestamp(time),instance.getLastOccurrence());
+		Assertions.assertSame(snapshot,instance.getSnapshot());
+	}
+
+	@Test
+	@DisplayName("MetricReading filled with counter values should return the total as long and double and the rate, that must be reset by the next fill")
+	@SuppressWarnings("unchecked")
+	public void counterValues(){
+
+		final MeasureReducer<Long> reducer=MeasureReducers.LONG.get(Long.class);
+		final MetricReading instance=new MetricReading().counterValues("c",reducer,4l,14l,2.5d,123l);
+
+		Assertions.assertEquals("c",instance.getName());
+		Assertions.assertSame(reducer,instance.getReducer());
+		Assertions.assertEquals(MetricReading.Kind.COUNTER,instance.getKind());
+		Assertions.assertEquals(4l,instance.getTotalHits());
+		Assertions.assertEquals(14l,instance.getLongAccumulated());
+		Assertions.assertEquals(14.0d,instance.getDoubleAccumulated());
+		Assertions.assertEquals(2.5d,instance.getRate());
+		Assertions.assertEquals(123l,instance.getLastOccurrence());
+		Assertions.assertTrue(Double.isNaN(instance.getVariance()));
+		Assertions.assertNull(instance.getSnapshot());
+		Assertions.assertEquals("MetricReading[name=c, kind=COUNTER, totalHits=4, accumulated=14, rate=2.5, lastOccurrence=123]",instance.toString());
+
+		final MetricSnapshot<Long> snapshot=MetricSnapshot.builder(reducer)
+																.name("c")
+																.samplingSize(4)
+																.totalHits(4)
+																.accumulatedSamples(14l)
+																.maxMeasure(null)
+																.minMeasure(null)
+																.lastMeasure(null)
+																.lastOccurrence(LocalDateTime.of(2001,1,1,1,1))
+																.rate(2.5d)
+															.build();
+		final MetricReading fromSnapshot=new MetricReading().snapshotValues(snapshot);
+
+		Assertions.assertEquals(MetricReading.Kind.COUNTER,fromSnapshot.getKind());
+		Assertions.assertEquals(14l,fromSnapshot.getLongAccumulated());
+		Assertions.assertEquals(2.5d,fromSnapshot.getRate());
+		Assertions.assertSame(snapshot,fromSnapshot.getSnapshot());
+		Assertions.assertTrue(Double.isNaN(instance.longValues("l",reducer,MetricReading.Kind.LONG,2l,2l,4l,3l,1l,3l,0l).getRate()));
+	}
+
+	@Test
+	@DisplayName("The variance must be taken from the snapshot or set after fill the primitive values and reset by the next fill")
+	@SuppressWarnings("unchecked")
+	public void variance(){
+
+		final MetricSnapshot<Long> snapshot=MetricSnapshot.builder(MeasureReducers.LONG.get(Long.class))
+																.name("l")
+																.samplingSize(2)
+																.accumulatedSamples(4l)
+																.maxMeasure(3l)
+																.minMeasure(1l)
+																.averageMeasure(2l)
+																.lastMeasure(3l)
+																.lastOccurrence(LocalDateTime.of(2001,1,1,1,1))
+																.variance(new RunningVariance().record(1.0d).record(3.0d))
+															.build();
+		final MetricReading instance=new MetricReading().snapshotValues(snapshot);
+
+		Assertions.assertEquals(2.0d,instance.getVariance());
+		Assertions.assertEquals(Math.sqrt(2.0d),instance.getStdDeviation());
+		Assertions.assertTrue(Double.isNaN(instance.doubleValues("d",MeasureReducers.DOUBLE.get(Double.class),2l,2l,4.0d,3.0d,1.0d,3.0d,0l).getVariance()));
+		Assertions.assertEquals(8.0d,instance.variance(8.0d).getVariance());
+		Assertions.assertTrue(Double.isNaN(instance.longValues("l",MeasureReducers.LONG.get(Long.class),MetricReading.Kind.LONG,2l,2l,4l,3l,1l,3l,0l).getStdDeviation()));
+	}
+}
@@ -18,15 +18,20 @@ package org.bytemechanics.metrics.crawler.beans;
 import java.io.IOException;
 import java.io.InputStream;
 import java.lang.reflect.Method;
+import java.text.NumberFormat;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Optional;
 import java.util.logging.LogManager;
 import java.util.logging.Logger;
 import java.util.stream.Stream;
 import org.bytemechanics.metrics.crawler.MeasureReducer;
+import org.bytemechanics.metrics.crawler.internal.LogLinearHistogram;
 import org.bytemechanics.metrics.crawler.internal.MeasureReducers;
+import org.bytemechanics.metrics.crawler.internal.QuantileSketch;
+import org.bytemechanics.metrics.crawler.internal.RunningVariance;
 import org.bytemechanics.metrics.crawler.internal.commons.string.SimpleFormat;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeAll;
@@ -817,4 +822,273 @@ public class MetricSnapshotTest {
 																						.name("my-name1")
 																					.build()));
 	}
+
+	@Test
+	@DisplayName("Snapshots with histogram reducer should provide the percentiles and merge the histograms when reduced")
+	@SuppressWarnings("unchecked")
+	public void histogram(){
+
+		final LogLinearHistogram histogram1=new LogLinearHistogram();
+		final LogLinearHistogram histogram2=new LogLinearHistogram();
+		for(long ic1=1;ic1<=30;ic1++){
+			((ic1<=10)? histogram1 : histogram2).record(ic1);
+		}
+		final MetricSnapshot<Long> snapshot1=MetricSnapshot.builder(MeasureReducers.HISTOGRAM_LONG.get(Long.class))
+																.name("my-name")
+																.samplingSize(10)
+																.accumulatedSamples(55l)
+																.lastOccurrence(LocalDateTime.of(2001,1,1,1,1))
+																.histogram(histogram1)
+															.build();
+		final MetricSnapshot<Long> snapshot2=MetricSnapshot.builder(MeasureReducers.HISTOGRAM_LONG.get(Long.class))
+																.name("my-name")
+																.samplingSize(20)
+																.accumulatedSamples(410l)
+																.lastOccurrence(LocalDateTime.of(2002,1,1,1,1))
+																.histogram(histogram2)
+															.build();
+
+		Assertions.assertEquals(5l,snapshot1.getPercentile50Measure());
+		Assertions.assertEquals(20l,snapshot2.getPercentile50Measure());
+		Assertions.assertEquals(NumberFormat.getNumberInstance().format(20l),snapshot2.getFormatedPercentile(50.0d));
+		final MetricSnapshot<Long> reduced=snapshot1.reduce(snapshot2);
+		Assertions.assertEquals(30l,reduced.getHistogram().getCount());
+		Assertions.assertEquals(15l,reduced.getPercentile50Measure());
+		Assertions.assertEquals(27l,reduced.getPercentile90Measure());
+		Assertions.assertEquals(30l,reduced.getPercentile99Measure());
+		Assertions.assertEquals(30l,reduced.getPercentile999Measure());
+		Assertions.assertEquals(10l,snapshot1.getHistogram().getCount());
+		Assertions.assertTrue(reduced.toString().endsWith(", p50=15, p90=27, p99=30, p999=30"));
+	}
+
+	@Test
+	@DisplayName("Snapshots with primitive reducer should provide the variance and merge the running variances when reduced")
+	@SuppressWarnings("unchecked")
+	public void variance(){
+
+		final RunningVariance variance1=new RunningVariance();
+		final RunningVariance variance2=new RunningVariance();
+		final RunningVariance expected=new RunningVariance();
+		for(long ic1=1;ic1<=30;ic1++){
+			((ic1<=10)? variance1 : variance2).record(ic1);
+			expected.record(ic1);
+		}
+		final MetricSnapshot<Duration> snapshot1=MetricSnapshot.builder(MeasureReducers.DURATION.get(Duration.class))
+																.name("my-name")
+																.samplingSize(10)
+																.lastOccurrence(LocalDateTime.of(2001,1,1,1,1))
+																.variance(variance1)
+															.build();
+		final MetricSnapshot<Duration> snapshot2=MetricSnapshot.builder(MeasureReducers.DURATION.get(Duration.class))
+																.name("my-name")
+																.samplingSize(20)
+																.lastOccurrence(LocalDateTime.of(2002,1,1,1,1))
+																.variance(variance2)
+															.build();
+		final MetricSnapshot<Duration> empty=MetricSnapshot.builder(MeasureReducers.DURATION.get(Duration.class))
+																.name("my-name")
+																.lastOccurrence(LocalDateTime.of(2000,1,1,1,1))
+															.build();
+
+		Assertions.assertEquals(variance1.getVariance(),snapshot1.getVariance());
+		Assertions.assertEquals(Duration.ofNanos(3l),snapshot1.getStdDeviation());
+		Assertions.assertEquals(MeasureReducers.DURATION.get(Duration.class).toString(Duration.ofNanos(3l)),snapshot1.getFormatedStdDeviation());
+		final MetricSnapshot<Duration> reduced=snapshot1.reduce(snapshot2);
+		Assertions.assertEquals(30l,reduced.getRunningVariance().getCount());
+		Assertions.assertEquals(expected.getVariance(),reduced.getVariance(),1e-9d);
+		Assertions.assertEquals(Duration.ofNanos(9l),reduced.getStdDeviation());
+		Assertions.assertEquals(expected.getVariance(),empty.reduce(reduced).getVariance(),1e-9d);
+		Assertions.assertEquals(expected.getVariance(),reduced.reduce(empty).getVariance(),1e-9d);
+		Assertions.assertEquals(10l,snapshot1.getRunningVariance().getCount());
+		Assertions.assertEquals(MetricSnapshot.builder(MeasureReducers.DURATION.get(Duration.class),snapshot1).build().getRunningVariance(),snapshot1.getRunningVariance());
+		Assertions.assertTrue(reduced.toString().endsWith(SimpleFormat.format(", variance={}, stdDeviation={}",reduced.getVariance(),Duration.ofNanos(9l))));
+	}
+
+	@Test
+	@DisplayName("Snapshots without running variance should return NaN variance, null standard deviation and not take it in account to compare")
+	@SuppressWarnings("unchecked")
+	public void withoutVariance(){
+
+		final MetricSnapshot<Long> snapshot=MetricSnapshot.builder(MeasureReducers.LONG.get(Long.class))
+																.name("my-name")
+																.samplingSize(2)
+																.lastOccurrence(LocalDateTime.of(2001,1,1,1,1))
+															.build();
+		final MetricSnapshot<Long> withVariance=MetricSnapshot.builder(MeasureReducers.LONG.get(Long.class),snapshot)
+																.variance(new RunningVariance().record(1.0d).record(3.0d))
+															.build();
+
+		Assertions.assertNull(snapshot.getRunningVariance());
+		Assertions.assertTrue(Double.isNaN(snapshot.getVariance()));
+		Assertions.assertNull(snapshot.getStdDeviation());
+		Assertions.assertEquals(snapshot,withVariance);
+		Assertions.assertEquals(snapshot.hashCode(),withVariance.hashCode());
+		Assertions.assertNull(snapshot.reduce(withVariance).getRunningVariance());
+		Assertions.assertEquals(2.0d,withVariance.getVariance());
+		Assertions.assertEquals(1l,withVariance.getStdDeviation());
+	}
+
+	@Test
+	@DisplayName("Snapshots without histogram reducer should ignore the histogram and return null percentiles")
+	@SuppressWarnings("unchecked")
+	public void withoutHistogram(){
+
+		final LogLinearHistogram histogram=new LogLinearHistogram();
+		histogram.record(1l);
+		final MetricSnapshot<Long> snapshot=MetricSnapshot.builder(MeasureReducers.LONG.get(Long.class))
+																.name("my-name")
+																.histogram(histogram)
+															.build();
+
+		Assertions.assertNull(snapshot.getHistogram());
+		Assertions.assertNull(snapshot.getPercentile50Measure());
+		Assertions.assertEquals("null",snapshot.getFormatedPercentile(50.0d));
+		Assertions.assertEquals(MetricSnapshot.builder(MeasureReducers.LONG.get(Long.class)).name("my-name").build(),snapshot);
+	}
+
+	@Test
+	@DisplayName("Snapshots with primitive reducer should provide the quantiles from the sketch and merge the sketches when reduced")
+	@SuppressWarnings("unchecked")
+	public void sketch(){
+
+		final QuantileSketch sketch1=new QuantileSketch();
+		final QuantileSketch sketch2=new QuantileSketch();
+		final QuantileSketch expected=new QuantileSketch();
+		for(long ic1=1;ic1<=300;ic1++){
+			((ic1<=100)? sketch1 : sketch2).record(ic1*1000.0d);
+			expected.record(ic1*1000.0d);
+		}
+		final MetricSnapshot<Duration> snapshot1=MetricSnapshot.builder(MeasureReducers.DURATION.get(Duration.class))
+																.name("my-name")
+																.samplingSize(100)
+																.lastOccurrence(LocalDateTime.of(2001,1,1,1,1))
+																.sketch(sketch1)
+															.build();
+		final MetricSnapshot<Duration> snapshot2=MetricSnapshot.builder(MeasureReducers.DURATION.get(Duration.class))
+																.name("my-name")
+																.samplingSize(200)
+																.lastOccurrence(LocalDateTime.of(2002,1,1,1,1))
+																.sketch(sketch2)
+															.build();
+		final MetricSnapshot<Duration> empty=MetricSnapshot.builder(MeasureReducers.DURATION.get(Duration.class))
+																.name("my-name")
+																.lastOccurrence(LocalDateTime.of(2000,1,1,1,1))
+															.build();
+
+		Assertions.assertEquals(Duration.ofNanos(Math.round(sketch1.quantile(0.5d))),snapshot1.getQuantile(0.5d));
+		Assertions.assertEquals(50_000.0d,snapshot1.getQuantile(0.5d).toNanos(),500.0d);
+		Assertions.assertEquals(snapshot1.getQuantile(0.9d),snapshot1.getPercentile90Measure());
+		Assertions.assertEquals(MeasureReducers.DURATION.get(Duration.class).toString(snapshot1.getQuantile(0.5d)),snapshot1.getFormatedQuantile(0.5d));
+		final MetricSnapshot<Duration> reduced=snapshot1.reduce(snapshot2);
+		Assertions.assertEquals(expected,reduced.getSketch());
+		Assertions.assertEquals(Duration.ofNanos(Math.round(expected.quantile(0.99d))),reduced.getQuantile(0.99d));
+		Assertions.assertEquals(expected,empty.reduce(reduced).getSketch());
+		Assertions.assertEquals(expected,reduced.reduce(empty).getSketch());
+		Assertions.assertEquals(100l,snapshot1.getSketch().getCount());
+		Assertions.assertEquals(MetricSnapshot.builder(MeasureReducers.DURATION.get(Duration.class),snapshot1).build(),snapshot1);
+		Assertions.assertNotEquals(snapshot1,MetricSnapshot.builder(MeasureReducers.DURATION.get(Duration.class),snapshot1).sketch(sketch2).build());
+		Assertions.assertTrue(reduced.toString().endsWith(SimpleFormat.format(", p50={}, p90={}, p99={}, p999={}",reduced.getPercentile50Measure(),reduced.getPercentile90Measure(),reduced.getPercentile99Measure(),reduced.getPercentile999Measure())));
+		Assertions.assertNull(snapshot1.reduce(MetricSnapshot.builder(MeasureReducers.DURATION.get(Duration.class),snapshot2).sketch(new QuantileSketch(0.02d,128).record(1.0d)).build()).getSketch());
+	}
+
+	@Test
+	@DisplayName("Snapshots without quantile sketch should return null quantiles and ignore the sketch if the reducer is not primitive")
+	@SuppressWarnings("unchecked")
+	public void withoutSketch(){
+
+		final MetricSnapshot<Long> snapshot=MetricSnapshot.builder(MeasureReducers.LONG.get(Long.class))
+																.name("my-name")
+																.samplingSize(2)
+															.build();
+		final MeasureReducer<Long> reducer=new MeasureReducer<Long>(){
+					@Override
+					public Class getType() {
+						return Long.class;
+					}
+					@Override
+					public Long identity() {
+						return 0l;
+					}
+					@Override
+					public Optional<Long> accumulate(final Long _val1,final Long _val2) {
+						return Optional.ofNullable(_val1);
+					}
+					@Override
+					public Optional<Long> max(final Long _val1,final Long _val2) {
+						return Optional.ofNullable(_val1);
+					}
+					@Override
+					public Optional<Long> min(final Long _val1,final Long _val2) {
+						return Optional.ofNullable(_val1);
+					}
+					@Override
+					public Optional<Long> average(final Long _val,final long _hits) {
+						return Optional.ofNullable(_val).map(val -> val/_hits);
+					}
+					@Override
+					public String toString(final Long _val) {
+						return String.valueOf(_val);
+					}
+				};
+
+		Assertions.assertNull(snapshot.getSketch());
+		Assertions.assertNull(snapshot.getQuantile(0.5d));
+		Assertions.assertNull(snapshot.getPercentile(50.0d));
+		Assertions.assertEquals("null",snapshot.getFormatedQuantile(0.5d));
+		Assertions.assertNull(MetricSnapshot.builder(reducer).sketch(new QuantileSketch().record(1.0d)).build().getSketch());
+		Assertions.assertThrows(IllegalArgumentException.class,() -> MetricSnapshot.builder(MeasureReducers.LONG.get(Long.class)).sketch(new QuantileSketch().record(1.0d)).build().getPercentile(101.0d));
+	}
+
+	@Test
+	@DisplayName("The counter snapshots must keep the rate and when reduced together sum the totals and rates, and the rate must be kept when reduced with an empty snapshot")
+	@SuppressWarnings("unchecked")
+	public void counter(){
+
+		final MetricSnapshot<Long> counter1=MetricSnapshot.builder(MeasureReducers.LONG.get(Long.class))
+																.name("my-name")
+																.samplingSize(2)
+																.totalHits(2)
+																.accumulatedSamples(10l)
+																.maxMeasure(null)
+																.minMeasure(null)
+																.averageMeasure(5l)
+																.lastMeasure(null)
+																.lastOccurrence(LocalDateTime.of(2001,1,1,1,1))
+																.rate(1.5d)
+															.build();
+		final MetricSnapshot<Long> counter2=MetricSnapshot.builder(MeasureReducers.LONG.get(Long.class))
+																.name("my-name")
+																.samplingSize(4)
+																.totalHits(4)
+																.accumulatedSamples(14l)
+																.maxMeasure(null)
+																.minMeasure(null)
+																.averageMeasure(3l)
+																.lastMeasure(null)
+																.lastOccurrence(LocalDateTime.of(2002,1,1,1,1))
+																.rate(2.0d)
+															.build();
+		final MetricSnapshot<Long> empty=MetricSnapshot.builder(MeasureReducers.LONG.get(Long.class))
+																.name("my-name")
+																.lastOccurrence(LocalDateTime.of(2000,1,1,1,1))
+															.build();
+
+		Assertions.assertTrue(counter1.isCounter());
+		Assertions.assertEquals(1.5d,counter1.getRate());
+		Assertions.assertFalse(empty.isCounter());
+		Assertions.assertTrue(Double.isNaN(empty.getRate()));
+		Assertions.assertEquals(1.5d,MetricSnapshot.builder(MeasureReducers.LONG.get(Long.class),counter1).build().getRate());
+		Assertions.assertTrue(counter1.toString().endsWith(", rate=1.5"));
+		final MetricSnapshot<Long> reduced=counter1.reduce(counter2);
+		Assertions.assertEquals(24l,reduced.getAccumulatedSamples());
+		Assertions.assertEquals(6l,reduced.getSamplingSize());
+		Assertions.assertEquals(6l,reduced.getTotalHits());
+		Assertions.assertEquals(4l,reduced.getAverageMeasure());
+		Assertions.assertNull(reduced.getMaxMeasure());
+		Assertions.assertNull(reduced.getLastMeasure());
+		Assertions.assertEquals(LocalDateTime.of(2002,1,1,1,1),reduced.getLastOccurrence());
+		Assertions.assertEquals(3.5d,reduced.getRate());
+		Assertions.assertEquals(1.5d,counter1.reduce(empty).getRate());
+		Assertions.assertEquals(1.5d,empty.reduce(counter1).getRate());
+	}
 }
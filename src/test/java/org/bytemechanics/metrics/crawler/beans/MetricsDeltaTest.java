@@ -0,0 +1,84 @@
+/*
+ * Copyright 2020 Byte Mechanics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bytemechanics.metrics.crawler.beans;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.LogManager;
+import java.util.logging.Logger;
+import org.bytemechanics.metrics.crawler.internal.MeasureReducers;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInfo;
+
+/**
+ * @author afarre
+ */
+public class MetricsDeltaTest {
+
+	@BeforeAll
+	public static void setup() throws IOException{
+		System.out.println(">>>>> MetricsDeltaTest >>>> setup");
+		try(InputStream inputStream = MetricsDeltaTest.class.getResourceAsStream("/logging.properties")){
+			LogManager.getLogManager().readConfiguration(inputStream);
+		}catch (final IOException e){
+			Logger.getAnonymousLogger().severe("Could not load default logging.properties file");
+			Logger.getAnonymousLogger().severe(e.getMessage());
+		}
+	}
+
+	@BeforeEach
+    void beforeEachTest(final TestInfo testInfo) {
+        System.out.println(">>>>> "+this.getClass().getSimpleName()+" >>>> "+testInfo.getTestMethod().map(Method::getName).orElse("Unkown")+""+testInfo.getTags().toString()+" >>>> "+testInfo.getDisplayName());
+    }
+
+
+	@Test
+	@DisplayName("MetricsDelta getters, equals, hashCode and toString should return the constructor values")
+	@SuppressWarnings("unchecked")
+	public void constructor(){
+
+		final MetricSnapshot snapshot=MetricSnapshot.builder(MeasureReducers.LONG.get(Long.class)).name("a").build();
+		final List<MetricSnapshot> metrics=new ArrayList<>(Arrays.asList(snapshot));
+		final MetricsDelta instance=new MetricsDelta(3l,metrics);
+
+		Assertions.assertEquals(3l,instance.getCursor());
+		Assertions.assertEquals(Arrays.asList(snapshot),instance.getMetrics());
+		Assertions.assertEquals(new MetricsDelta(3l,Arrays.asList(snapshot)),instance);
+		Assertions.assertEquals(new MetricsDelta(3l,Arrays.asList(snapshot)).hashCode(),instance.hashCode());
+		Assertions.assertNotEquals(new MetricsDelta(4l,Arrays.asList(snapshot)),instance);
+		Assertions.assertNotEquals(new MetricsDelta(3l,Collections.emptyList()),instance);
+		Assertions.assertEquals("MetricsDelta[cursor=3, metrics=["+snapshot+"]]",instance.toString());
+		Assertions.assertThrows(UnsupportedOperationException.class,() -> instance.getMetrics().clear());
+	}
+
+	@Test
+	@DisplayName("Create a MetricsDelta with null metrics should raise a NullPointerException")
+	@SuppressWarnings("ThrowableResultIgnored")
+	public void nullMetrics(){
+
+		final Exception exception=Assertions.assertThrows(NullPointerException.class,() -> new MetricsDelta(0l,null));
+		Assertions.assertEquals("Can not create metrics delta with null _metrics",exception.getMessage());
+	}
+}
@@ -0,0 +1,322 @@
+/*
+ * Copyright 2020 Byte Mechanics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bytemechanics.metrics.crawler.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.logging.LogManager;
+import java.util.logging.Logger;
+import org.bytemechanics.metrics.crawler.AbstractMetric;
+import org.bytemechanics.metrics.crawler.MetricHandle;
+import org.bytemechanics.metrics.crawler.beans.MetricSnapshot;
+import org.bytemechanics.metrics.crawler.beans.MetricsDelta;
+import org.bytemechanics.metrics.crawler.exceptions.IncorrectMeasureType;
+import org.bytemechanics.metrics.crawler.internal.MeasureReducers;
+import org.bytemechanics.metrics.crawler.internal.MetricFactories;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInfo;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * @author afarre
+ */
+public class BufferedMetricsServiceImplTest {
+
+	@BeforeAll
+	public static void setup() throws IOException{
+		System.out.println(">>>>> BufferedMetricsServiceImplTest >>>> setup");
+		try(InputStream inputStream = BufferedMetricsServiceImplTest.class.getResourceAsStream("/logging.properties")){
+			LogManager.getLogManager().readConfiguration(inputStream);
+		}catch (final IOException e){
+			Logger.getAnonymousLogger().severe("Could not load default logging.properties file");
+			Logger.getAnonymousLogger().severe(e.getMessage());
+		}
+	}
+
+	@BeforeEach
+    void beforeEachTest(final TestInfo testInfo) {
+        System.out.println(">>>>> "+this.getClass().getSimpleName()+" >>>> "+testInfo.getTestMethod().map(Method::getName).orElse("Unkown")+""+testInfo.getTags().toString()+" >>>> "+testInfo.getDisplayName());
+    }
+
+
+	@Test
+	@DisplayName("Create BufferedMetricsServiceImpl without parameters should use the default sampling size, factory and buffer size")
+	public void defaultConstructor(){
+
+		final BufferedMetricsServiceImpl metricsService=new BufferedMetricsServiceImpl();
+
+		Assertions.assertEquals(DefaultMetricsServiceImpl.DEFAULT_SAMPLING_SIZE,metricsService.getSamplingSize());
+		Assertions.assertEquals(MetricFactories.SAMPLED,metricsService.getMetricFactory());
+		Assertions.assertEquals(BufferedMetricsServiceImpl.DEFAULT_BUFFER_SIZE,metricsService.getBufferSize());
+	}
+
+	@ParameterizedTest(name = "Create BufferedMetricsServiceImpl with {0} buffer size should raise an IllegalArgumentException")
+	@ValueSource(ints = {0,-1})
+	@SuppressWarnings("ThrowableResultIgnored")
+	public void wrongBufferSize(final int _bufferSize){
+
+		final Exception exception=Assertions.assertThrows(IllegalArgumentException.class,() -> new BufferedMetricsServiceImpl(4,MetricFactories.SAMPLED,_bufferSize));
+		Assertions.assertEquals("Can not create metrics service with buffer size "+_bufferSize+", must be positive",exception.getMessage());
+	}
+
+	@Test
+	@DisplayName("The measures must not reach the metric until the buffer is full")
+	public void drainWhenFull(){
+
+		final BufferedMetricsServiceImpl metricsService=new BufferedMetricsServiceImpl(4,MetricFactories.SAMPLED,8);
+		for(int ic1=1;ic1<8;ic1++){
+			metricsService.registerMeasure("myLong",(long)ic1);
+		}
+		Assertions.assertEquals(0l,metricsService.getOrCreate("myLong",MeasureReducers.LONG.get(Long.class)).getHits());
+		metricsService.registerMeasure("myLong",8l);
+		Assertions.assertEquals(8l,metricsService.getOrCreate("myLong",MeasureReducers.LONG.get(Long.class)).getHits());
+	}
+
+	@Test
+	@DisplayName("The counters must not be buffered, the counts must reach the counter directly")
+	public void countersNotBuffered(){
+
+		final BufferedMetricsServiceImpl metricsService=new BufferedMetricsServiceImpl(4,MetricFactories.SAMPLED,8);
+		metricsService.increment("myCounter");
+		metricsService.add("myCounter",3l);
+
+		Assertions.assertEquals(2l,metricsService.getOrCreate("myCounter",MeasureReducers.LONG.get(Long.class)).getHits());
+		Assertions.assertEquals(4l,metricsService.getMetric("myCounter").get().getAccumulatedSamples());
+		Assertions.assertTrue(metricsService.getMetric("myCounter").get().isCounter());
+	}
+
+	@ParameterizedTest(name = "Register measures with {0} factory should accumulate them into the metrics with the same reducers as the direct service")
+	@EnumSource(MetricFactories.class)
+	public void registerMeasures(final MetricFactories _factory){
+
+		final BufferedMetricsServiceImpl metricsService=new BufferedMetricsServiceImpl(4,_factory,64);
+		metricsService.registerMeasure("myLong",1l);
+		metricsService.registerMeasure("myLong",2l);
+		metricsService.registerMeasure("myLong",LocalDateTime.now(),3l,MeasureReducers.LONG.get(Long.class));
+		metricsService.registerMeasure("myDouble",1.5d);
+		metricsService.registerMeasure("myDouble",2.5d);
+		metricsService.registerDuration("myDuration",Duration.ofMillis(2).toNanos());
+		metricsService.registerDuration("myDuration",Duration.ofMillis(4).toNanos());
+
+		final List<MetricSnapshot> actualList=metricsService.getMetrics();
+
+		Assertions.assertEquals(3,actualList.size());
+		Assertions.assertEquals("myDouble",actualList.get(0).getName());
+		Assertions.assertEquals(4.0d,actualList.get(0).getAccumulatedSamples());
+		Assertions.assertEquals(2.5d,actualList.get(0).getLastMeasure());
+		Assertions.assertEquals("myDuration",actualList.get(1).getName());
+		Assertions.assertEquals(Duration.ofMillis(6),actualList.get(1).getAccumulatedSamples());
+		Assertions.assertEquals("myLong",actualList.get(2).getName());
+		Assertions.assertEquals(6l,actualList.get(2).getAccumulatedSamples());
+		Assertions.assertEquals(3l,actualList.get(2).getTotalHits());
+	}
+
+	@Test
+	@DisplayName("Retrieve a metric must drain the buffered measures before the snapshot")
+	public void getMetric(){
+
+		final BufferedMetricsServiceImpl metricsService=new BufferedMetricsServiceImpl(4,MetricFactories.SAMPLED,64);
+		final MetricHandle handle=metricsService.handle("myHandle");
+		handle.record(1l);
+		handle.record(2l);
+
+		final MetricSnapshot snapshot=metricsService.getMetric("myHandle").get();
+		Assertions.assertEquals(2l,snapshot.getTotalHits());
+		Assertions.assertEquals(3l,snapshot.getAccumulatedSamples());
+	}
+
+	@Test
+	@DisplayName("Retrieve the metrics under a path must drain the buffered measures before the snapshots")
+	public void getMetricsUnder(){
+
+		final BufferedMetricsServiceImpl metricsService=new BufferedMetricsServiceImpl(4,MetricFactories.SAMPLED,64);
+		metricsService.registerMeasure("http.orders",1l);
+		metricsService.registerMeasure("http.orders.get",2l);
+
+		final List<MetricSnapshot> actualList=metricsService.getMetricsUnder("http.orders");
+		Assertions.assertEquals(2,actualList.size());
+		Assertions.assertEquals(1l,actualList.get(1).getTotalHits());
+		Assertions.assertEquals(2l,actualList.get(1).getAccumulatedSamples());
+	}
+
+	@Test
+	@DisplayName("Register measures of another type on an existent metric should raise an IncorrectMeasureType when registered and not when drained")
+	@SuppressWarnings("ThrowableResultIgnored")
+	public void registerDistinctMeasures(){
+
+		final BufferedMetricsServiceImpl metricsService=new BufferedMetricsServiceImpl(4,MetricFactories.SAMPLED,64);
+		metricsService.registerMeasure("myLong",1l);
+
+		Assertions.assertThrows(IncorrectMeasureType.class,() -> metricsService.registerMeasure("myLong",1.0d));
+		Assertions.assertThrows(IncorrectMeasureType.class,() -> metricsService.registerDuration("myLong",1l));
+		Assertions.assertThrows(IncorrectMeasureType.class,() -> metricsService.registerMeasure("myLong",LocalDateTime.now(),Duration.ofDays(1),MeasureReducers.DURATION.get(Duration.class)));
+		Assertions.assertThrows(NullPointerException.class,() -> metricsService.registerMeasure("myLong",LocalDateTime.now(),null,MeasureReducers.LONG.get(Long.class)));
+		Assertions.assertEquals(1l,metricsService.getMetric("myLong").get().getTotalHits());
+	}
+
+	@Test
+	@DisplayName("Measures registered from several threads must be drained on read, including the ones of the finished threads whose buffers must be released")
+	public void concurrentRegister() throws InterruptedException{
+
+		final int threads=8;
+		final int measures=1000;
+		final BufferedMetricsServiceImpl metricsService=new BufferedMetricsServiceImpl(4,MetricFactories.CONCURRENT,64);
+		final List<Thread> workers=new ArrayList<>();
+		for(int ic1=0;ic1<threads;ic1++){
+			workers.add(new Thread(() -> {
+				for(int ic2=0;ic2<measures;ic2++){
+					metricsService.registerMeasure("myLong",1l);
+				}
+			}));
+		}
+		for(Thread worker:workers){
+			worker.start();
+		}
+		for(Thread worker:workers){
+			worker.join();
+		}
+		Assertions.assertEquals(threads,metricsService.getBuffers());
+
+		final MetricSnapshot snapshot=metricsService.getMetric("myLong").get();
+		Assertions.assertEquals((long)threads*measures,snapshot.getTotalHits());
+		Assertions.assertEquals((long)threads*measures,snapshot.getAccumulatedSamples());
+		Assertions.assertEquals(0,metricsService.getBuffers());
+	}
+
+	@Test
+	@DisplayName("The buffer must be reused as a ring keeping the order of the measures of each metric between drains")
+	public void ring(){
+
+		final BufferedMetricsServiceImpl metricsService=new BufferedMetricsServiceImpl(4,MetricFactories.SAMPLED,4);
+		metricsService.registerMeasure("a",1l);
+		metricsService.registerMeasure("b",1l);
+		metricsService.registerMeasure("a",2l);
+		Assertions.assertEquals(2l,metricsService.getMetric("a").get().getLastMeasure());
+		metricsService.registerMeasure("a",3l);
+		metricsService.registerMeasure("b",2l);
+		metricsService.registerMeasure("a",4l);
+		metricsService.registerMeasure("b",3l);
+		metricsService.registerMeasure("a",5l);
+
+		final MetricSnapshot a=metricsService.getMetric("a").get();
+		final MetricSnapshot b=metricsService.getMetric("b").get();
+		Assertions.assertEquals(5l,a.getTotalHits());
+		Assertions.assertEquals(5l,a.getLastMeasure());
+		Assertions.assertEquals(3l,b.getTotalHits());
+		Assertions.assertEquals(3l,b.getLastMeasure());
+		Assertions.assertEquals(6l,b.getAccumulatedSamples());
+	}
+
+	@Test
+	@DisplayName("The buffered measures of the metrics evicted before the drain must be discarded")
+	public void evicted(){
+
+		final BufferedMetricsServiceImpl metricsService=new BufferedMetricsServiceImpl(4,MetricFactories.SAMPLED,CardinalityGuard.leastRecentlyUsed(1),64);
+		metricsService.registerMeasure("a",1l);
+		final AbstractMetric evicted=metricsService.getOrCreate("a",MeasureReducers.LONG.get(Long.class));
+		metricsService.registerMeasure("b",2l);
+		Assertions.assertFalse(metricsService.isRegistered(evicted));
+
+		metricsService.flush();
+		Assertions.assertEquals(0l,evicted.getHits());
+		Assertions.assertFalse(metricsService.getMetric("a").isPresent());
+		Assertions.assertEquals(1l,metricsService.getMetric("b").get().getTotalHits());
+	}
+
+	@Test
+	@DisplayName("Call clear should remove all current metrics and discard the buffered measures")
+	public void clear(){
+
+		final BufferedMetricsServiceImpl metricsService=new BufferedMetricsServiceImpl(4,MetricFactories.SAMPLED,64);
+		metricsService.registerMeasure("myLong",1l);
+		metricsService.registerMeasure("myDouble",1.0d);
+
+		metricsService.clear();
+		metricsService.registerMeasure("myLong",2l);
+
+		final List<MetricSnapshot> actualList=metricsService.getMetrics();
+		Assertions.assertEquals(1,actualList.size());
+		Assertions.assertEquals(1l,actualList.get(0).getTotalHits());
+		Assertions.assertEquals(2l,actualList.get(0).getAccumulatedSamples());
+	}
+
+	@Test
+	@DisplayName("Retrieve the metrics since a cursor should drain the buffers and return only the modified metrics")
+	public void getMetricsSince(){
+
+		final BufferedMetricsServiceImpl metricsService=new BufferedMetricsServiceImpl(4,MetricFactories.SAMPLED,64);
+		metricsService.registerMeasure("a",1l);
+		metricsService.registerMeasure("b",1l);
+		final MetricsDelta first=metricsService.getMetricsSince(0l);
+		metricsService.registerMeasure("b",2l);
+		final MetricsDelta second=metricsService.getMetricsSince(first.getCursor());
+
+		Assertions.assertEquals(2,first.getMetrics().size());
+		Assertions.assertEquals(1,second.getMetrics().size());
+		Assertions.assertEquals("b",second.getMetrics().get(0).getName());
+		Assertions.assertEquals(2l,second.getMetrics().get(0).getTotalHits());
+		Assertions.assertTrue(metricsService.getMetricsSince(second.getCursor()).getMetrics().isEmpty());
+	}
+
+	@Test
+	@DisplayName("Retrieve the snapshots in parallel should drain the buffers before")
+	public void getMetricsParallel(){
+
+		final BufferedMetricsServiceImpl metricsService=new BufferedMetricsServiceImpl(4,MetricFactories.SAMPLED,64);
+		metricsService.registerMeasure("a",1l);
+		metricsService.registerMeasure("b",2l);
+
+		final List<MetricSnapshot> actualList=metricsService.getMetrics(ForkJoinPool.commonPool());
+		Assertions.assertEquals(2,actualList.size());
+		Assertions.assertEquals(1l,actualList.get(0).getTotalHits());
+		Assertions.assertEquals(2l,actualList.get(1).getAccumulatedSamples());
+	}
+
+	@Test
+	@DisplayName("Visit the metrics should drain the buffers before")
+	public void forEach(){
+
+		final BufferedMetricsServiceImpl metricsService=new BufferedMetricsServiceImpl(4,MetricFactories.SAMPLED,64);
+		metricsService.registerMeasure("a",1l);
+		metricsService.registerMeasure("b",2l);
+		metricsService.registerMeasure("b",3l);
+		final List<String> names=new ArrayList<>();
+		final List<Long> accumulated=new ArrayList<>();
+
+		metricsService.forEach(reading -> {
+			names.add(reading.getName());
+			accumulated.add(reading.getLongAccumulated());
+		});
+
+		Assertions.assertEquals(2,names.size());
+		Assertions.assertEquals("a",names.get(0));
+		Assertions.assertEquals(1l,accumulated.get(0));
+		Assertions.assertEquals("b",names.get(1));
+		Assertions.assertEquals(5l,accumulated.get(1));
+	}
+}
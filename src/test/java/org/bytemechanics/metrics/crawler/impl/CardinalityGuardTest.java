@@ -0,0 +1,170 @@
+/*
+ * Copyright 2020 Byte Mechanics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bytemechanics.metrics.crawler.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.logging.LogManager;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import org.bytemechanics.metrics.crawler.AbstractMetric;
+import org.bytemechanics.metrics.crawler.internal.LongMetric;
+import org.bytemechanics.metrics.crawler.internal.MeasureReducers;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInfo;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+/**
+ * @author afarre
+ */
+public class CardinalityGuardTest {
+
+	@BeforeAll
+	public static void setup() throws IOException{
+		System.out.println(">>>>> CardinalityGuardTest >>>> setup");
+		try(InputStream inputStream = CardinalityGuardTest.class.getResourceAsStream("/logging.properties")){
+			LogManager.getLogManager().readConfiguration(inputStream);
+		}catch (final IOException e){
+			Logger.getAnonymousLogger().severe("Could not load default logging.properties file");
+			Logger.getAnonymousLogger().severe(e.getMessage());
+		}
+	}
+
+	@BeforeEach
+    void beforeEachTest(final TestInfo testInfo) {
+        System.out.println(">>>>> "+this.getClass().getSimpleName()+" >>>> "+testInfo.getTestMethod().map(Method::getName).orElse("Unkown")+""+testInfo.getTags().toString()+" >>>> "+testInfo.getDisplayName());
+    }
+
+
+	static Stream<Arguments> factoriesDatapack() {
+	    return Stream.of(
+					Arguments.of((Supplier<CardinalityGuard>)() -> CardinalityGuard.overflow(10),EvictionPolicy.OVERFLOW,null),
+					Arguments.of((Supplier<CardinalityGuard>)() -> CardinalityGuard.leastRecentlyUsed(10),EvictionPolicy.LEAST_RECENTLY_USED,null),
+					Arguments.of((Supplier<CardinalityGuard>)() -> CardinalityGuard.leastRecentlyRecorded(10),EvictionPolicy.LEAST_RECENTLY_RECORDED,null),
+					Arguments.of((Supplier<CardinalityGuard>)() -> CardinalityGuard.idle(10,Duration.ofMinutes(5)),EvictionPolicy.IDLE,Duration.ofMinutes(5))
+				);
+	}
+	@ParameterizedTest(name = "Create a CardinalityGuard with {1} policy should return the initial values")
+	@MethodSource("factoriesDatapack")
+	public void factories(final Supplier<CardinalityGuard> _factory,final EvictionPolicy _policy,final Duration _idleTime){
+
+		final CardinalityGuard instance=_factory.get();
+
+		Assertions.assertEquals(10,instance.getLimit());
+		Assertions.assertEquals(_policy,instance.getPolicy());
+		Assertions.assertEquals(_idleTime,instance.getIdleTime());
+		Assertions.assertEquals(CardinalityGuard.DEFAULT_OVERFLOW_NAME,instance.getOverflowName());
+		Assertions.assertEquals(0l,instance.getEvictions());
+		Assertions.assertEquals(0l,instance.getOverflows());
+		Assertions.assertEquals("CardinalityGuard[limit=10, policy="+_policy+", idleTime="+_idleTime+", overflowName=metrics.overflow, evictions=0, overflows=0]",instance.toString());
+	}
+
+	static Stream<Arguments> wrongFactoriesDatapack() {
+	    return Stream.of(
+					Arguments.of((Supplier<CardinalityGuard>)() -> CardinalityGuard.overflow(0),new IllegalArgumentException("Cardinality limit 0 must be positive")),
+					Arguments.of((Supplier<CardinalityGuard>)() -> CardinalityGuard.leastRecentlyUsed(-1),new IllegalArgumentException("Cardinality limit -1 must be positive")),
+					Arguments.of((Supplier<CardinalityGuard>)() -> CardinalityGuard.leastRecentlyRecorded(0),new IllegalArgumentException("Cardinality limit 0 must be positive")),
+					Arguments.of((Supplier<CardinalityGuard>)() -> CardinalityGuard.idle(0,Duration.ofMinutes(5)),new IllegalArgumentException("Cardinality limit 0 must be positive")),
+					Arguments.of((Supplier<CardinalityGuard>)() -> CardinalityGuard.idle(10,null),new NullPointerException("Idle time can not be null to create a cardinality guard")),
+					Arguments.of((Supplier<CardinalityGuard>)() -> CardinalityGuard.idle(10,Duration.ofMinutes(-5)),new IllegalArgumentException("Idle time PT-5M can not be negative")),
+					Arguments.of((Supplier<CardinalityGuard>)() -> CardinalityGuard.overflow(10).withOverflowName(null),new NullPointerException("Overflow name can not be null to create a cardinality guard"))
+				);
+	}
+	@ParameterizedTest(name = "Create a CardinalityGuard with wrong values should raise {1}")
+	@MethodSource("wrongFactoriesDatapack")
+	@SuppressWarnings("ThrowableResultIgnored")
+	public void wrongFactories(final Supplier<CardinalityGuard> _factory,final Exception _expected){
+
+		final Exception exception=Assertions.assertThrows(_expected.getClass(),_factory::get);
+		Assertions.assertEquals(_expected.getMessage(),exception.getMessage());
+	}
+
+	@Test
+	@DisplayName("Create a CardinalityGuard with other overflow name should keep the rest of configuration")
+	public void withOverflowName(){
+
+		final CardinalityGuard instance=CardinalityGuard.idle(10,Duration.ofMinutes(5)).withOverflowName("other");
+
+		Assertions.assertEquals(10,instance.getLimit());
+		Assertions.assertEquals(EvictionPolicy.IDLE,instance.getPolicy());
+		Assertions.assertEquals(Duration.ofMinutes(5),instance.getIdleTime());
+		Assertions.assertEquals("other",instance.getOverflowName());
+		Assertions.assertTrue(instance.isOverflow("other.Long"));
+		Assertions.assertFalse(instance.isOverflow("otherLong"));
+		Assertions.assertFalse(instance.isOverflow("metrics.overflow.Long"));
+	}
+
+	static Stream<Arguments> admitsDatapack() {
+	    return Stream.of(
+					Arguments.of(CardinalityGuard.overflow(20),20),
+					Arguments.of(CardinalityGuard.idle(20,Duration.ofMinutes(5)),20),
+					Arguments.of(CardinalityGuard.leastRecentlyUsed(20),22),
+					Arguments.of(CardinalityGuard.leastRecentlyRecorded(20),22),
+					Arguments.of(CardinalityGuard.leastRecentlyRecorded(5),6)
+				);
+	}
+	@ParameterizedTest(name = "The CardinalityGuard {0} should admit up to {1} metrics")
+	@MethodSource("admitsDatapack")
+	public void admits(final CardinalityGuard _guard,final int _ceiling){
+
+		Assertions.assertTrue(_guard.admits(_ceiling-1));
+		Assertions.assertFalse(_guard.admits(_ceiling));
+	}
+
+	@Test
+	@DisplayName("The CardinalityGuard with idle policy should not sweep again until the least recently recorded metric can be idle")
+	public void idleSweepRateLimit(){
+
+		final CardinalityGuard guard=CardinalityGuard.idle(2,Duration.ofMinutes(5));
+		final List<AbstractMetric> metrics=Arrays.asList(new LongMetric("a",4,MeasureReducers.LONG.get(Long.class)),new LongMetric("b",4,MeasureReducers.LONG.get(Long.class)));
+		final AtomicInteger walks=new AtomicInteger();
+		final Collection<AbstractMetric> walked=new AbstractCollection<AbstractMetric>(){
+														@Override
+														public Iterator<AbstractMetric> iterator() {
+															walks.incrementAndGet();
+															return metrics.iterator();
+														}
+														@Override
+														public int size() {
+															return metrics.size();
+														}
+													};
+		final long now=System.nanoTime();
+
+		Assertions.assertEquals(0,guard.sweep(walked,2,now,metric -> true));
+		Assertions.assertEquals(1,walks.get());
+		Assertions.assertEquals(0,guard.sweep(walked,2,now+Duration.ofMinutes(4).toNanos(),metric -> true));
+		Assertions.assertEquals(1,walks.get());
+		Assertions.assertEquals(2,guard.sweep(walked,2,now+Duration.ofMinutes(6).toNanos(),metric -> true));
+		Assertions.assertEquals(2,walks.get());
+		Assertions.assertEquals(2l,guard.getEvictions());
+	}
+}
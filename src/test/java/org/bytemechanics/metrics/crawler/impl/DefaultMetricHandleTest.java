@@ -0,0 +1,214 @@
+/*
+ * Copyright 2020 Byte Mechanics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bytemechanics.metrics.crawler.impl;
+
+import com.sun.management.ThreadMXBean;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.logging.LogManager;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import org.bytemechanics.metrics.crawler.MetricHandle;
+import org.bytemechanics.metrics.crawler.beans.MetricSnapshot;
+import org.bytemechanics.metrics.crawler.exceptions.IncorrectMeasureType;
+import org.bytemechanics.metrics.crawler.internal.MeasureReducers;
+import org.bytemechanics.metrics.crawler.internal.MetricFactories;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInfo;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+/**
+ * @author afarre
+ */
+public class DefaultMetricHandleTest {
+
+	@BeforeAll
+	public static void setup() throws IOException{
+		System.out.println(">>>>> DefaultMetricHandleTest >>>> setup");
+		try(InputStream inputStream = DefaultMetricHandleTest.class.getResourceAsStream("/logging.properties")){
+			LogManager.getLogManager().readConfiguration(inputStream);
+		}catch (final IOException e){
+			Logger.getAnonymousLogger().severe("Could not load default logging.properties file");
+			Logger.getAnonymousLogger().severe(e.getMessage());
+		}
+	}
+
+	@BeforeEach
+    void beforeEachTest(final TestInfo testInfo) {
+        System.out.println(">>>>> "+this.getClass().getSimpleName()+" >>>> "+testInfo.getTestMethod().map(Method::getName).orElse("Unkown")+""+testInfo.getTags().toString()+" >>>> "+testInfo.getDisplayName());
+    }
+
+
+	@Test
+	@DisplayName("The handle retrieved from DefaultMetricsServiceImpl must have the name built with the placeholders")
+	public void handle(){
+		
+		final DefaultMetricsServiceImpl metricsService=new DefaultMetricsServiceImpl(4);
+		final MetricHandle handle=metricsService.handle("db.{}.query","orders");
+		
+		Assertions.assertTrue(handle instanceof DefaultMetricHandle);
+		Assertions.assertEquals("db.orders.query",handle.getName());
+		Assertions.assertEquals("DefaultMetricHandle[name=db.orders.query]",handle.toString());
+		Assertions.assertFalse(metricsService.getMetric("db.orders.query").isPresent());
+	}
+	@Test
+	@DisplayName("Retrieve a handle with null name should raise a NullPointerException")
+	@SuppressWarnings("ThrowableResultIgnored")
+	public void handleNullName(){
+		
+		final DefaultMetricsServiceImpl metricsService=new DefaultMetricsServiceImpl(4);
+		
+		Assertions.assertThrows(NullPointerException.class,() -> metricsService.handle(null));
+	}
+
+	@Test
+	@DisplayName("Record long measures through the handle must register them in the same metric as the service")
+	public void recordLong(){
+		
+		final DefaultMetricsServiceImpl metricsService=new DefaultMetricsServiceImpl(4);
+		final MetricHandle handle=metricsService.handle("my{}","Long");
+		handle.record(1l);
+		handle.record(2l);
+		metricsService.registerMeasure("my{}",LocalDateTime.now(),3l,MeasureReducers.LONG.get(Long.class),"Long");
+		
+		final MetricSnapshot snapshot=metricsService.getMetric("myLong").get();
+		Assertions.assertEquals(3l,snapshot.getTotalHits());
+		Assertions.assertEquals(6l,snapshot.getAccumulatedSamples());
+	}
+	@Test
+	@DisplayName("Record double measures through the handle must register them in the service")
+	public void recordDouble(){
+		
+		final DefaultMetricsServiceImpl metricsService=new DefaultMetricsServiceImpl(4,MetricFactories.CONCURRENT);
+		final MetricHandle handle=metricsService.handle("myDouble");
+		handle.record(1.5d);
+		handle.record(2.5d);
+		
+		final MetricSnapshot snapshot=metricsService.getMetric("myDouble").get();
+		Assertions.assertEquals(2l,snapshot.getTotalHits());
+		Assertions.assertEquals(4.0d,snapshot.getAccumulatedSamples());
+	}
+	@Test
+	@DisplayName("Time through the handle must register the elapsed duration in the service")
+	public void time() throws InterruptedException{
+		
+		final DefaultMetricsServiceImpl metricsService=new DefaultMetricsServiceImpl(4);
+		final MetricHandle handle=metricsService.handle("myDuration");
+		try(MetricHandle.Timer timer=handle.time()){
+			Thread.sleep(5);
+			Assertions.assertTrue(timer.getNanos()>=Duration.ofMillis(5).toNanos());
+		}
+		handle.recordDuration(Duration.ofMillis(1).toNanos());
+		
+		final MetricSnapshot snapshot=metricsService.getMetric("myDuration").get();
+		Assertions.assertEquals(2l,snapshot.getTotalHits());
+		Assertions.assertTrue(((Duration)snapshot.getMaxMeasure()).compareTo(Duration.ofMillis(5))>=0);
+		Assertions.assertEquals(Duration.ofMillis(1),snapshot.getLastMeasure());
+	}
+	@Test
+	@DisplayName("Record a measure of other type through the handle should raise an IncorrectMeasureType")
+	@SuppressWarnings("ThrowableResultIgnored")
+	public void recordDistinctType(){
+		
+		final DefaultMetricsServiceImpl metricsService=new DefaultMetricsServiceImpl(4);
+		final MetricHandle handle=metricsService.handle("myLong");
+		handle.record(1l);
+		
+		Assertions.assertThrows(IncorrectMeasureType.class,() -> handle.record(1.0d));
+		Assertions.assertThrows(IncorrectMeasureType.class,() -> handle.recordDuration(1l));
+	}
+	@Test
+	@DisplayName("Record through the handle after clear the service must register the measure in a new metric")
+	public void recordAfterClear(){
+		
+		final DefaultMetricsServiceImpl metricsService=new DefaultMetricsServiceImpl(4);
+		final MetricHandle handle=metricsService.handle("myLong");
+		handle.record(1l);
+		handle.record(2l);
+		metricsService.clear();
+		Assertions.assertFalse(metricsService.getMetric("myLong").isPresent());
+		handle.record(3.0d);
+		
+		final MetricSnapshot snapshot=metricsService.getMetric("myLong").get();
+		Assertions.assertEquals(1l,snapshot.getTotalHits());
+		Assertions.assertEquals(3.0d,snapshot.getAccumulatedSamples());
+	}
+
+	@Test
+	@DisplayName("When a timer is closed it must be recycled by the next timer of the same thread and nested timers must be distinct")
+	public void recycleTimer(){
+		
+		final DefaultMetricsServiceImpl metricsService=new DefaultMetricsServiceImpl(4);
+		final MetricHandle handle=metricsService.handle("myDuration");
+		final MetricHandle.Timer first=handle.time();
+		final MetricHandle.Timer nested=handle.time();
+		Assertions.assertNotSame(first,nested);
+		nested.close();
+		first.close();
+		first.close();
+		
+		Assertions.assertSame(first,handle.time());
+		Assertions.assertEquals(2l,metricsService.getMetric("myDuration").get().getTotalHits());
+	}
+
+	static Stream<Arguments> steadyStateAllocationDatapack() {
+	    return Stream.of(
+					Arguments.of(MetricFactories.SAMPLED),
+					Arguments.of(MetricFactories.WINDOWED),
+					Arguments.of(MetricFactories.CONCURRENT)
+				);
+	}
+	@ParameterizedTest(name="In steady state the handle records and timers with {0} metrics must not allocate memory")
+	@MethodSource("steadyStateAllocationDatapack")
+	public void steadyStateAllocation(final MetricFactories _factory){
+
+		final ThreadMXBean threadMXBean=(ThreadMXBean)ManagementFactory.getThreadMXBean();
+		Assumptions.assumeTrue(threadMXBean.isThreadAllocatedMemorySupported() && threadMXBean.isThreadAllocatedMemoryEnabled());
+		final DefaultMetricsServiceImpl metricsService=new DefaultMetricsServiceImpl(16,_factory);
+		final MetricHandle durations=metricsService.handle("myDuration");
+		final MetricHandle longs=metricsService.handle("myLong");
+		final MetricHandle doubles=metricsService.handle("myDouble");
+		final long threadId=Thread.currentThread().getId();
+		
+		for(int ic1=0;ic1<10000;ic1++){
+			try(MetricHandle.Timer timer=durations.time()){
+				longs.record((long)ic1);
+				doubles.record((double)ic1);
+			}
+		}
+		final long before=threadMXBean.getThreadAllocatedBytes(threadId);
+		for(int ic1=0;ic1<100000;ic1++){
+			try(MetricHandle.Timer timer=durations.time()){
+				longs.record((long)ic1);
+				doubles.record((double)ic1);
+			}
+		}
+		final long allocated=threadMXBean.getThreadAllocatedBytes(threadId)-before;
+		
+		Assertions.assertTrue(allocated<100000,"Allocated "+allocated+" bytes in 100000 measures");
+	}
+}
@@ -20,17 +20,32 @@ import java.io.InputStream;
 import java.lang.reflect.Method;
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
 import java.util.logging.LogManager;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import org.bytemechanics.metrics.crawler.AbstractMetric;
 import org.bytemechanics.metrics.crawler.MeasureReducer;
+import org.bytemechanics.metrics.crawler.MetricHandle;
 import org.bytemechanics.metrics.crawler.MetricsService;
+import org.bytemechanics.metrics.crawler.beans.MetricReading;
 import org.bytemechanics.metrics.crawler.beans.MetricSnapshot;
+import org.bytemechanics.metrics.crawler.beans.MetricsDelta;
 import org.bytemechanics.metrics.crawler.exceptions.IncorrectMeasureType;
 import org.bytemechanics.metrics.crawler.internal.MeasureReducers;
+import org.bytemechanics.metrics.crawler.internal.MetricFactories;
+import org.bytemechanics.metrics.crawler.internal.MetricsServiceSingleton;
+import org.bytemechanics.metrics.crawler.sensors.AbstractSensor;
+import org.bytemechanics.metrics.crawler.sensors.LongSensor;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
@@ -39,6 +54,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInfo;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.EnumSource;
 import org.junit.jupiter.params.provider.MethodSource;
 import org.junit.jupiter.params.provider.ValueSource;
 
@@ -73,6 +89,38 @@ public class DefaultMetricsServiceImplTest {
 		Assertions.assertEquals(_defaultSamplingSize,metricsService.getSamplingSize());
 	}	
 
+	@Test
+	@DisplayName("Create DefaultMetricsServiceImpl without metric factory should instance a metrics service with sampled metrics")
+	public void getDefaultMetricFactory(){
+		
+		DefaultMetricsServiceImpl metricsService=new DefaultMetricsServiceImpl();
+		Assertions.assertEquals(MetricFactories.SAMPLED,metricsService.getMetricFactory());
+	}	
+	@Test
+	@DisplayName("Create DefaultMetricsServiceImpl with null metric factory should raise a NullPointerException")
+	@SuppressWarnings("ThrowableResultIgnored")
+	public void getNullMetricFactory(){
+		
+		Assertions.assertThrows(NullPointerException.class
+								,() -> new DefaultMetricsServiceImpl(2,null));
+	}	
+	@Test
+	@DisplayName("Retrieve a metric from a DefaultMetricsServiceImpl with concurrent metric factory should return the statistics of all measures")
+	public void getConcurrentMetric(){
+		
+		DefaultMetricsServiceImpl metricsService=new DefaultMetricsServiceImpl(2,MetricFactories.CONCURRENT);
+		metricsService.registerMeasure("myMeasure{}",LocalDateTime.now(),2l,MeasureReducers.LONG.get(Long.class),1);
+		metricsService.registerMeasure("myMeasure{}",LocalDateTime.now(),3l,MeasureReducers.LONG.get(Long.class),1);
+		metricsService.registerMeasure("myMeasure{}",LocalDateTime.now(),4l,MeasureReducers.LONG.get(Long.class),1);
+		
+		Optional<MetricSnapshot> optional=metricsService.getMetric("myMeasure{}",1);
+			
+		Assertions.assertEquals(MetricFactories.CONCURRENT,metricsService.getMetricFactory());
+		Assertions.assertTrue(optional.isPresent());
+		Assertions.assertEquals(3l,optional.get().getTotalHits());
+		Assertions.assertEquals(9l,optional.get().getAccumulatedSamples());
+	}	
+
 	static Stream<Arguments> accumulatedSamplesDatapack() {
 	    return Stream.of(
 					Arguments.of(MeasureReducers.DOUBLE.get(Double.class),Stream.of(2.0d).collect(Collectors.toList()),1,2.0d),
@@ -178,7 +226,215 @@ public class DefaultMetricsServiceImplTest {
 								,() -> metricsService.registerMeasure("myMeasure{}",LocalDateTime.now(),newMeasure,newType,2));
 	}	
 
+
+	@Test
+	@DisplayName("Register primitive measures should accumulate them into the metrics with the same reducers as the boxed ones")
+	public void registerPrimitiveMeasures(){
+		
+		DefaultMetricsServiceImpl metricsService=new DefaultMetricsServiceImpl(4);
+		metricsService.registerMeasure("myLong",1l);
+		metricsService.registerMeasure("myLong",2l);
+		metricsService.registerMeasure("myLong",LocalDateTime.now(),3l,MeasureReducers.LONG.get(Long.class));
+		metricsService.registerMeasure("myDouble",1.5d);
+		metricsService.registerMeasure("myDouble",2.5d);
+		metricsService.registerDuration("myDuration",Duration.ofMillis(2).toNanos());
+		metricsService.registerDuration("myDuration",Duration.ofMillis(4).toNanos());
+		
+		List<MetricSnapshot> actualList=metricsService.getMetrics();
+		
+		Assertions.assertEquals(3,actualList.size());
+		Assertions.assertEquals("myDouble",actualList.get(0).getName());
+		Assertions.assertEquals(4.0d,actualList.get(0).getAccumulatedSamples());
+		Assertions.assertEquals(2.5d,actualList.get(0).getLastMeasure());
+		Assertions.assertEquals("myDuration",actualList.get(1).getName());
+		Assertions.assertEquals(Duration.ofMillis(6),actualList.get(1).getAccumulatedSamples());
+		Assertions.assertEquals(Duration.ofMillis(3),actualList.get(1).getAverageMeasure());
+		Assertions.assertEquals("myLong",actualList.get(2).getName());
+		Assertions.assertEquals(6l,actualList.get(2).getAccumulatedSamples());
+		Assertions.assertEquals(3l,actualList.get(2).getTotalHits());
+		Assertions.assertTrue(Duration.between(actualList.get(2).getLastOccurrence(),LocalDateTime.now()).abs().getSeconds()<60);
+	}
+
+	@Test
+	@DisplayName("Register primitive measures with null name should raise a NullPointerException")
+	@SuppressWarnings("ThrowableResultIgnored")
+	public void registerPrimitiveMeasuresNullName(){
+		
+		DefaultMetricsServiceImpl metricsService=new DefaultMetricsServiceImpl(4);
+
+		Assertions.assertThrows(NullPointerException.class,() -> metricsService.registerMeasure(null,1l));
+		Assertions.assertThrows(NullPointerException.class,() -> metricsService.registerMeasure(null,1.0d));
+		Assertions.assertThrows(NullPointerException.class,() -> metricsService.registerDuration(null,1l));
+	}
+
+	@Test
+	@DisplayName("Register primitive measures of another type on an existent metric should raise an IncorrectMeasureType")
+	@SuppressWarnings("ThrowableResultIgnored")
+	public void registerPrimitiveDistinctMeasures(){
+		
+		DefaultMetricsServiceImpl metricsService=new DefaultMetricsServiceImpl(4);
+		metricsService.registerMeasure("myLong",1l);
+
+		Assertions.assertThrows(IncorrectMeasureType.class,() -> metricsService.registerMeasure("myLong",1.0d));
+		Assertions.assertThrows(IncorrectMeasureType.class,() -> metricsService.registerDuration("myLong",1l));
+		Assertions.assertThrows(IncorrectMeasureType.class,() -> metricsService.registerMeasure("myLong",LocalDateTime.now(),Duration.ofDays(1),MeasureReducers.DURATION.get(Duration.class)));
+	}
 	
+	@Test
+	@DisplayName("Increment and add to counters should keep its total and rate without samples and list them with the other metrics")
+	public void counters(){
+		
+		DefaultMetricsServiceImpl metricsService=new DefaultMetricsServiceImpl(4);
+		metricsService.registerMeasure("myLong",1l);
+		for(int ic1=0;ic1<10;ic1++){
+			metricsService.increment("myCounter");
+		}
+		metricsService.add("myCounter",5l);
+		metricsService.add("myCounter",0l);
+		
+		List<MetricSnapshot> actualList=metricsService.getMetrics();
+		
+		Assertions.assertEquals(2,actualList.size());
+		Assertions.assertEquals("myCounter",actualList.get(0).getName());
+		Assertions.assertEquals(15l,actualList.get(0).getAccumulatedSamples());
+		Assertions.assertEquals(12l,actualList.get(0).getTotalHits());
+		Assertions.assertNull(actualList.get(0).getMaxMeasure());
+		Assertions.assertTrue(actualList.get(0).isCounter());
+		Assertions.assertTrue(actualList.get(0).getRate()>0.0d);
+		Assertions.assertTrue(Duration.between(actualList.get(0).getLastOccurrence(),LocalDateTime.now()).abs().getSeconds()<60);
+		Assertions.assertEquals("myLong",actualList.get(1).getName());
+		Assertions.assertFalse(actualList.get(1).isCounter());
+		Assertions.assertEquals(actualList.get(0),metricsService.getMetric("myCounter").get());
+		final List<MetricReading.Kind> kinds=new ArrayList<>();
+		final List<Long> totals=new ArrayList<>();
+		metricsService.forEach(reading -> {
+			kinds.add(reading.getKind());
+			totals.add(reading.getLongAccumulated());
+		});
+		Assertions.assertEquals(Stream.of(MetricReading.Kind.COUNTER,MetricReading.Kind.LONG).collect(Collectors.toList()),kinds);
+		Assertions.assertEquals(Stream.of(15l,1l).collect(Collectors.toList()),totals);
+	}
+
+	@Test
+	@DisplayName("Add to a counter with null name should raise a NullPointerException and with negative count an IllegalArgumentException")
+	@SuppressWarnings("ThrowableResultIgnored")
+	public void countersControl(){
+		
+		DefaultMetricsServiceImpl metricsService=new DefaultMetricsServiceImpl(4);
+
+		Assertions.assertThrows(NullPointerException.class,() -> metricsService.increment(null));
+		Assertions.assertThrows(NullPointerException.class,() -> metricsService.add(null,1l));
+		final Exception exception=Assertions.assertThrows(IllegalArgumentException.class,() -> metricsService.add("myCounter",-1l));
+		Assertions.assertEquals("Can not add negative count -1 to counter myCounter",exception.getMessage());
+		Assertions.assertFalse(metricsService.getMetric("myCounter").isPresent());
+	}
+
+	@Test
+	@DisplayName("Add to a counter that already exists as other metric should register the count as a measure if it is a Long metric or raise an IncorrectMeasureType otherwise")
+	@SuppressWarnings("ThrowableResultIgnored")
+	public void countersOnExistentMetrics(){
+		
+		DefaultMetricsServiceImpl metricsService=new DefaultMetricsServiceImpl(4);
+		metricsService.registerMeasure("myLong",1l);
+		metricsService.registerMeasure("myDouble",1.0d);
+		metricsService.increment("myCounter");
+		metricsService.add("myLong",3l);
+		metricsService.registerMeasure("myCounter",2l);
+
+		Assertions.assertThrows(IncorrectMeasureType.class,() -> metricsService.increment("myDouble"));
+		Assertions.assertThrows(IncorrectMeasureType.class,() -> metricsService.registerMeasure("myCounter",1.0d));
+		Assertions.assertEquals(4l,metricsService.getMetric("myLong").get().getAccumulatedSamples());
+		Assertions.assertEquals(3l,metricsService.getMetric("myLong").get().getMaxMeasure());
+		Assertions.assertEquals(3l,metricsService.getMetric("myCounter").get().getAccumulatedSamples());
+		Assertions.assertTrue(metricsService.getMetric("myCounter").get().isCounter());
+	}
+
+	@Test
+	@DisplayName("The gauges should evaluate its supplier only when are read or getMetricsSince() is called, that retrieves them only when its value has changed")
+	public void gauges(){
+		
+		DefaultMetricsServiceImpl metricsService=new DefaultMetricsServiceImpl(4);
+		final AtomicLong evaluations=new AtomicLong();
+		final LongSupplier queue=metricsService.gauge("myQueue",evaluations::incrementAndGet);
+		final DoubleSupplier load=metricsService.gauge("myLoad",() -> 0.5d);
+		metricsService.registerMeasure("myLong",1l);
+		final MetricsDelta first=metricsService.getMetricsSince(0l);
+		evaluations.set(0);
+		
+		Assertions.assertEquals(0l,evaluations.get());
+		Assertions.assertEquals(1l,metricsService.getMetric("myQueue").get().getLastMeasure());
+		Assertions.assertEquals(1l,evaluations.get());
+		List<MetricSnapshot> actualList=metricsService.getMetrics();
+		Assertions.assertEquals(2l,evaluations.get());
+		Assertions.assertEquals(Stream.of("myLoad","myLong","myQueue").collect(Collectors.toList()),actualList.stream().map(MetricSnapshot::getName).collect(Collectors.toList()));
+		Assertions.assertEquals(0.5d,actualList.get(0).getLastMeasure());
+		Assertions.assertEquals(2l,actualList.get(2).getLastMeasure());
+		Assertions.assertEquals(4l,actualList.get(2).getTotalHits());
+		final List<Long> lasts=new ArrayList<>();
+		metricsService.forEach(reading -> lasts.add(reading.getLongLast()));
+		Assertions.assertEquals(3l,evaluations.get());
+		Assertions.assertEquals(Stream.of(1l,3l).collect(Collectors.toList()),lasts.subList(1,3));
+		Assertions.assertEquals(Stream.of("myLoad","myLong","myQueue").collect(Collectors.toList()),first.getMetrics().stream().map(MetricSnapshot::getName).collect(Collectors.toList()));
+		Assertions.assertEquals(Stream.of("myQueue").collect(Collectors.toList()),metricsService.getMetricsSince(first.getCursor()).getMetrics().stream().map(MetricSnapshot::getName).collect(Collectors.toList()));
+		Assertions.assertEquals(6l,queue.getAsLong());
+		Assertions.assertEquals(0.5d,load.getAsDouble());
+	}
+
+	@Test
+	@DisplayName("Register again a gauge should bind the new supplier and register measures into a gauge should record them into its window")
+	public void gaugesRebind(){
+		
+		DefaultMetricsServiceImpl metricsService=new DefaultMetricsServiceImpl(4);
+		final LongSupplier first=metricsService.gauge("myGauge",() -> 1l);
+		metricsService.getMetric("myGauge");
+		final LongSupplier second=metricsService.gauge("myGauge",() -> 2l);
+		metricsService.registerMeasure("myGauge",7l);
+		
+		final MetricSnapshot snapshot=metricsService.getMetric("myGauge").get();
+		Assertions.assertEquals(3l,snapshot.getTotalHits());
+		Assertions.assertEquals(7l,snapshot.getMaxMeasure());
+		Assertions.assertEquals(1l,snapshot.getMinMeasure());
+		Assertions.assertEquals(2l,snapshot.getLastMeasure());
+		Assertions.assertEquals(1,metricsService.getMetrics().size());
+		Assertions.assertNotEquals(first,second);
+	}
+
+	@Test
+	@DisplayName("Register a gauge with null name or supplier should raise a NullPointerException, over other metric an IllegalArgumentException and over a gauge of other type an IncorrectMeasureType")
+	@SuppressWarnings("ThrowableResultIgnored")
+	public void gaugesControl(){
+		
+		DefaultMetricsServiceImpl metricsService=new DefaultMetricsServiceImpl(4);
+		metricsService.registerMeasure("myLong",1l);
+		metricsService.gauge("myGauge",() -> 1.0d);
+
+		Assertions.assertThrows(NullPointerException.class,() -> metricsService.gauge(null,() -> 1l));
+		Assertions.assertEquals("Can not register gauge myQueue with null _supplier"
+									,Assertions.assertThrows(NullPointerException.class,() -> metricsService.gauge("myQueue",(LongSupplier)null)).getMessage());
+		Assertions.assertEquals("Can not register gauge myQueue with null _supplier"
+									,Assertions.assertThrows(NullPointerException.class,() -> metricsService.gauge("myQueue",(DoubleSupplier)null)).getMessage());
+		Assertions.assertTrue(Assertions.assertThrows(IllegalArgumentException.class,() -> metricsService.gauge("myLong",() -> 1l)).getMessage().startsWith("Can not register gauge myLong, already exist as "));
+		Assertions.assertThrows(IncorrectMeasureType.class,() -> metricsService.gauge("myGauge",() -> 1l));
+		Assertions.assertEquals(Stream.of("myGauge","myLong").collect(Collectors.toList()),names(metricsService));
+	}
+
+	@Test
+	@DisplayName("When the limit is reached with the overflow policy the new gauges should not be registered")
+	public void gaugesOverflow(){
+
+		final CardinalityGuard guard=CardinalityGuard.overflow(1);
+		final DefaultMetricsServiceImpl metricsService=new DefaultMetricsServiceImpl(4,MetricFactories.SAMPLED,guard);
+		final AtomicLong evaluations=new AtomicLong();
+		metricsService.registerMeasure("a",1l);
+		final LongSupplier supplier=metricsService.gauge("myGauge",evaluations::incrementAndGet);
+		metricsService.registerMeasure("b",2l);
+
+		Assertions.assertEquals(Stream.of("a","metrics.overflow.Long","metrics.overflow.evictions","metrics.overflow.overflows").collect(Collectors.toList()),names(metricsService));
+		Assertions.assertEquals(0l,evaluations.get());
+		Assertions.assertEquals(1l,metricsService.getMetric("metrics.overflow.Long").get().getTotalHits());
+		Assertions.assertEquals(1l,supplier.getAsLong());
+	}
+
 	@Test
 	@DisplayName("Call clear should remove all current metrics")
 	public void clear(){
@@ -199,4 +455,431 @@ public class DefaultMetricsServiceImplTest {
 		
 		Assertions.assertEquals(0,actualList.size());
 	}
+
+	@Test
+	@DisplayName("Call clear while other thread creates metrics should never leave metrics listed that are not registered")
+	public void clearWhileCreating() throws InterruptedException{
+		
+		final MetricsService metricsService=new DefaultMetricsServiceImpl(4);
+		final AtomicBoolean running=new AtomicBoolean(true);
+		final Thread creator=new Thread(() -> {
+			int counter=0;
+			while(running.get()){
+				metricsService.registerMeasure("myMeasure{}",LocalDateTime.now(),1l,MeasureReducers.LONG.get(Long.class),(counter++)%64);
+			}
+		});
+		creator.start();
+		try{
+			for(int ic1=0;ic1<1000;ic1++){
+				metricsService.clear();
+			}
+		}finally{
+			running.set(false);
+			creator.join();
+		}
+		
+		for(MetricSnapshot snapshot:metricsService.getMetrics()){
+			Assertions.assertTrue(metricsService.getMetric(snapshot.getName()).isPresent(),snapshot.getName()+" is listed but not registered");
+		}
+	}
+
+	static Stream<Arguments> metricsUnderDatapack() {
+	    return Stream.of(
+					Arguments.of("http.orders",new Object[0],new String[]{"http.orders","http.orders.get","http.orders.get.v2","http.orders.post"}),
+					Arguments.of("http.{}",new Object[]{"orders"},new String[]{"http.orders","http.orders.get","http.orders.get.v2","http.orders.post"}),
+					Arguments.of("http.orders.get",new Object[0],new String[]{"http.orders.get","http.orders.get.v2"}),
+					Arguments.of("http",new Object[0],new String[]{"http.orders","http.orders-old","http.orders.get","http.orders.get.v2","http.orders.post","http.orders/v2","http.ordersCount"}),
+					Arguments.of("",new Object[0],new String[]{"db","http.orders","http.orders-old","http.orders.get","http.orders.get.v2","http.orders.post","http.orders/v2","http.ordersCount"}),
+					Arguments.of("http.order",new Object[0],new String[0]),
+					Arguments.of("unknown.path",new Object[0],new String[0])
+				);
+	}
+	@ParameterizedTest(name = "Retrieve the metrics under {0} with placeholders {1} should return the metrics {2}")
+	@MethodSource("metricsUnderDatapack")
+	public void getMetricsUnder(final String _path,final Object[] _placeholders,final String[] _expected){
+
+		final DefaultMetricsServiceImpl metricsService=new DefaultMetricsServiceImpl(4);
+		metricsService.registerMeasure("http.orders.get.v2",1l);
+		metricsService.registerMeasure("http.ordersCount",1l);
+		metricsService.registerMeasure("http.orders.post",1l);
+		metricsService.registerMeasure("http.orders",1l);
+		metricsService.registerMeasure("db",1l);
+		metricsService.registerMeasure("http.orders-old",1l);
+		metricsService.registerMeasure("http.orders/v2",1l);
+		metricsService.handle("http.orders.get").record(1l);
+
+		final List<String> actual=metricsService.getMetricsUnder(_path,_placeholders)
+													.stream()
+														.map(MetricSnapshot::getName)
+														.collect(Collectors.toList());
+
+		Assertions.assertEquals(Stream.of(_expected).collect(Collectors.toList()),actual);
+	}
+
+	@Test
+	@DisplayName("Call clear should remove all current metrics from the metrics tree")
+	public void clearMetricsUnder(){
+
+		final DefaultMetricsServiceImpl metricsService=new DefaultMetricsServiceImpl(4);
+		metricsService.registerMeasure("http.orders",1l);
+		metricsService.clear();
+		metricsService.registerMeasure("http.users",1l);
+
+		Assertions.assertTrue(metricsService.getMetricsUnder("http.orders").isEmpty());
+		Assertions.assertEquals(1,metricsService.getMetricsUnder("http").size());
+	}
+
+	private static List<String> names(final MetricsService _metricsService){
+		return _metricsService.getMetrics()
+								.stream()
+									.map(MetricSnapshot::getName)
+									.collect(Collectors.toList());
+	}
+	private static void pause() throws InterruptedException{
+		Thread.sleep(5);
+	}
+
+	@Test
+	@DisplayName("Create DefaultMetricsServiceImpl with a cardinality guard should expose it")
+	public void cardinalityGuardConstructor(){
+
+		final CardinalityGuard guard=CardinalityGuard.overflow(3);
+		
+		Assertions.assertEquals(Optional.of(guard),new DefaultMetricsServiceImpl(4,MetricFactories.SAMPLED,guard).getCardinalityGuard());
+		Assertions.assertEquals(Optional.empty(),new DefaultMetricsServiceImpl(4,MetricFactories.SAMPLED,null).getCardinalityGuard());
+		Assertions.assertEquals(Optional.empty(),new DefaultMetricsServiceImpl(4).getCardinalityGuard());
+	}
+
+	@Test
+	@DisplayName("When the limit is reached with the overflow policy the new metrics measures should be registered into the overflow metric of its type")
+	public void cardinalityOverflow(){
+
+		final CardinalityGuard guard=CardinalityGuard.overflow(3);
+		final DefaultMetricsServiceImpl metricsService=new DefaultMetricsServiceImpl(4,MetricFactories.SAMPLED,guard);
+		metricsService.registerMeasure("a",1l);
+		metricsService.registerMeasure("b",1l);
+		metricsService.registerMeasure("c",1l);
+		metricsService.registerMeasure("d",1l);
+		metricsService.registerMeasure("e",2l);
+		metricsService.registerMeasure("a",1l);
+
+		Assertions.assertEquals(Stream.of("a","b","c","metrics.overflow.Long","metrics.overflow.evictions","metrics.overflow.overflows").collect(Collectors.toList()),names(metricsService));
+		Assertions.assertEquals(2l,metricsService.getMetric("metrics.overflow.Long").get().getTotalHits());
+		Assertions.assertEquals(3l,metricsService.getMetric("metrics.overflow.Long").get().getAccumulatedSamples());
+		Assertions.assertEquals(2l,metricsService.getMetric("a").get().getTotalHits());
+		Assertions.assertEquals(2l,guard.getOverflows());
+		Assertions.assertEquals(0l,guard.getEvictions());
+		Assertions.assertEquals(2l,metricsService.getMetric("metrics.overflow.overflows").get().getAccumulatedSamples());
+		Assertions.assertEquals(0l,metricsService.getMetric("metrics.overflow.evictions").get().getAccumulatedSamples());
+	}
+
+	static Stream<Arguments> cardinalityOverflowFactoryDatapack() {
+		return Stream.of(
+			Arguments.of("counter",(Consumer<DefaultMetricsServiceImpl>)service -> service.increment("b"),2l),
+			Arguments.of("gauge",(Consumer<DefaultMetricsServiceImpl>)service -> service.gauge("b",() -> 5l),1l)
+		);
+	}
+	@ParameterizedTest(name = "When the first overflow comes from a {0} the overflow metric should be created with the service factory and the next LongSensor measures registered as measures")
+	@MethodSource("cardinalityOverflowFactoryDatapack")
+	public void cardinalityOverflowFactory(final String _first,final Consumer<DefaultMetricsServiceImpl> _overflow,final long _hits){
+
+		final DefaultMetricsServiceImpl metricsService=new DefaultMetricsServiceImpl(4,MetricFactories.SAMPLED,CardinalityGuard.overflow(1));
+		metricsService.registerMeasure("a",1l);
+		_overflow.accept(metricsService);
+		AbstractSensor.registerMetricsServiceSupplier(() -> metricsService);
+		try{
+			LongSensor.measure(7l,"c");
+		}finally{
+			AbstractSensor.registerMetricsServiceSupplier(() -> MetricsServiceSingleton.getInstance().getMetricsService());
+		}
+
+		final AbstractMetric overflow=metricsService.getOrCreate("metrics.overflow.Long",MeasureReducers.LONG.get(Long.class));
+		final MetricSnapshot snapshot=metricsService.getMetric("metrics.overflow.Long").get();
+		Assertions.assertEquals(MetricFactories.SAMPLED.create("x",4,MeasureReducers.LONG.get(Long.class)).getClass(),overflow.getClass());
+		Assertions.assertFalse(snapshot.isCounter());
+		Assertions.assertEquals(_hits,snapshot.getTotalHits());
+		Assertions.assertEquals(7l,snapshot.getMaxMeasure());
+		Assertions.assertEquals(7l,snapshot.getLastMeasure());
+	}
+
+	@Test
+	@DisplayName("When the limit is reached with the overflow policy the overflow metrics should be separated by type and use the configured name")
+	public void cardinalityOverflowByType(){
+
+		final CardinalityGuard guard=CardinalityGuard.overflow(1).withOverflowName("overflow");
+		final DefaultMetricsServiceImpl metricsService=new DefaultMetricsServiceImpl(4,MetricFactories.SAMPLED,guard);
+		metricsService.registerMeasure("a",1l);
+		metricsService.registerMeasure("b",1.0d);
+		metricsService.registerDuration("c",1l);
+		metricsService.registerMeasure("d",LocalDateTime.now(),Duration.ofSeconds(1),MeasureReducers.DURATION.get(Duration.class));
+
+		Assertions.assertEquals(Stream.of("a","overflow.Double","overflow.Duration","overflow.evictions","overflow.overflows").collect(Collectors.toList()),names(metricsService));
+		Assertions.assertEquals(2l,metricsService.getMetric("overflow.Duration").get().getTotalHits());
+		Assertions.assertEquals(3l,guard.getOverflows());
+		Assertions.assertEquals(3l,metricsService.getMetric("overflow.overflows").get().getAccumulatedSamples());
+	}
+
+	@Test
+	@DisplayName("When the limit is reached with the least recently used policy the least recently recorded or read metric should be evicted")
+	public void cardinalityLeastRecentlyUsed() throws InterruptedException{
+
+		final CardinalityGuard guard=CardinalityGuard.leastRecentlyUsed(3);
+		final DefaultMetricsServiceImpl metricsService=new DefaultMetricsServiceImpl(4,MetricFactories.SAMPLED,guard);
+		metricsService.registerMeasure("a",1l);
+		pause();
+		metricsService.registerMeasure("b",1l);
+		pause();
+		metricsService.registerMeasure("c",1l);
+		pause();
+		metricsService.getMetric("a");
+		pause();
+		metricsService.registerMeasure("d",1l);
+
+		Assertions.assertEquals(Stream.of("a","c","d","metrics.overflow.evictions","metrics.overflow.overflows").collect(Collectors.toList()),names(metricsService));
+		Assertions.assertTrue(metricsService.getMetricsUnder("b").isEmpty());
+		Assertions.assertEquals(1l,guard.getEvictions());
+		Assertions.assertEquals(0l,guard.getOverflows());
+		Assertions.assertEquals(1l,metricsService.getMetric("metrics.overflow.evictions").get().getAccumulatedSamples());
+	}
+
+	@Test
+	@DisplayName("When the limit is reached with the least recently recorded policy the least recently recorded metric should be evicted")
+	public void cardinalityLeastRecentlyRecorded() throws InterruptedException{
+
+		final CardinalityGuard guard=CardinalityGuard.leastRecentlyRecorded(3);
+		final DefaultMetricsServiceImpl metricsService=new DefaultMetricsServiceImpl(4,MetricFactories.SAMPLED,guard);
+		metricsService.registerMeasure("a",1l);
+		pause();
+		metricsService.registerMeasure("b",1l);
+		pause();
+		metricsService.registerMeasure("c",1l);
+		pause();
+		metricsService.getMetric("a");
+		pause();
+		metricsService.registerMeasure("d",1l);
+
+		Assertions.assertEquals(Stream.of("b","c","d","metrics.overflow.evictions","metrics.overflow.overflows").collect(Collectors.toList()),names(metricsService));
+		Assertions.assertEquals(1l,guard.getEvictions());
+	}
+
+	@Test
+	@DisplayName("When the limit is reached with the least recently recorded policy the metrics should be evicted down to the 90% of the limit")
+	public void cardinalityEvictionBatch() throws InterruptedException{
+
+		final CardinalityGuard guard=CardinalityGuard.leastRecentlyRecorded(20);
+		final DefaultMetricsServiceImpl metricsService=new DefaultMetricsServiceImpl(4,MetricFactories.SAMPLED,guard);
+		for(int ic1=0;ic1<20;ic1++){
+			metricsService.registerMeasure("metric.{}",LocalDateTime.now(),1l,MeasureReducers.LONG.get(Long.class),(char)('a'+ic1));
+			pause();
+		}
+		metricsService.registerMeasure("new",1l);
+
+		Assertions.assertEquals(2l,guard.getEvictions());
+		Assertions.assertEquals(19+CardinalityGuard.COUNTERS,metricsService.getMetrics().size());
+		Assertions.assertFalse(metricsService.getMetric("metric.a").isPresent());
+		Assertions.assertFalse(metricsService.getMetric("metric.b").isPresent());
+		Assertions.assertTrue(metricsService.getMetric("metric.c").isPresent());
+		Assertions.assertEquals(18,metricsService.getMetricsUnder("metric").size());
+	}
+
+	@Test
+	@DisplayName("When the limit is reached with the idle policy the idle metrics should be evicted and if there are none the measures should go to the overflow metric")
+	public void cardinalityIdle() throws InterruptedException{
+
+		final CardinalityGuard guard=CardinalityGuard.idle(2,Duration.ofMillis(50));
+		final DefaultMetricsServiceImpl metricsService=new DefaultMetricsServiceImpl(4,MetricFactories.SAMPLED,guard);
+		metricsService.registerMeasure("a",1l);
+		Thread.sleep(100);
+		metricsService.registerMeasure("b",1l);
+		metricsService.registerMeasure("c",1l);
+		metricsService.registerMeasure("d",1l);
+
+		Assertions.assertEquals(Stream.of("b","c","metrics.overflow.Long","metrics.overflow.evictions","metrics.overflow.overflows").collect(Collectors.toList()),names(metricsService));
+		Assertions.assertEquals(1l,guard.getEvictions());
+		Assertions.assertEquals(1l,guard.getOverflows());
+	}
+
+	@Test
+	@DisplayName("When a metric is evicted its handles should register into a new metric")
+	public void cardinalityEvictedHandle() throws InterruptedException{
+
+		final CardinalityGuard guard=CardinalityGuard.leastRecentlyRecorded(1);
+		final DefaultMetricsServiceImpl metricsService=new DefaultMetricsServiceImpl(4,MetricFactories.SAMPLED,guard);
+		final MetricHandle handle=metricsService.handle("a");
+		handle.record(1l);
+		handle.record(1l);
+		pause();
+		metricsService.registerMeasure("b",1l);
+		Assertions.assertEquals(Stream.of("b","metrics.overflow.evictions","metrics.overflow.overflows").collect(Collectors.toList()),names(metricsService));
+		pause();
+		handle.record(1l);
+
+		Assertions.assertEquals(Stream.of("a","metrics.overflow.evictions","metrics.overflow.overflows").collect(Collectors.toList()),names(metricsService));
+		Assertions.assertEquals(1l,metricsService.getMetric("a").get().getTotalHits());
+		Assertions.assertEquals(2l,guard.getEvictions());
+	}
+
+	static Stream<Arguments> cardinalityReadsDatapack() {
+	    return Stream.of(
+					Arguments.of("getMetric()",(Consumer<DefaultMetricsServiceImpl>)service -> service.getMetric("a")),
+					Arguments.of("getMetrics()",(Consumer<DefaultMetricsServiceImpl>)service -> service.getMetrics()),
+					Arguments.of("getMetrics(pool)",(Consumer<DefaultMetricsServiceImpl>)service -> service.getMetrics(ForkJoinPool.commonPool())),
+					Arguments.of("getMetricsUnder()",(Consumer<DefaultMetricsServiceImpl>)service -> service.getMetricsUnder("a")),
+					Arguments.of("getMetricsSince()",(Consumer<DefaultMetricsServiceImpl>)service -> service.getMetricsSince(0l)),
+					Arguments.of("forEach()",(Consumer<DefaultMetricsServiceImpl>)service -> service.forEach(reading -> {}))
+				);
+	}
+	@ParameterizedTest(name = "With the least recently used policy the metrics read with {0} should be marked as used")
+	@MethodSource("cardinalityReadsDatapack")
+	public void cardinalityReads(final String _method,final Consumer<DefaultMetricsServiceImpl> _read) throws InterruptedException{
+
+		final CardinalityGuard guard=CardinalityGuard.leastRecentlyUsed(3);
+		final DefaultMetricsServiceImpl metricsService=new DefaultMetricsServiceImpl(4,MetricFactories.SAMPLED,guard);
+		metricsService.registerMeasure("a",1l);
+		final AbstractMetric metric=metricsService.getOrCreate("a",MeasureReducers.LONG.get(Long.class));
+		final long recorded=metric.getLastUsed();
+		pause();
+		_read.accept(metricsService);
+
+		Assertions.assertTrue(metric.getLastUsed()-recorded>0,_method);
+		Assertions.assertEquals(recorded,metric.getLastRecorded());
+	}
+
+	@Test
+	@DisplayName("Clear a service with cardinality guard should create again its evictions and overflows counters from zero")
+	public void cardinalityClear(){
+
+		final CardinalityGuard guard=CardinalityGuard.overflow(1);
+		final DefaultMetricsServiceImpl metricsService=new DefaultMetricsServiceImpl(4,MetricFactories.SAMPLED,guard);
+		metricsService.registerMeasure("a",1l);
+		metricsService.registerMeasure("b",1l);
+		metricsService.clear();
+
+		Assertions.assertEquals(Stream.of("metrics.overflow.evictions","metrics.overflow.overflows").collect(Collectors.toList()),names(metricsService));
+		Assertions.assertEquals(0l,metricsService.getMetric("metrics.overflow.overflows").get().getAccumulatedSamples());
+		Assertions.assertEquals(1l,guard.getOverflows());
+		metricsService.registerMeasure("c",1l);
+		metricsService.registerMeasure("d",1l);
+		Assertions.assertEquals(Stream.of("c","metrics.overflow.Long","metrics.overflow.evictions","metrics.overflow.overflows").collect(Collectors.toList()),names(metricsService));
+		Assertions.assertEquals(1l,metricsService.getMetric("metrics.overflow.overflows").get().getAccumulatedSamples());
+	}
+
+	private static List<String> names(final MetricsDelta _delta){
+		return _delta.getMetrics()
+						.stream()
+							.map(MetricSnapshot::getName)
+							.collect(Collectors.toList());
+	}
+
+	@Test
+	@DisplayName("Retrieve the metrics since a cursor should return only the metrics modified after the call that returned the cursor")
+	public void getMetricsSince(){
+
+		final DefaultMetricsServiceImpl metricsService=new DefaultMetricsServiceImpl(4);
+		metricsService.registerMeasure("b",1l);
+		metricsService.registerMeasure("a",1l);
+
+		final MetricsDelta first=metricsService.getMetricsSince(0l);
+		Assertions.assertEquals(Stream.of("a","b").collect(Collectors.toList()),names(first));
+		Assertions.assertEquals(metricsService.getMetrics(),first.getMetrics());
+		final MetricsDelta empty=metricsService.getMetricsSince(first.getCursor());
+		Assertions.assertTrue(empty.getMetrics().isEmpty());
+		Assertions.assertTrue(empty.getCursor()>first.getCursor());
+		metricsService.registerMeasure("d",1l);
+		metricsService.registerMeasure("b",2l);
+		metricsService.handle("c").record(3l);
+		final MetricsDelta second=metricsService.getMetricsSince(empty.getCursor());
+		Assertions.assertEquals(Stream.of("b","c","d").collect(Collectors.toList()),names(second));
+		Assertions.assertEquals(3l,second.getMetrics().get(0).getAccumulatedSamples());
+		Assertions.assertEquals(Stream.of("a","b","c","d").collect(Collectors.toList()),names(metricsService.getMetricsSince(0l)));
+		Assertions.assertEquals(Stream.of("b","c","d").collect(Collectors.toList()),names(metricsService.getMetricsSince(empty.getCursor())));
+	}
+
+	@ParameterizedTest(name = "Retrieve the snapshots of {0} metrics in parallel should return the same list than getMetrics()")
+	@ValueSource(ints = {0,1,DefaultMetricsServiceImpl.PARALLEL_SNAPSHOTS_CHUNK,DefaultMetricsServiceImpl.PARALLEL_SNAPSHOTS_CHUNK*4+3})
+	public void getMetricsParallel(final int _metrics){
+
+		final DefaultMetricsServiceImpl metricsService=new DefaultMetricsServiceImpl(4);
+		for(int ic1=0;ic1<_metrics;ic1++){
+			metricsService.registerMeasure("metric.{}",LocalDateTime.now(),(long)ic1,MeasureReducers.LONG.get(Long.class),ic1);
+		}
+		final ForkJoinPool pool=new ForkJoinPool(2);
+		try{
+			final List<MetricSnapshot> actual=metricsService.getMetrics(pool);
+			Assertions.assertEquals(_metrics,actual.size());
+			Assertions.assertEquals(metricsService.getMetrics(),actual);
+		}finally{
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	@DisplayName("Retrieve the snapshots in parallel with a null pool should raise a NullPointerException")
+	@SuppressWarnings("ThrowableResultIgnored")
+	public void getMetricsParallelNullPool(){
+
+		final DefaultMetricsServiceImpl metricsService=new DefaultMetricsServiceImpl(4);
+		final Exception exception=Assertions.assertThrows(NullPointerException.class,() -> metricsService.getMetrics((ForkJoinPool)null));
+		Assertions.assertEquals("Can not compute snapshots with null _pool",exception.getMessage());
+	}
+
+	@Test
+	@DisplayName("Visit the metrics should hand to the visitor the same values than the snapshots ordered by name without creating snapshots for the primitive metrics")
+	public void forEach(){
+
+		final DefaultMetricsServiceImpl metricsService=new DefaultMetricsServiceImpl(4);
+		metricsService.registerMeasure("myLong",1l);
+		metricsService.registerMeasure("myLong",2l);
+		metricsService.registerMeasure("myDouble",1.5d);
+		metricsService.registerDuration("myDuration",Duration.ofMillis(2).toNanos());
+		metricsService.registerMeasure("myHistogram",LocalDateTime.now(),3l,MeasureReducers.HISTOGRAM_LONG.get(Long.class));
+		final List<String> expected=metricsService.getMetrics()
+														.stream()
+															.map(snapshot -> new MetricReading().snapshotValues(snapshot).toString())
+															.collect(Collectors.toList());
+		final List<String> actual=new ArrayList<>();
+		final List<MetricReading.Kind> kinds=new ArrayList<>();
+		final List<Boolean> snapshots=new ArrayList<>();
+
+		metricsService.forEach(reading -> {
+			actual.add(reading.toString());
+			kinds.add(reading.getKind());
+			snapshots.add(reading.getSnapshot()!=null);
+		});
+
+		Assertions.assertEquals(expected,actual);
+		Assertions.assertEquals(Stream.of(MetricReading.Kind.DOUBLE,MetricReading.Kind.DURATION,MetricReading.Kind.LONG,MetricReading.Kind.LONG).collect(Collectors.toList()),kinds);
+		Assertions.assertEquals(Stream.of(false,false,true,false).collect(Collectors.toList()),snapshots);
+	}
+
+	@ParameterizedTest(name = "Visit the metrics created with {0} factory should hand to the visitor the values of all the metrics ordered by name")
+	@EnumSource(MetricFactories.class)
+	public void forEachFactories(final MetricFactories _factory){
+
+		final DefaultMetricsServiceImpl metricsService=new DefaultMetricsServiceImpl(4,_factory);
+		metricsService.registerMeasure("myLong",1l);
+		metricsService.registerMeasure("myLong",2l);
+		metricsService.registerMeasure("myDouble",1.5d);
+		metricsService.registerDuration("myDuration",Duration.ofMillis(2).toNanos());
+		final List<String> names=new ArrayList<>();
+		final List<Long> hits=new ArrayList<>();
+
+		metricsService.forEach(reading -> {
+			names.add(reading.getName());
+			hits.add(reading.getTotalHits());
+		});
+
+		Assertions.assertEquals(Stream.of("myDouble","myDuration","myLong").collect(Collectors.toList()),names);
+		Assertions.assertEquals(Stream.of(1l,1l,2l).collect(Collectors.toList()),hits);
+	}
+
+	@Test
+	@DisplayName("Visit the metrics with a null visitor should raise a NullPointerException")
+	@SuppressWarnings("ThrowableResultIgnored")
+	public void forEachNullVisitor(){
+
+		final DefaultMetricsServiceImpl metricsService=new DefaultMetricsServiceImpl(4);
+		final Exception exception=Assertions.assertThrows(NullPointerException.class,() -> metricsService.forEach(null));
+		Assertions.assertEquals("Can not visit metrics with null _visitor",exception.getMessage());
+	}
 }
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2020 Byte Mechanics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bytemechanics.metrics.crawler.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.logging.LogManager;
+import java.util.logging.Logger;
+import org.bytemechanics.metrics.crawler.beans.MetricSnapshot;
+import org.bytemechanics.metrics.crawler.internal.MeasureReducers;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInfo;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * @author afarre
+ */
+public class GaugeSamplerTest {
+
+	@BeforeAll
+	public static void setup() throws IOException{
+		System.out.println(">>>>> GaugeSamplerTest >>>> setup");
+		try(InputStream inputStream = GaugeSamplerTest.class.getResourceAsStream("/logging.properties")){
+			LogManager.getLogManager().readConfiguration(inputStream);
+		}catch (final IOException e){
+			Logger.getAnonymousLogger().severe("Could not load default logging.properties file");
+			Logger.getAnonymousLogger().severe(e.getMessage());
+		}
+	}
+
+	@BeforeEach
+    void beforeEachTest(final TestInfo testInfo) {
+        System.out.println(">>>>> "+this.getClass().getSimpleName()+" >>>> "+testInfo.getTestMethod().map(Method::getName).orElse("Unkown")+""+testInfo.getTags().toString()+" >>>> "+testInfo.getDisplayName());
+    }
+
+
+	private static final Duration NEVER=Duration.ofDays(1);
+
+
+	@Test
+	@DisplayName("Create a sampler should expose its interval and be closed after close()")
+	public void lifecycle(){
+
+		final DefaultMetricsServiceImpl metricsService=new DefaultMetricsServiceImpl(4);
+		final GaugeSampler sampler=metricsService.sampler(NEVER);
+		Assertions.assertEquals(NEVER,sampler.getInterval());
+		Assertions.assertFalse(sampler.isClosed());
+		Assertions.assertEquals("GaugeSampler[interval=PT24H, closed=false]",sampler.toString());
+		sampler.close();
+		Assertions.assertTrue(sampler.isClosed());
+	}
+
+	@ParameterizedTest(name = "Create a sampler with {0} milliseconds interval should raise an IllegalArgumentException")
+	@ValueSource(longs = {0,-1})
+	@SuppressWarnings("ThrowableResultIgnored")
+	public void wrongInterval(final long _millis){
+
+		final DefaultMetricsServiceImpl metricsService=new DefaultMetricsServiceImpl(4);
+		final Exception exception=Assertions.assertThrows(IllegalArgumentException.class,() -> metricsService.sampler(Duration.ofMillis(_millis)));
+		Assertions.assertEquals("Can not create gauge sampler with interval "+Duration.ofMillis(_millis)+", must be positive",exception.getMessage());
+	}
+
+	@Test
+	@DisplayName("Create a sampler with null interval or scheduler should raise a NullPointerException")
+	@SuppressWarnings("ThrowableResultIgnored")
+	public void nullControl(){
+
+		final DefaultMetricsServiceImpl metricsService=new DefaultMetricsServiceImpl(4);
+		Assertions.assertThrows(NullPointerException.class,() -> metricsService.sampler(null));
+		Assertions.assertThrows(NullPointerException.class,() -> metricsService.sampler(NEVER,null));
+	}
+
+	@Test
+	@DisplayName("Each sample should record the value of the gauges into its window without reading them")
+	public void tick(){
+
+		final DefaultMetricsServiceImpl metricsService=new DefaultMetricsServiceImpl(4);
+		final AtomicLong value=new AtomicLong();
+		final LongSupplier supplier=metricsService.gauge("gauge",value::get);
+		metricsService.registerMeasure("measure",1l);
+		try(GaugeSampler sampler=metricsService.sampler(NEVER)){
+			value.set(3);
+			sampler.tick();
+			value.set(5);
+			sampler.tick();
+		}
+		value.set(7);
+		final MetricSnapshot snapshot=metricsService.getMetric("gauge").get();
+		Assertions.assertEquals(3l,snapshot.getSamplingSize());
+		Assertions.assertEquals(7l,snapshot.getMaxMeasure());
+		Assertions.assertEquals(3l,snapshot.getMinMeasure());
+		Assertions.assertEquals(7l,snapshot.getLastMeasure());
+		Assertions.assertEquals(1l,metricsService.getMetric("measure").get().getSamplingSize());
+		Assertions.assertEquals(7l,supplier.getAsLong());
+	}
+
+	@Test
+	@DisplayName("A closed sampler should not sample")
+	public void closed(){
+
+		final DefaultMetricsServiceImpl metricsService=new DefaultMetricsServiceImpl(4);
+		final LongSupplier supplier=metricsService.gauge("gauge",() -> 1l);
+		final GaugeSampler sampler=metricsService.sampler(NEVER);
+		sampler.close();
+		sampler.tick();
+		Assertions.assertEquals(0l,metricsService.getOrCreate("gauge",MeasureReducers.LONG.get(Long.class)).getHits());
+		Assertions.assertNotNull(supplier);
+	}
+
+	@Test
+	@DisplayName("The sampler should sample periodically with the given scheduler")
+	public void scheduled() throws InterruptedException{
+
+		final ScheduledExecutorService scheduler=Executors.newSingleThreadScheduledExecutor();
+		try{
+			final DefaultMetricsServiceImpl metricsService=new DefaultMetricsServiceImpl(4);
+			final CountDownLatch sampled=new CountDownLatch(2);
+			final LongSupplier supplier=metricsService.gauge("gauge",() -> {
+																		sampled.countDown();
+																		return sampled.getCount();
+																	});
+			try(GaugeSampler sampler=metricsService.sampler(Duration.ofMillis(10),scheduler)){
+				Assertions.assertTrue(sampled.await(10,TimeUnit.SECONDS));
+			}
+			Assertions.assertFalse(scheduler.isShutdown());
+			Assertions.assertNotNull(supplier);
+		}finally{
+			scheduler.shutdownNow();
+		}
+	}
+}
@@ -0,0 +1,387 @@
+/*
+ * Copyright 2020 Byte Mechanics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bytemechanics.metrics.crawler.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.logging.LogManager;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.bytemechanics.metrics.crawler.beans.MetricSnapshot;
+import org.bytemechanics.metrics.crawler.internal.MetricFactories;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInfo;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * @author afarre
+ */
+public class SnapshotPublisherTest {
+
+	@BeforeAll
+	public static void setup() throws IOException{
+		System.out.println(">>>>> SnapshotPublisherTest >>>> setup");
+		try(InputStream inputStream = SnapshotPublisherTest.class.getResourceAsStream("/logging.properties")){
+			LogManager.getLogManager().readConfiguration(inputStream);
+		}catch (final IOException e){
+			Logger.getAnonymousLogger().severe("Could not load default logging.properties file");
+			Logger.getAnonymousLogger().severe(e.getMessage());
+		}
+	}
+
+	@BeforeEach
+    void beforeEachTest(final TestInfo testInfo) {
+        System.out.println(">>>>> "+this.getClass().getSimpleName()+" >>>> "+testInfo.getTestMethod().map(Method::getName).orElse("Unkown")+""+testInfo.getTags().toString()+" >>>> "+testInfo.getDisplayName());
+    }
+
+
+	private static final Duration NEVER=Duration.ofDays(1);
+
+	/**
+	 * Subscriber that stores all the signals
+	 */
+	private static class RecordingSubscriber implements SnapshotPublisher.Subscriber{
+
+		final long initialDemand;
+		final List<List<String>> batches=new ArrayList<>();
+		final CountDownLatch received=new CountDownLatch(1);
+		SnapshotPublisher.Subscription subscription;
+		Throwable error;
+		boolean completed;
+
+		RecordingSubscriber(final long _initialDemand){
+			this.initialDemand=_initialDemand;
+		}
+
+		@Override
+		public void onSubscribe(final SnapshotPublisher.Subscription _subscription) {
+			this.subscription=_subscription;
+			if(this.initialDemand>0){
+				_subscription.request(this.initialDemand);
+			}
+		}
+		@Override
+		public void onNext(final List<MetricSnapshot> _snapshots) {
+			this.batches.add(_snapshots.stream()
+											.map(MetricSnapshot::getName)
+											.collect(Collectors.toList()));
+			this.received.countDown();
+		}
+		@Override
+		public void onError(final Throwable _error) {
+			this.error=_error;
+		}
+		@Override
+		public void onComplete() {
+			this.completed=true;
+		}
+	}
+	private static List<String> names(final String... _names){
+		return Stream.of(_names).collect(Collectors.toList());
+	}
+	private static SnapshotPublisher publisher(final DefaultMetricsServiceImpl _service){
+		return new SnapshotPublisher(_service,NEVER,null,Runnable::run);
+	}
+
+
+	@Test
+	@DisplayName("Create a publisher should expose its interval and be closed after close()")
+	public void lifecycle(){
+
+		final DefaultMetricsServiceImpl metricsService=new DefaultMetricsServiceImpl(4);
+		final SnapshotPublisher publisher=metricsService.publisher(NEVER);
+		Assertions.assertEquals(NEVER,publisher.getInterval());
+		Assertions.assertFalse(publisher.isClosed());
+		Assertions.assertEquals("SnapshotPublisher[interval=PT24H, subscribers=0, closed=false]",publisher.toString());
+		publisher.close();
+		Assertions.assertTrue(publisher.isClosed());
+	}
+
+	@ParameterizedTest(name = "Create a publisher with {0} milliseconds interval should raise an IllegalArgumentException")
+	@ValueSource(longs = {0,-1})
+	@SuppressWarnings("ThrowableResultIgnored")
+	public void wrongInterval(final long _millis){
+
+		final DefaultMetricsServiceImpl metricsService=new DefaultMetricsServiceImpl(4);
+		final Exception exception=Assertions.assertThrows(IllegalArgumentException.class,() -> metricsService.publisher(Duration.ofMillis(_millis)));
+		Assertions.assertEquals("Can not create snapshot publisher with interval "+Duration.ofMillis(_millis)+", must be positive",exception.getMessage());
+	}
+
+	@Test
+	@DisplayName("Create a publisher with null interval, scheduler or subscriber should raise a NullPointerException")
+	@SuppressWarnings("ThrowableResultIgnored")
+	public void nullControl(){
+
+		final DefaultMetricsServiceImpl metricsService=new DefaultMetricsServiceImpl(4);
+		Assertions.assertThrows(NullPointerException.class,() -> metricsService.publisher(null));
+		Assertions.assertThrows(NullPointerException.class,() -> metricsService.publisher(NEVER,null));
+		try(SnapshotPublisher publisher=metricsService.publisher(NEVER)){
+			Assertions.assertThrows(NullPointerException.class,() -> publisher.subscribe(null));
+		}
+	}
+
+	@Test
+	@DisplayName("The publisher should emit first all the metrics and then only the modified ones since the previous batch")
+	public void modifiedOnly(){
+
+		final DefaultMetricsServiceImpl metricsService=new DefaultMetricsServiceImpl(4);
+		metricsService.registerMeasure("b",1l);
+		metricsService.registerMeasure("a",1l);
+		try(SnapshotPublisher publisher=publisher(metricsService)){
+			final RecordingSubscriber subscriber=new RecordingSubscriber(Long.MAX_VALUE);
+			publisher.subscribe(subscriber);
+			publisher.tick();
+			metricsService.registerMeasure("c",1l);
+			metricsService.registerMeasure("a",2l);
+			publisher.tick();
+			publisher.tick();
+			metricsService.registerMeasure("b",2l);
+			publisher.tick();
+
+			Assertions.assertEquals(Stream.of(names("a","b"),names("a","c"),names("b")).collect(Collectors.toList()),subscriber.batches);
+			Assertions.assertNull(subscriber.error);
+		}
+	}
+
+	@Test
+	@DisplayName("A subscriber without demand should not receive batches and when requests should receive all the metrics modified meanwhile in a single batch")
+	public void backpressure(){
+
+		final DefaultMetricsServiceImpl metricsService=new DefaultMetricsServiceImpl(4);
+		try(SnapshotPublisher publisher=publisher(metricsService)){
+			final RecordingSubscriber fast=new RecordingSubscriber(Long.MAX_VALUE);
+			final RecordingSubscriber slow=new RecordingSubscriber(1);
+			publisher.subscribe(fast);
+			publisher.subscribe(slow);
+			metricsService.registerMeasure("a",1l);
+			publisher.tick();
+			metricsService.registerMeasure("b",1l);
+			publisher.tick();
+			metricsService.registerMeasure("c",1l);
+			publisher.tick();
+			slow.subscription.request(1);
+			publisher.tick();
+			publisher.tick();
+
+			Assertions.assertEquals(Stream.of(names("a"),names("b"),names("c")).collect(Collectors.toList()),fast.batches);
+			Assertions.assertEquals(Stream.of(names("a"),names("b","c")).collect(Collectors.toList()),slow.batches);
+		}
+	}
+
+	@Test
+	@DisplayName("A subscriber that requests zero batches should receive an IllegalArgumentException error and no more batches")
+	public void wrongRequest(){
+
+		final DefaultMetricsServiceImpl metricsService=new DefaultMetricsServiceImpl(4);
+		try(SnapshotPublisher publisher=publisher(metricsService)){
+			final RecordingSubscriber subscriber=new RecordingSubscriber(0);
+			publisher.subscribe(subscriber);
+			subscriber.subscription.request(0);
+			metricsService.registerMeasure("a",1l);
+			publisher.tick();
+			subscriber.subscription.request(1);
+			publisher.tick();
+
+			Assertions.assertTrue(subscriber.error instanceof IllegalArgumentException);
+			Assertions.assertEquals("Requested 0 batches, must be positive",subscriber.error.getMessage());
+			Assertions.assertTrue(subscriber.batches.isEmpty());
+		}
+	}
+
+	@Test
+	@DisplayName("A cancelled subscriber or one that fails in onNext should not receive more batches")
+	public void cancel(){
+
+		final DefaultMetricsServiceImpl metricsService=new DefaultMetricsServiceImpl(4);
+		try(SnapshotPublisher publisher=publisher(metricsService)){
+			final RecordingSubscriber cancelled=new RecordingSubscriber(Long.MAX_VALUE);
+			final RecordingSubscriber failing=new RecordingSubscriber(Long.MAX_VALUE){
+				@Override
+				public void onNext(final List<MetricSnapshot> _snapshots) {
+					super.onNext(_snapshots);
+					throw new IllegalStateException("failure");
+				}
+			};
+			publisher.subscribe(cancelled);
+			publisher.subscribe(failing);
+			metricsService.registerMeasure("a",1l);
+			publisher.tick();
+			cancelled.subscription.cancel();
+			metricsService.registerMeasure("b",1l);
+			publisher.tick();
+
+			Assertions.assertEquals(Stream.of(names("a")).collect(Collectors.toList()),cancelled.batches);
+			Assertions.assertEquals(Stream.of(names("a")).collect(Collectors.toList()),failing.batches);
+			Assertions.assertEquals("SnapshotPublisher[interval=PT24H, subscribers=0, closed=false]",publisher.toString());
+		}
+	}
+
+	@Test
+	@DisplayName("Close the publisher should complete the subscribers and complete immediately the new ones")
+	public void complete(){
+
+		final DefaultMetricsServiceImpl metricsService=new DefaultMetricsServiceImpl(4);
+		final RecordingSubscriber before=new RecordingSubscriber(1);
+		final RecordingSubscriber after=new RecordingSubscriber(1);
+		final SnapshotPublisher publisher=publisher(metricsService);
+		publisher.subscribe(before);
+		publisher.close();
+		publisher.close();
+		publisher.subscribe(after);
+		metricsService.registerMeasure("a",1l);
+		publisher.tick();
+
+		Assertions.assertTrue(before.completed);
+		Assertions.assertTrue(after.completed);
+		Assertions.assertTrue(before.batches.isEmpty());
+		Assertions.assertTrue(after.batches.isEmpty());
+	}
+
+	@Test
+	@DisplayName("The publisher should emit periodically with the given scheduler")
+	public void scheduled() throws InterruptedException{
+
+		final ScheduledExecutorService scheduler=Executors.newSingleThreadScheduledExecutor();
+		try{
+			final DefaultMetricsServiceImpl metricsService=new DefaultMetricsServiceImpl(4);
+			metricsService.registerMeasure("a",1l);
+			try(SnapshotPublisher publisher=metricsService.publisher(Duration.ofMillis(10),scheduler)){
+				final RecordingSubscriber subscriber=new RecordingSubscriber(1);
+				publisher.subscribe(subscriber);
+				Assertions.assertTrue(subscriber.received.await(10,TimeUnit.SECONDS));
+			}
+			Assertions.assertFalse(scheduler.isShutdown());
+		}finally{
+			scheduler.shutdownNow();
+		}
+	}
+
+	@Test
+	@DisplayName("The publisher of a buffered metrics service should emit the buffered measures")
+	public void buffered(){
+
+		final BufferedMetricsServiceImpl metricsService=new BufferedMetricsServiceImpl(4,MetricFactories.SAMPLED,64);
+		try(SnapshotPublisher publisher=publisher(metricsService)){
+			final RecordingSubscriber subscriber=new RecordingSubscriber(Long.MAX_VALUE);
+			publisher.subscribe(subscriber);
+			metricsService.registerMeasure("a",1l);
+			publisher.tick();
+			metricsService.registerMeasure("b",1l);
+			publisher.tick();
+			publisher.tick();
+
+			Assertions.assertEquals(Stream.of(names("a"),names("b")).collect(Collectors.toList()),subscriber.batches);
+		}
+	}
+
+	@Test
+	@DisplayName("A subscriber with a batch not delivered yet should not receive more batches until consumes it and then receive all the metrics modified meanwhile in a single batch")
+	public void inFlight(){
+
+		final DefaultMetricsServiceImpl metricsService=new DefaultMetricsServiceImpl(4);
+		final Queue<Runnable> deliveries=new ConcurrentLinkedQueue<>();
+		try(SnapshotPublisher publisher=new SnapshotPublisher(metricsService,NEVER,null,deliveries::add)){
+			final RecordingSubscriber subscriber=new RecordingSubscriber(Long.MAX_VALUE);
+			publisher.subscribe(subscriber);
+			metricsService.registerMeasure("a",1l);
+			publisher.tick();
+			metricsService.registerMeasure("b",1l);
+			publisher.tick();
+			Assertions.assertEquals(1,deliveries.size());
+			Assertions.assertTrue(subscriber.batches.isEmpty());
+			deliveries.poll().run();
+			metricsService.registerMeasure("c",1l);
+			publisher.tick();
+			deliveries.poll().run();
+
+			Assertions.assertEquals(Stream.of(names("a"),names("b","c")).collect(Collectors.toList()),subscriber.batches);
+			Assertions.assertTrue(deliveries.isEmpty());
+		}
+	}
+
+	@Test
+	@DisplayName("A blocked subscriber should not block the delivery to the other subscribers nor the publisher")
+	public void slowSubscriber() throws InterruptedException{
+
+		final DefaultMetricsServiceImpl metricsService=new DefaultMetricsServiceImpl(4);
+		final CountDownLatch release=new CountDownLatch(1);
+		final RecordingSubscriber slow=new RecordingSubscriber(Long.MAX_VALUE){
+			@Override
+			public void onNext(final List<MetricSnapshot> _snapshots) {
+				super.onNext(_snapshots);
+				try{
+					release.await(10,TimeUnit.SECONDS);
+				}catch(InterruptedException e){
+					Thread.currentThread().interrupt();
+				}
+			}
+		};
+		final RecordingSubscriber fast=new RecordingSubscriber(Long.MAX_VALUE);
+		try(SnapshotPublisher publisher=new SnapshotPublisher(metricsService,NEVER,null,runnable -> new Thread(runnable).start())){
+			publisher.subscribe(slow);
+			publisher.subscribe(fast);
+			metricsService.registerMeasure("a",1l);
+			publisher.tick();
+			Assertions.assertTrue(slow.received.await(10,TimeUnit.SECONDS));
+			Assertions.assertTrue(fast.received.await(10,TimeUnit.SECONDS));
+			metricsService.registerMeasure("b",1l);
+			publisher.tick();
+			publisher.subscribe(new RecordingSubscriber(1));
+		}finally{
+			release.countDown();
+		}
+	}
+
+	@Test
+	@DisplayName("The gauges should be emitted only when its value has changed")
+	public void gauges(){
+
+		final DefaultMetricsServiceImpl metricsService=new DefaultMetricsServiceImpl(4);
+		final AtomicLong value=new AtomicLong(1);
+		final LongSupplier supplier=metricsService.gauge("gauge",value::get);
+		try(SnapshotPublisher publisher=publisher(metricsService)){
+			final RecordingSubscriber subscriber=new RecordingSubscriber(Long.MAX_VALUE);
+			publisher.subscribe(subscriber);
+			publisher.tick();
+			metricsService.registerMeasure("a",1l);
+			publisher.tick();
+			value.set(2);
+			publisher.tick();
+			publisher.tick();
+
+			Assertions.assertEquals(Stream.of(names("gauge"),names("a"),names("gauge")).collect(Collectors.toList()),subscriber.batches);
+			Assertions.assertNotNull(supplier);
+		}
+	}
+}
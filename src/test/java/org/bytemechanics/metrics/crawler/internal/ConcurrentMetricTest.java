@@ -0,0 +1,559 @@
+/*
+ * Copyright 2020 Byte Mechanics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bytemechanics.metrics.crawler.internal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.LogManager;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import org.bytemechanics.metrics.crawler.LongReducer;
+import org.bytemechanics.metrics.crawler.MeasureReducer;
+import org.bytemechanics.metrics.crawler.beans.MetricReading;
+import org.bytemechanics.metrics.crawler.beans.MetricSnapshot;
+import org.bytemechanics.metrics.crawler.exceptions.IncorrectMeasureType;
+import org.bytemechanics.metrics.crawler.internal.commons.string.SimpleFormat;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInfo;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+/**
+ *
+ * @author afarre
+ */
+public class ConcurrentMetricTest {
+
+	@BeforeAll
+	public static void setup() throws IOException{
+		System.out.println(">>>>> ConcurrentMetricTest >>>> setup");
+		try(InputStream inputStream = ConcurrentMetricTest.class.getResourceAsStream("/logging.properties")){
+			LogManager.getLogManager().readConfiguration(inputStream);
+		}catch (final IOException e){
+			Logger.getAnonymousLogger().severe("Could not load default logging.properties file");
+			Logger.getAnonymousLogger().severe(e.getMessage());
+		}
+	}
+
+	@BeforeEach
+    void beforeEachTest(final TestInfo testInfo) {
+        System.out.println(">>>>> "+this.getClass().getSimpleName()+" >>>> "+testInfo.getTestMethod().map(Method::getName).orElse("Unkown")+""+testInfo.getTags().toString()+" >>>> "+testInfo.getDisplayName());
+    }
+
+
+	static Stream<Arguments> metricBuilderDatapack() {
+	    return Stream.of(
+					Arguments.of("a",MeasureReducers.DURATION.get(Duration.class)),
+					Arguments.of("c",MeasureReducers.LONG.get(Long.class)),
+					Arguments.of("fdsf",MeasureReducers.DOUBLE.get(Double.class))
+				);
+	}
+	@ParameterizedTest(name ="When ConcurrentMetric is created with _name:{0},_reducer:{1} the getName() returns {0}, getHits() returns 0 and getReducer() returns {1}")
+	@MethodSource("metricBuilderDatapack")
+	@SuppressWarnings("unchecked")
+	public void constructor(final String _name,final MeasureReducer _reducer){
+
+		final ConcurrentMetric instance=new ConcurrentMetric(_name,_reducer);
+
+		Assertions.assertEquals(_name,instance.getName());
+		Assertions.assertEquals(0,instance.getHits());
+		Assertions.assertEquals(_reducer,instance.getReducer());
+		Assertions.assertEquals(SimpleFormat.format("ConcurrentMetric[name={}, hits={}, reducer={}]",_name,0,_reducer),instance.toString());
+	}
+	@ParameterizedTest(name ="When ConcurrentMetric is created with _name:{0},_reducer:{1} without measures toSnapshot() returns the default snapshot")
+	@MethodSource("metricBuilderDatapack")
+	@SuppressWarnings("unchecked")
+	public void emptySnapshot(final String _name,final MeasureReducer _reducer){
+
+		final ConcurrentMetric instance=new ConcurrentMetric(_name,_reducer);
+
+		Assertions.assertEquals(MetricSnapshot.builder(_reducer).name(_name).build(),instance.toSnapshot());
+	}
+
+	static Stream<Arguments> metricFailureBuilderDatapack() {
+	    return Stream.of(
+					Arguments.of(null, MeasureReducers.DURATION.get(Duration.class), new NullPointerException("Name can not be null to create a Metric")),
+					Arguments.of("ab", null	, new NullPointerException(SimpleFormat.format("Metric {} reducer can not be null to create a Metric","ab")))
+				);
+	}
+	@ParameterizedTest(name ="Try to create with ConcurrentMetric with _name:{0},_reducer:{1} should raise {2}")
+	@MethodSource("metricFailureBuilderDatapack")
+	@SuppressWarnings({"ThrowableResultIgnored","unchecked"})
+	public void contructorNullControl(final String _name,final MeasureReducer _reducer,final Exception _expected){
+
+		Assertions.assertThrows(_expected.getClass()
+								,() -> new ConcurrentMetric(_name,_reducer)
+								,_expected.toString());
+	}
+
+	@SuppressWarnings("unchecked")
+	static Stream<Arguments> metricIncorrectMeasureBuilderDatapack() {
+	    return Stream.of(
+					Arguments.of(new ConcurrentMetric("c",MeasureReducers.DURATION.get(Duration.class)),null,Duration.ofSeconds(10),NullPointerException.class),
+					Arguments.of(new ConcurrentMetric("c",MeasureReducers.DURATION.get(Duration.class)),LocalDateTime.now(),null,NullPointerException.class),
+					Arguments.of(new ConcurrentMetric("c",MeasureReducers.DURATION.get(Duration.class)),LocalDateTime.now(),3l,IncorrectMeasureType.class),
+					Arguments.of(new ConcurrentMetric("c",MeasureReducers.DOUBLE.get(Double.class)),LocalDateTime.now(),3l,IncorrectMeasureType.class),
+					Arguments.of(new ConcurrentMetric("c",MeasureReducers.LONG.get(Long.class)),LocalDateTime.now(),1.1d,IncorrectMeasureType.class)
+				);
+	}
+	@ParameterizedTest(name ="When call addMeasure({1},{2}) to concurrent metric {0} a {3} exception must be thrown")
+	@MethodSource("metricIncorrectMeasureBuilderDatapack")
+	@SuppressWarnings({"ThrowableResultIgnored", "unchecked"})
+	public <T> void addWrongMeasure(final ConcurrentMetric _metric,final LocalDateTime _time, final T _measure,final Class<? extends Exception> _exception){
+
+		Assertions.assertThrows(_exception, () -> _metric.addMeasure(_time, _measure));
+	}
+
+	@SuppressWarnings("unchecked")
+	static Stream<Arguments> metricSnapshotDatapack() {
+		final MeasureReducer<Long> customReducer=new CustomLongReducer();
+		final MeasureReducer<Long> customPrimitiveReducer=new CustomPrimitiveLongReducer();
+	    return Stream.of(
+					Arguments.of(MeasureReducers.DOUBLE.get(Double.class),new Double[]{3.0d,1.0d,5.0d,2.0d,4.0d},15.0d,5.0d,1.0d,3.0d),
+					Arguments.of(MeasureReducers.LONG.get(Long.class),new Long[]{3l,1l,5l,2l,4l},15l,5l,1l,3l),
+					Arguments.of(MeasureReducers.DURATION.get(Duration.class),new Duration[]{Duration.ofSeconds(3),Duration.ofSeconds(1),Duration.ofSeconds(5),Duration.ofSeconds(2),Duration.ofSeconds(4)},Duration.ofSeconds(15),Duration.ofSeconds(5),Duration.ofSeconds(1),Duration.ofSeconds(3)),
+					Arguments.of(customReducer,new Long[]{3l,1l,5l,2l,4l},15l,5l,1l,3l),
+					Arguments.of(customPrimitiveReducer,new Long[]{3l,1l,5l,2l,4l},15l,5l,1l,3l)
+				);
+	}
+	@ParameterizedTest(name ="When ConcurrentMetric with reducer {0} registers {1} the snapshot must have accumulated:{2}, max:{3}, min:{4} and average:{5}")
+	@MethodSource("metricSnapshotDatapack")
+	@SuppressWarnings("unchecked")
+	public <T> void toSnapshot(final MeasureReducer<T> _reducer,final T[] _measures,final T _accumulated,final T _max,final T _min,final T _average){
+
+		final ConcurrentMetric<T> metric=new ConcurrentMetric<>("mNAme",_reducer);
+		for(int ic1=0;ic1<_measures.length;ic1++){
+			metric.addMeasure(LocalDateTime.of(1+ic1,1,1,1,1),_measures[ic1]);
+		}
+		MetricSnapshot expected=MetricSnapshot.builder(_reducer)
+												.name("mNAme")
+												.samplingSize(_measures.length)
+												.accumulatedSamples(_accumulated)
+												.totalHits(_measures.length)
+												.maxMeasure(_max)
+												.minMeasure(_min)
+												.averageMeasure(_average)
+												.lastMeasure(_measures[_measures.length-1])
+												.lastOccurrence(LocalDateTime.of(_measures.length,1,1,1,1))
+											.build();
+
+		Assertions.assertEquals(expected,metric.toSnapshot());
+	}
+
+	@Test
+	@DisplayName("When the latest measure is registered before an older one, the snapshot last measure must be the latest")
+	@SuppressWarnings("unchecked")
+	public void lastMeasure(){
+
+		final ConcurrentMetric<Long> metric=new ConcurrentMetric<>("mNAme",MeasureReducers.LONG.get(Long.class));
+		metric.addMeasure(LocalDateTime.of(2,2,2,2,2),2l);
+		metric.addMeasure(LocalDateTime.of(1,1,1,1,1),1l);
+
+		final MetricSnapshot<Long> snapshot=metric.toSnapshot();
+		Assertions.assertEquals(2l,snapshot.getLastMeasure());
+		Assertions.assertEquals(LocalDateTime.of(2,2,2,2,2),snapshot.getLastOccurrence());
+	}
+
+	@Test
+	@DisplayName("When primitive and out of range measures are mixed, the snapshot and the reading last measure must be the latest")
+	@SuppressWarnings("unchecked")
+	public void lastMeasureMixed(){
+
+		final ConcurrentMetric<Long> metric=new ConcurrentMetric<>("mNAme",MeasureReducers.LONG.get(Long.class));
+		metric.addMeasure(LocalDateTime.of(2020,2,2,2,2),2l);
+		metric.addLongMeasure(Timestamps.toTimestamp(LocalDateTime.of(2010,1,1,1,1)),1l);
+		Assertions.assertEquals(2l,metric.toSnapshot().getLastMeasure());
+		Assertions.assertEquals(LocalDateTime.of(2020,2,2,2,2),metric.toSnapshot().getLastOccurrence());
+		Assertions.assertEquals(2l,metric.read(new MetricReading()).getLongLast());
+
+		metric.addMeasure(LocalDateTime.of(2,2,2,2,2),3l);
+		Assertions.assertEquals(2l,metric.toSnapshot().getLastMeasure());
+		metric.addMeasure(LocalDateTime.of(9999,2,2,2,2),4l);
+		Assertions.assertEquals(4l,metric.toSnapshot().getLastMeasure());
+		Assertions.assertEquals(LocalDateTime.of(9999,2,2,2,2),metric.toSnapshot().getLastOccurrence());
+	}
+
+	static Stream<Arguments> saturatedAccumulatedDatapack() {
+	    return Stream.of(
+					Arguments.of(MeasureReducers.LONG.get(Long.class),Long.MAX_VALUE-10l,100l,Long.MAX_VALUE),
+					Arguments.of(MeasureReducers.LONG.get(Long.class),Long.MIN_VALUE+10l,-100l,Long.MIN_VALUE),
+					Arguments.of(MeasureReducers.HISTOGRAM_LONG.get(Long.class),Long.MAX_VALUE-10l,100l,Long.MAX_VALUE),
+					Arguments.of(MeasureReducers.DURATION.get(Duration.class),Long.MAX_VALUE-10l,100l,Long.MAX_VALUE),
+					Arguments.of(MeasureReducers.HISTOGRAM_DURATION.get(Duration.class),Long.MAX_VALUE-10l,100l,Long.MAX_VALUE)
+				);
+	}
+	@ParameterizedTest(name="When ConcurrentMetric with reducer {0} accumulates {1} and {2} the accumulated must saturate at {3}")
+	@MethodSource("saturatedAccumulatedDatapack")
+	@SuppressWarnings("unchecked")
+	public void saturatedAccumulated(final MeasureReducer _reducer,final long _first,final long _second,final long _expected){
+
+		final ConcurrentMetric metric=new ConcurrentMetric<>("mNAme",_reducer);
+		final long timestamp=Timestamps.now();
+		for(int ic1=0;ic1<3;ic1++){
+			if(_reducer.getType()==Duration.class){
+				metric.addDurationMeasure(timestamp,(ic1==0)? _first : _second);
+			}else{
+				metric.addLongMeasure(timestamp,(ic1==0)? _first : _second);
+			}
+		}
+		Assertions.assertEquals(_expected,((LongReducer)_reducer).toLong(metric.toSnapshot().getAccumulatedSamples()));
+		Assertions.assertEquals(_expected,metric.read(new MetricReading()).getLongAccumulated());
+		Assertions.assertEquals(3l,metric.getHits());
+	}
+
+	@Test
+	@DisplayName("When several threads register primitive measures at the same time the last measure must be the one with the newest timestamp")
+	@SuppressWarnings("unchecked")
+	public void concurrentLastMeasure() throws Exception{
+
+		final int threads=8;
+		final int measures=10000;
+		final long base=Timestamps.toTimestamp(LocalDateTime.of(2020,1,1,0,0));
+		final ConcurrentMetric<Long> metric=new ConcurrentMetric<>("mNAme",MeasureReducers.LONG.get(Long.class));
+		final ExecutorService executor=Executors.newFixedThreadPool(threads);
+		try{
+			final List<Callable<Void>> tasks=new ArrayList<>();
+			for(int ic1=0;ic1<threads;ic1++){
+				final long thread=ic1;
+				tasks.add(() -> {
+					for(long ic2=1;ic2<=measures;ic2++){
+						metric.addLongMeasure(base+ic2*threads+thread,ic2*threads+thread);
+					}
+					return null;
+				});
+			}
+			for(Future<Void> future:executor.invokeAll(tasks)){
+				future.get();
+			}
+		}finally{
+			executor.shutdown();
+		}
+
+		final long newest=measures*threads+threads-1;
+		Assertions.assertEquals(newest,metric.toSnapshot().getLastMeasure());
+		Assertions.assertEquals(Timestamps.toLocalDateTime(base+newest),metric.toSnapshot().getLastOccurrence());
+		final MetricReading reading=metric.read(new MetricReading());
+		Assertions.assertEquals(newest,reading.getLongLast());
+		Assertions.assertEquals(base+newest,reading.getLastOccurrence());
+	}
+
+	@Test
+	@DisplayName("When several threads register measures at the same time no hit must be lost")
+	@SuppressWarnings("unchecked")
+	public void concurrentAddMeasure() throws Exception{
+
+		final int threads=8;
+		final int measures=10000;
+		final ConcurrentMetric<Long> metric=new ConcurrentMetric<>("mNAme",MeasureReducers.LONG.get(Long.class));
+		final ExecutorService executor=Executors.newFixedThreadPool(threads);
+		try{
+			final List<Callable<Void>> tasks=new ArrayList<>();
+			for(int ic1=0;ic1<threads;ic1++){
+				tasks.add(() -> {
+					for(long ic2=1;ic2<=measures;ic2++){
+						metric.addMeasure(LocalDateTime.now(),ic2);
+					}
+					return null;
+				});
+			}
+			for(Future<Void> future:executor.invokeAll(tasks)){
+				future.get();
+			}
+		}finally{
+			executor.shutdown();
+		}
+
+		final MetricSnapshot<Long> snapshot=metric.toSnapshot();
+		Assertions.assertEquals(threads*measures,metric.getHits());
+		Assertions.assertEquals(threads*measures,snapshot.getTotalHits());
+		Assertions.assertEquals(threads*((measures*(measures+1l))/2l),snapshot.getAccumulatedSamples());
+		Assertions.assertEquals(measures,snapshot.getMaxMeasure());
+		Assertions.assertEquals(1l,snapshot.getMinMeasure());
+	}
+
+	@Test
+	@DisplayName("When several threads register measures at the same time in an histogram metric the percentiles must be within the histogram precision")
+	@SuppressWarnings("unchecked")
+	public void concurrentAddHistogramMeasure() throws Exception{
+
+		final int threads=8;
+		final int measures=10000;
+		final ConcurrentMetric<Long> metric=new ConcurrentMetric<>("mNAme",MeasureReducers.HISTOGRAM_LONG.get(Long.class));
+		final ExecutorService executor=Executors.newFixedThreadPool(threads);
+		try{
+			final List<Callable<Void>> tasks=new ArrayList<>();
+			for(int ic1=0;ic1<threads;ic1++){
+				tasks.add(() -> {
+					for(long ic2=1;ic2<=measures;ic2++){
+						metric.addMeasure(LocalDateTime.now(),ic2);
+					}
+					return null;
+				});
+			}
+			for(Future<Void> future:executor.invokeAll(tasks)){
+				future.get();
+			}
+		}finally{
+			executor.shutdown();
+		}
+
+		final MetricSnapshot<Long> snapshot=metric.toSnapshot();
+		Assertions.assertEquals(threads*measures,snapshot.getHistogram().getCount());
+		Assertions.assertEquals(5000.0d,snapshot.getPercentile50Measure(),5000.0d/LogLinearHistogram.SUB_BUCKETS);
+		Assertions.assertEquals(9000.0d,snapshot.getPercentile90Measure(),9000.0d/LogLinearHistogram.SUB_BUCKETS);
+		Assertions.assertEquals(9900.0d,snapshot.getPercentile99Measure(),9900.0d/LogLinearHistogram.SUB_BUCKETS);
+		Assertions.assertEquals(9990.0d,snapshot.getPercentile999Measure(),9990.0d/LogLinearHistogram.SUB_BUCKETS);
+	}
+
+	@Test
+	@DisplayName("ConcurrentMetric without histogram reducer must not provide percentiles")
+	@SuppressWarnings("unchecked")
+	public void withoutHistogram(){
+
+		final ConcurrentMetric<Long> metric=new ConcurrentMetric<>("mNAme",MeasureReducers.LONG.get(Long.class));
+		metric.addMeasure(LocalDateTime.now(),2l);
+
+		final MetricSnapshot<Long> snapshot=metric.toSnapshot();
+		Assertions.assertNull(snapshot.getHistogram());
+		Assertions.assertNull(snapshot.getPercentile50Measure());
+	}
+
+
+	@Test
+	@DisplayName("When several threads register measures at the same time the variance merged from the stripes must be the variance of all the measures")
+	@SuppressWarnings("unchecked")
+	public void concurrentVariance() throws Exception{
+
+		final int threads=8;
+		final int measures=10000;
+		final ConcurrentMetric<Double> metric=new ConcurrentMetric<>("mNAme",MeasureReducers.DOUBLE.get(Double.class));
+		final ExecutorService executor=Executors.newFixedThreadPool(threads);
+		try{
+			final List<Callable<Void>> tasks=new ArrayList<>();
+			for(int ic1=0;ic1<threads;ic1++){
+				final double offset=ic1*10.0d;
+				tasks.add(() -> {
+					for(int ic2=1;ic2<=measures;ic2++){
+						metric.addMeasure(LocalDateTime.now(),offset+(ic2%10));
+					}
+					return null;
+				});
+			}
+			for(Future<Void> future:executor.invokeAll(tasks)){
+				future.get();
+			}
+		}finally{
+			executor.shutdown();
+		}
+		final RunningVariance expected=new RunningVariance();
+		for(int ic1=0;ic1<threads;ic1++){
+			for(int ic2=1;ic2<=measures;ic2++){
+				expected.record(ic1*10.0d+(ic2%10));
+			}
+		}
+
+		final MetricSnapshot<Double> snapshot=metric.toSnapshot();
+		Assertions.assertEquals(threads*measures,snapshot.getRunningVariance().getCount());
+		Assertions.assertEquals(expected.getVariance(),snapshot.getVariance(),expected.getVariance()*1e-9d);
+		Assertions.assertEquals(Math.sqrt(expected.getVariance()),snapshot.getStdDeviation(),1e-6d);
+	}
+
+	@Test
+	@DisplayName("The variance of measures with a large offset must not lose precision")
+	@SuppressWarnings("unchecked")
+	public void offsetVariance(){
+
+		final ConcurrentMetric<Double> metric=new ConcurrentMetric<>("mNAme",MeasureReducers.DOUBLE.get(Double.class));
+		final RunningVariance expected=new RunningVariance();
+		for(int ic1=0;ic1<10000;ic1++){
+			metric.addDoubleMeasure(Timestamps.now(),1e9d+(ic1%10)*0.1d);
+			expected.record(1e9d+(ic1%10)*0.1d);
+		}
+
+		final MetricSnapshot<Double> snapshot=metric.toSnapshot();
+		Assertions.assertEquals(expected.getVariance(),snapshot.getVariance(),expected.getVariance()*1e-6d);
+		Assertions.assertEquals(expected.getMean(),snapshot.getRunningVariance().getMean(),1e-6d);
+	}
+
+	static Stream<Arguments> primitiveDatapack() {
+		return Stream.of(
+					Arguments.of(MeasureReducers.LONG.get(Long.class),new Long[]{3l,1l,5l,2l,4l}),
+					Arguments.of(MeasureReducers.HISTOGRAM_LONG.get(Long.class),new Long[]{3l,1l,5l,2l,4l}),
+					Arguments.of(MeasureReducers.DURATION.get(Duration.class),new Duration[]{Duration.ofSeconds(3),Duration.ofSeconds(1),Duration.ofSeconds(5),Duration.ofSeconds(2),Duration.ofSeconds(4)}),
+					Arguments.of(MeasureReducers.HISTOGRAM_DURATION.get(Duration.class),new Duration[]{Duration.ofSeconds(3),Duration.ofSeconds(1),Duration.ofSeconds(5),Duration.ofSeconds(2),Duration.ofSeconds(4)}),
+					Arguments.of(MeasureReducers.DOUBLE.get(Double.class),new Double[]{3.5d,1.5d,5.5d,2.5d,4.5d}),
+					Arguments.of(new CustomPrimitiveLongReducer(),new Long[]{3l,1l,5l,2l,4l})
+				);
+	}
+	@ParameterizedTest(name ="When ConcurrentMetric with reducer {0} registers the primitive measures {1} the snapshot must be the same as registering the boxed measures")
+	@MethodSource("primitiveDatapack")
+	@SuppressWarnings("unchecked")
+	public <T> void primitiveMeasures(final MeasureReducer<T> _reducer,final T[] _measures){
+
+		final ConcurrentMetric<T> boxed=new ConcurrentMetric<>("mNAme",_reducer);
+		final ConcurrentMetric<T> primitive=new ConcurrentMetric<>("mNAme",_reducer);
+		for(int ic1=0;ic1<_measures.length;ic1++){
+			final LocalDateTime timestamp=LocalDateTime.of(2020,1,1+ic1,1,1);
+			boxed.addMeasure(timestamp,_measures[ic1]);
+			if(_measures[ic1] instanceof Duration){
+				primitive.addDurationMeasure(Timestamps.toTimestamp(timestamp),((Duration)_measures[ic1]).toNanos());
+			}else if(_measures[ic1] instanceof Double){
+				primitive.addDoubleMeasure(Timestamps.toTimestamp(timestamp),(Double)_measures[ic1]);
+			}else{
+				primitive.addLongMeasure(Timestamps.toTimestamp(timestamp),(Long)_measures[ic1]);
+			}
+		}
+		primitive.addMeasure(LocalDateTime.of(2019,1,1,1,1),_measures[0]);
+		boxed.addMeasure(LocalDateTime.of(2019,1,1,1,1),_measures[0]);
+
+		final MetricSnapshot<T> expected=boxed.toSnapshot();
+		final MetricSnapshot<T> actual=primitive.toSnapshot();
+		Assertions.assertEquals(expected,actual);
+		Assertions.assertEquals(_measures[_measures.length-1],actual.getLastMeasure());
+		Assertions.assertEquals(LocalDateTime.of(2020,1,_measures.length,1,1),actual.getLastOccurrence());
+		Assertions.assertEquals(expected.getVariance(),actual.getVariance(),1e-9d);
+		Assertions.assertEquals(expected.getPercentile50Measure(),actual.getPercentile50Measure());
+	}
+
+	static Stream<Arguments> readDatapack() {
+		return Stream.of(
+					Arguments.of(MeasureReducers.LONG.get(Long.class),new Long[]{3l,1l,5l,2l,4l},false),
+					Arguments.of(MeasureReducers.HISTOGRAM_LONG.get(Long.class),new Long[]{3l,1l,5l,2l,4l},true),
+					Arguments.of(MeasureReducers.DURATION.get(Duration.class),new Duration[]{Duration.ofSeconds(3),Duration.ofSeconds(1),Duration.ofSeconds(5),Duration.ofSeconds(2),Duration.ofSeconds(4)},false),
+					Arguments.of(MeasureReducers.HISTOGRAM_DURATION.get(Duration.class),new Duration[]{Duration.ofSeconds(3),Duration.ofSeconds(1),Duration.ofSeconds(5),Duration.ofSeconds(2),Duration.ofSeconds(4)},true),
+					Arguments.of(MeasureReducers.DOUBLE.get(Double.class),new Double[]{3.5d,1.5d,5.5d,2.5d,4.5d},false),
+					Arguments.of(new CustomPrimitiveLongReducer(),new Long[]{3l,1l,5l,2l,4l},true)
+				);
+	}
+	@ParameterizedTest(name ="When ConcurrentMetric with reducer {0} registers the measures {1} the reading must have the same values than the snapshot and be read from the snapshot: {2}")
+	@MethodSource("readDatapack")
+	public <T> void readSameAsSnapshot(final MeasureReducer<T> _reducer,final T[] _measures,final boolean _fromSnapshot){
+
+		final ConcurrentMetric<T> metric=new ConcurrentMetric<>("mNAme",_reducer);
+		final MetricReading reading=new MetricReading();
+		Assertions.assertEquals(new MetricReading().snapshotValues(metric.toSnapshot()).toString(),metric.read(reading).toString());
+		for(int ic1=0;ic1<_measures.length;ic1++){
+			final LocalDateTime timestamp=LocalDateTime.of(2020,1,1+ic1,1,1);
+			if(ic1%2==0){
+				metric.addMeasure(timestamp,_measures[ic1]);
+			}else if(_measures[ic1] instanceof Duration){
+				metric.addDurationMeasure(Timestamps.toTimestamp(timestamp),((Duration)_measures[ic1]).toNanos());
+			}else if(_measures[ic1] instanceof Double){
+				metric.addDoubleMeasure(Timestamps.toTimestamp(timestamp),(Double)_measures[ic1]);
+			}else{
+				metric.addLongMeasure(Timestamps.toTimestamp(timestamp),(Long)_measures[ic1]);
+			}
+
+			Assertions.assertEquals(new MetricReading().snapshotValues(metric.toSnapshot()).toString(),metric.read(reading).toString());
+			Assertions.assertEquals(metric.toSnapshot().getVariance(),reading.getVariance());
+			Assertions.assertEquals(_fromSnapshot,reading.getSnapshot()!=null);
+		}
+	}
+
+	@Test
+	@DisplayName("ConcurrentMetric with a reducer that is not a LongReducer nor a DoubleReducer must not provide variance")
+	@SuppressWarnings("unchecked")
+	public void withoutVariance(){
+
+		final ConcurrentMetric<Long> metric=new ConcurrentMetric<>("mNAme",new CustomLongReducer());
+		metric.addMeasure(LocalDateTime.now(),2l);
+		metric.addMeasure(LocalDateTime.now(),4l);
+
+		Assertions.assertTrue(Double.isNaN(metric.toSnapshot().getVariance()));
+		Assertions.assertEquals(2.0d,new ConcurrentMetric<>("mNAme",new CustomPrimitiveLongReducer()).toSnapshot().reduce(metric.toSnapshot()).getSamplingSize());
+	}
+
+
+	private static class CustomLongReducer implements MeasureReducer<Long>{
+		@Override
+		public Class getType() {
+			return Long.class;
+		}
+		@Override
+		public Long identity() {
+			return 0l;
+		}
+		@Override
+		public Optional<Long> accumulate(final Long _val1,final Long _val2) {
+			return MeasureReducers.secureApply(_val1, _val2, Long::sum);
+		}
+		@Override
+		public Optional<Long> max(final Long _val1,final Long _val2) {
+			return MeasureReducers.secureApply(_val1, _val2, Math::max);
+		}
+		@Override
+		public Optional<Long> min(final Long _val1,final Long _val2) {
+			return MeasureReducers.secureApply(_val1, _val2, Math::min);
+		}
+		@Override
+		public Optional<Long> average(final Long _val,final long _hits) {
+			return Optional.ofNullable(_val).map(val -> val/_hits);
+		}
+		@Override
+		public String toString(final Long _val) {
+			return String.valueOf(_val);
+		}
+		@Override
+		public String toString() {
+			return "CustomLongReducer";
+		}
+	}
+	private static class CustomPrimitiveLongReducer extends CustomLongReducer implements LongReducer<Long>{
+		@Override
+		public long toLong(final Long _measure) {
+			return _measure;
+		}
+		@Override
+		public Long fromLong(final long _value) {
+			return _value;
+		}
+		@Override
+		public long accumulate(final long _val1,final long _val2) {
+			return _val1+_val2;
+		}
+		@Override
+		public long max(final long _val1,final long _val2) {
+			return Math.max(_val1,_val2);
+		}
+		@Override
+		public long min(final long _val1,final long _val2) {
+			return Math.min(_val1,_val2);
+		}
+		@Override
+		public long average(final long _val,final long _hits) {
+			return _val/_hits;
+		}
+		@Override
+		public String toString() {
+			return "CustomPrimitiveLongReducer";
+		}
+	}
+}
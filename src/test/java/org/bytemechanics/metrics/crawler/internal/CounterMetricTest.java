@@ -0,0 +1,283 @@
+/*
+ * Copyright 2020 Byte Mechanics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bytemechanics.metrics.crawler.internal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.LogManager;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import org.bytemechanics.metrics.crawler.AbstractMetric;
+import org.bytemechanics.metrics.crawler.MeasureReducer;
+import org.bytemechanics.metrics.crawler.beans.MetricReading;
+import org.bytemechanics.metrics.crawler.beans.MetricSnapshot;
+import org.bytemechanics.metrics.crawler.exceptions.IncorrectMeasureType;
+import org.bytemechanics.metrics.crawler.internal.commons.string.SimpleFormat;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInfo;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ *
+ * @author afarre
+ */
+public class CounterMetricTest {
+
+	@BeforeAll
+	public static void setup() throws IOException{
+		System.out.println(">>>>> CounterMetricTest >>>> setup");
+		try(InputStream inputStream = CounterMetricTest.class.getResourceAsStream("/logging.properties")){
+			LogManager.getLogManager().readConfiguration(inputStream);
+		}catch (final IOException e){
+			Logger.getAnonymousLogger().severe("Could not load default logging.properties file");
+			Logger.getAnonymousLogger().severe(e.getMessage());
+		}
+	}
+
+	@BeforeEach
+    void beforeEachTest(final TestInfo testInfo) {
+        System.out.println(">>>>> "+this.getClass().getSimpleName()+" >>>> "+testInfo.getTestMethod().map(Method::getName).orElse("Unkown")+""+testInfo.getTags().toString()+" >>>> "+testInfo.getDisplayName());
+    }
+
+
+	@ParameterizedTest(name ="When CounterMetric is created with _name:{0} the getName() returns {0}, getHits() and getTotal() return 0 and getReducer() returns the Long reducer")
+	@ValueSource(strings={"a","c","fdsf"})
+	public void constructor(final String _name){
+
+		final CounterMetric<Long> instance=new CounterMetric<>(_name,MeasureReducers.LONG.get(Long.class));
+
+		Assertions.assertEquals(_name,instance.getName());
+		Assertions.assertEquals(0,instance.getHits());
+		Assertions.assertEquals(0,instance.getTotal());
+		Assertions.assertEquals(MeasureReducers.LONG.get(Long.class),instance.getReducer());
+		Assertions.assertEquals(SimpleFormat.format("CounterMetric[name={}, hits={}, total={}, reducer={}]",_name,0,0,MeasureReducers.LONG.get(Long.class)),instance.toString());
+	}
+	@ParameterizedTest(name ="When CounterMetric is created with _name:{0} without measures toSnapshot() returns a counter snapshot with zero total and rate")
+	@ValueSource(strings={"a","c","fdsf"})
+	public void emptySnapshot(final String _name){
+
+		final CounterMetric<Long> instance=new CounterMetric<>(_name,MeasureReducers.LONG.get(Long.class));
+		final MetricSnapshot<Long> snapshot=instance.toSnapshot();
+
+		Assertions.assertEquals(_name,snapshot.getName());
+		Assertions.assertEquals(0l,snapshot.getAccumulatedSamples());
+		Assertions.assertEquals(0l,snapshot.getSamplingSize());
+		Assertions.assertEquals(0l,snapshot.getTotalHits());
+		Assertions.assertEquals(0l,snapshot.getAverageMeasure());
+		Assertions.assertNull(snapshot.getMaxMeasure());
+		Assertions.assertNull(snapshot.getMinMeasure());
+		Assertions.assertNull(snapshot.getLastMeasure());
+		Assertions.assertNull(snapshot.getLastOccurrence());
+		Assertions.assertTrue(snapshot.isCounter());
+		Assertions.assertEquals(0.0d,snapshot.getRate());
+	}
+
+	static Stream<Arguments> metricFailureBuilderDatapack() {
+	    return Stream.of(
+					Arguments.of(null, MeasureReducers.LONG.get(Long.class), new NullPointerException("Name can not be null to create a Metric")),
+					Arguments.of("ab", null, new NullPointerException(SimpleFormat.format("Metric {} reducer can not be null to create a Metric","ab"))),
+					Arguments.of("ab", MeasureReducers.DOUBLE.get(Double.class), new IllegalArgumentException("Metric ab reducer MeasureReducers.Double must be a LongReducer to create a counter"))
+				);
+	}
+	@ParameterizedTest(name ="Try to create with CounterMetric with _name:{0},_reducer:{1} should raise {2}")
+	@MethodSource("metricFailureBuilderDatapack")
+	@SuppressWarnings({"ThrowableResultIgnored","unchecked"})
+	public void contructorControl(final String _name,final MeasureReducer _reducer,final Exception _expected){
+
+		final Exception exception=Assertions.assertThrows(_expected.getClass()
+															,() -> new CounterMetric(_name,_reducer)
+															,_expected.toString());
+		Assertions.assertEquals(_expected.getMessage(),exception.getMessage());
+	}
+
+	@Test
+	@DisplayName("When add measures to the counter the snapshot total must be the sum of the measures, the hits the number of measures and the last occurrence the latest timestamp")
+	public void addMeasures(){
+
+		final CounterMetric<Long> metric=new CounterMetric<>("mNAme",MeasureReducers.LONG.get(Long.class));
+		final LocalDateTime timestamp=LocalDateTime.of(2020,3,4,10,11,12);
+		metric.addMeasure(timestamp,5l);
+		metric.addLongMeasure(Timestamps.toTimestamp(timestamp.minusSeconds(3)),1l);
+		metric.addLongMeasure(Timestamps.toTimestamp(timestamp.plusSeconds(1)),0l);
+		metric.addLongMeasure(Timestamps.toTimestamp(timestamp.minusSeconds(1)),3l);
+		final MetricSnapshot<Long> snapshot=metric.toSnapshot();
+
+		Assertions.assertEquals(9l,metric.getTotal());
+		Assertions.assertEquals(4l,metric.getHits());
+		Assertions.assertEquals(9l,snapshot.getAccumulatedSamples());
+		Assertions.assertEquals(4l,snapshot.getSamplingSize());
+		Assertions.assertEquals(4l,snapshot.getTotalHits());
+		Assertions.assertEquals(2l,snapshot.getAverageMeasure());
+		Assertions.assertEquals(timestamp.plusSeconds(1),snapshot.getLastOccurrence());
+		Assertions.assertTrue(snapshot.getRate()>0.0d);
+	}
+
+	@ParameterizedTest(name ="When add the negative measure {0} an IllegalArgumentException must be raised and the counter must not change")
+	@ValueSource(longs={-1l,-100l,Long.MIN_VALUE})
+	@SuppressWarnings("ThrowableResultIgnored")
+	public void negativeMeasure(final long _measure){
+
+		final CounterMetric<Long> metric=new CounterMetric<>("c",MeasureReducers.LONG.get(Long.class));
+		metric.addLongMeasure(Timestamps.now(),2l);
+
+		final Exception exception=Assertions.assertThrows(IllegalArgumentException.class,() -> metric.addLongMeasure(Timestamps.now(),_measure));
+		Assertions.assertEquals(SimpleFormat.format("Can not add negative measure {} to counter c",_measure),exception.getMessage());
+		Assertions.assertThrows(IllegalArgumentException.class,() -> metric.addMeasure(LocalDateTime.now(),_measure));
+		Assertions.assertEquals(2l,metric.getTotal());
+		Assertions.assertEquals(1l,metric.getHits());
+	}
+
+	@Test
+	@DisplayName("When register a measure of incorrect type an IncorrectMeasureType must be raised and the counter must not change")
+	@SuppressWarnings({"ThrowableResultIgnored","unchecked","rawtypes"})
+	public void incorrectMeasure(){
+
+		final AbstractMetric metric=new CounterMetric<>("c",MeasureReducers.LONG.get(Long.class));
+
+		Assertions.assertThrows(IncorrectMeasureType.class,() -> metric.addMeasure(LocalDateTime.now(),Duration.ofSeconds(3)));
+		Assertions.assertThrows(IncorrectMeasureType.class,() -> metric.addDoubleMeasure(Timestamps.now(),3.0d));
+		Assertions.assertEquals(0l,metric.getHits());
+	}
+
+	@Test
+	@DisplayName("A counter of durations must keep its total in nanoseconds and validate the type of the primitive measures")
+	@SuppressWarnings("ThrowableResultIgnored")
+	public void durationCounter(){
+
+		final CounterMetric<Duration> metric=new CounterMetric<>("c",MeasureReducers.DURATION.get(Duration.class));
+		metric.addMeasure(LocalDateTime.now(),Duration.ofMillis(3));
+		metric.addDurationMeasure(Timestamps.now(),Duration.ofMillis(5).toNanos());
+
+		Assertions.assertThrows(IncorrectMeasureType.class,() -> metric.addLongMeasure(Timestamps.now(),2l));
+		Assertions.assertEquals(Duration.ofMillis(8),metric.toSnapshot().getAccumulatedSamples());
+		Assertions.assertEquals(Duration.ofMillis(4),metric.toSnapshot().getAverageMeasure());
+		Assertions.assertEquals(2l,metric.getHits());
+	}
+
+	@Test
+	@DisplayName("The first rate of the counter must be the total per second since its creation")
+	public void rate() throws InterruptedException{
+
+		final long start=System.nanoTime();
+		final CounterMetric<Long> metric=new CounterMetric<>("c",MeasureReducers.LONG.get(Long.class));
+		metric.addLongMeasure(Timestamps.now(),100l);
+		Thread.sleep(200);
+		final double rate=metric.toSnapshot().getRate();
+		final double elapsed=(System.nanoTime()-start)/1_000_000_000.0d;
+
+		Assertions.assertTrue(rate<=100.0d/0.2d,String.valueOf(rate));
+		Assertions.assertTrue(rate>=100.0d/elapsed,String.valueOf(rate));
+	}
+
+	@Test
+	@DisplayName("The rate of the counter must be a moving average of the increments between reads that decays when the counter stops")
+	public void movingRate(){
+
+		final long minute=TimeUnit.SECONDS.toNanos(CounterMetric.RATE_WINDOW_SECONDS);
+		final AtomicLong clock=new AtomicLong(1000l);
+		final CounterMetric<Long> metric=new CounterMetric<>("c",MeasureReducers.LONG.get(Long.class),clock::get);
+		metric.addLongMeasure(Timestamps.now(),600l);
+		clock.addAndGet(minute);
+		Assertions.assertEquals(10.0d,metric.toSnapshot().getRate(),0.0001d);
+		Assertions.assertEquals(10.0d,metric.toSnapshot().getRate(),0.0001d);
+		clock.addAndGet(minute);
+		Assertions.assertEquals(10.0d*Math.exp(-1.0d),metric.toSnapshot().getRate(),0.0001d);
+		metric.addLongMeasure(Timestamps.now(),6000l);
+		clock.addAndGet(minute);
+		Assertions.assertEquals(100.0d-(100.0d-10.0d*Math.exp(-1.0d))*Math.exp(-1.0d),metric.read(new MetricReading()).getRate(),0.0001d);
+	}
+
+	@Test
+	@DisplayName("The reading of the counter must have the same values than its snapshot")
+	public void read(){
+
+		final CounterMetric<Long> metric=new CounterMetric<>("c",MeasureReducers.LONG.get(Long.class));
+		final LocalDateTime timestamp=LocalDateTime.of(2020,3,4,10,11,12);
+		final MetricReading empty=metric.read(new MetricReading());
+
+		Assertions.assertEquals(MetricReading.Kind.COUNTER,empty.getKind());
+		Assertions.assertEquals(0l,empty.getTotalHits());
+		Assertions.assertEquals(0l,empty.getLongAccumulated());
+		Assertions.assertEquals(0l,empty.getLastOccurrence());
+		Assertions.assertEquals(0.0d,empty.getRate());
+
+		metric.addLongMeasure(Timestamps.toTimestamp(timestamp),7l);
+		metric.addLongMeasure(Timestamps.toTimestamp(timestamp),3l);
+		final MetricReading reading=metric.read(new MetricReading());
+		final MetricReading fromSnapshot=new MetricReading().snapshotValues(metric.toSnapshot());
+
+		Assertions.assertEquals("c",reading.getName());
+		Assertions.assertEquals(MetricReading.Kind.COUNTER,reading.getKind());
+		Assertions.assertEquals(2l,reading.getTotalHits());
+		Assertions.assertEquals(10l,reading.getLongAccumulated());
+		Assertions.assertEquals(10.0d,reading.getDoubleAccumulated());
+		Assertions.assertEquals(Timestamps.toTimestamp(timestamp),reading.getLastOccurrence());
+		Assertions.assertTrue(reading.getRate()>0.0d);
+		Assertions.assertNull(reading.getSnapshot());
+		Assertions.assertEquals(MetricReading.Kind.COUNTER,fromSnapshot.getKind());
+		Assertions.assertEquals(reading.getTotalHits(),fromSnapshot.getTotalHits());
+		Assertions.assertEquals(reading.getLongAccumulated(),fromSnapshot.getLongAccumulated());
+		Assertions.assertEquals(reading.getLastOccurrence(),fromSnapshot.getLastOccurrence());
+	}
+
+	@Test
+	@DisplayName("When several threads add measures at the same time the counter must not lose any of them")
+	public void concurrentAdd() throws Exception{
+
+		final int threads=8;
+		final int measures=10000;
+		final CounterMetric<Long> metric=new CounterMetric<>("mNAme",MeasureReducers.LONG.get(Long.class));
+		final ExecutorService executor=Executors.newFixedThreadPool(threads);
+		try{
+			final List<Callable<Void>> tasks=new ArrayList<>();
+			for(int ic1=0;ic1<threads;ic1++){
+				tasks.add(() -> {
+					for(int ic2=0;ic2<measures;ic2++){
+						metric.addLongMeasure(Timestamps.now(),2l);
+					}
+					return null;
+				});
+			}
+			for(Future<Void> future:executor.invokeAll(tasks)){
+				future.get();
+			}
+		}finally{
+			executor.shutdown();
+		}
+		final MetricSnapshot<Long> snapshot=metric.toSnapshot();
+
+		Assertions.assertEquals(threads*measures,snapshot.getTotalHits());
+		Assertions.assertEquals(2l*threads*measures,snapshot.getAccumulatedSamples());
+	}
+}
@@ -0,0 +1,233 @@
+/*
+ * Copyright 2020 Byte Mechanics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bytemechanics.metrics.crawler.internal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.LogManager;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import org.bytemechanics.metrics.crawler.MeasureReducer;
+import org.bytemechanics.metrics.crawler.beans.MetricSnapshot;
+import org.bytemechanics.metrics.crawler.exceptions.IncorrectSamplingSize;
+import org.bytemechanics.metrics.crawler.internal.commons.string.SimpleFormat;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInfo;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ *
+ * @author afarre
+ */
+public class DecayingMetricTest {
+
+	private static final LocalDateTime BASE=LocalDateTime.of(2020,1,1,0,0);
+
+	@BeforeAll
+	public static void setup() throws IOException{
+		System.out.println(">>>>> DecayingMetricTest >>>> setup");
+		try(InputStream inputStream = DecayingMetricTest.class.getResourceAsStream("/logging.properties")){
+			LogManager.getLogManager().readConfiguration(inputStream);
+		}catch (final IOException e){
+			Logger.getAnonymousLogger().severe("Could not load default logging.properties file");
+			Logger.getAnonymousLogger().severe(e.getMessage());
+		}
+	}
+
+	@BeforeEach
+    void beforeEachTest(final TestInfo testInfo) {
+        System.out.println(">>>>> "+this.getClass().getSimpleName()+" >>>> "+testInfo.getTestMethod().map(Method::getName).orElse("Unkown")+""+testInfo.getTags().toString()+" >>>> "+testInfo.getDisplayName());
+    }
+
+
+	static Stream<Arguments> metricBuilderDatapack() {
+	    return Stream.of(
+					Arguments.of("a",MeasureReducers.DURATION.get(Duration.class)),
+					Arguments.of("c",MeasureReducers.LONG.get(Long.class)),
+					Arguments.of("fdsf",MeasureReducers.DOUBLE.get(Double.class)),
+					Arguments.of("h",MeasureReducers.HISTOGRAM_LONG.get(Long.class))
+				);
+	}
+	@ParameterizedTest(name ="When DecayingMetric is created with _name:{0},_reducer:{1} the getName() returns {0}, getHits() returns 0, getReducer() returns {1} and toSnapshot() the default snapshot")
+	@MethodSource("metricBuilderDatapack")
+	@SuppressWarnings("unchecked")
+	public void constructor(final String _name,final MeasureReducer _reducer){
+
+		final DecayingMetric instance=new DecayingMetric(_name,4,Duration.ofSeconds(10),_reducer);
+
+		Assertions.assertEquals(_name,instance.getName());
+		Assertions.assertEquals(0,instance.getHits());
+		Assertions.assertEquals(_reducer,instance.getReducer());
+		Assertions.assertEquals(Duration.ofSeconds(10),instance.getHalfLife());
+		Assertions.assertEquals(4,instance.getSamplingSize());
+		Assertions.assertEquals(SimpleFormat.format("DecayingMetric[name={}, hits={}, samplingSize={}, halfLife={}, reducer={}]",_name,0,4,Duration.ofSeconds(10),_reducer),instance.toString());
+		Assertions.assertEquals(MetricSnapshot.builder(_reducer).name(_name).build(),instance.toSnapshot());
+	}
+
+	static Stream<Arguments> metricFailureBuilderDatapack() {
+	    return Stream.of(
+					Arguments.of(null,1,Duration.ofSeconds(1),MeasureReducers.DURATION.get(Duration.class), new NullPointerException("Name can not be null to create a Metric")),
+					Arguments.of("ab",1,Duration.ofSeconds(1),null, new NullPointerException(SimpleFormat.format("Metric {} reducer can not be null to create a Metric","ab"))),
+					Arguments.of("ab",0,Duration.ofSeconds(1),MeasureReducers.DURATION.get(Duration.class), new IncorrectSamplingSize("ab",0)),
+					Arguments.of("ab",1,null,MeasureReducers.DURATION.get(Duration.class), new NullPointerException(SimpleFormat.format("Metric {} half-life can not be null to create a DecayingMetric","ab"))),
+					Arguments.of("ab",1,Duration.ZERO,MeasureReducers.DURATION.get(Duration.class), new IllegalArgumentException(SimpleFormat.format("Metric {} half-life {} must be positive","ab",Duration.ZERO))),
+					Arguments.of("ab",1,Duration.ofSeconds(-1),MeasureReducers.DURATION.get(Duration.class), new IllegalArgumentException(SimpleFormat.format("Metric {} half-life {} must be positive","ab",Duration.ofSeconds(-1))))
+				);
+	}
+	@ParameterizedTest(name ="Try to create with DecayingMetric with _name:{0},_samplingSize:{1},_halfLife:{2},_reducer:{3} should raise {4}")
+	@MethodSource("metricFailureBuilderDatapack")
+	@SuppressWarnings({"ThrowableResultIgnored","unchecked"})
+	public void contructorNullControl(final String _name,final int _samplingSize,final Duration _halfLife,final MeasureReducer _reducer,final Exception _expected){
+
+		final Exception exception=Assertions.assertThrows(_expected.getClass()
+								,() -> new DecayingMetric(_name,_samplingSize,_halfLife,_reducer));
+		Assertions.assertEquals(_expected.getMessage(),exception.getMessage());
+	}
+
+	@ParameterizedTest(name ="When DecayingMetric with {0} stripes registers less measures than its sampling size the snapshot must take in account all of them")
+	@ValueSource(ints = {1,2,8})
+	public void notFull(final int _stripes){
+
+		final DecayingMetric<Long> metric=new DecayingMetric<>("mNAme",128,Duration.ofSeconds(10),MeasureReducers.LONG.get(Long.class),_stripes);
+		final LongMetric expected=new LongMetric("mNAme",128,MeasureReducers.LONG.get(Long.class));
+		for(int ic1=1;ic1<=100;ic1++){
+			final LocalDateTime time=BASE.plusSeconds(ic1%7);
+			metric.addMeasure(time,(long)ic1);
+			expected.addMeasure(time,(long)ic1);
+		}
+
+		Assertions.assertEquals(expected.toSnapshot(),metric.toSnapshot());
+		Assertions.assertEquals(100l,metric.getHits());
+	}
+
+	@Test
+	@DisplayName("When a burst of fast measures is registered after slow ones, the slow measures must remain in the reservoir")
+	public void burst(){
+
+		final DecayingMetric<Long> metric=new DecayingMetric<>("mNAme",100,Duration.ofMinutes(1),MeasureReducers.LONG.get(Long.class),1);
+		final Metric<Long> sampled=new Metric<>("mNAme",100,MeasureReducers.LONG.get(Long.class));
+		for(int ic1=0;ic1<10_000;ic1++){
+			metric.addMeasure(BASE.plusNanos(ic1*3_000_000l),1000l);
+			sampled.addMeasure(BASE.plusNanos(ic1*3_000_000l),1000l);
+		}
+		for(int ic1=0;ic1<10_000;ic1++){
+			metric.addMeasure(BASE.plusSeconds(31).plusNanos(ic1*100l),1l);
+			sampled.addMeasure(BASE.plusSeconds(31).plusNanos(ic1*100l),1l);
+		}
+
+		final MetricSnapshot<Long> snapshot=metric.toSnapshot();
+		Assertions.assertEquals(1l,sampled.toSnapshot().getMaxMeasure());
+		Assertions.assertEquals(20_000l,snapshot.getTotalHits());
+		Assertions.assertEquals(100l,snapshot.getSamplingSize());
+		Assertions.assertEquals(1000l,snapshot.getMaxMeasure());
+		Assertions.assertEquals(1l,snapshot.getMinMeasure());
+		Assertions.assertEquals(1l,snapshot.getLastMeasure());
+		Assertions.assertEquals(BASE.plusSeconds(31).plusNanos(9_999*100l),snapshot.getLastOccurrence());
+	}
+
+	static Stream<Arguments> decayDatapack() {
+	    return Stream.of(
+					Arguments.of(Duration.ofSeconds(60)),
+					Arguments.of(Duration.ofHours(1)),
+					Arguments.of(Duration.ofDays(1000))
+				);
+	}
+	@ParameterizedTest(name ="When the measures are older than many half-lives they must be replaced by the new ones after {0}")
+	@MethodSource("decayDatapack")
+	public void decay(final Duration _elapsed){
+
+		final DecayingMetric<Long> metric=new DecayingMetric<>("mNAme",50,Duration.ofSeconds(1),MeasureReducers.HISTOGRAM_LONG.get(Long.class),2);
+		for(int ic1=0;ic1<1000;ic1++){
+			metric.addMeasure(BASE.plusNanos(ic1*1000l),1l);
+		}
+		for(int ic1=0;ic1<1000;ic1++){
+			metric.addMeasure(BASE.plus(_elapsed).plusNanos(ic1*1000l),2l);
+		}
+
+		final MetricSnapshot<Long> snapshot=metric.toSnapshot();
+		Assertions.assertEquals(2000l,snapshot.getTotalHits());
+		Assertions.assertEquals(50l,snapshot.getSamplingSize());
+		Assertions.assertEquals(100l,snapshot.getAccumulatedSamples());
+		Assertions.assertEquals(2l,snapshot.getMinMeasure());
+		Assertions.assertEquals(50l,snapshot.getHistogram().getCount());
+		Assertions.assertEquals(2l,snapshot.getPercentile50Measure());
+	}
+
+	@Test
+	@DisplayName("When several threads register measures at the same time no hit must be lost and the reservoir must be full")
+	public void concurrentAddMeasure() throws Exception{
+
+		final int threads=8;
+		final int measures=10000;
+		final DecayingMetric<Long> metric=new DecayingMetric<>("mNAme",128,Duration.ofSeconds(1),MeasureReducers.LONG.get(Long.class),4);
+		final ExecutorService executor=Executors.newFixedThreadPool(threads);
+		try{
+			final List<Callable<Void>> tasks=new ArrayList<>();
+			for(int ic1=0;ic1<threads;ic1++){
+				tasks.add(() -> {
+					for(long ic2=1;ic2<=measures;ic2++){
+						metric.addMeasure(BASE.plusNanos(ic2*1_000_000l),ic2);
+					}
+					return null;
+				});
+			}
+			for(Future<Void> future:executor.invokeAll(tasks)){
+				future.get();
+			}
+		}finally{
+			executor.shutdown();
+		}
+
+		final MetricSnapshot<Long> snapshot=metric.toSnapshot();
+		Assertions.assertEquals(threads*measures,metric.getHits());
+		Assertions.assertEquals(threads*measures,snapshot.getTotalHits());
+		Assertions.assertEquals(128l,snapshot.getSamplingSize());
+		Assertions.assertEquals((long)measures,snapshot.getLastMeasure());
+		Assertions.assertTrue(snapshot.getAverageMeasure()>measures/2);
+	}
+
+	@ParameterizedTest(name ="When DecayingMetric with {0} stripes registers less measures than its sampling size the variance must take in account all of them")
+	@ValueSource(ints = {1,2,8})
+	public void variance(final int _stripes){
+
+		final DecayingMetric<Long> metric=new DecayingMetric<>("mNAme",128,Duration.ofSeconds(10),MeasureReducers.LONG.get(Long.class),_stripes);
+		final LongMetric expected=new LongMetric("mNAme",128,MeasureReducers.LONG.get(Long.class));
+		for(int ic1=1;ic1<=100;ic1++){
+			final LocalDateTime time=BASE.plusSeconds(ic1%7);
+			metric.addMeasure(time,(long)ic1);
+			expected.addMeasure(time,(long)ic1);
+		}
+
+		Assertions.assertEquals(expected.toSnapshot().getVariance(),metric.toSnapshot().getVariance(),1e-9d);
+		Assertions.assertEquals(29l,metric.toSnapshot().getStdDeviation());
+	}
+}
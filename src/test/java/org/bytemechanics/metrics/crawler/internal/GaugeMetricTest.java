@@ -0,0 +1,255 @@
+/*
+ * Copyright 2020 Byte Mechanics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bytemechanics.metrics.crawler.internal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+import java.util.logging.LogManager;
+import java.util.logging.Logger;
+import org.bytemechanics.metrics.crawler.beans.MetricReading;
+import org.bytemechanics.metrics.crawler.beans.MetricSnapshot;
+import org.bytemechanics.metrics.crawler.exceptions.IncorrectMeasureType;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInfo;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ *
+ * @author afarre
+ */
+public class GaugeMetricTest {
+
+	@BeforeAll
+	public static void setup() throws IOException{
+		System.out.println(">>>>> GaugeMetricTest >>>> setup");
+		try(InputStream inputStream = GaugeMetricTest.class.getResourceAsStream("/logging.properties")){
+			LogManager.getLogManager().readConfiguration(inputStream);
+		}catch (final IOException e){
+			Logger.getAnonymousLogger().severe("Could not load default logging.properties file");
+			Logger.getAnonymousLogger().severe(e.getMessage());
+		}
+	}
+
+	@BeforeEach
+    void beforeEachTest(final TestInfo testInfo) {
+        System.out.println(">>>>> "+this.getClass().getSimpleName()+" >>>> "+testInfo.getTestMethod().map(Method::getName).orElse("Unkown")+""+testInfo.getTags().toString()+" >>>> "+testInfo.getDisplayName());
+    }
+
+
+	private static GaugeMetric<Long> longGauge(final String _name){
+		return new GaugeMetric<>(new LongMetric(_name,4,MeasureReducers.LONG.get(Long.class)));
+	}
+	private static GaugeMetric<Double> doubleGauge(final String _name){
+		return new GaugeMetric<>(new DoubleMetric(_name,4,MeasureReducers.DOUBLE.get(Double.class)));
+	}
+
+
+	@ParameterizedTest(name ="When GaugeMetric is created with a window named {0} the getName() returns {0}, getHits() returns 0, getReducer() returns the window reducer and is not alive")
+	@ValueSource(strings={"a","c","fdsf"})
+	public void constructor(final String _name){
+
+		final GaugeMetric<Long> instance=longGauge(_name);
+
+		Assertions.assertEquals(_name,instance.getName());
+		Assertions.assertEquals(0,instance.getHits());
+		Assertions.assertEquals(MeasureReducers.LONG.get(Long.class),instance.getReducer());
+		Assertions.assertEquals(_name,instance.getWindow().getName());
+		Assertions.assertFalse(instance.isAlive());
+		Assertions.assertFalse(instance.sample());
+		Assertions.assertEquals(0l,instance.toSnapshot().getSamplingSize());
+	}
+
+	@Test
+	@DisplayName("Create a GaugeMetric with null window should raise a NullPointerException")
+	@SuppressWarnings("ThrowableResultIgnored")
+	public void constructorControl(){
+
+		final Exception exception=Assertions.assertThrows(NullPointerException.class,() -> new GaugeMetric<>(null));
+		Assertions.assertEquals("Window can not be null to create a gauge metric",exception.getMessage());
+	}
+
+	@Test
+	@DisplayName("Bind a gauge to a null supplier or to a supplier of other type should fail")
+	@SuppressWarnings("ThrowableResultIgnored")
+	public void bindControl(){
+
+		final GaugeMetric<Long> longs=longGauge("l");
+		final GaugeMetric<Double> doubles=doubleGauge("d");
+
+		Assertions.assertEquals("Can not bind gauge l to null _supplier"
+									,Assertions.assertThrows(NullPointerException.class,() -> longs.bind((LongSupplier)null)).getMessage());
+		Assertions.assertEquals("Can not bind gauge d to null _supplier"
+									,Assertions.assertThrows(NullPointerException.class,() -> doubles.bind((DoubleSupplier)null)).getMessage());
+		Assertions.assertThrows(IncorrectMeasureType.class,() -> longs.bind(() -> 1.0d));
+		Assertions.assertThrows(IncorrectMeasureType.class,() -> doubles.bind(() -> 1l));
+		Assertions.assertFalse(longs.isAlive());
+		Assertions.assertFalse(doubles.isAlive());
+	}
+
+	@Test
+	@DisplayName("The supplier must be evaluated only when the gauge is read or sampled")
+	public void lazy(){
+
+		final GaugeMetric<Long> gauge=longGauge("g");
+		final AtomicLong evaluations=new AtomicLong();
+		final LongSupplier supplier=evaluations::incrementAndGet;
+		gauge.bind(supplier);
+
+		Assertions.assertTrue(gauge.isAlive());
+		Assertions.assertEquals(0l,evaluations.get());
+		Assertions.assertEquals(0l,gauge.getHits());
+
+		final MetricSnapshot<Long> snapshot=gauge.toSnapshot();
+		Assertions.assertEquals(1l,evaluations.get());
+		Assertions.assertEquals(1l,snapshot.getLastMeasure());
+		Assertions.assertTrue(gauge.sample());
+		Assertions.assertEquals(2l,evaluations.get());
+
+		final MetricReading reading=gauge.read(new MetricReading());
+		Assertions.assertEquals(3l,evaluations.get());
+		Assertions.assertEquals("g",reading.getName());
+		Assertions.assertEquals(MetricReading.Kind.LONG,reading.getKind());
+		Assertions.assertEquals(3l,reading.getSamplingSize());
+		Assertions.assertEquals(3l,reading.getLongLast());
+		Assertions.assertEquals(3l,reading.getLongMax());
+		Assertions.assertEquals(1l,reading.getLongMin());
+	}
+
+	@Test
+	@DisplayName("Sample a gauge must record always the value but return true only when the value has changed since the previous sample")
+	public void sampleChanges(){
+
+		final GaugeMetric<Double> gauge=doubleGauge("d");
+		final double[] value={1.5d};
+		final DoubleSupplier supplier=() -> value[0];
+		gauge.bind(supplier);
+
+		Assertions.assertTrue(gauge.sample());
+		Assertions.assertFalse(gauge.sample());
+		value[0]=2.5d;
+		Assertions.assertTrue(gauge.sample());
+		Assertions.assertFalse(gauge.sample());
+		Assertions.assertEquals(4l,gauge.getHits());
+	}
+
+	@Test
+	@DisplayName("A double gauge must record the supplier values into its window")
+	public void doubles(){
+
+		final GaugeMetric<Double> gauge=doubleGauge("d");
+		final double[] value={1.5d};
+		final DoubleSupplier supplier=() -> value[0];
+		gauge.bind(supplier);
+		gauge.sample();
+		value[0]=2.5d;
+
+		final MetricSnapshot<Double> snapshot=gauge.toSnapshot();
+		Assertions.assertEquals(2l,snapshot.getSamplingSize());
+		Assertions.assertEquals(2.5d,snapshot.getLastMeasure());
+		Assertions.assertEquals(1.5d,snapshot.getMinMeasure());
+		Assertions.assertEquals(4.0d,snapshot.getAccumulatedSamples());
+	}
+
+	@Test
+	@DisplayName("Bind again a gauge must replace the previous supplier keeping the sampled values")
+	public void rebind(){
+
+		final GaugeMetric<Long> gauge=longGauge("g");
+		final LongSupplier first=() -> 1l;
+		final LongSupplier second=() -> 2l;
+		gauge.bind(first);
+		gauge.sample();
+		gauge.bind(second);
+
+		final MetricSnapshot<Long> snapshot=gauge.toSnapshot();
+		Assertions.assertEquals(2l,snapshot.getSamplingSize());
+		Assertions.assertEquals(1l,snapshot.getMinMeasure());
+		Assertions.assertEquals(2l,snapshot.getLastMeasure());
+	}
+
+	@Test
+	@DisplayName("A failing supplier must not record any value nor fail the snapshot")
+	public void failingSupplier(){
+
+		final GaugeMetric<Long> gauge=longGauge("g");
+		final LongSupplier supplier=() -> {
+											throw new IllegalStateException("closed");
+										};
+		gauge.bind(supplier);
+
+		Assertions.assertFalse(gauge.sample());
+		Assertions.assertEquals(0l,gauge.toSnapshot().getSamplingSize());
+		Assertions.assertTrue(gauge.isAlive());
+	}
+
+	@Test
+	@DisplayName("The measures added explicitly must be recorded into the window")
+	public void addMeasures(){
+
+		final GaugeMetric<Long> gauge=longGauge("g");
+		final long timestamp=Timestamps.toTimestamp(LocalDateTime.of(2020,3,4,10,11,12));
+		gauge.addMeasure(LocalDateTime.of(2020,3,4,10,11,12),4l);
+		gauge.addLongMeasure(timestamp,6l);
+
+		Assertions.assertEquals(2l,gauge.getHits());
+		Assertions.assertEquals(2l,gauge.getWindow().getHits());
+		final MetricSnapshot<Long> snapshot=gauge.toSnapshot();
+		Assertions.assertEquals(10l,snapshot.getAccumulatedSamples());
+		Assertions.assertEquals(LocalDateTime.of(2020,3,4,10,11,12),snapshot.getLastOccurrence());
+		Assertions.assertThrows(IncorrectMeasureType.class,() -> gauge.addDoubleMeasure(timestamp,1.0d));
+	}
+
+	@Test
+	@DisplayName("Once the supplier is collected the gauge must stop sampling and keep its last values")
+	public void collectedSupplier() throws InterruptedException{
+
+		final GaugeMetric<Long> gauge=longGauge("g");
+		final long[] value={5l};
+		LongSupplier supplier=() -> value[0];
+		gauge.bind(supplier);
+		Assertions.assertTrue(gauge.sample());
+		supplier=null;
+		for(int ic1=0;(ic1<50)&&(gauge.isAlive());ic1++){
+			System.gc();
+			Thread.sleep(10);
+		}
+
+		Assertions.assertNull(supplier);
+		Assertions.assertFalse(gauge.isAlive());
+		Assertions.assertFalse(gauge.sample());
+		final MetricSnapshot<Long> snapshot=gauge.toSnapshot();
+		Assertions.assertEquals(1l,snapshot.getSamplingSize());
+		Assertions.assertEquals(5l,snapshot.getLastMeasure());
+	}
+
+	@Test
+	@DisplayName("The gauge toString() must show its name, if is alive and its window")
+	public void toStringTest(){
+
+		final GaugeMetric<Long> gauge=longGauge("g");
+		Assertions.assertEquals("GaugeMetric[name=g, alive=false, window="+gauge.getWindow()+"]",gauge.toString());
+	}
+}
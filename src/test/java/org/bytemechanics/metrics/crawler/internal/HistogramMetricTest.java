@@ -0,0 +1,161 @@
+/*
+ * Copyright 2020 Byte Mechanics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bytemechanics.metrics.crawler.internal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Random;
+import java.util.logging.LogManager;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import org.bytemechanics.metrics.crawler.HistogramReducer;
+import org.bytemechanics.metrics.crawler.beans.MetricSnapshot;
+import org.bytemechanics.metrics.crawler.exceptions.IncorrectMeasureType;
+import org.bytemechanics.metrics.crawler.exceptions.IncorrectSamplingSize;
+import org.bytemechanics.metrics.crawler.internal.commons.string.SimpleFormat;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInfo;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ *
+ * @author afarre
+ */
+public class HistogramMetricTest {
+
+	@BeforeAll
+	public static void setup() throws IOException{
+		System.out.println(">>>>> HistogramMetricTest >>>> setup");
+		try(InputStream inputStream = HistogramMetricTest.class.getResourceAsStream("/logging.properties")){
+			LogManager.getLogManager().readConfiguration(inputStream);
+		}catch (final IOException e){
+			Logger.getAnonymousLogger().severe("Could not load default logging.properties file");
+			Logger.getAnonymousLogger().severe(e.getMessage());
+		}
+	}
+
+	@BeforeEach
+    void beforeEachTest(final TestInfo testInfo) {
+        System.out.println(">>>>> "+this.getClass().getSimpleName()+" >>>> "+testInfo.getTestMethod().map(Method::getName).orElse("Unkown")+""+testInfo.getTags().toString()+" >>>> "+testInfo.getDisplayName());
+    }
+
+
+	@Test
+	@DisplayName("When HistogramMetric is created getName(), getHits(), getReducer(), getMeasures() and toString() must return the initial values")
+	public void constructor(){
+
+		final HistogramMetric<Long> instance=new HistogramMetric<>("c",4,(HistogramReducer<Long>)MeasureReducers.HISTOGRAM_LONG.get(Long.class));
+
+		Assertions.assertEquals("c",instance.getName());
+		Assertions.assertEquals(0,instance.getHits());
+		Assertions.assertEquals(MeasureReducers.HISTOGRAM_LONG.get(Long.class),instance.getReducer());
+		Assertions.assertTrue(instance.getMeasures().isEmpty());
+		Assertions.assertEquals(SimpleFormat.format("HistogramMetric[name={}, hits={}, measures={}, reducer={}]","c",0,Collections.emptyList(),MeasureReducers.HISTOGRAM_LONG.get(Long.class)),instance.toString());
+		Assertions.assertEquals(MetricSnapshot.builder(MeasureReducers.HISTOGRAM_LONG.get(Long.class)).name("c").build(),instance.toSnapshot());
+	}
+
+	static Stream<Arguments> metricFailureBuilderDatapack() {
+	    return Stream.of(
+					Arguments.of(null, 1, new NullPointerException("Name can not be null to create a Metric")),
+					Arguments.of("a", -100, new IncorrectSamplingSize("a", -100)),
+					Arguments.of("c", 0, new IncorrectSamplingSize("c", 0))
+				);
+	}
+	@ParameterizedTest(name ="Try to create with HistogramMetric with _name:{0},_samplingSize:{1} should raise {2}")
+	@MethodSource("metricFailureBuilderDatapack")
+	@SuppressWarnings("ThrowableResultIgnored")
+	public void contructorNullControl(final String _name,final int _samplingSize,final Exception _expected){
+
+		Assertions.assertThrows(_expected.getClass()
+								,() -> new HistogramMetric<>(_name,_samplingSize,(HistogramReducer<Long>)MeasureReducers.HISTOGRAM_LONG.get(Long.class))
+								,_expected.toString());
+	}
+
+	@Test
+	@DisplayName("When duration HistogramMetric registers primitive measures of other type an IncorrectMeasureType exception must be thrown")
+	@SuppressWarnings("ThrowableResultIgnored")
+	public void addWrongPrimitiveMeasure(){
+
+		final HistogramMetric<Duration> instance=new HistogramMetric<>("c",1,(HistogramReducer<Duration>)MeasureReducers.HISTOGRAM_DURATION.get(Duration.class));
+
+		Assertions.assertThrows(IncorrectMeasureType.class, () -> instance.addDoubleMeasure(Timestamps.now(), 1.1d));
+		Assertions.assertThrows(IncorrectMeasureType.class, () -> instance.addLongMeasure(Timestamps.now(), 1l));
+		Assertions.assertEquals(0,instance.getHits());
+	}
+
+	@Test
+	@DisplayName("HistogramMetric should provide the percentiles of the sampled window")
+	public void percentiles(){
+
+		final HistogramMetric<Duration> metric=new HistogramMetric<>("mNAme",50,(HistogramReducer<Duration>)MeasureReducers.HISTOGRAM_DURATION.get(Duration.class));
+		for(long ic1=1;ic1<=1000;ic1++){
+			metric.addDurationMeasure(Timestamps.now(),1000l+ic1);
+		}
+		for(long ic1=1;ic1<=50;ic1++){
+			metric.addMeasure(LocalDateTime.now(),Duration.ofNanos(ic1));
+		}
+
+		final MetricSnapshot<Duration> snapshot=metric.toSnapshot();
+		Assertions.assertEquals(50l,snapshot.getHistogram().getCount());
+		Assertions.assertEquals(Duration.ofNanos(1),snapshot.getPercentile(0.0d));
+		Assertions.assertEquals(Duration.ofNanos(25),snapshot.getPercentile50Measure());
+		Assertions.assertEquals(Duration.ofNanos(45),snapshot.getPercentile90Measure());
+		Assertions.assertEquals(Duration.ofNanos(50),snapshot.getPercentile99Measure());
+		Assertions.assertEquals(Duration.ofNanos(50),snapshot.getPercentile999Measure());
+	}
+
+	@ParameterizedTest(name ="When HistogramMetric with {0} sampling size registers random measures the snapshot must be the same as the LongMetric one and the histogram must contain only the window samples")
+	@ValueSource(ints = {1,2,3,7,128})
+	@SuppressWarnings("unchecked")
+	public void sameAsLongMetric(final int _samplingSize){
+
+		final Random random=new Random(_samplingSize);
+		final LongMetric expected=new LongMetric("mNAme",_samplingSize,MeasureReducers.LONG.get(Long.class));
+		final HistogramMetric<Long> metric=new HistogramMetric<>("mNAme",_samplingSize,(HistogramReducer<Long>)MeasureReducers.HISTOGRAM_LONG.get(Long.class));
+		final Deque<Long> window=new ArrayDeque<>();
+		for(int ic1=1;ic1<=_samplingSize*5;ic1++){
+			final long timestamp=Timestamps.toTimestamp(LocalDateTime.of(2000,1,1,1,1).plusSeconds(random.nextInt(60)));
+			final long measure=(long)random.nextInt(1_000_000);
+			expected.addLongMeasure(timestamp,measure);
+			metric.addLongMeasure(timestamp,measure);
+			window.addLast(measure);
+			if(window.size()>_samplingSize){
+				window.removeFirst();
+			}
+
+			final MetricSnapshot<Long> expectedSnapshot=expected.toSnapshot();
+			final MetricSnapshot<Long> snapshot=metric.toSnapshot();
+			Assertions.assertEquals(MetricSnapshot.builder(MeasureReducers.HISTOGRAM_LONG.get(Long.class),expectedSnapshot).histogram(snapshot.getHistogram()).build(),snapshot);
+			final LogLinearHistogram histogram=new LogLinearHistogram();
+			window.forEach(histogram::record);
+			Assertions.assertEquals(histogram,snapshot.getHistogram());
+			Assertions.assertEquals(histogram.percentile(99.0d),snapshot.getPercentile99Measure());
+		}
+	}
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2020 Byte Mechanics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bytemechanics.metrics.crawler.internal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.util.Random;
+import java.util.logging.LogManager;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInfo;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ *
+ * @author afarre
+ */
+public class LogLinearHistogramTest {
+
+	@BeforeAll
+	public static void setup() throws IOException{
+		System.out.println(">>>>> LogLinearHistogramTest >>>> setup");
+		try(InputStream inputStream = LogLinearHistogramTest.class.getResourceAsStream("/logging.properties")){
+			LogManager.getLogManager().readConfiguration(inputStream);
+		}catch (final IOException e){
+			Logger.getAnonymousLogger().severe("Could not load default logging.properties file");
+			Logger.getAnonymousLogger().severe(e.getMessage());
+		}
+	}
+
+	@BeforeEach
+    void beforeEachTest(final TestInfo testInfo) {
+        System.out.println(">>>>> "+this.getClass().getSimpleName()+" >>>> "+testInfo.getTestMethod().map(Method::getName).orElse("Unkown")+""+testInfo.getTags().toString()+" >>>> "+testInfo.getDisplayName());
+    }
+
+
+	@ParameterizedTest(name ="The representative value of the bucket of {0} must be within the histogram precision")
+	@ValueSource(longs = {0l,1l,31l,32l,33l,63l,64l,65l,1000l,123456789l,Long.MAX_VALUE/2l,Long.MAX_VALUE})
+	public void bucketValue(final long _value){
+
+		final int bucket=LogLinearHistogram.bucket(_value);
+
+		Assertions.assertTrue(bucket>=0);
+		Assertions.assertTrue(bucket<LogLinearHistogram.BUCKETS);
+		Assertions.assertEquals(bucket,LogLinearHistogram.bucket(LogLinearHistogram.value(bucket)));
+		Assertions.assertEquals((double)_value,(double)LogLinearHistogram.value(bucket),_value/(double)LogLinearHistogram.SUB_BUCKETS);
+	}
+
+	@Test
+	@DisplayName("Values lower than the sub-buckets must be exact and negative values must be accounted as zero")
+	public void exactValues(){
+
+		for(long ic1=0;ic1<LogLinearHistogram.SUB_BUCKETS;ic1++){
+			Assertions.assertEquals(ic1,LogLinearHistogram.value(LogLinearHistogram.bucket(ic1)));
+		}
+		Assertions.assertEquals(0,LogLinearHistogram.bucket(-1l));
+		Assertions.assertEquals(0,LogLinearHistogram.bucket(Long.MIN_VALUE));
+	}
+
+	@Test
+	@DisplayName("Buckets must be monotonic with the values")
+	public void monotonicBuckets(){
+
+		final Random random=new Random(1);
+		for(int ic1=0;ic1<10000;ic1++){
+			final long value=random.nextLong()>>>random.nextInt(64);
+			Assertions.assertTrue(LogLinearHistogram.bucket(value)<=LogLinearHistogram.bucket(value+1));
+		}
+	}
+
+	static Stream<Arguments> percentileDatapack() {
+	    return Stream.of(
+					Arguments.of(0.0d,1l),
+					Arguments.of(50.0d,500l),
+					Arguments.of(90.0d,900l),
+					Arguments.of(99.0d,990l),
+					Arguments.of(99.9d,999l),
+					Arguments.of(100.0d,1000l)
+				);
+	}
+	@ParameterizedTest(name ="When 1 to 1000 are registered the percentile {0} must be {1} within the histogram precision")
+	@MethodSource("percentileDatapack")
+	public void percentile(final double _percentile,final long _expected){
+
+		final LogLinearHistogram histogram=new LogLinearHistogram();
+		for(long ic1=1;ic1<=1000;ic1++){
+			histogram.record(ic1);
+		}
+
+		Assertions.assertEquals(1000l,histogram.getCount());
+		Assertions.assertEquals((double)_expected,(double)histogram.percentile(_percentile),_expected/(double)LogLinearHistogram.SUB_BUCKETS);
+	}
+
+	@ParameterizedTest(name ="When call percentile({0}) an IllegalArgumentException must be thrown")
+	@ValueSource(doubles = {-0.1d,100.1d,Double.NaN})
+	@SuppressWarnings("ThrowableResultIgnored")
+	public void percentileOutOfRange(final double _percentile){
+
+		final LogLinearHistogram histogram=new LogLinearHistogram();
+		Assertions.assertThrows(IllegalArgumentException.class, () -> histogram.percentile(_percentile));
+	}
+
+	@Test
+	@DisplayName("An empty histogram must return zero percentiles")
+	public void empty(){
+
+		final LogLinearHistogram histogram=new LogLinearHistogram();
+
+		Assertions.assertEquals(0l,histogram.getCount());
+		Assertions.assertEquals(0l,histogram.percentile(50.0d));
+		Assertions.assertEquals("LogLinearHistogram[count=0, p50=0, p90=0, p99=0, p999=0]",histogram.toString());
+	}
+
+	@Test
+	@DisplayName("When all the registered values are removed the histogram must be equal to an empty one")
+	public void remove(){
+
+		final LogLinearHistogram histogram=new LogLinearHistogram();
+		for(long ic1=1;ic1<=1000;ic1+=7){
+			histogram.record(ic1*ic1);
+		}
+		for(long ic1=1;ic1<=1000;ic1+=7){
+			histogram.remove(ic1*ic1);
+		}
+
+		Assertions.assertEquals(new LogLinearHistogram(),histogram);
+		Assertions.assertEquals(new LogLinearHistogram().hashCode(),histogram.hashCode());
+	}
+
+	@Test
+	@DisplayName("Merge two histograms must be the same as register all the values into one")
+	public void merge(){
+
+		final LogLinearHistogram histogram1=new LogLinearHistogram();
+		final LogLinearHistogram histogram2=new LogLinearHistogram();
+		final LogLinearHistogram expected=new LogLinearHistogram();
+		final Random random=new Random(2);
+		for(int ic1=0;ic1<1000;ic1++){
+			final long value=random.nextInt(1_000_000);
+			((ic1%2==0)? histogram1 : histogram2).record(value);
+			expected.record(value);
+		}
+
+		Assertions.assertEquals(expected,histogram1.copy().merge(histogram2.copy()));
+		Assertions.assertEquals(expected,histogram2.merge(histogram1));
+		Assertions.assertEquals(expected.percentile(99.0d),histogram2.percentile(99.0d));
+	}
+
+	@Test
+	@DisplayName("The copy must be equal to the original and independent")
+	public void copy(){
+
+		final LogLinearHistogram histogram=new LogLinearHistogram();
+		histogram.record(10l);
+		histogram.record(1000l);
+		final LogLinearHistogram copy=histogram.copy();
+
+		Assertions.assertEquals(histogram,copy);
+		Assertions.assertEquals(histogram.hashCode(),copy.hashCode());
+		copy.record(5l);
+		Assertions.assertNotEquals(histogram,copy);
+		Assertions.assertEquals(2l,histogram.getCount());
+		Assertions.assertEquals(3l,copy.getCount());
+	}
+}
@@ -24,6 +24,9 @@ import java.util.Optional;
 import java.util.logging.LogManager;
 import java.util.logging.Logger;
 import java.util.stream.Stream;
+import org.bytemechanics.metrics.crawler.DoubleReducer;
+import org.bytemechanics.metrics.crawler.HistogramReducer;
+import org.bytemechanics.metrics.crawler.LongReducer;
 import org.bytemechanics.metrics.crawler.MeasureReducer;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeAll;
@@ -72,7 +75,9 @@ public class MeasureReducersTest {
 	    return Stream.of(
 			Arguments.of(MeasureReducers.DURATION,Duration.ZERO),
 			Arguments.of(MeasureReducers.LONG,0l),
-			Arguments.of(MeasureReducers.DOUBLE	,0.0d)
+			Arguments.of(MeasureReducers.DOUBLE	,0.0d),
+			Arguments.of(MeasureReducers.HISTOGRAM_DURATION,Duration.ZERO),
+			Arguments.of(MeasureReducers.HISTOGRAM_LONG,0l)
 		);
 	}
 	
@@ -106,7 +111,17 @@ public class MeasureReducersTest {
 			Arguments.of(MeasureReducers.DOUBLE,Double.class,-7.8d, -9.9d	,Optional.ofNullable(-17.7d)),
 			Arguments.of(MeasureReducers.DOUBLE,Double.class,null, -9.9d	,Optional.ofNullable(-9.9d)),
 			Arguments.of(MeasureReducers.DOUBLE,Double.class,-7.8d, null	,Optional.ofNullable(-7.8d)),
-			Arguments.of(MeasureReducers.DOUBLE,Double.class,null, null	,Optional.empty())
+			Arguments.of(MeasureReducers.DOUBLE,Double.class,null, null	,Optional.empty()),
+			Arguments.of(MeasureReducers.HISTOGRAM_DURATION,Duration.class,Duration.ofSeconds(10),Duration.ofDays(10),Optional.ofNullable(Duration.parse("P10DT10S"))),
+			Arguments.of(MeasureReducers.HISTOGRAM_DURATION,Duration.class,Duration.ofDays(10),Duration.ofDays(1),Optional.ofNullable(Duration.parse("P11D"))),
+			Arguments.of(MeasureReducers.HISTOGRAM_DURATION,Duration.class,null,Duration.ofDays(1),Optional.ofNullable(Duration.ofDays(1))),
+			Arguments.of(MeasureReducers.HISTOGRAM_DURATION,Duration.class,Duration.ofDays(10),null,Optional.ofNullable(Duration.ofDays(10))),
+			Arguments.of(MeasureReducers.HISTOGRAM_DURATION,Duration.class,null,null,Optional.empty()),
+			Arguments.of(MeasureReducers.HISTOGRAM_LONG,Long.class,10l,-5l	,Optional.ofNullable(5l)),
+			Arguments.of(MeasureReducers.HISTOGRAM_LONG,Long.class,-9l,0l	,Optional.ofNullable(-9l)),
+			Arguments.of(MeasureReducers.HISTOGRAM_LONG,Long.class,null,0l	,Optional.ofNullable(0l)),
+			Arguments.of(MeasureReducers.HISTOGRAM_LONG,Long.class,-9l,null,Optional.ofNullable(-9l)),
+			Arguments.of(MeasureReducers.HISTOGRAM_LONG,Long.class,null,null,Optional.empty())
 		);
 	}
 	
@@ -137,7 +152,17 @@ public class MeasureReducersTest {
 			Arguments.of(MeasureReducers.DOUBLE,Double.class,-10.2d,-7.5d,Optional.ofNullable(-7.5d)),
 			Arguments.of(MeasureReducers.DOUBLE,Double.class,null,-7.5d,Optional.ofNullable(-7.5d)),
 			Arguments.of(MeasureReducers.DOUBLE,Double.class,-10.2d,null,Optional.ofNullable(-10.2d)),
-			Arguments.of(MeasureReducers.DOUBLE,Double.class,null,null,Optional.empty())
+			Arguments.of(MeasureReducers.DOUBLE,Double.class,null,null,Optional.empty()),
+			Arguments.of(MeasureReducers.HISTOGRAM_DURATION,Duration.class, Duration.ofSeconds(10),Duration.ofDays(10),Optional.ofNullable(Duration.ofDays(10))),
+			Arguments.of(MeasureReducers.HISTOGRAM_DURATION,Duration.class, Duration.ofSeconds(121),Duration.ofMinutes(2),Optional.ofNullable(Duration.ofSeconds(121))),
+			Arguments.of(MeasureReducers.HISTOGRAM_DURATION,Duration.class, null,Duration.ofMinutes(2),Optional.ofNullable(Duration.ofMinutes(2))),
+			Arguments.of(MeasureReducers.HISTOGRAM_DURATION,Duration.class, Duration.ofSeconds(121),null,Optional.ofNullable(Duration.ofSeconds(121))),
+			Arguments.of(MeasureReducers.HISTOGRAM_DURATION,Duration.class, null,null,Optional.empty()),
+			Arguments.of(MeasureReducers.HISTOGRAM_LONG,Long.class,10l,-5l,Optional.ofNullable(10l)),
+			Arguments.of(MeasureReducers.HISTOGRAM_LONG,Long.class,-10l,-5l,Optional.ofNullable(-5l)),
+			Arguments.of(MeasureReducers.HISTOGRAM_LONG,Long.class,null,-5l,Optional.ofNullable(-5l)),
+			Arguments.of(MeasureReducers.HISTOGRAM_LONG,Long.class,-10l,null,Optional.ofNullable(-10l)),
+			Arguments.of(MeasureReducers.HISTOGRAM_LONG,Long.class,null,null,Optional.empty())
 		);
 	}
 	
@@ -168,7 +193,17 @@ public class MeasureReducersTest {
 			Arguments.of(MeasureReducers.DOUBLE,Double.class,-10.2d	,-7.5d,Optional.ofNullable(-10.2d)),
 			Arguments.of(MeasureReducers.DOUBLE,Double.class,null	,-7.5d,Optional.ofNullable(-7.5d)),
 			Arguments.of(MeasureReducers.DOUBLE,Double.class,-10.2d	,null,Optional.ofNullable(-10.2d)),
-			Arguments.of(MeasureReducers.DOUBLE,Double.class,null	,null,Optional.empty())
+			Arguments.of(MeasureReducers.DOUBLE,Double.class,null	,null,Optional.empty()),
+			Arguments.of(MeasureReducers.HISTOGRAM_DURATION,Duration.class,Duration.ofSeconds(10),Duration.ofDays(10),Optional.ofNullable(Duration.ofSeconds(10))),
+			Arguments.of(MeasureReducers.HISTOGRAM_DURATION,Duration.class,Duration.ofSeconds(121),Duration.ofMinutes(2),Optional.ofNullable(Duration.ofMinutes(2))),
+			Arguments.of(MeasureReducers.HISTOGRAM_DURATION,Duration.class,null,Duration.ofMinutes(2),Optional.ofNullable(Duration.ofMinutes(2))),
+			Arguments.of(MeasureReducers.HISTOGRAM_DURATION,Duration.class,Duration.ofSeconds(121),null,Optional.ofNullable(Duration.ofSeconds(121))),
+			Arguments.of(MeasureReducers.HISTOGRAM_DURATION,Duration.class,null,null,Optional.empty()),
+			Arguments.of(MeasureReducers.HISTOGRAM_LONG,Long.class,10l,-5l,Optional.ofNullable(-5l)),
+			Arguments.of(MeasureReducers.HISTOGRAM_LONG,Long.class,-10l,-5l,Optional.ofNullable(-10l)),
+			Arguments.of(MeasureReducers.HISTOGRAM_LONG,Long.class,null,-5l,Optional.ofNullable(-5l)),
+			Arguments.of(MeasureReducers.HISTOGRAM_LONG,Long.class,-10l,null,Optional.ofNullable(-10l)),
+			Arguments.of(MeasureReducers.HISTOGRAM_LONG,Long.class,null,null,Optional.empty())
 		);
 	}
 	
@@ -194,7 +229,13 @@ public class MeasureReducersTest {
 			Arguments.of(MeasureReducers.LONG,Long.class,null,4l,Optional.empty()),
 			Arguments.of(MeasureReducers.DOUBLE,Double.class,10.2d	,5l,Optional.ofNullable(2.04d)),
 			Arguments.of(MeasureReducers.DOUBLE,Double.class,-10.2d	,2l,Optional.ofNullable(-5.1d)),
-			Arguments.of(MeasureReducers.DOUBLE,Double.class,null	,10l,Optional.empty())
+			Arguments.of(MeasureReducers.DOUBLE,Double.class,null	,10l,Optional.empty()),
+			Arguments.of(MeasureReducers.HISTOGRAM_DURATION,Duration.class,Duration.ofSeconds(10),10l,Optional.ofNullable(Duration.ofSeconds(1))),
+			Arguments.of(MeasureReducers.HISTOGRAM_DURATION,Duration.class,Duration.ofSeconds(121),2l,Optional.ofNullable(Duration.parse("PT1M0.5S"))),
+			Arguments.of(MeasureReducers.HISTOGRAM_DURATION,Duration.class,null,2l,Optional.empty()),
+			Arguments.of(MeasureReducers.HISTOGRAM_LONG,Long.class,10l,2l,Optional.ofNullable(5l)),
+			Arguments.of(MeasureReducers.HISTOGRAM_LONG,Long.class,-10l,3l,Optional.ofNullable(-3l)),
+			Arguments.of(MeasureReducers.HISTOGRAM_LONG,Long.class,null,4l,Optional.empty())
 		);
 	}
 	
@@ -219,7 +260,13 @@ public class MeasureReducersTest {
 			Arguments.of(MeasureReducers.LONG,Long.class,null,"null"),
 			Arguments.of(MeasureReducers.DOUBLE,Double.class,10.2d,NumberFormat.getNumberInstance().format(10.2d)),
 			Arguments.of(MeasureReducers.DOUBLE,Double.class,-10.2d,NumberFormat.getNumberInstance().format(-10.2d)),
-			Arguments.of(MeasureReducers.DOUBLE,Double.class,null,"null")
+			Arguments.of(MeasureReducers.DOUBLE,Double.class,null,"null"),
+			Arguments.of(MeasureReducers.HISTOGRAM_DURATION,Duration.class,Duration.ofDays(10),"240:00:00"),
+			Arguments.of(MeasureReducers.HISTOGRAM_DURATION,Duration.class,Duration.ofSeconds(121),"0:02:01"),
+			Arguments.of(MeasureReducers.HISTOGRAM_DURATION,Duration.class,null,"null"),
+			Arguments.of(MeasureReducers.HISTOGRAM_LONG,Long.class,10l,NumberFormat.getNumberInstance().format(10l)),
+			Arguments.of(MeasureReducers.HISTOGRAM_LONG,Long.class,-10l,NumberFormat.getNumberInstance().format(-10l)),
+			Arguments.of(MeasureReducers.HISTOGRAM_LONG,Long.class,null,"null")
 		);
 	}
 	
@@ -232,4 +279,79 @@ public class MeasureReducersTest {
 		Assertions.assertNotNull(result);
 		Assertions.assertEquals(_result, result);
 	}
+
+	static Stream<Arguments> histogramDatapack() {
+	    return Stream.of(
+			Arguments.of(MeasureReducers.HISTOGRAM_DURATION,Duration.class,Duration.ofSeconds(10),10_000_000_000l),
+			Arguments.of(MeasureReducers.HISTOGRAM_DURATION,Duration.class,Duration.ZERO,0l),
+			Arguments.of(MeasureReducers.HISTOGRAM_DURATION,Duration.class,Duration.ofNanos(-10),-10l),
+			Arguments.of(MeasureReducers.HISTOGRAM_LONG,Long.class,10l,10l),
+			Arguments.of(MeasureReducers.HISTOGRAM_LONG,Long.class,-10l,-10l),
+			Arguments.of(MeasureReducers.HISTOGRAM_LONG,Long.class,Long.MAX_VALUE,Long.MAX_VALUE)
+		);
+	}
+	
+	@ParameterizedTest(name ="When call toLong() from {0} over {2} result must be {3} and fromLong() must return the original value")
+	@MethodSource("histogramDatapack")
+	@SuppressWarnings("unchecked")
+	public <T> void histogramConversion(final MeasureReducers _reducer,final Class<T> _class,final T _val,final long _result){
+
+		final HistogramReducer<T> reducer=(HistogramReducer<T>)_reducer.get(_class);
+			
+		Assertions.assertEquals(_result, reducer.toLong(_val));
+		Assertions.assertEquals(_val, reducer.fromLong(_result));
+	}
+
+	@ParameterizedTest(name ="Reducer {0} should be a LongReducer or a DoubleReducer")
+	@EnumSource(MeasureReducers.class)
+	public void primitiveReducer(final MeasureReducers _reducer){
+
+		final MeasureReducer<Object> reducer=_reducer.get(Object.class);
+
+		Assertions.assertTrue((reducer instanceof LongReducer)||(reducer instanceof DoubleReducer));
+	}
+
+	static Stream<Arguments> primitiveDatapack() {
+	    return Stream.of(
+			Arguments.of(MeasureReducers.DURATION,Duration.class,Duration.ofSeconds(10),Duration.ofDays(10),3l),
+			Arguments.of(MeasureReducers.DURATION,Duration.class,Duration.ofNanos(-7),Duration.ofNanos(2),2l),
+			Arguments.of(MeasureReducers.LONG,Long.class,10l,-5l,2l),
+			Arguments.of(MeasureReducers.LONG,Long.class,-9l,0l,4l),
+			Arguments.of(MeasureReducers.DOUBLE,Double.class,10.2d,7.5d,3l),
+			Arguments.of(MeasureReducers.DOUBLE,Double.class,-7.8d,-9.9d,2l),
+			Arguments.of(MeasureReducers.HISTOGRAM_DURATION,Duration.class,Duration.ofSeconds(10),Duration.ofDays(10),3l),
+			Arguments.of(MeasureReducers.HISTOGRAM_DURATION,Duration.class,Duration.ofNanos(-7),Duration.ofNanos(2),2l),
+			Arguments.of(MeasureReducers.HISTOGRAM_LONG,Long.class,10l,-5l,2l),
+			Arguments.of(MeasureReducers.HISTOGRAM_LONG,Long.class,-9l,0l,4l)
+		);
+	}
+
+	@ParameterizedTest(name ="When call the primitive operations of {0} over {2} and {3} (and {4} hits) the result must be the same than the generic ones")
+	@MethodSource("primitiveDatapack")
+	@SuppressWarnings("unchecked")
+	public <T> void primitiveSameAsGeneric(final MeasureReducers _reducer,final Class<T> _class,final T _left,final T _right,final long _hits){
+
+		final MeasureReducer<T> generic=_reducer.get(_class);
+		if(generic instanceof LongReducer){
+			final LongReducer<T> reducer=(LongReducer<T>)generic;
+			final long left=reducer.toLong(_left);
+			final long right=reducer.toLong(_right);
+			Assertions.assertEquals(_left,reducer.fromLong(left));
+			Assertions.assertEquals(generic.accumulate(_left,_right).get(),reducer.fromLong(reducer.accumulate(left,right)));
+			Assertions.assertEquals(generic.max(_left,_right).get(),reducer.fromLong(reducer.max(left,right)));
+			Assertions.assertEquals(generic.min(_left,_right).get(),reducer.fromLong(reducer.min(left,right)));
+			Assertions.assertEquals(generic.average(_left,_hits).get(),reducer.fromLong(reducer.average(left,_hits)));
+			Assertions.assertEquals(generic.identity(),reducer.fromLong(0l));
+		}else{
+			final DoubleReducer<T> reducer=(DoubleReducer<T>)generic;
+			final double left=reducer.toDouble(_left);
+			final double right=reducer.toDouble(_right);
+			Assertions.assertEquals(_left,reducer.fromDouble(left));
+			Assertions.assertEquals(generic.accumulate(_left,_right).get(),reducer.fromDouble(reducer.accumulate(left,right)));
+			Assertions.assertEquals(generic.max(_left,_right).get(),reducer.fromDouble(reducer.max(left,right)));
+			Assertions.assertEquals(generic.min(_left,_right).get(),reducer.fromDouble(reducer.min(left,right)));
+			Assertions.assertEquals(generic.average(_left,_hits).get(),reducer.fromDouble(reducer.average(left,_hits)));
+			Assertions.assertEquals(generic.identity(),reducer.fromDouble(0.0d));
+		}
+	}
 }
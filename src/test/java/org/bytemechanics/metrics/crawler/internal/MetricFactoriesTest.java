@@ -0,0 +1,233 @@
+/*
+ * Copyright 2020 Byte Mechanics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bytemechanics.metrics.crawler.internal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.logging.LogManager;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import org.bytemechanics.metrics.crawler.AbstractMetric;
+import org.bytemechanics.metrics.crawler.MeasureReducer;
+import org.bytemechanics.metrics.crawler.MetricFactory;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInfo;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+/**
+ *
+ * @author afarre
+ */
+public class MetricFactoriesTest {
+
+	@BeforeAll
+	public static void setup() throws IOException{
+		System.out.println(">>>>> MetricFactoriesTest >>>> setup");
+		try(InputStream inputStream = MetricFactoriesTest.class.getResourceAsStream("/logging.properties")){
+			LogManager.getLogManager().readConfiguration(inputStream);
+		}catch (final IOException e){
+			Logger.getAnonymousLogger().severe("Could not load default logging.properties file");
+			Logger.getAnonymousLogger().severe(e.getMessage());
+		}
+	}
+
+	@BeforeEach
+    void beforeEachTest(final TestInfo testInfo) {
+        System.out.println(">>>>> "+this.getClass().getSimpleName()+" >>>> "+testInfo.getTestMethod().map(Method::getName).orElse("Unkown")+""+testInfo.getTags().toString()+" >>>> "+testInfo.getDisplayName());
+    }
+
+
+	static Stream<Arguments> factoryDatapack() {
+	    return Stream.of(
+					Arguments.of(MetricFactories.SAMPLED,MeasureReducers.DURATION.get(Duration.class),DurationMetric.class),
+					Arguments.of(MetricFactories.SAMPLED,MeasureReducers.LONG.get(Long.class),LongMetric.class),
+					Arguments.of(MetricFactories.SAMPLED,MeasureReducers.DOUBLE.get(Double.class),DoubleMetric.class),
+					Arguments.of(MetricFactories.CONCURRENT,MeasureReducers.DURATION.get(Duration.class),ConcurrentMetric.class),
+					Arguments.of(MetricFactories.CONCURRENT,MeasureReducers.LONG.get(Long.class),ConcurrentMetric.class),
+					Arguments.of(MetricFactories.SAMPLED,MeasureReducers.HISTOGRAM_DURATION.get(Duration.class),HistogramMetric.class),
+					Arguments.of(MetricFactories.SAMPLED,MeasureReducers.HISTOGRAM_LONG.get(Long.class),HistogramMetric.class),
+					Arguments.of(MetricFactories.CONCURRENT,MeasureReducers.DOUBLE.get(Double.class),ConcurrentMetric.class),
+					Arguments.of(MetricFactories.CONCURRENT,MeasureReducers.HISTOGRAM_DURATION.get(Duration.class),ConcurrentMetric.class),
+					Arguments.of(MetricFactories.WINDOWED,MeasureReducers.DURATION.get(Duration.class),WindowedMetric.class),
+					Arguments.of(MetricFactories.WINDOWED,MeasureReducers.LONG.get(Long.class),WindowedMetric.class),
+					Arguments.of(MetricFactories.WINDOWED,MeasureReducers.DOUBLE.get(Double.class),WindowedMetric.class),
+					Arguments.of(MetricFactories.WINDOWED,MeasureReducers.HISTOGRAM_LONG.get(Long.class),HistogramMetric.class),
+					Arguments.of(MetricFactories.DECAYING,MeasureReducers.DURATION.get(Duration.class),DecayingMetric.class),
+					Arguments.of(MetricFactories.DECAYING,MeasureReducers.LONG.get(Long.class),DecayingMetric.class),
+					Arguments.of(MetricFactories.DECAYING,MeasureReducers.HISTOGRAM_LONG.get(Long.class),DecayingMetric.class),
+					Arguments.of(MetricFactories.SKETCH,MeasureReducers.DURATION.get(Duration.class),SketchMetric.class),
+					Arguments.of(MetricFactories.SKETCH,MeasureReducers.LONG.get(Long.class),SketchMetric.class),
+					Arguments.of(MetricFactories.SKETCH,MeasureReducers.DOUBLE.get(Double.class),SketchMetric.class),
+					Arguments.of(MetricFactories.SKETCH,MeasureReducers.HISTOGRAM_DURATION.get(Duration.class),SketchMetric.class),
+					Arguments.of(MetricFactories.COUNTER,MeasureReducers.LONG.get(Long.class),CounterMetric.class),
+					Arguments.of(MetricFactories.COUNTER,MeasureReducers.DURATION.get(Duration.class),ConcurrentMetric.class),
+					Arguments.of(MetricFactories.COUNTER,MeasureReducers.DOUBLE.get(Double.class),ConcurrentMetric.class),
+					Arguments.of(MetricFactories.COUNTER,MeasureReducers.HISTOGRAM_LONG.get(Long.class),ConcurrentMetric.class)
+				);
+	}
+	@ParameterizedTest(name ="When {0} creates a metric with reducer {1} the metric must be instance of {2}")
+	@MethodSource("factoryDatapack")
+	@SuppressWarnings("unchecked")
+	public void create(final MetricFactories _factory,final MeasureReducer _reducer,final Class<? extends AbstractMetric> _expected){
+
+		final AbstractMetric instance=_factory.create("myMetric",4,_reducer);
+
+		Assertions.assertEquals(_expected,instance.getClass());
+		Assertions.assertEquals("myMetric",instance.getName());
+		Assertions.assertEquals(_reducer,instance.getReducer());
+		Assertions.assertEquals(0,instance.getHits());
+	}
+
+	@Test
+	@DisplayName("When windowed factory creates a metric the metric must be a WindowedMetric with the given window and buckets")
+	@SuppressWarnings("unchecked")
+	public void windowed(){
+
+		final MetricFactory factory=MetricFactories.windowed(Duration.ofMinutes(5),30);
+		final AbstractMetric<Long> instance=factory.create("myMetric",4,MeasureReducers.LONG.get(Long.class));
+
+		Assertions.assertEquals(WindowedMetric.class,instance.getClass());
+		Assertions.assertEquals(Duration.ofMinutes(5),((WindowedMetric<Long>)instance).getWindow());
+		Assertions.assertEquals(30,((WindowedMetric<Long>)instance).getBuckets());
+		Assertions.assertEquals("MetricFactories.windowed[window=PT5M, buckets=30]",factory.toString());
+		Assertions.assertEquals(WindowedMetric.DEFAULT_WINDOW,((WindowedMetric<Long>)MetricFactories.WINDOWED.create("myMetric",4,MeasureReducers.LONG.get(Long.class))).getWindow());
+		Assertions.assertEquals(HistogramMetric.class,factory.create("myMetric",4,MeasureReducers.HISTOGRAM_DURATION.get(Duration.class)).getClass());
+	}
+
+	@Test
+	@DisplayName("When decaying factory creates a metric the metric must be a DecayingMetric with the given half-life")
+	@SuppressWarnings("unchecked")
+	public void decaying(){
+
+		final MetricFactory factory=MetricFactories.decaying(Duration.ofMinutes(5));
+		final AbstractMetric<Long> instance=factory.create("myMetric",4,MeasureReducers.LONG.get(Long.class));
+
+		Assertions.assertEquals(DecayingMetric.class,instance.getClass());
+		Assertions.assertEquals(Duration.ofMinutes(5),((DecayingMetric<Long>)instance).getHalfLife());
+		Assertions.assertEquals(4,((DecayingMetric<Long>)instance).getSamplingSize());
+		Assertions.assertEquals("MetricFactories.decaying[halfLife=PT5M]",factory.toString());
+		Assertions.assertEquals(DecayingMetric.DEFAULT_HALF_LIFE,((DecayingMetric<Long>)MetricFactories.DECAYING.create("myMetric",4,MeasureReducers.LONG.get(Long.class))).getHalfLife());
+	}
+
+	@Test
+	@DisplayName("When decaying factory is created with null half-life a NullPointerException must be raised")
+	@SuppressWarnings("ThrowableResultIgnored")
+	public void decayingNullHalfLife(){
+		final Exception exception=Assertions.assertThrows(NullPointerException.class, () -> MetricFactories.decaying(null));
+		Assertions.assertEquals("Half-life can not be null to create a decaying metric factory",exception.getMessage());
+	}
+
+	@Test
+	@DisplayName("When gauge factory creates a metric the metric must be a GaugeMetric without supplier over a metric of the given window factory")
+	public void gauge(){
+
+		final MetricFactory factory=MetricFactories.gauge(MetricFactories.CONCURRENT);
+		final AbstractMetric<Long> instance=factory.create("myMetric",4,MeasureReducers.LONG.get(Long.class));
+
+		Assertions.assertEquals(GaugeMetric.class,instance.getClass());
+		Assertions.assertEquals("myMetric",instance.getName());
+		Assertions.assertEquals(ConcurrentMetric.class,((GaugeMetric<Long>)instance).getWindow().getClass());
+		Assertions.assertFalse(((GaugeMetric<Long>)instance).isAlive());
+		Assertions.assertEquals("MetricFactories.gauge[window=CONCURRENT]",factory.toString());
+	}
+
+	@Test
+	@DisplayName("When gauge factory is created with null window factory a NullPointerException must be raised")
+	@SuppressWarnings("ThrowableResultIgnored")
+	public void gaugeNullWindow(){
+		final Exception exception=Assertions.assertThrows(NullPointerException.class, () -> MetricFactories.gauge(null));
+		Assertions.assertEquals("Window factory can not be null to create a gauge metric factory",exception.getMessage());
+	}
+
+	@Test
+	@DisplayName("When sketch factory creates a metric the metric must be a SketchMetric with the given relative accuracy and maximum buckets")
+	@SuppressWarnings("unchecked")
+	public void sketch(){
+
+		final MetricFactory factory=MetricFactories.sketch(0.005d,64);
+		final AbstractMetric<Long> instance=factory.create("myMetric",4,MeasureReducers.LONG.get(Long.class));
+
+		Assertions.assertEquals(SketchMetric.class,instance.getClass());
+		Assertions.assertEquals(0.005d,((SketchMetric<Long>)instance).sketch().getRelativeAccuracy());
+		Assertions.assertEquals(64,((SketchMetric<Long>)instance).sketch().getMaxBuckets());
+		Assertions.assertEquals("MetricFactories.sketch[relativeAccuracy=0.005, maxBuckets=64]",factory.toString());
+		Assertions.assertEquals(QuantileSketch.DEFAULT_RELATIVE_ACCURACY,((SketchMetric<Long>)MetricFactories.SKETCH.create("myMetric",4,MeasureReducers.LONG.get(Long.class))).sketch().getRelativeAccuracy());
+	}
+
+	@Test
+	@DisplayName("When sketch factory creates a metric with a reducer that is not a LongReducer nor a DoubleReducer the metric must be a ConcurrentMetric")
+	@SuppressWarnings("unchecked")
+	public void sketchNotPrimitive(){
+
+		final MeasureReducer<String> reducer=new MeasureReducer<String>(){
+					@Override
+					public Class<String> getType() {
+						return String.class;
+					}
+					@Override
+					public String identity() {
+						return "";
+					}
+					@Override
+					public Optional<String> accumulate(final String _val1,final String _val2) {
+						return MeasureReducers.secureApply(_val1, _val2, String::concat);
+					}
+					@Override
+					public Optional<String> max(final String _val1,final String _val2) {
+						return Optional.ofNullable(_val1);
+					}
+					@Override
+					public Optional<String> min(final String _val1,final String _val2) {
+						return Optional.ofNullable(_val1);
+					}
+					@Override
+					public Optional<String> average(final String _val,final long _hits) {
+						return Optional.ofNullable(_val);
+					}
+					@Override
+					public String toString(final String _val) {
+						return _val;
+					}
+				};
+
+		Assertions.assertEquals(ConcurrentMetric.class,MetricFactories.SKETCH.create("myMetric",4,reducer).getClass());
+		Assertions.assertEquals(ConcurrentMetric.class,MetricFactories.sketch(0.005d,64).create("myMetric",4,reducer).getClass());
+	}
+
+	static Stream<Arguments> sketchFailureDatapack() {
+	    return Stream.of(
+					Arguments.of(0.0d,64,"Relative accuracy 0.0 must be between 0 and 1 to create a sketch metric factory"),
+					Arguments.of(1.0d,64,"Relative accuracy 1.0 must be between 0 and 1 to create a sketch metric factory"),
+					Arguments.of(0.01d,0,"Maximum buckets 0 must be positive to create a sketch metric factory")
+				);
+	}
+	@ParameterizedTest(name ="When sketch factory is created with relative accuracy {0} and maximum buckets {1} an IllegalArgumentException must be raised")
+	@MethodSource("sketchFailureDatapack")
+	@SuppressWarnings("ThrowableResultIgnored")
+	public void sketchFailure(final double _relativeAccuracy,final int _maxBuckets,final String _message){
+		final Exception exception=Assertions.assertThrows(IllegalArgumentException.class, () -> MetricFactories.sketch(_relativeAccuracy,_maxBuckets));
+		Assertions.assertEquals(_message,exception.getMessage());
+	}
+}
@@ -21,6 +21,8 @@ import java.lang.reflect.Method;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
+import java.util.Random;
 import java.util.logging.LogManager;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
@@ -41,6 +43,7 @@ import org.junit.jupiter.api.TestInfo;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
 
 /**
  *
@@ -326,4 +329,93 @@ public class MetricTest {
 
 		Assertions.assertEquals(expected,metric.toSnapshot());
 	}
+
+	@ParameterizedTest(name ="When Metric with {0} sampling size registers random measures the incremental snapshot must be the same as reducing all the current measures")
+	@ValueSource(ints = {1,2,3,7,128})
+	@SuppressWarnings("unchecked")
+	public void incrementalToSnapshot(final int _samplingSize){
+
+		final Random random=new Random(_samplingSize);
+		final Metric<Long> metric=new Metric<>("mNAme",_samplingSize,MeasureReducers.LONG.get(Long.class));
+		for(int ic1=1;ic1<=_samplingSize*5;ic1++){
+			metric.addMeasure(LocalDateTime.of(2000,1,1,1,1).plusSeconds(random.nextInt(60)),(long)random.nextInt(1000)-500l);
+
+			final MetricSnapshot<Long> expected=metric.getMeasures()
+														.stream()
+														.map(Measure::toMetricSnapshot)
+														.reduce(MetricSnapshot::reduce)
+														.map(snapshot -> MetricSnapshot.builder(MeasureReducers.LONG.get(Long.class),snapshot)
+																						.name("mNAme")
+																						.totalHits(metric.getHits())
+																					.build())
+														.get();
+			Assertions.assertEquals(expected,metric.toSnapshot());
+		}
+	}
+
+	@ParameterizedTest(name ="When Metric with {0} sampling size registers random measures the incremental variance must be the same as reducing all the current measures")
+	@ValueSource(ints = {1,2,3,7,128})
+	@SuppressWarnings("unchecked")
+	public void incrementalVariance(final int _samplingSize){
+
+		final Random random=new Random(_samplingSize);
+		final Metric<Long> metric=new Metric<>("mNAme",_samplingSize,MeasureReducers.LONG.get(Long.class));
+		Assertions.assertTrue(Double.isNaN(metric.toSnapshot().getVariance()));
+		for(int ic1=1;ic1<=_samplingSize*5;ic1++){
+			metric.addMeasure(LocalDateTime.of(2000,1,1,1,1).plusSeconds(random.nextInt(60)),(long)random.nextInt(1000)-500l);
+
+			final double expected=metric.getMeasures()
+											.stream()
+											.map(Measure::toMetricSnapshot)
+											.reduce(MetricSnapshot::reduce)
+											.get()
+											.getVariance();
+			Assertions.assertEquals(expected,metric.toSnapshot().getVariance(),Math.max(1e-9d,expected*1e-9d));
+		}
+	}
+
+	@Test
+	@DisplayName("Metric with a reducer that is not a LongReducer nor a DoubleReducer must not provide variance")
+	@SuppressWarnings("unchecked")
+	public void withoutVariance(){
+
+		final MeasureReducer<String> reducer=new MeasureReducer<String>(){
+			@Override
+			public Class<String> getType() {
+				return String.class;
+			}
+			@Override
+			public String identity() {
+				return "";
+			}
+			@Override
+			public Optional<String> accumulate(final String _val1,final String _val2) {
+				return MeasureReducers.secureApply(_val1, _val2, String::concat);
+			}
+			@Override
+			public Optional<String> max(final String _val1,final String _val2) {
+				return MeasureReducers.secureApply(_val1, _val2, (left,right) -> (left.compareTo(right)>=0)? left : right);
+			}
+			@Override
+			public Optional<String> min(final String _val1,final String _val2) {
+				return MeasureReducers.secureApply(_val1, _val2, (left,right) -> (left.compareTo(right)<=0)? left : right);
+			}
+			@Override
+			public Optional<String> average(final String _val,final long _hits) {
+				return Optional.ofNullable(_val);
+			}
+			@Override
+			public String toString(final String _val) {
+				return _val;
+			}
+		};
+		final Metric<String> metric=new Metric<>("mNAme",4,reducer);
+		metric.addMeasure(LocalDateTime.now(),"a");
+		metric.addMeasure(LocalDateTime.now(),"b");
+
+		final MetricSnapshot<String> snapshot=metric.toSnapshot();
+		Assertions.assertNull(snapshot.getRunningVariance());
+		Assertions.assertTrue(Double.isNaN(snapshot.getVariance()));
+		Assertions.assertNull(snapshot.getStdDeviation());
+	}
 }
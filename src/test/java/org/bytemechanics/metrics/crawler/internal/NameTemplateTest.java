@@ -0,0 +1,194 @@
+/*
+ * Copyright 2020 Byte Mechanics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bytemechanics.metrics.crawler.internal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.Random;
+import java.util.logging.LogManager;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import org.bytemechanics.metrics.crawler.internal.commons.string.SimpleFormat;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInfo;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+/**
+ * @author afarre
+ */
+public class NameTemplateTest {
+
+	@BeforeAll
+	public static void setup() throws IOException{
+		System.out.println(">>>>> NameTemplateTest >>>> setup");
+		try(InputStream inputStream = NameTemplateTest.class.getResourceAsStream("/logging.properties")){
+			LogManager.getLogManager().readConfiguration(inputStream);
+		}catch (final IOException e){
+			Logger.getAnonymousLogger().severe("Could not load default logging.properties file");
+			Logger.getAnonymousLogger().severe(e.getMessage());
+		}
+	}
+
+	@BeforeEach
+    void beforeEachTest(final TestInfo testInfo) {
+        System.out.println(">>>>> "+this.getClass().getSimpleName()+" >>>> "+testInfo.getTestMethod().map(Method::getName).orElse("Unkown")+""+testInfo.getTags().toString()+" >>>> "+testInfo.getDisplayName());
+    }
+
+
+	static Stream<Arguments> templateDatapack() {
+	    return Stream.of(
+			Arguments.of("ada",new Object[]{3,"ds"},0),
+			Arguments.of("ada",null,0),
+			Arguments.of("",new Object[0],0),
+			Arguments.of("{}",new Object[]{"x"},1),
+			Arguments.of("{}",null,1),
+			Arguments.of("{} ada",new Object[]{3,"ds","fdsfdsgs"},1),
+			Arguments.of("ada1 {} daasf",new Object[]{3,"ds","fdsfdsgs"},1),
+			Arguments.of("ada2 {}",new Object[]{3,"ds","fdsfdsgs"},1),
+			Arguments.of("{}ada3",new Object[]{3,"ds","fdsfdsgs"},1),
+			Arguments.of("ada{}4",new Object[]{3l,"ds","fdsfdsgs"},1),
+			Arguments.of("{} ada{}",new Object[]{3,"ds","fdsfdsgs"},2),
+			Arguments.of("{}{}{}",new Object[]{'c',true,1.5d},3),
+			Arguments.of("a.{}.{}",new Object[]{null,Thread.State.NEW},2),
+			Arguments.of("a.{}.{}",new Object[]{Duration.ofSeconds(1),new StringBuilder("sb")},2),
+			Arguments.of("ada1 {} d {}aasf{}{}",new Object[]{3,"ds","fdsfdsgs"},4),
+			Arguments.of("{",new Object[]{"x"},0),
+			Arguments.of("}{",new Object[]{"x"},0),
+			Arguments.of("{{}}",new Object[]{"x"},1),
+			Arguments.of("{{}",new Object[]{"x","y"},1),
+			Arguments.of("{}}{}",new Object[]{"x","y"},2),
+			Arguments.of("{ }.{}",new Object[]{"x","y"},1),
+			Arguments.of("\\{}.{}",new Object[]{"x","y"},2),
+			Arguments.of("a.{}",new Object[]{"{}"},1),
+			Arguments.of("a.{}.{}",new Object[]{"{}",'{'},2)
+		);
+	}
+	@ParameterizedTest(name ="When format {0} with {1} the result must be the same as SimpleFormat with {2} placeholders")
+	@MethodSource("templateDatapack")
+	public void format(final String _pattern,final Object[] _args,final int _placeholders){
+
+		final NameTemplate template=NameTemplate.compile(_pattern);
+
+		Assertions.assertEquals(_pattern,template.getPattern());
+		Assertions.assertEquals(_placeholders,template.getPlaceholders());
+		Assertions.assertEquals("NameTemplate[pattern="+_pattern+", placeholders="+_placeholders+"]",template.toString());
+		Assertions.assertEquals(SimpleFormat.format(_pattern,_args),template.apply(_args));
+		Assertions.assertEquals(SimpleFormat.format(_pattern,_args),NameTemplate.format(_pattern,_args));
+	}
+
+	@Test
+	@DisplayName("Compile a null pattern should raise a NullPointerException")
+	@SuppressWarnings("ThrowableResultIgnored")
+	public void compileNull(){
+		Assertions.assertEquals("Can not compile null name template",Assertions.assertThrows(NullPointerException.class,() -> NameTemplate.compile(null)).getMessage());
+	}
+
+	@Test
+	@DisplayName("Format again with the same immutable placeholders must return the same name instance")
+	public void cachedName(){
+
+		final NameTemplate template=NameTemplate.compile("cached.{}.{}.{}");
+		final String name=template.apply("orders",1,Thread.State.NEW);
+
+		Assertions.assertEquals("cached.orders.1.NEW",name);
+		Assertions.assertSame(name,template.apply("orders",1,Thread.State.NEW));
+		Assertions.assertSame(name,template.apply(new String("orders"),Integer.valueOf(1000-999),Thread.State.NEW));
+		Assertions.assertNotSame(name,template.apply("orders",1l,Thread.State.NEW));
+		Assertions.assertEquals("cached.orders.1.NEW",template.apply("orders",1l,Thread.State.NEW));
+		Assertions.assertSame("noPlaceholders",NameTemplate.format("noPlaceholders",1,2));
+	}
+
+	@Test
+	@DisplayName("Format with mutable placeholders must not cache the name")
+	public void mutablePlaceholders(){
+
+		final NameTemplate template=NameTemplate.compile("mutable.{}");
+		final StringBuilder builder=new StringBuilder("a");
+
+		Assertions.assertEquals("mutable.a",template.apply(builder));
+		builder.append("b");
+		Assertions.assertEquals("mutable.ab",template.apply(builder));
+	}
+
+	@Test
+	@DisplayName("Format with more placeholder values than cached names must still return the right names")
+	public void highCardinality(){
+
+		final NameTemplate template=NameTemplate.compile("high.{}");
+		for(int ic1=0;ic1<NameTemplate.MAX_NAMES*16;ic1++){
+			Assertions.assertEquals("high."+ic1,template.apply(ic1));
+			Assertions.assertEquals("high."+ic1,template.apply(String.valueOf(ic1)));
+		}
+		for(int ic1=0;ic1<NameTemplate.MAX_NAMES*16;ic1++){
+			Assertions.assertEquals("high."+ic1,template.apply(ic1));
+		}
+	}
+
+	@Test
+	@DisplayName("Format random patterns with random values must return the same result as SimpleFormat")
+	public void randomFormat(){
+
+		final String[] tokens={"{}","{}","{","}","a",".","\\"," ","{}{}"};
+		final Object[] values={"x",1,2l,'c',true,null,1.5d,Thread.State.NEW,"{}",new StringBuilder("sb")};
+		final Random random=new Random(20200304l);
+		for(int ic1=0;ic1<2000;ic1++){
+			final StringBuilder pattern=new StringBuilder();
+			for(int ic2=random.nextInt(8);ic2>0;ic2--){
+				pattern.append(tokens[random.nextInt(tokens.length)]);
+			}
+			final Object[] args=new Object[random.nextInt(5)];
+			for(int ic2=0;ic2<args.length;ic2++){
+				args[ic2]=values[random.nextInt(values.length)];
+			}
+			Assertions.assertEquals(SimpleFormat.format(pattern.toString(),args),NameTemplate.format(pattern.toString(),args),"pattern: "+pattern);
+			Assertions.assertEquals(SimpleFormat.format(pattern.toString(),args),NameTemplate.compile(pattern.toString()).apply(args),"pattern: "+pattern);
+		}
+	}
+
+	@Test
+	@DisplayName("Format literal names must return the name itself without caching it")
+	public void literalNames(){
+
+		Assertions.assertSame("literal.name",NameTemplate.format("literal.name"));
+		Assertions.assertNotSame(NameTemplate.compile("literal.name"),NameTemplate.compile("literal.name"));
+		Assertions.assertEquals("literal.name",NameTemplate.compile("literal.name").apply("x"));
+	}
+
+	@Test
+	@DisplayName("Compile more patterns than cached templates must evict the least recently used ones and keep caching the new patterns")
+	public void maxTemplates(){
+
+		for(int ic1=0;ic1<NameTemplate.MAX_TEMPLATES+100;ic1++){
+			Assertions.assertEquals("literal"+ic1,NameTemplate.format("literal"+ic1));
+		}
+		final NameTemplate recent=NameTemplate.compile("recent.{}");
+		for(int ic1=0;ic1<NameTemplate.MAX_TEMPLATES+16;ic1++){
+			Assertions.assertEquals("template"+ic1+".x",NameTemplate.format("template"+ic1+".{}","x"));
+			Assertions.assertSame(recent,NameTemplate.compile("recent.{}"));
+		}
+		final NameTemplate cached=NameTemplate.compile("http.{}.get");
+		Assertions.assertSame(cached,NameTemplate.compile("http.{}.get"));
+		Assertions.assertSame(recent,NameTemplate.compile("recent.{}"));
+	}
+}
@@ -0,0 +1,356 @@
+/*
+ * Copyright 2020 Byte Mechanics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bytemechanics.metrics.crawler.internal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.LongFunction;
+import java.util.function.ToDoubleFunction;
+import java.util.logging.LogManager;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.bytemechanics.metrics.crawler.AbstractMetric;
+import org.bytemechanics.metrics.crawler.MeasureReducer;
+import org.bytemechanics.metrics.crawler.beans.MetricReading;
+import org.bytemechanics.metrics.crawler.beans.MetricSnapshot;
+import org.bytemechanics.metrics.crawler.exceptions.IncorrectMeasureType;
+import org.bytemechanics.metrics.crawler.exceptions.IncorrectSamplingSize;
+import org.bytemechanics.metrics.crawler.internal.commons.string.SimpleFormat;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.TestInfo;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+/**
+ * Common suite of the primitive metrics LongMetric, DoubleMetric and DurationMetric
+ * @author afarre
+ */
+public class PrimitiveMetricTest {
+
+	@BeforeAll
+	public static void setup() throws IOException{
+		System.out.println(">>>>> PrimitiveMetricTest >>>> setup");
+		try(InputStream inputStream = PrimitiveMetricTest.class.getResourceAsStream("/logging.properties")){
+			LogManager.getLogManager().readConfiguration(inputStream);
+		}catch (final IOException e){
+			Logger.getAnonymousLogger().severe("Could not load default logging.properties file");
+			Logger.getAnonymousLogger().severe(e.getMessage());
+		}
+	}
+
+	@BeforeEach
+    void beforeEachTest(final TestInfo testInfo) {
+        System.out.println(">>>>> "+this.getClass().getSimpleName()+" >>>> "+testInfo.getTestMethod().map(Method::getName).orElse("Unkown")+""+testInfo.getTags().toString()+" >>>> "+testInfo.getDisplayName());
+    }
+
+	/**
+	 * Primitive metric implementation under test with the conversions of its measure type
+	 * @param <T> type of the measures
+	 */
+	private static final class Primitive<T>{
+
+		private final String name;
+		private final MeasureReducer<T> reducer;
+		private final BiFunction<String,Integer,AbstractMetric<T>> factory;
+		private final Function<AbstractMetric<T>,List<Measure<T>>> measures;
+		private final LongFunction<T> measure;
+		private final Function<Random,T> random;
+		private final ToDoubleFunction<T> toDouble;
+		private final PrimitiveRecorder<T> recorder;
+
+		Primitive(final String _name,final MeasureReducer<T> _reducer,final BiFunction<String,Integer,AbstractMetric<T>> _factory,final Function<AbstractMetric<T>,List<Measure<T>>> _measures,final LongFunction<T> _measure,final Function<Random,T> _random,final ToDoubleFunction<T> _toDouble,final PrimitiveRecorder<T> _recorder){
+			this.name=_name;
+			this.reducer=_reducer;
+			this.factory=_factory;
+			this.measures=_measures;
+			this.measure=_measure;
+			this.random=_random;
+			this.toDouble=_toDouble;
+			this.recorder=_recorder;
+		}
+
+		AbstractMetric<T> create(final String _name,final int _samplingSize){
+			return this.factory.apply(_name,_samplingSize);
+		}
+		List<Measure<T>> measures(final AbstractMetric<T> _metric){
+			return this.measures.apply(_metric);
+		}
+		T measure(final long _value){
+			return this.measure.apply(_value);
+		}
+		T random(final Random _random){
+			return this.random.apply(_random);
+		}
+		double toDouble(final T _measure){
+			return this.toDouble.applyAsDouble(_measure);
+		}
+		void record(final AbstractMetric<?> _metric,final LocalDateTime _time,final T _measure){
+			this.recorder.record(_metric,Timestamps.toTimestamp(_time),_measure);
+		}
+
+		@Override
+		public String toString() {
+			return this.name;
+		}
+	}
+	@FunctionalInterface
+	private static interface PrimitiveRecorder<T>{
+		void record(AbstractMetric<?> _metric,long _timestamp,T _measure);
+	}
+
+	private static final Primitive<Long> LONG=new Primitive<>("LongMetric"
+																,MeasureReducers.LONG.get(Long.class)
+																,(name,size) -> new LongMetric(name,size,MeasureReducers.LONG.get(Long.class))
+																,metric -> ((LongMetric)metric).getMeasures()
+																,value -> value
+																,random -> (long)random.nextInt(1000)-500l
+																,Long::doubleValue
+																,(metric,timestamp,measure) -> metric.addLongMeasure(timestamp,measure));
+	private static final Primitive<Double> DOUBLE=new Primitive<>("DoubleMetric"
+																,MeasureReducers.DOUBLE.get(Double.class)
+																,(name,size) -> new DoubleMetric(name,size,MeasureReducers.DOUBLE.get(Double.class))
+																,metric -> ((DoubleMetric)metric).getMeasures()
+																,value -> (double)value
+																,random -> random.nextDouble()*1000.0d-500.0d
+																,Double::doubleValue
+																,(metric,timestamp,measure) -> metric.addDoubleMeasure(timestamp,measure));
+	private static final Primitive<Duration> DURATION=new Primitive<>("DurationMetric"
+																,MeasureReducers.DURATION.get(Duration.class)
+																,(name,size) -> new DurationMetric(name,size,MeasureReducers.DURATION.get(Duration.class))
+																,metric -> ((DurationMetric)metric).getMeasures()
+																,Duration::ofSeconds
+																,random -> Duration.ofNanos(random.nextInt(1000000))
+																,Duration::toNanos
+																,(metric,timestamp,measure) -> metric.addDurationMeasure(timestamp,measure.toNanos()));
+
+	static Stream<Arguments> primitiveDatapack() {
+	    return Stream.of(
+					Arguments.of(LONG),
+					Arguments.of(DOUBLE),
+					Arguments.of(DURATION)
+				);
+	}
+	static Stream<Arguments> primitiveSamplingSizeDatapack() {
+	    return primitiveDatapack()
+					.flatMap(primitive -> Stream.of(1,2,3,7,128)
+											.map(samplingSize -> Arguments.of(primitive.get()[0],samplingSize)));
+	}
+
+
+	@ParameterizedTest(name ="When {0} is created getName(), getHits(), getReducer(), getMeasures() and toString() must return the initial values")
+	@MethodSource("primitiveDatapack")
+	public <T> void constructor(final Primitive<T> _primitive){
+
+		final AbstractMetric<T> instance=_primitive.create("c",4);
+
+		Assertions.assertEquals("c",instance.getName());
+		Assertions.assertEquals(0,instance.getHits());
+		Assertions.assertEquals(_primitive.reducer,instance.getReducer());
+		Assertions.assertTrue(_primitive.measures(instance).isEmpty());
+		Assertions.assertEquals(SimpleFormat.format("{}[name={}, hits={}, measures={}, reducer={}]",_primitive,"c",0,Collections.emptyList(),_primitive.reducer),instance.toString());
+		Assertions.assertEquals(MetricSnapshot.builder(_primitive.reducer).name("c").build(),instance.toSnapshot());
+	}
+
+	static Stream<Arguments> metricFailureBuilderDatapack() {
+	    return primitiveDatapack()
+					.flatMap(primitive -> Stream.of(
+												Arguments.of(primitive.get()[0], null, 1, new NullPointerException("Name can not be null to create a Metric")),
+												Arguments.of(primitive.get()[0], "a", -100, new IncorrectSamplingSize("a", -100)),
+												Arguments.of(primitive.get()[0], "c", 0, new IncorrectSamplingSize("c", 0))
+											));
+	}
+	@ParameterizedTest(name ="Try to create with {0} with _name:{1},_samplingSize:{2} should raise {3}")
+	@MethodSource("metricFailureBuilderDatapack")
+	@SuppressWarnings("ThrowableResultIgnored")
+	public <T> void contructorNullControl(final Primitive<T> _primitive,final String _name,final int _samplingSize,final Exception _expected){
+
+		Assertions.assertThrows(_expected.getClass()
+								,() -> _primitive.create(_name,_samplingSize)
+								,_expected.toString());
+	}
+
+	@ParameterizedTest(name ="When {0} registers a measure toString() must reflect the new value")
+	@MethodSource("primitiveDatapack")
+	public <T> void addMeasure(final Primitive<T> _primitive){
+
+		final AbstractMetric<T> instance=_primitive.create("c",1);
+		final LocalDateTime time=LocalDateTime.now();
+		instance.addMeasure(time,_primitive.measure(3l));
+
+		Assertions.assertEquals(SimpleFormat.format("{}[name={}, hits={}, measures={}, reducer={}]"
+													, _primitive
+													, "c"
+													, 1
+													, Stream.of(new Measure<>(time,_primitive.measure(3l),_primitive.reducer)).collect(Collectors.toList())
+													, _primitive.reducer)
+								,instance.toString());
+	}
+
+	static Stream<Arguments> metricIncorrectMeasureBuilderDatapack() {
+	    return Stream.of(LONG,DOUBLE,DURATION)
+					.flatMap(primitive -> Stream.concat(
+												Stream.of(
+													Arguments.of(primitive,null,primitive.measure(3l),NullPointerException.class),
+													Arguments.of(primitive,LocalDateTime.now(),null,NullPointerException.class),
+													Arguments.of(primitive,LocalDateTime.of(1,1,1,1,1),primitive.measure(3l),ArithmeticException.class)),
+												Stream.of(LONG,DOUBLE,DURATION)
+													.filter(other -> other!=primitive)
+													.map(other -> Arguments.of(primitive,LocalDateTime.now(),other.measure(1l),IncorrectMeasureType.class))));
+	}
+	@ParameterizedTest(name ="When call addMeasure({1},{2}) to {0} a {3} exception must be thrown")
+	@MethodSource("metricIncorrectMeasureBuilderDatapack")
+	@SuppressWarnings({"ThrowableResultIgnored", "unchecked","rawtypes"})
+	public void addWrongMeasure(final Primitive<?> _primitive,final LocalDateTime _time, final Object _measure,final Class<? extends Exception> _exception){
+
+		final AbstractMetric metric=_primitive.create("c",1);
+		Assertions.assertThrows(_exception, () -> metric.addMeasure(_time, _measure));
+	}
+
+	static Stream<Arguments> metricIncorrectPrimitiveDatapack() {
+	    return Stream.of(LONG,DOUBLE,DURATION)
+					.flatMap(primitive -> Stream.of(LONG,DOUBLE,DURATION)
+													.filter(other -> other!=primitive)
+													.map(other -> Arguments.of(primitive,other)));
+	}
+	@ParameterizedTest(name ="When {0} registers primitive measures of {1} an IncorrectMeasureType exception must be thrown")
+	@MethodSource("metricIncorrectPrimitiveDatapack")
+	@SuppressWarnings("ThrowableResultIgnored")
+	public <T,O> void addWrongPrimitiveMeasure(final Primitive<T> _primitive,final Primitive<O> _other){
+
+		final AbstractMetric<T> instance=_primitive.create("c",1);
+
+		Assertions.assertThrows(IncorrectMeasureType.class, () -> _other.record(instance,LocalDateTime.now(),_other.measure(1l)));
+		Assertions.assertEquals(0,instance.getHits());
+	}
+
+	@ParameterizedTest(name ="{0} should convert correctly to snapshot")
+	@MethodSource("primitiveDatapack")
+	public <T> void toSnapshot(final Primitive<T> _primitive){
+
+		final AbstractMetric<T> metric=_primitive.create("mNAme",3);
+		metric.addMeasure(LocalDateTime.of(2001,1,1,1,1),_primitive.measure(1l));
+		metric.addMeasure(LocalDateTime.of(2002,2,2,2,2),_primitive.measure(2l));
+		_primitive.record(metric,LocalDateTime.of(2003,3,3,3,3),_primitive.measure(3l));
+		_primitive.record(metric,LocalDateTime.of(2004,4,4,4,4),_primitive.measure(4l));
+		metric.addMeasure(LocalDateTime.of(2005,5,5,5,5),_primitive.measure(5l));
+		final MetricSnapshot<T> expected=MetricSnapshot.builder(_primitive.reducer)
+											.name("mNAme")
+											.samplingSize(3)
+											.accumulatedSamples(_primitive.measure(12l))
+											.totalHits(5l)
+											.maxMeasure(_primitive.measure(5l))
+											.minMeasure(_primitive.measure(3l))
+											.averageMeasure(_primitive.measure(4l))
+											.lastMeasure(_primitive.measure(5l))
+											.lastOccurrence(LocalDateTime.of(2005,5,5,5,5))
+										.build();
+
+		Assertions.assertEquals(expected,metric.toSnapshot());
+	}
+
+	@ParameterizedTest(name ="When {0} with {1} sampling size registers random measures the snapshot must be the same as the generic Metric one")
+	@MethodSource("primitiveSamplingSizeDatapack")
+	public <T> void sameAsMetric(final Primitive<T> _primitive,final int _samplingSize){
+
+		final Random random=new Random(_samplingSize);
+		final Metric<T> expected=new Metric<>("mNAme",_samplingSize,_primitive.reducer);
+		final AbstractMetric<T> metric=_primitive.create("mNAme",_samplingSize);
+		for(int ic1=1;ic1<=_samplingSize*5;ic1++){
+			final LocalDateTime time=LocalDateTime.of(2000,1,1,1,1).plusSeconds(random.nextInt(60));
+			final T measure=_primitive.random(random);
+			expected.addMeasure(time,measure);
+			_primitive.record(metric,time,measure);
+
+			Assertions.assertEquals(expected.toSnapshot(),metric.toSnapshot());
+			Assertions.assertEquals(expected.getMeasures(),_primitive.measures(metric));
+		}
+	}
+
+	@ParameterizedTest(name ="When {0} with {1} sampling size registers random measures the reading must have the same values than the snapshot")
+	@MethodSource("primitiveSamplingSizeDatapack")
+	public <T> void readSameAsSnapshot(final Primitive<T> _primitive,final int _samplingSize){
+
+		final Random random=new Random(_samplingSize);
+		final AbstractMetric<T> metric=_primitive.create("mNAme",_samplingSize);
+		final MetricReading reading=new MetricReading();
+		Assertions.assertEquals(new MetricReading().snapshotValues(metric.toSnapshot()).toString(),metric.read(reading).toString());
+		for(int ic1=1;ic1<=_samplingSize*5;ic1++){
+			final LocalDateTime time=LocalDateTime.of(2000,1,1,1,1).plusSeconds(random.nextInt(60));
+			_primitive.record(metric,time,_primitive.random(random));
+
+			Assertions.assertEquals(new MetricReading().snapshotValues(metric.toSnapshot()).toString(),metric.read(reading).toString());
+			Assertions.assertNull(reading.getSnapshot());
+		}
+	}
+
+	@ParameterizedTest(name ="When {0} with {1} sampling size registers random measures the snapshot and reading variance must be the variance of the window measures")
+	@MethodSource("primitiveSamplingSizeDatapack")
+	@SuppressWarnings("unchecked")
+	public <T> void variance(final Primitive<T> _primitive,final int _samplingSize){
+
+		final Random random=new Random(_samplingSize);
+		final AbstractMetric<T> metric=_primitive.create("mNAme",_samplingSize);
+		final MetricReading reading=new MetricReading();
+		Assertions.assertTrue(Double.isNaN(metric.toSnapshot().getVariance()));
+		Assertions.assertTrue(Double.isNaN(metric.read(reading).getVariance()));
+		for(int ic1=1;ic1<=_samplingSize*5;ic1++){
+			final LocalDateTime time=LocalDateTime.of(2000,1,1,1,1).plusSeconds(random.nextInt(60));
+			_primitive.record(metric,time,_primitive.random(random));
+
+			final double[] values=_primitive.measures(metric).stream()
+															.mapToDouble(sample -> _primitive.toDouble((T)sample.getValue()))
+															.toArray();
+			final double mean=Arrays.stream(values).average().getAsDouble();
+			final double expected=(values.length>1)? Arrays.stream(values).map(value -> (value-mean)*(value-mean)).sum()/(values.length-1) : 0.0d;
+			final MetricSnapshot<T> snapshot=metric.toSnapshot();
+			Assertions.assertEquals(expected,snapshot.getVariance(),Math.max(1e-9d,expected*1e-9d));
+			Assertions.assertEquals(snapshot.getVariance(),metric.read(reading).getVariance());
+		}
+	}
+
+	static Stream<Arguments> stdDeviationDatapack() {
+	    return Stream.of(
+					Arguments.of(LONG,new Object[]{1l,2l,3l,4l},1l),
+					Arguments.of(DOUBLE,new Object[]{1.0d,2.0d,3.0d,4.0d},Math.sqrt(5.0d/3.0d)),
+					Arguments.of(DURATION,new Object[]{Duration.ofNanos(1l),Duration.ofNanos(2l),Duration.ofNanos(3l),Duration.ofNanos(4l)},Duration.ofNanos(1l))
+				);
+	}
+	@ParameterizedTest(name ="When {0} registers the measures {1} the standard deviation must be {2}")
+	@MethodSource("stdDeviationDatapack")
+	@SuppressWarnings({"unchecked","rawtypes"})
+	public void stdDeviation(final Primitive<?> _primitive,final Object[] _measures,final Object _expected){
+
+		final AbstractMetric metric=_primitive.create("mNAme",_measures.length);
+		for(int ic1=0;ic1<_measures.length;ic1++){
+			metric.addMeasure(LocalDateTime.of(2000,1,1,1,1).plusSeconds(ic1),_measures[ic1]);
+		}
+
+		Assertions.assertEquals(_expected,metric.toSnapshot().getStdDeviation());
+	}
+}
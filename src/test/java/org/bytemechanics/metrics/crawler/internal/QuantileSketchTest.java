@@ -0,0 +1,275 @@
+/*
+ * Copyright 2020 Byte Mechanics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bytemechanics.metrics.crawler.internal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.logging.LogManager;
+import java.util.logging.Logger;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInfo;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ *
+ * @author afarre
+ */
+public class QuantileSketchTest {
+
+	@BeforeAll
+	public static void setup() throws IOException{
+		System.out.println(">>>>> QuantileSketchTest >>>> setup");
+		try(InputStream inputStream = QuantileSketchTest.class.getResourceAsStream("/logging.properties")){
+			LogManager.getLogManager().readConfiguration(inputStream);
+		}catch (final IOException e){
+			Logger.getAnonymousLogger().severe("Could not load default logging.properties file");
+			Logger.getAnonymousLogger().severe(e.getMessage());
+		}
+	}
+
+	@BeforeEach
+    void beforeEachTest(final TestInfo testInfo) {
+        System.out.println(">>>>> "+this.getClass().getSimpleName()+" >>>> "+testInfo.getTestMethod().map(Method::getName).orElse("Unkown")+""+testInfo.getTags().toString()+" >>>> "+testInfo.getDisplayName());
+    }
+
+
+	private static final double[] QUANTILES={0.0d,0.01d,0.25d,0.5d,0.75d,0.9d,0.99d,0.999d,1.0d};
+
+	static Stream<Arguments> valuesDatapack() {
+	    return Stream.of(
+			Arguments.of(new double[]{7.0d}),
+			Arguments.of(new double[]{2.0d,4.0d,4.0d,4.0d,5.0d,5.0d,7.0d,9.0d}),
+			Arguments.of(new double[]{-3.5d,1.25d,0.0d,8.75d,-12.0d,0.0d}),
+			Arguments.of(IntStream.rangeClosed(1,10000).asDoubleStream().toArray()),
+			Arguments.of(new Random(7).doubles(10000,0.0d,1_000_000.0d).toArray()),
+			Arguments.of(new Random(11).doubles(10000,-1_000.0d,1_000.0d).toArray()),
+			Arguments.of(new Random(13).doubles(10000,-6.0d,11.0d).map(exponent -> Math.pow(10.0d,exponent)).toArray())
+		);
+	}
+
+	@ParameterizedTest(name ="When record {0} every quantile must be within the relative accuracy of the exact quantile")
+	@MethodSource("valuesDatapack")
+	public void quantile(final double[] _values){
+
+		final QuantileSketch sketch=new QuantileSketch();
+		for(double value:_values){
+			sketch.record(value);
+		}
+
+		final double[] sorted=_values.clone();
+		Arrays.sort(sorted);
+		Assertions.assertEquals(_values.length,sketch.getCount());
+		for(double quantile:QUANTILES){
+			final double expected=sorted[(int)Math.floor(quantile*(sorted.length-1))];
+			Assertions.assertEquals(expected,sketch.quantile(quantile),Math.abs(expected)*QuantileSketch.DEFAULT_RELATIVE_ACCURACY*(1.0d+1e-9d),"quantile "+quantile);
+		}
+		Assertions.assertEquals(sorted[0],sketch.quantile(0.0d));
+		Assertions.assertEquals(sorted[sorted.length-1],sketch.quantile(1.0d));
+	}
+
+	@ParameterizedTest(name ="When record {0} with relative accuracy {1} every quantile must be within the relative accuracy of the exact quantile")
+	@MethodSource("accuracyDatapack")
+	public void accuracy(final double[] _values,final double _relativeAccuracy){
+
+		final QuantileSketch sketch=new QuantileSketch(_relativeAccuracy,1<<16);
+		for(double value:_values){
+			sketch.record(value);
+		}
+
+		final double[] sorted=_values.clone();
+		Arrays.sort(sorted);
+		for(double quantile:QUANTILES){
+			final double expected=sorted[(int)Math.floor(quantile*(sorted.length-1))];
+			Assertions.assertEquals(expected,sketch.quantile(quantile),Math.abs(expected)*_relativeAccuracy*(1.0d+1e-9d),"quantile "+quantile);
+		}
+	}
+	static Stream<Arguments> accuracyDatapack() {
+	    return valuesDatapack()
+				.flatMap(arguments -> Stream.of(0.001d,0.05d,0.2d)
+												.map(accuracy -> Arguments.of(arguments.get()[0],accuracy)));
+	}
+
+	@ParameterizedTest(name ="When merge {0} split in {1} parts the result must be the same than recording all of them")
+	@MethodSource("mergeDatapack")
+	public void merge(final double[] _values,final int _parts){
+
+		final QuantileSketch expected=new QuantileSketch();
+		final QuantileSketch[] parts=new QuantileSketch[_parts];
+		for(int ic1=0;ic1<_parts;ic1++){
+			parts[ic1]=new QuantileSketch();
+		}
+		for(int ic1=0;ic1<_values.length;ic1++){
+			expected.record(_values[ic1]);
+			parts[ic1%_parts].record(_values[ic1]);
+		}
+		final QuantileSketch merged=new QuantileSketch();
+		for(QuantileSketch part:parts){
+			merged.merge(part);
+		}
+
+		Assertions.assertEquals(expected,merged);
+		Assertions.assertEquals(expected.hashCode(),merged.hashCode());
+		for(double quantile:QUANTILES){
+			Assertions.assertEquals(expected.quantile(quantile),merged.quantile(quantile));
+		}
+	}
+	static Stream<Arguments> mergeDatapack() {
+	    return valuesDatapack()
+				.flatMap(arguments -> Stream.of(1,2,3,16)
+												.map(parts -> Arguments.of(arguments.get()[0],parts)));
+	}
+
+	@Test
+	@DisplayName("Merge with empty sketches must not change the result")
+	public void mergeEmpty(){
+
+		final QuantileSketch sketch=new QuantileSketch().record(1.0d).record(3.0d);
+
+		Assertions.assertEquals(sketch,sketch.copy().merge(new QuantileSketch()));
+		Assertions.assertEquals(sketch,new QuantileSketch().merge(sketch));
+		Assertions.assertEquals(new QuantileSketch(),new QuantileSketch().merge(new QuantileSketch()));
+	}
+
+	@Test
+	@DisplayName("Merge sketches with different relative accuracy must raise IllegalArgumentException")
+	@SuppressWarnings("ThrowableResultIgnored")
+	public void mergeDifferentAccuracy(){
+
+		final QuantileSketch sketch=new QuantileSketch(0.01d,128);
+
+		Assertions.assertTrue(sketch.isMergeable(new QuantileSketch(0.01d,64)));
+		Assertions.assertFalse(sketch.isMergeable(new QuantileSketch(0.02d,128)));
+		final Exception exception=Assertions.assertThrows(IllegalArgumentException.class, () -> sketch.merge(new QuantileSketch(0.02d,128)));
+		Assertions.assertEquals("Can not merge sketch with relative accuracy 0.02 into sketch with relative accuracy 0.01",exception.getMessage());
+	}
+
+	@ParameterizedTest(name ="When record values from 1 to 10^12 with {0} maximum buckets the buckets must be bounded and the high quantiles accurate")
+	@ValueSource(ints={1,16,64,256})
+	public void bounded(final int _maxBuckets){
+
+		final QuantileSketch sketch=new QuantileSketch(0.01d,_maxBuckets);
+		final QuantileSketch[] parts={new QuantileSketch(0.01d,_maxBuckets),new QuantileSketch(0.01d,_maxBuckets)};
+		final double[] values=new Random(17).doubles(100000,0.0d,12.0d).map(exponent -> Math.pow(10.0d,exponent)).toArray();
+		for(int ic1=0;ic1<values.length;ic1++){
+			sketch.record(values[ic1]);
+			parts[ic1%2].record(values[ic1]);
+		}
+		final QuantileSketch merged=parts[0].merge(parts[1]);
+
+		Arrays.sort(values);
+		Assertions.assertTrue(sketch.getBuckets()<=_maxBuckets,"buckets "+sketch.getBuckets());
+		Assertions.assertTrue(merged.getBuckets()<=_maxBuckets,"merged buckets "+merged.getBuckets());
+		Assertions.assertEquals(values.length,sketch.getCount());
+		Assertions.assertEquals(values.length,merged.getCount());
+		Assertions.assertEquals(values[values.length-1],sketch.quantile(1.0d));
+		Assertions.assertEquals(values[0],sketch.quantile(0.0d));
+		if(_maxBuckets>=64){
+			final double expected=values[(int)Math.floor(0.99d*(values.length-1))];
+			Assertions.assertEquals(expected,sketch.quantile(0.99d),expected*0.01d*(1.0d+1e-9d));
+			Assertions.assertEquals(expected,merged.quantile(0.99d),expected*0.01d*(1.0d+1e-9d));
+		}
+	}
+
+	@Test
+	@DisplayName("Values decreasing and increasing beyond the initial buckets must keep the counts")
+	public void grow(){
+
+		final QuantileSketch sketch=new QuantileSketch(0.01d,8192);
+		for(int ic1=0;ic1<3000;ic1++){
+			sketch.record(Math.pow(1.0201d,-ic1));
+			sketch.record(Math.pow(1.0201d,ic1));
+		}
+
+		Assertions.assertEquals(6000l,sketch.getCount());
+		Assertions.assertEquals(1.0d,sketch.quantile(0.5d),0.01d);
+		Assertions.assertEquals(Math.pow(1.0201d,2999),sketch.quantile(1.0d));
+		Assertions.assertEquals(Math.pow(1.0201d,-2999),sketch.quantile(0.0d));
+	}
+
+	@Test
+	@DisplayName("Empty sketch must return 0 for any quantile and NaN values must be ignored")
+	public void empty(){
+
+		final QuantileSketch sketch=new QuantileSketch().record(Double.NaN);
+
+		Assertions.assertEquals(0l,sketch.getCount());
+		Assertions.assertEquals(0,sketch.getBuckets());
+		Assertions.assertEquals(0.0d,sketch.quantile(0.5d));
+		Assertions.assertEquals(new QuantileSketch(),sketch);
+	}
+
+	@Test
+	@DisplayName("Copy must be independent and reset must remove all the values")
+	public void copyAndReset(){
+
+		final QuantileSketch sketch=new QuantileSketch().record(1.0d).record(3.0d);
+		final QuantileSketch copy=sketch.copy();
+		sketch.record(11.0d);
+
+		Assertions.assertEquals(2l,copy.getCount());
+		Assertions.assertEquals(3.0d,copy.quantile(1.0d));
+		Assertions.assertEquals(3l,sketch.getCount());
+		Assertions.assertEquals(new QuantileSketch(),sketch.reset());
+		Assertions.assertEquals(0.0d,sketch.quantile(1.0d));
+		Assertions.assertEquals(5.0d,sketch.record(5.0d).quantile(0.5d));
+	}
+
+	@ParameterizedTest(name ="When request quantile {0} an IllegalArgumentException must be raised")
+	@ValueSource(doubles={-0.1d,1.1d,Double.NaN})
+	@SuppressWarnings("ThrowableResultIgnored")
+	public void invalidQuantile(final double _quantile){
+
+		final Exception exception=Assertions.assertThrows(IllegalArgumentException.class, () -> new QuantileSketch().quantile(_quantile));
+		Assertions.assertEquals("Quantile "+_quantile+" must be between 0 and 1",exception.getMessage());
+	}
+
+	static Stream<Arguments> constructorFailureDatapack() {
+	    return Stream.of(
+			Arguments.of(0.0d,128,"Relative accuracy 0.0 must be between 0 and 1"),
+			Arguments.of(1.0d,128,"Relative accuracy 1.0 must be between 0 and 1"),
+			Arguments.of(Double.NaN,128,"Relative accuracy NaN must be between 0 and 1"),
+			Arguments.of(0.01d,0,"Maximum buckets 0 must be positive"),
+			Arguments.of(0.01d,-1,"Maximum buckets -1 must be positive")
+		);
+	}
+	@ParameterizedTest(name ="When create sketch with relative accuracy {0} and maximum buckets {1} an IllegalArgumentException must be raised")
+	@MethodSource("constructorFailureDatapack")
+	@SuppressWarnings("ThrowableResultIgnored")
+	public void constructorFailure(final double _relativeAccuracy,final int _maxBuckets,final String _message){
+
+		final Exception exception=Assertions.assertThrows(IllegalArgumentException.class, () -> new QuantileSketch(_relativeAccuracy,_maxBuckets));
+		Assertions.assertEquals(_message,exception.getMessage());
+	}
+
+	@Test
+	@DisplayName("toString must show the relative accuracy, count, buckets and main quantiles")
+	public void toStringTest(){
+
+		Assertions.assertEquals("QuantileSketch[relativeAccuracy=0.01, count=2, buckets=2, p50=1.0, p90=1.0, p99=1.0, p999=1.0]",new QuantileSketch().record(1.0d).record(3.0d).toString());
+	}
+}
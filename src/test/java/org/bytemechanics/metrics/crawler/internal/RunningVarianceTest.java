@@ -0,0 +1,164 @@
+/*
+ * Copyright 2020 Byte Mechanics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bytemechanics.metrics.crawler.internal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.logging.LogManager;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInfo;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+/**
+ *
+ * @author afarre
+ */
+public class RunningVarianceTest {
+
+	@BeforeAll
+	public static void setup() throws IOException{
+		System.out.println(">>>>> RunningVarianceTest >>>> setup");
+		try(InputStream inputStream = RunningVarianceTest.class.getResourceAsStream("/logging.properties")){
+			LogManager.getLogManager().readConfiguration(inputStream);
+		}catch (final IOException e){
+			Logger.getAnonymousLogger().severe("Could not load default logging.properties file");
+			Logger.getAnonymousLogger().severe(e.getMessage());
+		}
+	}
+
+	@BeforeEach
+    void beforeEachTest(final TestInfo testInfo) {
+        System.out.println(">>>>> "+this.getClass().getSimpleName()+" >>>> "+testInfo.getTestMethod().map(Method::getName).orElse("Unkown")+""+testInfo.getTags().toString()+" >>>> "+testInfo.getDisplayName());
+    }
+
+
+	private static double variance(final double[] _values){
+		final double mean=Arrays.stream(_values).average().orElse(0.0d);
+		return (_values.length>1)? Arrays.stream(_values).map(value -> (value-mean)*(value-mean)).sum()/(_values.length-1) : 0.0d;
+	}
+
+	static Stream<Arguments> valuesDatapack() {
+	    return Stream.of(
+			Arguments.of(new double[]{}),
+			Arguments.of(new double[]{7.0d}),
+			Arguments.of(new double[]{2.0d,4.0d,4.0d,4.0d,5.0d,5.0d,7.0d,9.0d}),
+			Arguments.of(new double[]{-3.5d,1.25d,0.0d,8.75d,-12.0d}),
+			Arguments.of(new double[]{1_000_000_004.0d,1_000_000_007.0d,1_000_000_013.0d,1_000_000_016.0d}),
+			Arguments.of(new Random(7).doubles(1000,0.0d,1_000_000.0d).toArray())
+		);
+	}
+
+	@ParameterizedTest(name ="When record {0} the mean and variance must be the same than the two-pass computation")
+	@MethodSource("valuesDatapack")
+	public void record(final double[] _values){
+
+		final RunningVariance variance=new RunningVariance();
+		for(double value:_values){
+			variance.record(value);
+		}
+
+		final double expected=variance(_values);
+		Assertions.assertEquals(_values.length,variance.getCount());
+		Assertions.assertEquals(Arrays.stream(_values).average().orElse(0.0d),variance.getMean(),1e-6d);
+		Assertions.assertEquals(expected,variance.getVariance(),Math.max(1e-9d,expected*1e-9d));
+		Assertions.assertEquals(Math.sqrt(expected),variance.getStdDeviation(),Math.max(1e-9d,Math.sqrt(expected)*1e-9d));
+	}
+
+	@ParameterizedTest(name ="When merge {0} split in {1} parts the result must be the same than recording all of them")
+	@MethodSource("mergeDatapack")
+	public void merge(final double[] _values,final int _parts){
+
+		final RunningVariance expected=new RunningVariance();
+		final RunningVariance[] parts=new RunningVariance[_parts];
+		for(int ic1=0;ic1<_parts;ic1++){
+			parts[ic1]=new RunningVariance();
+		}
+		for(int ic1=0;ic1<_values.length;ic1++){
+			expected.record(_values[ic1]);
+			parts[ic1%_parts].record(_values[ic1]);
+		}
+		final RunningVariance merged=new RunningVariance();
+		for(RunningVariance part:parts){
+			merged.merge(part);
+		}
+
+		Assertions.assertEquals(expected.getCount(),merged.getCount());
+		Assertions.assertEquals(expected.getMean(),merged.getMean(),1e-6d);
+		Assertions.assertEquals(expected.getVariance(),merged.getVariance(),Math.max(1e-9d,expected.getVariance()*1e-9d));
+	}
+	static Stream<Arguments> mergeDatapack() {
+	    return valuesDatapack()
+				.flatMap(arguments -> Stream.of(1,2,3,16)
+												.map(parts -> Arguments.of(arguments.get()[0],parts)));
+	}
+
+	@Test
+	@DisplayName("Merge with empty running variances must not change the result")
+	public void mergeEmpty(){
+
+		final RunningVariance variance=new RunningVariance().record(1.0d).record(3.0d);
+
+		Assertions.assertEquals(variance,variance.copy().merge(new RunningVariance()));
+		Assertions.assertEquals(variance,new RunningVariance().merge(variance));
+		Assertions.assertEquals(new RunningVariance(),new RunningVariance().merge(new RunningVariance()));
+	}
+
+	@Test
+	@DisplayName("Copy must be independent and reset must remove all the values")
+	public void copyAndReset(){
+
+		final RunningVariance variance=new RunningVariance().record(1.0d).record(3.0d);
+		final RunningVariance copy=variance.copy();
+		variance.record(11.0d);
+
+		Assertions.assertEquals(2l,copy.getCount());
+		Assertions.assertEquals(2.0d,copy.getMean());
+		Assertions.assertEquals(2.0d,copy.getVariance());
+		Assertions.assertEquals(3l,variance.getCount());
+		Assertions.assertEquals(new RunningVariance(),variance.reset());
+		Assertions.assertEquals(0.0d,variance.getVariance());
+	}
+
+	@Test
+	@DisplayName("Running variance of huge offset values must keep the precision")
+	public void stability(){
+
+		final RunningVariance variance=new RunningVariance();
+		for(int ic1=0;ic1<1_000_000;ic1++){
+			variance.record(1e12d+(ic1%2));
+		}
+
+		Assertions.assertEquals(0.25d,variance.getVariance(),1e-6d);
+	}
+
+	@Test
+	@DisplayName("toString must show the count, mean, variance and standard deviation")
+	public void toStringTest(){
+
+		Assertions.assertEquals("RunningVariance[count=2, mean=2.0, variance=2.0, stdDeviation=1.4142135623730951]",new RunningVariance().record(1.0d).record(3.0d).toString());
+	}
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2020 Byte Mechanics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bytemechanics.metrics.crawler.internal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.util.logging.LogManager;
+import java.util.logging.Logger;
+import mockit.Mocked;
+import mockit.Verifications;
+import org.bytemechanics.metrics.crawler.MetricHandle;
+import org.bytemechanics.metrics.crawler.MetricsService;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInfo;
+
+/**
+ * @author afarre
+ */
+public class ServiceMetricHandleTest {
+
+	@BeforeAll
+	public static void setup() throws IOException{
+		System.out.println(">>>>> ServiceMetricHandleTest >>>> setup");
+		try(InputStream inputStream = ServiceMetricHandleTest.class.getResourceAsStream("/logging.properties")){
+			LogManager.getLogManager().readConfiguration(inputStream);
+		}catch (final IOException e){
+			Logger.getAnonymousLogger().severe("Could not load default logging.properties file");
+			Logger.getAnonymousLogger().severe(e.getMessage());
+		}
+	}
+
+	@BeforeEach
+    void beforeEachTest(final TestInfo testInfo) {
+        System.out.println(">>>>> "+this.getClass().getSimpleName()+" >>>> "+testInfo.getTestMethod().map(Method::getName).orElse("Unkown")+""+testInfo.getTags().toString()+" >>>> "+testInfo.getDisplayName());
+    }
+
+
+	@Test
+	@DisplayName("Create a ServiceMetricHandle with null service or name should raise a NullPointerException")
+	@SuppressWarnings("ThrowableResultIgnored")
+	public void constructorNullControl(@Mocked MetricsService _metricsService){
+		
+		Assertions.assertThrows(NullPointerException.class,() -> new ServiceMetricHandle(null,"a"));
+		Assertions.assertThrows(NullPointerException.class,() -> new ServiceMetricHandle(_metricsService,null));
+	}
+
+	@Test
+	@DisplayName("The ServiceMetricHandle must delegate into the primitive register methods with the built name")
+	public void delegate(@Mocked MetricsService _metricsService){
+		
+		final MetricHandle handle=new ServiceMetricHandle(_metricsService,"db.orders.query");
+		handle.record(1l);
+		handle.record(2.0d);
+		handle.recordDuration(3l);
+		handle.time().close();
+		
+		Assertions.assertEquals("db.orders.query",handle.getName());
+		Assertions.assertEquals("ServiceMetricHandle[name=db.orders.query]",handle.toString());
+		new Verifications() {{
+			_metricsService.registerMeasure("db.orders.query",1l); times=1;
+			_metricsService.registerMeasure("db.orders.query",2.0d); times=1;
+			_metricsService.registerDuration("db.orders.query",3l); times=1;
+			_metricsService.registerDuration("db.orders.query",anyLong); times=2;
+		}};
+	}
+}
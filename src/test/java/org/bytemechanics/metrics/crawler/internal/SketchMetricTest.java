@@ -0,0 +1,278 @@
+/*
+ * Copyright 2020 Byte Mechanics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bytemechanics.metrics.crawler.internal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.LogManager;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import org.bytemechanics.metrics.crawler.MeasureReducer;
+import org.bytemechanics.metrics.crawler.beans.MetricReading;
+import org.bytemechanics.metrics.crawler.beans.MetricSnapshot;
+import org.bytemechanics.metrics.crawler.exceptions.IncorrectMeasureType;
+import org.bytemechanics.metrics.crawler.internal.commons.string.SimpleFormat;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInfo;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+/**
+ *
+ * @author afarre
+ */
+public class SketchMetricTest {
+
+	@BeforeAll
+	public static void setup() throws IOException{
+		System.out.println(">>>>> SketchMetricTest >>>> setup");
+		try(InputStream inputStream = SketchMetricTest.class.getResourceAsStream("/logging.properties")){
+			LogManager.getLogManager().readConfiguration(inputStream);
+		}catch (final IOException e){
+			Logger.getAnonymousLogger().severe("Could not load default logging.properties file");
+			Logger.getAnonymousLogger().severe(e.getMessage());
+		}
+	}
+
+	@BeforeEach
+    void beforeEachTest(final TestInfo testInfo) {
+        System.out.println(">>>>> "+this.getClass().getSimpleName()+" >>>> "+testInfo.getTestMethod().map(Method::getName).orElse("Unkown")+""+testInfo.getTags().toString()+" >>>> "+testInfo.getDisplayName());
+    }
+
+
+	static Stream<Arguments> metricBuilderDatapack() {
+	    return Stream.of(
+					Arguments.of("a",MeasureReducers.DURATION.get(Duration.class)),
+					Arguments.of("c",MeasureReducers.LONG.get(Long.class)),
+					Arguments.of("fdsf",MeasureReducers.DOUBLE.get(Double.class)),
+					Arguments.of("h",MeasureReducers.HISTOGRAM_LONG.get(Long.class))
+				);
+	}
+	@ParameterizedTest(name ="When SketchMetric is created with _name:{0},_reducer:{1} the getName() returns {0}, getHits() returns 0 and getReducer() returns {1}")
+	@MethodSource("metricBuilderDatapack")
+	@SuppressWarnings("unchecked")
+	public void constructor(final String _name,final MeasureReducer _reducer){
+
+		final SketchMetric instance=new SketchMetric(_name,_reducer);
+
+		Assertions.assertEquals(_name,instance.getName());
+		Assertions.assertEquals(0,instance.getHits());
+		Assertions.assertEquals(_reducer,instance.getReducer());
+		Assertions.assertEquals(SimpleFormat.format("SketchMetric[name={}, hits={}, relativeAccuracy={}, reducer={}]",_name,0,QuantileSketch.DEFAULT_RELATIVE_ACCURACY,_reducer),instance.toString());
+	}
+	@ParameterizedTest(name ="When SketchMetric is created with _name:{0},_reducer:{1} without measures toSnapshot() returns the default snapshot")
+	@MethodSource("metricBuilderDatapack")
+	@SuppressWarnings("unchecked")
+	public void emptySnapshot(final String _name,final MeasureReducer _reducer){
+
+		final SketchMetric instance=new SketchMetric(_name,_reducer);
+
+		Assertions.assertEquals(MetricSnapshot.builder(_reducer).name(_name).build(),instance.toSnapshot());
+		Assertions.assertNull(instance.toSnapshot().getQuantile(0.5d));
+		Assertions.assertEquals(0l,instance.sketch().getCount());
+	}
+
+	static Stream<Arguments> metricFailureBuilderDatapack() {
+	    return Stream.of(
+					Arguments.of(null, MeasureReducers.DURATION.get(Duration.class), 0.01d, 128, new NullPointerException("Name can not be null to create a Metric")),
+					Arguments.of("ab", null, 0.01d, 128, new NullPointerException(SimpleFormat.format("Metric {} reducer can not be null to create a Metric","ab"))),
+					Arguments.of("ab", new TextReducer(), 0.01d, 128, new IllegalArgumentException("Metric ab reducer TextReducer must be a LongReducer or a DoubleReducer to keep a quantile sketch")),
+					Arguments.of("ab", MeasureReducers.LONG.get(Long.class), 1.5d, 128, new IllegalArgumentException("Relative accuracy 1.5 must be between 0 and 1")),
+					Arguments.of("ab", MeasureReducers.LONG.get(Long.class), 0.01d, 0, new IllegalArgumentException("Maximum buckets 0 must be positive"))
+				);
+	}
+	@ParameterizedTest(name ="Try to create with SketchMetric with _name:{0},_reducer:{1},_relativeAccuracy:{2},_maxBuckets:{3} should raise {4}")
+	@MethodSource("metricFailureBuilderDatapack")
+	@SuppressWarnings({"ThrowableResultIgnored","unchecked"})
+	public void contructorControl(final String _name,final MeasureReducer _reducer,final double _relativeAccuracy,final int _maxBuckets,final Exception _expected){
+
+		final Exception exception=Assertions.assertThrows(_expected.getClass()
+															,() -> new SketchMetric(_name,_relativeAccuracy,_maxBuckets,_reducer)
+															,_expected.toString());
+		Assertions.assertEquals(_expected.getMessage(),exception.getMessage());
+	}
+
+	@Test
+	@DisplayName("When register a measure of incorrect type an IncorrectMeasureType must be raised and the sketch must not change")
+	@SuppressWarnings({"ThrowableResultIgnored","unchecked"})
+	public void incorrectMeasure(){
+
+		final SketchMetric metric=new SketchMetric("c",MeasureReducers.DURATION.get(Duration.class));
+
+		Assertions.assertThrows(IncorrectMeasureType.class,() -> metric.addMeasure(LocalDateTime.now(),3l));
+		Assertions.assertEquals(0l,metric.sketch().getCount());
+	}
+
+	@Test
+	@DisplayName("When several threads register measures at the same time the quantiles merged from the stripes must be within the sketch relative accuracy")
+	@SuppressWarnings("unchecked")
+	public void concurrentQuantiles() throws Exception{
+
+		final int threads=8;
+		final int measures=10000;
+		final SketchMetric<Long> metric=new SketchMetric<>("mNAme",MeasureReducers.LONG.get(Long.class));
+		final ExecutorService executor=Executors.newFixedThreadPool(threads);
+		try{
+			final List<Callable<Void>> tasks=new ArrayList<>();
+			for(int ic1=0;ic1<threads;ic1++){
+				tasks.add(() -> {
+					for(long ic2=1;ic2<=measures;ic2++){
+						metric.addMeasure(LocalDateTime.now(),ic2);
+					}
+					return null;
+				});
+			}
+			for(Future<Void> future:executor.invokeAll(tasks)){
+				future.get();
+			}
+		}finally{
+			executor.shutdown();
+		}
+
+		final MetricSnapshot<Long> snapshot=metric.toSnapshot();
+		Assertions.assertEquals(threads*measures,snapshot.getTotalHits());
+		Assertions.assertEquals(threads*measures,snapshot.getSketch().getCount());
+		Assertions.assertEquals(1l,snapshot.getQuantile(0.0d));
+		Assertions.assertEquals(5000.0d,snapshot.getQuantile(0.5d),5000.0d*QuantileSketch.DEFAULT_RELATIVE_ACCURACY);
+		Assertions.assertEquals(9000.0d,snapshot.getPercentile90Measure(),9000.0d*QuantileSketch.DEFAULT_RELATIVE_ACCURACY);
+		Assertions.assertEquals(9990.0d,snapshot.getQuantile(0.999d),9990.0d*QuantileSketch.DEFAULT_RELATIVE_ACCURACY);
+		Assertions.assertEquals(9999.0d,snapshot.getQuantile(0.9999d),9999.0d*QuantileSketch.DEFAULT_RELATIVE_ACCURACY);
+		Assertions.assertEquals(10000l,snapshot.getQuantile(1.0d));
+		Assertions.assertEquals(5000l,snapshot.getAverageMeasure());
+		Assertions.assertNull(snapshot.getHistogram());
+	}
+
+	@Test
+	@DisplayName("Duration sketch metric must provide the quantiles as durations")
+	@SuppressWarnings("unchecked")
+	public void durationQuantiles(){
+
+		final SketchMetric<Duration> metric=new SketchMetric<>("mNAme",0.001d,QuantileSketch.DEFAULT_MAX_BUCKETS,MeasureReducers.DURATION.get(Duration.class));
+		for(int ic1=1;ic1<=1000;ic1++){
+			metric.addDurationMeasure(Timestamps.now(),ic1*1_000_000l);
+		}
+
+		final MetricSnapshot<Duration> snapshot=metric.toSnapshot();
+		Assertions.assertEquals(0.001d,snapshot.getSketch().getRelativeAccuracy());
+		Assertions.assertEquals(500_000_000.0d,snapshot.getQuantile(0.5d).toNanos(),500_000.0d);
+		Assertions.assertEquals(990_000_000.0d,snapshot.getPercentile(99.0d).toNanos(),990_000.0d);
+		Assertions.assertEquals(MeasureReducers.DURATION.get(Duration.class).toString(snapshot.getQuantile(0.5d)),snapshot.getFormatedQuantile(0.5d));
+	}
+
+	@Test
+	@DisplayName("Double sketch metric must provide the quantiles of measures with wide dynamic range")
+	@SuppressWarnings("unchecked")
+	public void wideRangeQuantiles(){
+
+		final SketchMetric<Double> metric=new SketchMetric<>("mNAme",MeasureReducers.DOUBLE.get(Double.class));
+		for(int ic1=-6;ic1<=9;ic1++){
+			metric.addMeasure(LocalDateTime.now(),Math.pow(10.0d,ic1));
+		}
+
+		final MetricSnapshot<Double> snapshot=metric.toSnapshot();
+		Assertions.assertEquals(1e-6d,snapshot.getQuantile(0.0d));
+		Assertions.assertEquals(1e-5d,snapshot.getQuantile(0.1d),1e-5d*QuantileSketch.DEFAULT_RELATIVE_ACCURACY);
+		Assertions.assertEquals(1e1d,snapshot.getQuantile(0.5d),1e1d*QuantileSketch.DEFAULT_RELATIVE_ACCURACY);
+		Assertions.assertEquals(1e8d,snapshot.getQuantile(0.95d),1e8d*QuantileSketch.DEFAULT_RELATIVE_ACCURACY);
+		Assertions.assertEquals(1e9d,snapshot.getQuantile(1.0d));
+		Assertions.assertEquals(16,snapshot.getSketch().getBuckets());
+	}
+
+	@Test
+	@DisplayName("Snapshots of different sketch metrics must be reduced merging its sketches")
+	@SuppressWarnings("unchecked")
+	public void reduce(){
+
+		final SketchMetric<Long> metric1=new SketchMetric<>("mNAme",MeasureReducers.LONG.get(Long.class));
+		final SketchMetric<Long> metric2=new SketchMetric<>("mNAme",MeasureReducers.LONG.get(Long.class));
+		final QuantileSketch expected=new QuantileSketch();
+		for(long ic1=1;ic1<=1000;ic1++){
+			((ic1%3==0)? metric1 : metric2).addMeasure(LocalDateTime.now(),ic1);
+			expected.record(ic1);
+		}
+
+		final MetricSnapshot<Long> reduced=metric1.toSnapshot().reduce(metric2.toSnapshot());
+		Assertions.assertEquals(expected,reduced.getSketch());
+		Assertions.assertEquals(1000l,reduced.getSamplingSize());
+		Assertions.assertEquals(Math.round(expected.quantile(0.99d)),reduced.getQuantile(0.99d));
+	}
+
+	@Test
+	@DisplayName("The reading of a sketch metric must be filled from its snapshot to provide the quantiles")
+	public void read(){
+
+		final SketchMetric<Long> metric=new SketchMetric<>("mNAme",MeasureReducers.LONG.get(Long.class));
+		for(long ic1=1;ic1<=100;ic1++){
+			metric.addLongMeasure(Timestamps.now(),ic1);
+		}
+
+		final MetricReading reading=metric.read(new MetricReading());
+		Assertions.assertEquals(new MetricReading().snapshotValues(metric.toSnapshot()).toString(),reading.toString());
+		Assertions.assertNotNull(reading.getSnapshot());
+		Assertions.assertEquals(metric.toSnapshot().getQuantile(0.99d),reading.getSnapshot().getQuantile(0.99d));
+	}
+
+
+	private static class TextReducer implements MeasureReducer<String>{
+		@Override
+		public Class getType() {
+			return String.class;
+		}
+		@Override
+		public String identity() {
+			return "";
+		}
+		@Override
+		public Optional<String> accumulate(final String _val1,final String _val2) {
+			return MeasureReducers.secureApply(_val1, _val2, String::concat);
+		}
+		@Override
+		public Optional<String> max(final String _val1,final String _val2) {
+			return MeasureReducers.secureApply(_val1, _val2, (val1,val2) -> (val1.compareTo(val2)>=0)? val1 : val2);
+		}
+		@Override
+		public Optional<String> min(final String _val1,final String _val2) {
+			return MeasureReducers.secureApply(_val1, _val2, (val1,val2) -> (val1.compareTo(val2)<=0)? val1 : val2);
+		}
+		@Override
+		public Optional<String> average(final String _val,final long _hits) {
+			return Optional.ofNullable(_val);
+		}
+		@Override
+		public String toString(final String _val) {
+			return _val;
+		}
+		@Override
+		public String toString() {
+			return "TextReducer";
+		}
+	}
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2020 Byte Mechanics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bytemechanics.metrics.crawler.internal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.LogManager;
+import java.util.logging.Logger;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInfo;
+
+/**
+ * @author afarre
+ */
+public class ThreadLocalPoolTest {
+
+	@BeforeAll
+	public static void setup() throws IOException{
+		System.out.println(">>>>> ThreadLocalPoolTest >>>> setup");
+		try(InputStream inputStream = ThreadLocalPoolTest.class.getResourceAsStream("/logging.properties")){
+			LogManager.getLogManager().readConfiguration(inputStream);
+		}catch (final IOException e){
+			Logger.getAnonymousLogger().severe("Could not load default logging.properties file");
+			Logger.getAnonymousLogger().severe(e.getMessage());
+		}
+	}
+
+	@BeforeEach
+    void beforeEachTest(final TestInfo testInfo) {
+        System.out.println(">>>>> "+this.getClass().getSimpleName()+" >>>> "+testInfo.getTestMethod().map(Method::getName).orElse("Unkown")+""+testInfo.getTags().toString()+" >>>> "+testInfo.getDisplayName());
+    }
+
+
+	@Test
+	@DisplayName("Create a pool with null factory or non positive capacity should raise an exception")
+	@SuppressWarnings("ThrowableResultIgnored")
+	public void constructorControl(){
+
+		Assertions.assertThrows(NullPointerException.class,() -> new ThreadLocalPool<>(1,null));
+		Assertions.assertThrows(IllegalArgumentException.class,() -> new ThreadLocalPool<>(0,Object::new));
+		Assertions.assertThrows(IllegalArgumentException.class,() -> new ThreadLocalPool<>(-1,Object::new));
+	}
+
+	@Test
+	@DisplayName("An empty pool must create new instances and the released instances must be reused in reverse order")
+	public void acquireRelease(){
+
+		final AtomicInteger created=new AtomicInteger();
+		final ThreadLocalPool<Object> pool=new ThreadLocalPool<>(4,() -> {created.incrementAndGet(); return new Object();});
+
+		final Object first=pool.acquire();
+		final Object second=pool.acquire();
+		Assertions.assertNotSame(first,second);
+		Assertions.assertEquals(2,created.get());
+		pool.release(first);
+		pool.release(second);
+		Assertions.assertEquals(2,pool.size());
+		Assertions.assertSame(second,pool.acquire());
+		Assertions.assertSame(first,pool.acquire());
+		Assertions.assertEquals(0,pool.size());
+		Assertions.assertEquals(2,created.get());
+	}
+
+	@Test
+	@DisplayName("When the pool is full the released instances must be discarded")
+	public void releaseFull(){
+
+		final ThreadLocalPool<Object> pool=new ThreadLocalPool<>(2,Object::new);
+		pool.release(new Object());
+		pool.release(new Object());
+		pool.release(new Object());
+
+		Assertions.assertEquals(2,pool.size());
+	}
+
+	@Test
+	@DisplayName("Each thread must have its own pool")
+	public void perThread() throws Exception{
+
+		final ThreadLocalPool<Object> pool=new ThreadLocalPool<>(2,Object::new);
+		final Object instance=new Object();
+		pool.release(instance);
+		final ExecutorService executor=Executors.newSingleThreadExecutor();
+		try{
+			Assertions.assertEquals(0,(int)executor.submit(pool::size).get());
+			Assertions.assertNotSame(instance,executor.submit(pool::acquire).get());
+		}finally{
+			executor.shutdown();
+		}
+		Assertions.assertSame(instance,pool.acquire());
+	}
+}
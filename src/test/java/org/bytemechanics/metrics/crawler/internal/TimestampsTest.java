@@ -0,0 +1,126 @@
+/*
+ * Copyright 2020 Byte Mechanics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bytemechanics.metrics.crawler.internal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.logging.LogManager;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInfo;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+/**
+ *
+ * @author afarre
+ */
+public class TimestampsTest {
+
+	@BeforeAll
+	public static void setup() throws IOException{
+		System.out.println(">>>>> TimestampsTest >>>> setup");
+		try(InputStream inputStream = TimestampsTest.class.getResourceAsStream("/logging.properties")){
+			LogManager.getLogManager().readConfiguration(inputStream);
+		}catch (final IOException e){
+			Logger.getAnonymousLogger().severe("Could not load default logging.properties file");
+			Logger.getAnonymousLogger().severe(e.getMessage());
+		}
+	}
+
+	@BeforeEach
+    void beforeEachTest(final TestInfo testInfo) {
+        System.out.println(">>>>> "+this.getClass().getSimpleName()+" >>>> "+testInfo.getTestMethod().map(Method::getName).orElse("Unkown")+""+testInfo.getTags().toString()+" >>>> "+testInfo.getDisplayName());
+    }
+
+
+	static Stream<Arguments> conversionDatapack() {
+	    return Stream.of(
+					Arguments.of(LocalDateTime.of(1970,1,1,0,0),0l),
+					Arguments.of(LocalDateTime.of(1970,1,1,0,0,1),1_000_000_000l),
+					Arguments.of(LocalDateTime.of(1969,12,31,23,59,59,999_999_999),-1l),
+					Arguments.of(LocalDateTime.of(2020,2,29,13,45,30,123_456_789),1582983930123456789l),
+					Arguments.of(LocalDateTime.of(1677,9,21,0,12,43,145_224_192),Long.MIN_VALUE),
+					Arguments.of(LocalDateTime.of(2262,4,11,23,47,16,854_775_807),Long.MAX_VALUE)
+				);
+	}
+	@ParameterizedTest(name ="When {0} is converted to timestamp the result must be {1} and converted back must be {0}")
+	@MethodSource("conversionDatapack")
+	public void conversion(final LocalDateTime _localDateTime,final long _timestamp){
+
+		Assertions.assertEquals(_timestamp,Timestamps.toTimestamp(_localDateTime));
+		Assertions.assertEquals(_localDateTime,Timestamps.toLocalDateTime(_timestamp));
+	}
+
+	static Stream<Arguments> outOfRangeDatapack() {
+	    return Stream.of(
+					Arguments.of(LocalDateTime.of(1,1,1,1,1)),
+					Arguments.of(LocalDateTime.of(1677,9,21,0,12,43,145_224_191)),
+					Arguments.of(LocalDateTime.of(2262,4,11,23,47,16,854_775_808)),
+					Arguments.of(LocalDateTime.MAX)
+				);
+	}
+	@ParameterizedTest(name ="When {0} is converted to timestamp an ArithmeticException must be raised")
+	@MethodSource("outOfRangeDatapack")
+	@SuppressWarnings("ThrowableResultIgnored")
+	public void outOfRange(final LocalDateTime _localDateTime){
+
+		Assertions.assertThrows(ArithmeticException.class,() -> Timestamps.toTimestamp(_localDateTime));
+	}
+
+	static Stream<Arguments> representableDatapack() {
+	    return Stream.of(
+					Arguments.of(LocalDateTime.of(1,1,1,1,1),false),
+					Arguments.of(LocalDateTime.of(1677,12,31,23,59),false),
+					Arguments.of(LocalDateTime.of(1678,1,1,0,0),true),
+					Arguments.of(LocalDateTime.of(2020,2,29,12,30),true),
+					Arguments.of(LocalDateTime.of(2261,12,31,23,59),true),
+					Arguments.of(LocalDateTime.of(2262,1,1,0,0),false),
+					Arguments.of(LocalDateTime.MAX,false)
+				);
+	}
+	@ParameterizedTest(name ="When {0} is checked as representable the result must be {1}")
+	@MethodSource("representableDatapack")
+	public void isRepresentable(final LocalDateTime _localDateTime,final boolean _expected){
+
+		Assertions.assertEquals(_expected,Timestamps.isRepresentable(_localDateTime));
+		if(_expected){
+			Assertions.assertEquals(_localDateTime,Timestamps.toLocalDateTime(Timestamps.toTimestamp(_localDateTime)));
+		}
+	}
+
+	@Test
+	@DisplayName("When now() is called the result must be the current local date time")
+	public void now(){
+
+		final LocalDateTime before=LocalDateTime.now().withNano(0);
+		final LocalDateTime actual=Timestamps.toLocalDateTime(Timestamps.now());
+		final LocalDateTime after=LocalDateTime.now().plusSeconds(1);
+
+		Assertions.assertFalse(actual.isBefore(before),actual+" is before "+before);
+		Assertions.assertFalse(actual.isAfter(after),actual+" is after "+after);
+		Assertions.assertTrue(Duration.between(actual,Timestamps.toLocalDateTime(Timestamps.now())).toNanos()>=0);
+	}
+}
@@ -0,0 +1,393 @@
+/*
+ * Copyright 2020 Byte Mechanics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bytemechanics.metrics.crawler.internal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.LogManager;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import org.bytemechanics.metrics.crawler.LongReducer;
+import org.bytemechanics.metrics.crawler.MeasureReducer;
+import org.bytemechanics.metrics.crawler.beans.MetricReading;
+import org.bytemechanics.metrics.crawler.beans.MetricSnapshot;
+import org.bytemechanics.metrics.crawler.exceptions.IncorrectSamplingSize;
+import org.bytemechanics.metrics.crawler.internal.commons.string.SimpleFormat;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInfo;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ *
+ * @author afarre
+ */
+public class WindowedMetricTest {
+
+	private static final long BASE=Timestamps.toTimestamp(LocalDateTime.of(2020,1,1,0,0));
+
+	@BeforeAll
+	public static void setup() throws IOException{
+		System.out.println(">>>>> WindowedMetricTest >>>> setup");
+		try(InputStream inputStream = WindowedMetricTest.class.getResourceAsStream("/logging.properties")){
+			LogManager.getLogManager().readConfiguration(inputStream);
+		}catch (final IOException e){
+			Logger.getAnonymousLogger().severe("Could not load default logging.properties file");
+			Logger.getAnonymousLogger().severe(e.getMessage());
+		}
+	}
+
+	@BeforeEach
+    void beforeEachTest(final TestInfo testInfo) {
+        System.out.println(">>>>> "+this.getClass().getSimpleName()+" >>>> "+testInfo.getTestMethod().map(Method::getName).orElse("Unkown")+""+testInfo.getTags().toString()+" >>>> "+testInfo.getDisplayName());
+    }
+
+	private static long at(final long _millis){
+		return BASE+_millis*1_000_000l;
+	}
+
+
+	static Stream<Arguments> metricBuilderDatapack() {
+	    return Stream.of(
+					Arguments.of("a",MeasureReducers.DURATION.get(Duration.class)),
+					Arguments.of("c",MeasureReducers.LONG.get(Long.class)),
+					Arguments.of("fdsf",MeasureReducers.DOUBLE.get(Double.class)),
+					Arguments.of("x",new CustomLongReducer())
+				);
+	}
+	@ParameterizedTest(name ="When WindowedMetric is created with _name:{0},_reducer:{1} the getName() returns {0}, getHits() returns 0, getReducer() returns {1} and toSnapshot() the default snapshot")
+	@MethodSource("metricBuilderDatapack")
+	@SuppressWarnings("unchecked")
+	public void constructor(final String _name,final MeasureReducer _reducer){
+
+		final WindowedMetric instance=new WindowedMetric(_name,Duration.ofSeconds(10),5,_reducer);
+
+		Assertions.assertEquals(_name,instance.getName());
+		Assertions.assertEquals(0,instance.getHits());
+		Assertions.assertEquals(_reducer,instance.getReducer());
+		Assertions.assertEquals(Duration.ofSeconds(10),instance.getWindow());
+		Assertions.assertEquals(5,instance.getBuckets());
+		Assertions.assertEquals(SimpleFormat.format("WindowedMetric[name={}, hits={}, window={}, buckets={}, reducer={}]",_name,0,Duration.ofSeconds(10),5,_reducer),instance.toString());
+		Assertions.assertEquals(MetricSnapshot.builder(_reducer).name(_name).build(),instance.toSnapshot());
+	}
+
+	static Stream<Arguments> metricFailureBuilderDatapack() {
+	    return Stream.of(
+					Arguments.of(null,Duration.ofSeconds(1),1,MeasureReducers.DURATION.get(Duration.class), new NullPointerException("Name can not be null to create a Metric")),
+					Arguments.of("ab",Duration.ofSeconds(1),1,null, new NullPointerException(SimpleFormat.format("Metric {} reducer can not be null to create a Metric","ab"))),
+					Arguments.of("ab",null,1,MeasureReducers.DURATION.get(Duration.class), new NullPointerException(SimpleFormat.format("Metric {} window can not be null to create a WindowedMetric","ab"))),
+					Arguments.of("ab",Duration.ofSeconds(1),0,MeasureReducers.DURATION.get(Duration.class), new IncorrectSamplingSize("ab",0)),
+					Arguments.of("ab",Duration.ofSeconds(1),-1,MeasureReducers.DURATION.get(Duration.class), new IncorrectSamplingSize("ab",-1)),
+					Arguments.of("ab",Duration.ofNanos(5),10,MeasureReducers.DURATION.get(Duration.class), new IllegalArgumentException(SimpleFormat.format("Metric {} window {} is too short for {} buckets","ab",Duration.ofNanos(5),10))),
+					Arguments.of("ab",Duration.ofSeconds(1),1,MeasureReducers.HISTOGRAM_LONG.get(Long.class), new IllegalArgumentException(SimpleFormat.format("Metric {} reducer {} is an HistogramReducer, a windowed metric can not provide its percentiles","ab",MeasureReducers.HISTOGRAM_LONG.get(Long.class)))),
+					Arguments.of("ab",Duration.ofSeconds(1),1,MeasureReducers.HISTOGRAM_DURATION.get(Duration.class), new IllegalArgumentException(SimpleFormat.format("Metric {} reducer {} is an HistogramReducer, a windowed metric can not provide its percentiles","ab",MeasureReducers.HISTOGRAM_DURATION.get(Duration.class))))
+				);
+	}
+	@ParameterizedTest(name ="Try to create with WindowedMetric with _name:{0},_window:{1},_buckets:{2},_reducer:{3} should raise {4}")
+	@MethodSource("metricFailureBuilderDatapack")
+	@SuppressWarnings({"ThrowableResultIgnored","unchecked"})
+	public void contructorNullControl(final String _name,final Duration _window,final int _buckets,final MeasureReducer _reducer,final Exception _expected){
+
+		final Exception exception=Assertions.assertThrows(_expected.getClass()
+								,() -> new WindowedMetric(_name,_window,_buckets,_reducer));
+		Assertions.assertEquals(_expected.getMessage(),exception.getMessage());
+	}
+
+	static Stream<Arguments> longReducerDatapack() {
+	    return Stream.of(
+					Arguments.of(MeasureReducers.LONG.get(Long.class)),
+					Arguments.of(new CustomLongReducer())
+				);
+	}
+	@ParameterizedTest(name ="When WindowedMetric with reducer {0} registers measures the snapshot must only take in account the measures of the window")
+	@MethodSource("longReducerDatapack")
+	public void window(final MeasureReducer<Long> _reducer){
+
+		final AtomicLong clock=new AtomicLong(at(0));
+		final WindowedMetric<Long> metric=new WindowedMetric<>("mNAme",Duration.ofSeconds(10),10,_reducer,clock::get);
+		metric.addLongMeasure(at(0),1l);
+		clock.set(at(1000));
+		metric.addMeasure(Timestamps.toLocalDateTime(at(1000)),2l);
+		clock.set(at(5000));
+		metric.addLongMeasure(at(5000),3l);
+		clock.set(at(5500));
+		metric.addLongMeasure(at(5500),4l);
+
+		Assertions.assertEquals(MetricSnapshot.builder(_reducer)
+												.name("mNAme")
+												.samplingSize(4l)
+												.totalHits(4l)
+												.accumulatedSamples(10l)
+												.maxMeasure(4l)
+												.minMeasure(1l)
+												.averageMeasure(2l)
+												.lastMeasure(4l)
+												.lastOccurrence(Timestamps.toLocalDateTime(at(5500)))
+											.build()
+								,metric.toSnapshot());
+
+		clock.set(at(10500));
+		Assertions.assertEquals(MetricSnapshot.builder(_reducer)
+												.name("mNAme")
+												.samplingSize(3l)
+												.totalHits(4l)
+												.accumulatedSamples(9l)
+												.maxMeasure(4l)
+												.minMeasure(2l)
+												.averageMeasure(3l)
+												.lastMeasure(4l)
+												.lastOccurrence(Timestamps.toLocalDateTime(at(5500)))
+											.build()
+								,metric.toSnapshot());
+
+		clock.set(at(16000));
+		Assertions.assertEquals(MetricSnapshot.builder(_reducer)
+												.name("mNAme")
+												.totalHits(4l)
+											.build()
+								,metric.toSnapshot());
+
+		clock.set(at(20000));
+		metric.addLongMeasure(at(20000),7l);
+		clock.set(at(10000));
+		metric.addLongMeasure(at(5000),100l);
+		clock.set(at(20000));
+		Assertions.assertEquals(MetricSnapshot.builder(_reducer)
+												.name("mNAme")
+												.samplingSize(1l)
+												.totalHits(6l)
+												.accumulatedSamples(7l)
+												.maxMeasure(7l)
+												.minMeasure(7l)
+												.averageMeasure(7l)
+												.lastMeasure(7l)
+												.lastOccurrence(Timestamps.toLocalDateTime(at(20000)))
+											.build()
+								,metric.toSnapshot());
+		Assertions.assertEquals(6l,metric.getHits());
+	}
+
+	@Test
+	@DisplayName("The snapshot last measure must be the last registered one whatever its timestamp")
+	public void lastMeasure(){
+
+		final AtomicLong clock=new AtomicLong(at(1000));
+		final WindowedMetric<Long> metric=new WindowedMetric<>("mNAme",Duration.ofSeconds(10),10,MeasureReducers.LONG.get(Long.class),clock::get);
+		metric.addLongMeasure(at(3100),9l);
+		metric.addLongMeasure(at(3000),4l);
+		clock.set(at(2000));
+		metric.addLongMeasure(at(2000),5l);
+		clock.set(at(5000));
+
+		final MetricSnapshot<Long> snapshot=metric.toSnapshot();
+		Assertions.assertEquals(5l,snapshot.getLastMeasure());
+		Assertions.assertEquals(Timestamps.toLocalDateTime(at(2000)),snapshot.getLastOccurrence());
+	}
+
+	@Test
+	@DisplayName("When the measure timestamps go back an hour (daylight saving time) the window must keep rotating with the monotonic clock")
+	public void daylightSavingTime(){
+
+		final AtomicLong clock=new AtomicLong(0l);
+		final WindowedMetric<Long> metric=new WindowedMetric<>("mNAme",Duration.ofSeconds(10),10,MeasureReducers.LONG.get(Long.class),clock::get);
+		final LocalDateTime beforeChange=LocalDateTime.of(2020,10,25,2,59,59);
+		metric.addMeasure(beforeChange,1l);
+		clock.addAndGet(Duration.ofSeconds(1).toNanos());
+		metric.addMeasure(beforeChange.minusHours(1).plusSeconds(1),2l);
+		clock.addAndGet(Duration.ofSeconds(1).toNanos());
+		metric.addMeasure(beforeChange.minusHours(1).plusSeconds(2),3l);
+
+		final MetricSnapshot<Long> snapshot=metric.toSnapshot();
+		Assertions.assertEquals(3l,snapshot.getSamplingSize());
+		Assertions.assertEquals(6l,snapshot.getAccumulatedSamples());
+		Assertions.assertEquals(3l,snapshot.getLastMeasure());
+		Assertions.assertEquals(beforeChange.minusHours(1).plusSeconds(2),snapshot.getLastOccurrence());
+		clock.addAndGet(Duration.ofSeconds(9).toNanos());
+		Assertions.assertEquals(1l,metric.toSnapshot().getSamplingSize());
+		clock.addAndGet(Duration.ofSeconds(1).toNanos());
+		Assertions.assertEquals(0l,metric.toSnapshot().getSamplingSize());
+	}
+
+	@ParameterizedTest(name ="When WindowedMetric with {0} buckets registers random primitive measures the snapshot must be the same as registering the boxed measures")
+	@ValueSource(ints = {1,2,7,60})
+	public void samePrimitive(final int _buckets){
+
+		final Random random=new Random(_buckets);
+		final AtomicLong clock=new AtomicLong(at(0));
+		final WindowedMetric<Long> longExpected=new WindowedMetric<>("l",Duration.ofSeconds(60),_buckets,MeasureReducers.LONG.get(Long.class),clock::get);
+		final WindowedMetric<Long> longMetric=new WindowedMetric<>("l",Duration.ofSeconds(60),_buckets,MeasureReducers.LONG.get(Long.class),clock::get);
+		final WindowedMetric<Double> doubleExpected=new WindowedMetric<>("d",Duration.ofSeconds(60),_buckets,MeasureReducers.DOUBLE.get(Double.class),clock::get);
+		final WindowedMetric<Double> doubleMetric=new WindowedMetric<>("d",Duration.ofSeconds(60),_buckets,MeasureReducers.DOUBLE.get(Double.class),clock::get);
+		final WindowedMetric<Duration> durationExpected=new WindowedMetric<>("t",Duration.ofSeconds(60),_buckets,MeasureReducers.DURATION.get(Duration.class),clock::get);
+		final WindowedMetric<Duration> durationMetric=new WindowedMetric<>("t",Duration.ofSeconds(60),_buckets,MeasureReducers.DURATION.get(Duration.class),clock::get);
+		long time=0l;
+		for(int ic1=0;ic1<1000;ic1++){
+			time+=random.nextInt(1000);
+			final long timestamp=at(time);
+			clock.set(timestamp);
+			final long measure=random.nextInt(1000)-500;
+			longExpected.addMeasure(Timestamps.toLocalDateTime(timestamp),measure);
+			longMetric.addLongMeasure(timestamp,measure);
+			doubleExpected.addMeasure(Timestamps.toLocalDateTime(timestamp),measure/3.0d);
+			doubleMetric.addDoubleMeasure(timestamp,measure/3.0d);
+			durationExpected.addMeasure(Timestamps.toLocalDateTime(timestamp),Duration.ofNanos(measure));
+			durationMetric.addDurationMeasure(timestamp,measure);
+
+			Assertions.assertEquals(longExpected.toSnapshot(),longMetric.toSnapshot());
+			Assertions.assertEquals(doubleExpected.toSnapshot(),doubleMetric.toSnapshot());
+			Assertions.assertEquals(durationExpected.toSnapshot(),durationMetric.toSnapshot());
+		}
+	}
+
+	@ParameterizedTest(name ="When WindowedMetric with {0} buckets registers random measures the reading must have the same values than the snapshot")
+	@ValueSource(ints = {1,2,7,60})
+	public void readSameAsSnapshot(final int _buckets){
+
+		final Random random=new Random(_buckets);
+		final AtomicLong clock=new AtomicLong(at(0));
+		final WindowedMetric<Long> longMetric=new WindowedMetric<>("l",Duration.ofSeconds(60),_buckets,MeasureReducers.LONG.get(Long.class),clock::get);
+		final WindowedMetric<Double> doubleMetric=new WindowedMetric<>("d",Duration.ofSeconds(60),_buckets,MeasureReducers.DOUBLE.get(Double.class),clock::get);
+		final WindowedMetric<Duration> durationMetric=new WindowedMetric<>("t",Duration.ofSeconds(60),_buckets,MeasureReducers.DURATION.get(Duration.class),clock::get);
+		final WindowedMetric<Long> customMetric=new WindowedMetric<>("c",Duration.ofSeconds(60),_buckets,new CustomLongReducer(),clock::get);
+		final MetricReading reading=new MetricReading();
+		Assertions.assertEquals(new MetricReading().snapshotValues(longMetric.toSnapshot()).toString(),longMetric.read(reading).toString());
+		Assertions.assertEquals(new MetricReading().snapshotValues(doubleMetric.toSnapshot()).toString(),doubleMetric.read(reading).toString());
+		long time=0l;
+		for(int ic1=0;ic1<500;ic1++){
+			time+=random.nextInt(2000);
+			final long timestamp=at(time);
+			clock.set(timestamp);
+			final long measure=random.nextInt(1000)-500;
+			longMetric.addLongMeasure(timestamp,measure);
+			doubleMetric.addDoubleMeasure(timestamp,measure/3.0d);
+			durationMetric.addDurationMeasure(timestamp,measure);
+			customMetric.addMeasure(Timestamps.toLocalDateTime(timestamp),measure);
+			clock.addAndGet(random.nextInt(2000)*1_000_000l);
+
+			Assertions.assertEquals(new MetricReading().snapshotValues(longMetric.toSnapshot()).toString(),longMetric.read(reading).toString());
+			Assertions.assertEquals(longMetric.toSnapshot().getVariance(),reading.getVariance());
+			Assertions.assertNull(reading.getSnapshot());
+			Assertions.assertEquals(new MetricReading().snapshotValues(doubleMetric.toSnapshot()).toString(),doubleMetric.read(reading).toString());
+			Assertions.assertEquals(doubleMetric.toSnapshot().getVariance(),reading.getVariance());
+			Assertions.assertNull(reading.getSnapshot());
+			Assertions.assertEquals(new MetricReading().snapshotValues(durationMetric.toSnapshot()).toString(),durationMetric.read(reading).toString());
+			Assertions.assertNull(reading.getSnapshot());
+			Assertions.assertEquals(new MetricReading().snapshotValues(customMetric.toSnapshot()).toString(),customMetric.read(reading).toString());
+			Assertions.assertNotNull(reading.getSnapshot());
+		}
+		clock.addAndGet(Duration.ofSeconds(61).toNanos());
+		Assertions.assertEquals(new MetricReading().snapshotValues(longMetric.toSnapshot()).toString(),longMetric.read(reading).toString());
+		Assertions.assertEquals(0l,reading.getSamplingSize());
+		Assertions.assertEquals(500l,reading.getTotalHits());
+	}
+
+	@ParameterizedTest(name ="When WindowedMetric with reducer {0} registers measures the variance must only take in account the measures of the window")
+	@MethodSource("longReducerDatapack")
+	public void windowVariance(final MeasureReducer<Long> _reducer){
+
+		final boolean primitive=(_reducer instanceof LongReducer);
+		final AtomicLong clock=new AtomicLong(at(0));
+		final WindowedMetric<Long> metric=new WindowedMetric<>("mNAme",Duration.ofSeconds(10),10,_reducer,clock::get);
+		metric.addLongMeasure(at(0),1l);
+		clock.set(at(1000));
+		metric.addMeasure(Timestamps.toLocalDateTime(at(1000)),2l);
+		clock.set(at(5000));
+		metric.addLongMeasure(at(5000),3l);
+		clock.set(at(5500));
+		metric.addLongMeasure(at(5500),4l);
+		Assertions.assertEquals((primitive)? 5.0d/3.0d : Double.NaN,metric.toSnapshot().getVariance(),1e-12d);
+
+		clock.set(at(10500));
+		Assertions.assertEquals((primitive)? 1.0d : Double.NaN,metric.toSnapshot().getVariance(),1e-12d);
+		Assertions.assertEquals((primitive)? 1l : null,metric.toSnapshot().getStdDeviation());
+
+		clock.set(at(16000));
+		Assertions.assertTrue(Double.isNaN(metric.toSnapshot().getVariance()));
+	}
+
+	@ParameterizedTest(name ="When WindowedMetric with {0} buckets registers random measures inside the window the variance merged from the buckets must be the variance of all the measures")
+	@ValueSource(ints = {1,2,6,60})
+	public void mergedVariance(final int _buckets){
+
+		final Random random=new Random(_buckets);
+		final AtomicLong clock=new AtomicLong(at(0));
+		final WindowedMetric<Long> longMetric=new WindowedMetric<>("l",Duration.ofSeconds(60),_buckets,MeasureReducers.LONG.get(Long.class),clock::get);
+		final WindowedMetric<Double> doubleMetric=new WindowedMetric<>("d",Duration.ofSeconds(60),_buckets,MeasureReducers.DOUBLE.get(Double.class),clock::get);
+		final RunningVariance longExpected=new RunningVariance();
+		final RunningVariance doubleExpected=new RunningVariance();
+		for(int ic1=0;ic1<1000;ic1++){
+			final long timestamp=at(ic1*59+random.nextInt(59));
+			clock.set(timestamp);
+			final long measure=random.nextInt(1000)-500;
+			longMetric.addLongMeasure(timestamp,measure);
+			longExpected.record(measure);
+			doubleMetric.addDoubleMeasure(timestamp,measure/3.0d);
+			doubleExpected.record(measure/3.0d);
+		}
+
+		Assertions.assertEquals(1000l,longMetric.toSnapshot().getSamplingSize());
+		Assertions.assertEquals(longExpected.getVariance(),longMetric.toSnapshot().getVariance(),longExpected.getVariance()*1e-9d);
+		Assertions.assertEquals(doubleExpected.getVariance(),doubleMetric.toSnapshot().getVariance(),doubleExpected.getVariance()*1e-9d);
+	}
+
+
+	private static class CustomLongReducer implements MeasureReducer<Long>{
+		@Override
+		public Class getType() {
+			return Long.class;
+		}
+		@Override
+		public Long identity() {
+			return 0l;
+		}
+		@Override
+		public Optional<Long> accumulate(final Long _val1,final Long _val2) {
+			return MeasureReducers.secureApply(_val1, _val2, Long::sum);
+		}
+		@Override
+		public Optional<Long> max(final Long _val1,final Long _val2) {
+			return MeasureReducers.secureApply(_val1, _val2, Math::max);
+		}
+		@Override
+		public Optional<Long> min(final Long _val1,final Long _val2) {
+			return MeasureReducers.secureApply(_val1, _val2, Math::min);
+		}
+		@Override
+		public Optional<Long> average(final Long _val,final long _hits) {
+			return Optional.ofNullable(_val).map(val -> val/_hits);
+		}
+		@Override
+		public String toString(final Long _val) {
+			return String.valueOf(_val);
+		}
+		@Override
+		public String toString() {
+			return "CustomLongReducer";
+		}
+	}
+}
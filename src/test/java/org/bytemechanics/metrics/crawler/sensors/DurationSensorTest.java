@@ -132,4 +132,21 @@ public class DurationSensorTest {
 			_metricService.registerMeasure(_expected, (LocalDateTime)any, (Duration)any, MeasureReducers.DURATION.get(Duration.class)); times=1;
 		}};
 	}
+	@ParameterizedTest(name ="When close() histogram sensor with name:{0},args:{1} metric must add to metricservice the registered measure with histogram reducer")
+	@MethodSource("sensorDatapack")
+	public void closeHistogram(final String _name,final Object[] _args,final String _expected,@Mocked MetricsService _metricService){
+
+		DurationSensor.registerMetricsServiceSupplier(() -> _metricService);
+		
+		new Expectations() {{
+			_metricService.buildMetricName(_name, _args); result=_expected; times=1;
+		}};
+		
+		DurationSensor obj=DurationSensor.histogram(_name,_args);
+		obj.close();
+
+		new Verifications() {{
+			_metricService.registerMeasure(_expected, (LocalDateTime)any, (Duration)any, MeasureReducers.HISTOGRAM_DURATION.get(Duration.class)); times=1;
+		}};
+	}
 }
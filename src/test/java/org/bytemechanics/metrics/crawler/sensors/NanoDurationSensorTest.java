@@ -0,0 +1,267 @@
+/*
+ * Copyright 2020 Byte Mechanics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bytemechanics.metrics.crawler.sensors;
+
+import com.sun.management.ThreadMXBean;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.logging.LogManager;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import mockit.Expectations;
+import mockit.Mocked;
+import mockit.Verifications;
+import org.bytemechanics.metrics.crawler.MeasureReducer;
+import org.bytemechanics.metrics.crawler.MetricsService;
+import org.bytemechanics.metrics.crawler.beans.MetricSnapshot;
+import org.bytemechanics.metrics.crawler.impl.DefaultMetricsServiceImpl;
+import org.bytemechanics.metrics.crawler.internal.MetricFactories;
+import org.bytemechanics.metrics.crawler.internal.MetricsServiceSingleton;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInfo;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+/**
+ * @author afarre
+ */
+public class NanoDurationSensorTest {
+
+	@BeforeAll
+	public static void setup() throws IOException{
+		System.out.println(">>>>> NanoDurationSensorTest >>>> setup");
+		try(InputStream inputStream = NanoDurationSensorTest.class.getResourceAsStream("/logging.properties")){
+			LogManager.getLogManager().readConfiguration(inputStream);
+		}catch (final IOException e){
+			Logger.getAnonymousLogger().severe("Could not load default logging.properties file");
+			Logger.getAnonymousLogger().severe(e.getMessage());
+		}
+	}
+	@BeforeEach
+    void beforeEachTest(final TestInfo testInfo) {
+        System.out.println(">>>>> "+this.getClass().getSimpleName()+" >>>> "+testInfo.getTestMethod().map(Method::getName).orElse("Unkown")+""+testInfo.getTags().toString()+" >>>> "+testInfo.getDisplayName());
+		AbstractSensor.registerMetricsServiceSupplier(() -> MetricsServiceSingleton.getInstance().getMetricsService());
+    }
+	@AfterEach
+	void afterEachTest(){
+		AbstractSensor.registerMetricsServiceSupplier(() -> MetricsServiceSingleton.getInstance().getMetricsService());
+	}
+	
+	@Test
+	@DisplayName("Create a null name metric sensor should raise NullPointerException")
+	@SuppressWarnings("ThrowableResultIgnored")
+	public void getNullName(){
+
+		Assertions.assertThrows(NullPointerException.class,
+								() -> NanoDurationSensor.get(null), 
+								"Can not create null named sensor metric");
+		Assertions.assertThrows(NullPointerException.class,
+								() -> NanoDurationSensor.get(null,1), 
+								"Can not create null named sensor metric");
+	}	
+	@Test
+	@DisplayName("Create a sensor when the metrics service supplier returns null should raise NullPointerException")
+	@SuppressWarnings("ThrowableResultIgnored")
+	public void getNullMetricsService(){
+
+		AbstractSensor.registerMetricsServiceSupplier(() -> null);
+		Assertions.assertThrows(NullPointerException.class,
+								() -> NanoDurationSensor.get("a"), 
+								"The current metricServiceSupplier has returned a null metric service");
+	}	
+
+	static Stream<Arguments> sensorDatapack() {
+	    return Stream.of(
+			Arguments.of("a", new Object[]{1,2.0d,"string"}, "a"),			
+			Arguments.of("{}b{}c{}",new Object[]{},"nullbnullcnull"),
+			Arguments.of("{}b{}c{}",new Object[]{1},"1bnullcnull"),
+			Arguments.of("{}b{}c{}",new Object[]{1,2.0d,"string"},"1b2.0cstring"),	
+			Arguments.of("{}b{}c{}",new Object[]{null,2.0d,"string"},"nullb2.0cstring")
+		);
+	}
+
+	@ParameterizedTest(name ="When create a nano duration sensor with get(_name:{0},_args:{1}) and then call getName() should return {2}")
+	@MethodSource("sensorDatapack")
+	public void getName(final String _name,final Object[] _args,final String _expected){
+
+		NanoDurationSensor obj=NanoDurationSensor.get(_name,_args);
+				
+		Assertions.assertNotNull(obj);
+		Assertions.assertEquals(_expected, obj.getName());
+		Assertions.assertFalse(obj.isSkip());
+	}
+	@Test
+	@DisplayName("When create a nano duration sensor without arguments the name must be built as the duration sensor one")
+	public void getNameWithoutArgs(){
+
+		NanoDurationSensor obj=NanoDurationSensor.get("{}b{}c{}");
+				
+		Assertions.assertEquals("nullbnullcnull", obj.getName());
+		try(DurationSensor sensor=DurationSensor.get("{}b{}c{}")){
+			Assertions.assertEquals(sensor.getName(), obj.getName());
+			sensor.skip();
+		}
+		Assertions.assertSame(MetricsServiceSingleton.getInstance().getMetricsService(), obj.getMetricService());
+	}
+	@Test
+	@DisplayName("When call skip() over a nano duration sensor then isSkip() should return true")
+	public void isSkipTrue(){
+
+		NanoDurationSensor obj=NanoDurationSensor.get("a");
+		obj.skip();
+				
+		Assertions.assertTrue(obj.isSkip());
+	}
+	@Test
+	@DisplayName("The nano duration sensor measure must grow with the elapsed time")
+	public void getMeasure() throws InterruptedException{
+
+		NanoDurationSensor obj=NanoDurationSensor.get("a");
+		Thread.sleep(5);
+				
+		Assertions.assertTrue(obj.getNanos()>=Duration.ofMillis(5).toNanos());
+		Assertions.assertTrue(obj.getMeasure().compareTo(Duration.ofMillis(5))>=0);
+	}
+
+	@Test
+	@DisplayName("When close() sensor the elapsed nanos must be registered with registerDuration")
+	public void closeWithMeasure(@Mocked MetricsService _metricService){
+
+		AbstractSensor.registerMetricsServiceSupplier(() -> _metricService);
+		new Expectations() {{
+			_metricService.buildMetricName("myNanos"); result="myNanos";
+		}};
+		
+		NanoDurationSensor obj=NanoDurationSensor.get("myNanos");
+		obj.close();
+
+		new Verifications() {{
+			_metricService.registerDuration("myNanos", anyLong); times=1;
+			_metricService.registerMeasure(anyString, (LocalDateTime)any, any, (MeasureReducer)any); times=0;
+		}};
+	}
+	@Test
+	@DisplayName("When close() a skipped sensor nothing must be registered")
+	public void closeSkipped(@Mocked MetricsService _metricService){
+
+		AbstractSensor.registerMetricsServiceSupplier(() -> _metricService);
+		
+		NanoDurationSensor obj=NanoDurationSensor.get("myNanos");
+		obj.skip();
+		obj.close();
+
+		new Verifications() {{
+			_metricService.registerDuration(anyString, anyLong); times=0;
+		}};
+	}
+	@Test
+	@DisplayName("When close() sensor and the metric service fails the exception must not be propagated")
+	public void closeWithFailure(@Mocked MetricsService _metricService){
+
+		AbstractSensor.registerMetricsServiceSupplier(() -> _metricService);
+		new Expectations() {{
+			_metricService.registerDuration(anyString, anyLong); result=new IllegalStateException("failure"); 
+		}};
+		
+		NanoDurationSensor obj=NanoDurationSensor.get("myNanos");
+		Assertions.assertDoesNotThrow(obj::close);
+	}
+	@Test
+	@DisplayName("When close() sensor the measure must be registered as Duration in the metrics service")
+	public void closeIntoMetricsService() throws InterruptedException{
+
+		final MetricsService metricsService=new DefaultMetricsServiceImpl(4);
+		AbstractSensor.registerMetricsServiceSupplier(() -> metricsService);
+		
+		try(NanoDurationSensor sensor=NanoDurationSensor.get("myNanos{}",1)){
+			Thread.sleep(5);
+		}
+
+		final MetricSnapshot snapshot=metricsService.getMetric("myNanos1").get();
+		Assertions.assertEquals(1l,snapshot.getTotalHits());
+		Assertions.assertTrue(((Duration)snapshot.getLastMeasure()).compareTo(Duration.ofMillis(5))>=0);
+	}
+
+	@Test
+	@DisplayName("When a sensor is closed it must be recycled by the next sensor of the same thread and nested sensors must be distinct")
+	public void recycle(@Mocked MetricsService _metricService){
+
+		AbstractSensor.registerMetricsServiceSupplier(() -> _metricService);
+		new Expectations() {{
+			_metricService.buildMetricName("first"); result="first";
+			_metricService.buildMetricName("nested"); result="nested";
+			_metricService.buildMetricName("recycled"); result="recycled";
+		}};
+		
+		final NanoDurationSensor first=NanoDurationSensor.get("first");
+		final NanoDurationSensor nested=NanoDurationSensor.get("nested");
+		Assertions.assertNotSame(first,nested);
+		nested.close();
+		first.close();
+		first.close();
+		final NanoDurationSensor recycled=NanoDurationSensor.get("recycled");
+		
+		Assertions.assertSame(first,recycled);
+		Assertions.assertEquals("recycled",recycled.getName());
+		Assertions.assertFalse(recycled.isSkip());
+		new Verifications() {{
+			_metricService.registerDuration("first", anyLong); times=1;
+			_metricService.registerDuration("nested", anyLong); times=1;
+		}};
+	}
+
+	static Stream<Arguments> steadyStateAllocationDatapack() {
+	    return Stream.of(
+					Arguments.of(MetricFactories.SAMPLED),
+					Arguments.of(MetricFactories.WINDOWED),
+					Arguments.of(MetricFactories.CONCURRENT)
+				);
+	}
+	@ParameterizedTest(name="In steady state the sensors with {0} metrics must not allocate memory")
+	@MethodSource("steadyStateAllocationDatapack")
+	public void steadyStateAllocation(final MetricFactories _factory){
+
+		final ThreadMXBean threadMXBean=(ThreadMXBean)ManagementFactory.getThreadMXBean();
+		Assumptions.assumeTrue(threadMXBean.isThreadAllocatedMemorySupported() && threadMXBean.isThreadAllocatedMemoryEnabled());
+		final MetricsService metricsService=new DefaultMetricsServiceImpl(16,_factory);
+		AbstractSensor.registerMetricsServiceSupplier(() -> metricsService);
+		final long threadId=Thread.currentThread().getId();
+		
+		for(int ic1=0;ic1<10000;ic1++){
+			try(NanoDurationSensor sensor=NanoDurationSensor.get("myNanos")){
+			}
+		}
+		final long before=threadMXBean.getThreadAllocatedBytes(threadId);
+		for(int ic1=0;ic1<100000;ic1++){
+			try(NanoDurationSensor sensor=NanoDurationSensor.get("myNanos")){
+			}
+		}
+		final long allocated=threadMXBean.getThreadAllocatedBytes(threadId)-before;
+		
+		Assertions.assertTrue(allocated<100000,"Allocated "+allocated+" bytes in 100000 measures");
+	}
+}
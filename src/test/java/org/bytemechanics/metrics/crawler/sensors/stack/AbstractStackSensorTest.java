@@ -54,14 +54,14 @@ public class AbstractStackSensorTest {
 	public static void cleanup(){
 		System.out.println(">>>>> AbstractStackSensorTest >>>> cleanup");
 		AbstractSensor.registerMetricsServiceSupplier(() -> MetricsServiceSingleton.getInstance().getMetricsService());
-		AbstractStackSensor.CURRENT_NAME.set(null);
+		SensorStack.reset();
 	}
 
 	@BeforeEach
     void beforeEachTest(final TestInfo testInfo) {
         System.out.println(">>>>> "+this.getClass().getSimpleName()+" >>>> "+testInfo.getTestMethod().map(Method::getName).orElse("Unkown")+""+testInfo.getTags().toString()+" >>>> "+testInfo.getDisplayName());
 		AbstractSensor.registerMetricsServiceSupplier(() -> MetricsServiceSingleton.getInstance().getMetricsService());
-		AbstractStackSensor.CURRENT_NAME.set(null);
+		SensorStack.reset();
     }
 	
 	
@@ -191,4 +191,30 @@ public class AbstractStackSensorTest {
 					()-> Assertions.assertEquals("name6.name8", sensor8.getName()),
 					()-> Assertions.assertEquals("name6.name8.name9", sensor9.getName()));
 	}
+
+	@Test
+	@DisplayName("The deprecated CURRENT_NAME must be a view of the current sensor stack of the thread")
+	@SuppressWarnings("deprecation")
+	public void currentName(){
+
+		Assertions.assertNull(AbstractStackSensor.CURRENT_NAME.get());
+		try(DoubleStackSensor sensor1=DoubleStackSensor.get("name1")){
+			Assertions.assertEquals("name1",AbstractStackSensor.CURRENT_NAME.get());
+			AbstractStackSensor.CURRENT_NAME.set("other.name");
+			Assertions.assertEquals("other.name",SensorStack.current().getName());
+			try(DoubleStackSensor sensor2=DoubleStackSensor.get("name2")){
+				Assertions.assertEquals("other.name.name2",sensor2.getName());
+			}
+			Assertions.assertEquals("other.name",AbstractStackSensor.CURRENT_NAME.get());
+			AbstractStackSensor.CURRENT_NAME.set(null);
+			Assertions.assertNull(AbstractStackSensor.CURRENT_NAME.get());
+			try(DoubleStackSensor sensor3=DoubleStackSensor.get("name3")){
+				Assertions.assertEquals("name3",sensor3.getName());
+			}
+			AbstractStackSensor.CURRENT_NAME.set("name4");
+			AbstractStackSensor.CURRENT_NAME.remove();
+			Assertions.assertEquals("",SensorStack.current().getName());
+		}
+		Assertions.assertNull(AbstractStackSensor.CURRENT_NAME.get());
+	}
 }
@@ -0,0 +1,262 @@
+/*
+ * Copyright 2020 Byte Mechanics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bytemechanics.metrics.crawler.sensors.stack;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.logging.LogManager;
+import java.util.logging.Logger;
+import mockit.Expectations;
+import mockit.Mocked;
+import mockit.Verifications;
+import org.bytemechanics.metrics.crawler.MetricHandle;
+import org.bytemechanics.metrics.crawler.MetricsService;
+import org.bytemechanics.metrics.crawler.impl.DefaultMetricsServiceImpl;
+import org.bytemechanics.metrics.crawler.internal.MeasureReducers;
+import org.bytemechanics.metrics.crawler.internal.MetricsServiceSingleton;
+import org.bytemechanics.metrics.crawler.sensors.AbstractSensor;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInfo;
+
+/**
+ * @author afarre
+ */
+public class SensorStackTest {
+
+	@BeforeAll
+	public static void setup() throws IOException{
+		System.out.println(">>>>> SensorStackTest >>>> setup");
+		try(InputStream inputStream = SensorStackTest.class.getResourceAsStream("/logging.properties")){
+			LogManager.getLogManager().readConfiguration(inputStream);
+		}catch (final IOException e){
+			Logger.getAnonymousLogger().severe("Could not load default logging.properties file");
+			Logger.getAnonymousLogger().severe(e.getMessage());
+		}
+	}
+	@AfterAll
+	public static void cleanup(){
+		System.out.println(">>>>> SensorStackTest >>>> cleanup");
+		SensorStack.reset();
+	}
+
+	@BeforeEach
+    void beforeEachTest(final TestInfo testInfo) {
+        System.out.println(">>>>> "+this.getClass().getSimpleName()+" >>>> "+testInfo.getTestMethod().map(Method::getName).orElse("Unkown")+""+testInfo.getTags().toString()+" >>>> "+testInfo.getDisplayName());
+		AbstractSensor.registerMetricsServiceSupplier(() -> MetricsServiceSingleton.getInstance().getMetricsService());
+		SensorStack.reset();
+    }
+
+
+	@Test
+	@DisplayName("Without open sensors the current frame must be the root frame with empty name")
+	public void root(){
+
+		final SensorStack.Frame root=SensorStack.current();
+
+		Assertions.assertNull(root.getParent());
+		Assertions.assertEquals("",root.getName());
+		Assertions.assertEquals(0,root.getDepth());
+		Assertions.assertEquals("SensorStack.Frame[name=, depth=0]",root.toString());
+	}
+
+	@Test
+	@DisplayName("The frames of the same path must be interned and restored when the sensors are closed")
+	public void pushAndRestore(){
+
+		final SensorStack.Frame root=SensorStack.current();
+		final SensorStack.Frame first;
+		try(LongStackSensor sensor1=LongStackSensor.get("a")){
+			first=SensorStack.current();
+			try(LongStackSensor sensor2=LongStackSensor.get("b")){
+				Assertions.assertEquals("a.b",sensor2.getName());
+				Assertions.assertEquals("b",SensorStack.current().getSegment());
+				Assertions.assertEquals(2,SensorStack.current().getDepth());
+				Assertions.assertSame(first,SensorStack.current().getParent());
+			}
+			Assertions.assertSame(first,SensorStack.current());
+		}
+		Assertions.assertSame(root,SensorStack.current());
+		try(LongStackSensor sensor1=LongStackSensor.get("a")){
+			Assertions.assertSame(first,SensorStack.current());
+		}
+	}
+
+	@Test
+	@DisplayName("When a segment is repeated in the stack the close must restore the frame of its own sensor")
+	public void repeatedSegment(){
+
+		try(LongStackSensor sensor1=LongStackSensor.get("a")){
+			try(LongStackSensor sensor2=LongStackSensor.get("b")){
+				try(LongStackSensor sensor3=LongStackSensor.get("a")){
+					Assertions.assertEquals("a.b.a",sensor3.getName());
+				}
+				Assertions.assertEquals("a.b",SensorStack.current().getName());
+			}
+			Assertions.assertEquals("a",SensorStack.current().getName());
+		}
+		Assertions.assertEquals("",SensorStack.current().getName());
+	}
+
+	@Test
+	@DisplayName("The stack must not be inherited by other threads unless is propagated with the wrap helpers or attach()")
+	public void propagation() throws Exception{
+
+		final ExecutorService executor=Executors.newSingleThreadExecutor();
+		try(LongStackSensor sensor1=LongStackSensor.get("parent")){
+			final Function<String,String> stacked=segment -> {
+				try(LongStackSensor sensor=LongStackSensor.get(segment)){
+					return sensor.getName();
+				}
+			};
+
+			Assertions.assertEquals("runnable",executor.submit(() -> stacked.apply("runnable")).get());
+			Assertions.assertEquals("parent.callable",executor.submit(SensorStack.wrapCallable(() -> stacked.apply("callable"))).get());
+			Assertions.assertEquals("parent.supplier",CompletableFuture.supplyAsync(SensorStack.wrapSupplier(() -> stacked.apply("supplier")),executor).get());
+			Assertions.assertEquals("parent.function",CompletableFuture.completedFuture("function").thenApplyAsync(SensorStack.wrapFunction(stacked),executor).get());
+			final String[] result=new String[1];
+			executor.submit(SensorStack.wrapRunnable(() -> result[0]=stacked.apply("runnable"))).get();
+			Assertions.assertEquals("parent.runnable",result[0]);
+			Assertions.assertEquals("",executor.submit(() -> SensorStack.current().getName()).get());
+
+			final SensorStack.Frame frame=SensorStack.current();
+			SensorStack.reset();
+			try(SensorStack.Scope scope=SensorStack.attach(frame)){
+				Assertions.assertEquals("parent.attached",stacked.apply("attached"));
+			}
+			Assertions.assertEquals("",SensorStack.current().getName());
+		}finally{
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	@DisplayName("Wrap or attach null values should raise a NullPointerException")
+	@SuppressWarnings("ThrowableResultIgnored")
+	public void nullControl(){
+
+		Assertions.assertThrows(NullPointerException.class,() -> SensorStack.attach(null));
+		Assertions.assertThrows(NullPointerException.class,() -> SensorStack.wrapRunnable(null));
+		Assertions.assertThrows(NullPointerException.class,() -> SensorStack.wrapCallable(null));
+		Assertions.assertThrows(NullPointerException.class,() -> SensorStack.wrapSupplier(null));
+		Assertions.assertThrows(NullPointerException.class,() -> SensorStack.wrapFunction(null));
+	}
+
+	@Test
+	@DisplayName("The children beyond the max interned children must be built each time with the right name")
+	public void maxChildren(){
+
+		final SensorStack.Frame parent=SensorStack.current().child("maxChildren");
+		for(int ic1=0;ic1<SensorStack.MAX_CHILDREN;ic1++){
+			Assertions.assertSame(parent.child("child"+ic1),parent.child("child"+ic1));
+		}
+		final SensorStack.Frame notInterned=parent.child("overflow");
+
+		Assertions.assertEquals("maxChildren.overflow",notInterned.getName());
+		Assertions.assertNotSame(notInterned,parent.child("overflow"));
+		Assertions.assertSame(parent.child("child0"),parent.child("child0"));
+	}
+
+	@Test
+	@DisplayName("The interned frames must cache the metric handle of the service and register the measures into the metric while the service keeps it")
+	public void handle(){
+
+		final DefaultMetricsServiceImpl metricsService=new DefaultMetricsServiceImpl(4);
+		final DefaultMetricsServiceImpl otherService=new DefaultMetricsServiceImpl(4);
+		AbstractSensor.registerMetricsServiceSupplier(() -> metricsService);
+		try(DurationStackSensor parent=DurationStackSensor.get("handleParent")){
+			try(LongStackSensor child=LongStackSensor.get(1l,"child")){
+			}
+		}
+		final SensorStack.Frame frame=SensorStack.frame("handleParent.child");
+		final MetricHandle handle=frame.handle(metricsService);
+
+		Assertions.assertNotNull(handle);
+		Assertions.assertEquals("handleParent.child",handle.getName());
+		Assertions.assertSame(handle,frame.handle(metricsService));
+		Assertions.assertEquals(1l,metricsService.getMetric("handleParent.child").get().getTotalHits());
+		Assertions.assertEquals(1l,metricsService.getMetric("handleParent").get().getTotalHits());
+
+		metricsService.clear();
+		try(DurationStackSensor parent=DurationStackSensor.get("handleParent")){
+			try(LongStackSensor child=LongStackSensor.get(2l,"child")){
+			}
+		}
+		Assertions.assertSame(handle,frame.handle(metricsService));
+		Assertions.assertEquals(1l,metricsService.getMetric("handleParent.child").get().getTotalHits());
+		Assertions.assertEquals(2l,metricsService.getMetric("handleParent.child").get().getLastMeasure());
+
+		Assertions.assertNotSame(handle,frame.handle(otherService));
+		Assertions.assertEquals("handleParent.child",frame.handle(otherService).getName());
+	}
+
+	@Test
+	@DisplayName("The frames must not cache handles of other metrics services, that keep receiving the measures by name")
+	public void handleOtherService(@Mocked MetricsService _metricService){
+
+		AbstractSensor.registerMetricsServiceSupplier(() -> _metricService);
+		new Expectations() {{
+			_metricService.buildMetricName("handleOther"); result="handleOther";
+		}};
+		try(LongStackSensor sensor=LongStackSensor.get(1l,"handleOther")){
+		}
+
+		Assertions.assertNull(SensorStack.frame("handleOther").handle(_metricService));
+		new Verifications() {{
+			_metricService.registerMeasure("handleOther", (LocalDateTime)any, 1l, MeasureReducers.LONG.get(Long.class)); times=1;
+		}};
+	}
+
+	@Test
+	@DisplayName("The frames beyond the max interned frames must be built each time and clear() must discard the interned frames")
+	public void maxFramesAndClear(){
+
+		SensorStack.clear();
+		try{
+			Assertions.assertEquals(0,SensorStack.interned());
+			for(int ic1=0;SensorStack.interned()<SensorStack.MAX_FRAMES;ic1++){
+				SensorStack.frame("parent"+(ic1/1000)+".child"+(ic1%1000));
+			}
+			final SensorStack.Frame interned=SensorStack.frame("parent0.child0");
+			final SensorStack.Frame notInterned=SensorStack.frame("overflow");
+
+			Assertions.assertSame(interned,SensorStack.frame("parent0.child0"));
+			Assertions.assertEquals("overflow",notInterned.getName());
+			Assertions.assertNotSame(notInterned,SensorStack.frame("overflow"));
+			Assertions.assertEquals(SensorStack.MAX_FRAMES,SensorStack.interned());
+
+			SensorStack.clear();
+			Assertions.assertEquals(0,SensorStack.interned());
+			Assertions.assertNotSame(interned,SensorStack.frame("parent0.child0"));
+			Assertions.assertEquals("parent0.child0",SensorStack.frame("parent0.child0").getName());
+			Assertions.assertEquals(2,SensorStack.interned());
+			Assertions.assertSame(SensorStack.current(),SensorStack.frame(null));
+			Assertions.assertSame(SensorStack.current(),SensorStack.frame(""));
+		}finally{
+			SensorStack.clear();
+		}
+	}
+}